@@ -0,0 +1,205 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.tiles;
+
+import java.io.Serializable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Assigns every attribute name a small integer slot, so that
+ * {@link SlottedAttributeContext} can store attributes in arrays instead of
+ * hash maps.
+ * <p>
+ * Names are usually registered when definitions are loaded. Slots are never
+ * released, so the number of slots is bounded: once the table is full, or
+ * once it has been {@link #freeze() frozen}, e.g. after the definitions have
+ * been loaded, new names get no slot and contexts keep their attributes in
+ * hash maps. It is thread safe; looking up a registered name does not lock.
+ * </p>
+ *
+ * @version $Rev$ $Date$
+ * @since 3.0.8
+ */
+public class AttributeSymbolTable implements Serializable {
+
+    /**
+     * The initial capacity of the name array.
+     */
+    private static final int INITIAL_CAPACITY = 32;
+
+    /**
+     * The default maximum number of slots.
+     */
+    public static final int DEFAULT_MAX_SIZE = 1024;
+
+    /**
+     * Maps a name to its slot.
+     */
+    private final ConcurrentMap<String, Integer> slots =
+        new ConcurrentHashMap<String, Integer>();
+
+    /**
+     * The names, indexed by slot.
+     */
+    private volatile String[] names = new String[INITIAL_CAPACITY];
+
+    /**
+     * The number of assigned slots.
+     */
+    private volatile int size = 0;
+
+    /**
+     * The maximum number of slots.
+     */
+    private final int maxSize;
+
+    /**
+     * If <code>true</code>, no new slot is assigned.
+     */
+    private volatile boolean frozen = false;
+
+    /**
+     * Constructor, with {@link #DEFAULT_MAX_SIZE} slots at most.
+     */
+    public AttributeSymbolTable() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param maxSize The maximum number of slots.
+     */
+    public AttributeSymbolTable(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns the slot of a name, assigning a new one if the name has never
+     * been seen, and the table is neither full nor frozen.
+     *
+     * @param name The attribute name.
+     * @return The slot, or <code>-1</code> if the name has no slot and no new
+     * slot can be assigned.
+     */
+    public int getSlot(String name) {
+        if (name == null) {
+            throw new IllegalArgumentException("Attribute names cannot be null");
+        }
+        Integer slot = slots.get(name);
+        if (slot != null) {
+            return slot.intValue();
+        }
+        return assignSlot(name);
+    }
+
+    /**
+     * Returns the slot of a name, without assigning one.
+     *
+     * @param name The attribute name.
+     * @return The slot, or <code>-1</code> if the name has no slot, i.e. no
+     * attribute with this name has ever been stored.
+     */
+    public int findSlot(String name) {
+        if (name == null) {
+            return -1;
+        }
+        Integer slot = slots.get(name);
+        if (slot == null) {
+            return -1;
+        }
+        return slot.intValue();
+    }
+
+    /**
+     * Stops assigning new slots. Names that already have a slot keep it.
+     */
+    public void freeze() {
+        frozen = true;
+    }
+
+    /**
+     * Checks if new slots can no longer be assigned, because the table has
+     * been frozen.
+     *
+     * @return <code>true</code> if the table is frozen.
+     */
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    /**
+     * Returns the name associated to a slot.
+     *
+     * @param slot The slot.
+     * @return The name.
+     */
+    public String getName(int slot) {
+        return names[slot];
+    }
+
+    /**
+     * Returns the number of assigned slots. Every slot is lower than this
+     * number.
+     *
+     * @return The number of slots.
+     */
+    public int size() {
+        return size;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        return "Attribute symbol table: " + size + " names"
+                + (frozen ? ", frozen" : "");
+    }
+
+    /**
+     * Assigns a slot to a name, unless another thread did it in the meantime.
+     *
+     * @param name The attribute name.
+     * @return The slot, or <code>-1</code> if the table is full or frozen.
+     */
+    private synchronized int assignSlot(String name) {
+        Integer slot = slots.get(name);
+        if (slot != null) {
+            return slot.intValue();
+        }
+        if (frozen || size >= maxSize) {
+            return -1;
+        }
+        int newSlot = size;
+        String[] currentNames = names;
+        if (newSlot == currentNames.length) {
+            String[] newNames = new String[currentNames.length * 2];
+            System.arraycopy(currentNames, 0, newNames, 0, currentNames.length);
+            currentNames = newNames;
+        }
+        currentNames[newSlot] = name;
+        names = currentNames;
+        size = newSlot + 1;
+        slots.put(name, Integer.valueOf(newSlot));
+        return newSlot;
+    }
+}
@@ -353,8 +353,12 @@ public class BasicAttributeContext implements AttributeContext, Serializable {
     public void clear() {
         templateAttribute = null;
         preparer = null;
-        attributes.clear();
-        cascadedAttributes.clear();
+        if (attributes != null) {
+            attributes.clear();
+        }
+        if (cascadedAttributes != null) {
+            cascadedAttributes.clear();
+        }
     }
 
     /** {@inheritDoc} */
@@ -0,0 +1,48 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles;
+
+/**
+ * A definition name resolved by a {@link TilesContainer}, to render the
+ * definition many times without looking it up by name every time.
+ * <p>
+ * Handles are obtained with
+ * {@link TilesContainer#getDefinitionHandle(String, org.apache.tiles.request.Request)}
+ * and are rendered with
+ * {@link TilesContainer#render(DefinitionHandle, org.apache.tiles.request.Request)}.
+ * They can be kept across requests and shared among threads: the container
+ * resolves the definition again when the customization key of the request,
+ * e.g. the locale, is new for the handle, or when the definitions have been
+ * reloaded.
+ * </p>
+ *
+ * @version $Rev$ $Date$
+ * @since 3.0.8
+ */
+public interface DefinitionHandle {
+
+    /**
+     * Returns the name of the definition.
+     *
+     * @return The definition name.
+     */
+    String getName();
+}
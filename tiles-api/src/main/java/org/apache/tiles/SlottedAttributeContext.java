@@ -0,0 +1,693 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.tiles;
+
+import static org.apache.tiles.CompareUtil.*;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <code>AttributeContext</code> that stores its attributes in arrays indexed
+ * by the slots of an {@link AttributeSymbolTable}. Copying and inheriting
+ * between two contexts that share the same table walks the arrays, without
+ * hashing names or allocating map entries, and a lookup is a single hash
+ * lookup in the table followed by two array reads. The arrays are only as
+ * large as the highest slot this context uses. Attributes whose names have
+ * no slot, because the table is full or frozen, are kept in hash maps.
+ *
+ * @version $Rev$ $Date$
+ * @since 3.0.8
+ */
+public class SlottedAttributeContext implements AttributeContext, Serializable {
+
+    /**
+     * The symbol table that assigns the slots.
+     */
+    private final AttributeSymbolTable symbolTable;
+
+    /**
+     * The template attribute, to render a template.
+     */
+    private Attribute templateAttribute;
+
+    /**
+     * Associated ViewPreparer URL or classname, if defined.
+     */
+    private String preparer;
+
+    /**
+     * Local attributes, indexed by slot, or <code>null</code> if none has
+     * been put.
+     */
+    private Attribute[] attributes;
+
+    /**
+     * Cascaded attributes, indexed by slot, or <code>null</code> if none has
+     * been put.
+     */
+    private Attribute[] cascadedAttributes;
+
+    /**
+     * Local attributes whose names have no slot, or <code>null</code> if none
+     * has been put.
+     */
+    private Map<String, Attribute> unslottedAttributes;
+
+    /**
+     * Cascaded attributes whose names have no slot, or <code>null</code> if
+     * none has been put.
+     */
+    private Map<String, Attribute> unslottedCascadedAttributes;
+
+    /**
+     * Constructor.
+     *
+     * @param symbolTable The symbol table that assigns the slots.
+     */
+    public SlottedAttributeContext(AttributeSymbolTable symbolTable) {
+        this.symbolTable = symbolTable;
+    }
+
+    /**
+     * Copy constructor. The attributes are copied too, as in
+     * {@link BasicAttributeContext#BasicAttributeContext(AttributeContext)}.
+     *
+     * @param symbolTable The symbol table that assigns the slots.
+     * @param context The context to copy.
+     */
+    public SlottedAttributeContext(AttributeSymbolTable symbolTable,
+            AttributeContext context) {
+        this.symbolTable = symbolTable;
+        Attribute parentTemplateAttribute = context.getTemplateAttribute();
+        if (parentTemplateAttribute != null) {
+            templateAttribute = new Attribute(parentTemplateAttribute);
+        }
+        preparer = context.getPreparer();
+        if (isCompatible(context)) {
+            SlottedAttributeContext slotted = (SlottedAttributeContext) context;
+            attributes = deepCopy(slotted.attributes);
+            cascadedAttributes = deepCopy(slotted.cascadedAttributes);
+            unslottedAttributes = deepCopy(slotted.unslottedAttributes);
+            unslottedCascadedAttributes = deepCopy(slotted.unslottedCascadedAttributes);
+        } else {
+            Set<String> names = context.getLocalAttributeNames();
+            if (names != null) {
+                for (String name : names) {
+                    Attribute attribute = context.getLocalAttribute(name);
+                    if (attribute != null) {
+                        putAttribute(name, attribute.clone(), false);
+                    }
+                }
+            }
+            copyCascadedAttributes(context);
+        }
+    }
+
+    /**
+     * Returns the symbol table that assigns the slots of this context.
+     *
+     * @return The symbol table.
+     */
+    public AttributeSymbolTable getSymbolTable() {
+        return symbolTable;
+    }
+
+    /** {@inheritDoc} */
+    public Attribute getTemplateAttribute() {
+        return templateAttribute;
+    }
+
+    /** {@inheritDoc} */
+    public void setTemplateAttribute(Attribute templateAttribute) {
+        this.templateAttribute = templateAttribute;
+    }
+
+    /** {@inheritDoc} */
+    public String getPreparer() {
+        return preparer;
+    }
+
+    /** {@inheritDoc} */
+    public void setPreparer(String url) {
+        this.preparer = url;
+    }
+
+    /** {@inheritDoc} */
+    public void addAll(Map<String, Attribute> newAttributes) {
+        if (newAttributes == null) {
+            return;
+        }
+        for (Map.Entry<String, Attribute> entry : newAttributes.entrySet()) {
+            putAttribute(entry.getKey(), entry.getValue(), false);
+        }
+    }
+
+    /** {@inheritDoc} */
+    public void addMissing(Map<String, Attribute> defaultAttributes) {
+        if (defaultAttributes == null) {
+            return;
+        }
+        for (Map.Entry<String, Attribute> entry : defaultAttributes.entrySet()) {
+            if (getAttribute(entry.getKey()) == null) {
+                putAttribute(entry.getKey(), entry.getValue(), false);
+            }
+        }
+    }
+
+    /** {@inheritDoc} */
+    public void inheritCascadedAttributes(AttributeContext context) {
+        if (isCompatible(context)) {
+            SlottedAttributeContext slotted = (SlottedAttributeContext) context;
+            if (slotted.cascadedAttributes != null) {
+                cascadedAttributes = deepCopy(slotted.cascadedAttributes);
+            }
+            if (slotted.unslottedCascadedAttributes != null) {
+                unslottedCascadedAttributes = deepCopy(slotted.unslottedCascadedAttributes);
+            }
+        } else {
+            cascadedAttributes = null;
+            unslottedCascadedAttributes = null;
+            copyCascadedAttributes(context);
+        }
+    }
+
+    /** {@inheritDoc} */
+    public void inherit(AttributeContext parent) {
+        Attribute parentTemplateAttribute = parent.getTemplateAttribute();
+        if (parentTemplateAttribute != null) {
+            if (templateAttribute == null) {
+                templateAttribute = new Attribute(parentTemplateAttribute);
+            } else {
+                templateAttribute.inherit(parentTemplateAttribute);
+            }
+        }
+        if (preparer == null) {
+            preparer = parent.getPreparer();
+        }
+
+        if (isCompatible(parent)) {
+            SlottedAttributeContext slotted = (SlottedAttributeContext) parent;
+            inheritAttributes(slotted.cascadedAttributes, true);
+            inheritAttributes(slotted.unslottedCascadedAttributes, true);
+            inheritAttributes(slotted.attributes, false);
+            inheritAttributes(slotted.unslottedAttributes, false);
+        } else if (parent instanceof BasicAttributeContext) {
+            // Definitions are basic attribute contexts: avoid building the
+            // name sets.
+            BasicAttributeContext basic = (BasicAttributeContext) parent;
+            inheritAttributes(basic.cascadedAttributes, true);
+            inheritAttributes(basic.attributes, false);
+        } else {
+            Set<String> names = parent.getCascadedAttributeNames();
+            if (names != null) {
+                for (String name : names) {
+                    inheritAttribute(name, parent.getCascadedAttribute(name), true);
+                }
+            }
+            names = parent.getLocalAttributeNames();
+            if (names != null) {
+                for (String name : names) {
+                    inheritAttribute(name, parent.getLocalAttribute(name), false);
+                }
+            }
+        }
+    }
+
+    /** {@inheritDoc} */
+    public Attribute getAttribute(String name) {
+        int slot = symbolTable.findSlot(name);
+        if (slot >= 0) {
+            return getAttribute(slot);
+        }
+        Attribute retValue = get(unslottedAttributes, name);
+        if (retValue == null) {
+            retValue = get(unslottedCascadedAttributes, name);
+        }
+        return retValue;
+    }
+
+    /**
+     * Returns the attribute in a slot, looking first in the local
+     * attributes and then in the cascaded ones.
+     *
+     * @param slot The slot, as returned by {@link AttributeSymbolTable}. A
+     * negative slot returns <code>null</code>.
+     * @return The attribute, or <code>null</code> if not found.
+     */
+    public Attribute getAttribute(int slot) {
+        Attribute retValue = get(attributes, slot);
+        if (retValue == null) {
+            retValue = get(cascadedAttributes, slot);
+        }
+        return retValue;
+    }
+
+    /** {@inheritDoc} */
+    public Attribute getLocalAttribute(String name) {
+        int slot = symbolTable.findSlot(name);
+        if (slot >= 0) {
+            return get(attributes, slot);
+        }
+        return get(unslottedAttributes, name);
+    }
+
+    /**
+     * Returns the local attribute in a slot.
+     *
+     * @param slot The slot.
+     * @return The attribute, or <code>null</code> if not found.
+     */
+    public Attribute getLocalAttribute(int slot) {
+        return get(attributes, slot);
+    }
+
+    /** {@inheritDoc} */
+    public Attribute getCascadedAttribute(String name) {
+        int slot = symbolTable.findSlot(name);
+        if (slot >= 0) {
+            return get(cascadedAttributes, slot);
+        }
+        return get(unslottedCascadedAttributes, name);
+    }
+
+    /**
+     * Returns the cascaded attribute in a slot.
+     *
+     * @param slot The slot.
+     * @return The attribute, or <code>null</code> if not found.
+     */
+    public Attribute getCascadedAttribute(int slot) {
+        return get(cascadedAttributes, slot);
+    }
+
+    /**
+     * Returns the names of the attributes, local and cascaded, that have no
+     * slot and cannot be read with {@link #getAttribute(int)}.
+     *
+     * @return The names, or <code>null</code> if every attribute has a slot.
+     */
+    public Set<String> getUnslottedAttributeNames() {
+        if (unslottedAttributes == null && unslottedCascadedAttributes == null) {
+            return null;
+        }
+        Set<String> retValue = new LinkedHashSet<String>();
+        if (unslottedCascadedAttributes != null) {
+            retValue.addAll(unslottedCascadedAttributes.keySet());
+        }
+        if (unslottedAttributes != null) {
+            retValue.addAll(unslottedAttributes.keySet());
+        }
+        return retValue;
+    }
+
+    /**
+     * Returns an upper bound of the slots used by this context: every
+     * attribute of this context that has a slot has a lower one.
+     *
+     * @return The slot limit.
+     */
+    public int getSlotLimit() {
+        int retValue = 0;
+        if (attributes != null) {
+            retValue = attributes.length;
+        }
+        if (cascadedAttributes != null && cascadedAttributes.length > retValue) {
+            retValue = cascadedAttributes.length;
+        }
+        return retValue;
+    }
+
+    /** {@inheritDoc} */
+    public Set<String> getLocalAttributeNames() {
+        return getNames(attributes, unslottedAttributes);
+    }
+
+    /** {@inheritDoc} */
+    public Set<String> getCascadedAttributeNames() {
+        return getNames(cascadedAttributes, unslottedCascadedAttributes);
+    }
+
+    /** {@inheritDoc} */
+    public void putAttribute(String name, Attribute value) {
+        putAttribute(name, value, false);
+    }
+
+    /** {@inheritDoc} */
+    public void putAttribute(String name, Attribute value, boolean cascade) {
+        int slot = symbolTable.getSlot(name);
+        if (slot >= 0) {
+            putAttribute(slot, value, cascade);
+        } else if (cascade) {
+            if (unslottedCascadedAttributes == null) {
+                unslottedCascadedAttributes = new HashMap<String, Attribute>();
+            }
+            unslottedCascadedAttributes.put(name, value);
+        } else {
+            if (unslottedAttributes == null) {
+                unslottedAttributes = new HashMap<String, Attribute>();
+            }
+            unslottedAttributes.put(name, value);
+        }
+    }
+
+    /**
+     * Puts an attribute in a slot.
+     *
+     * @param slot The slot, as returned by {@link AttributeSymbolTable}.
+     * @param value The attribute.
+     * @param cascade If <code>true</code>, the attribute is cascaded.
+     */
+    public void putAttribute(int slot, Attribute value, boolean cascade) {
+        if (cascade) {
+            cascadedAttributes = ensureCapacity(cascadedAttributes, slot);
+            cascadedAttributes[slot] = value;
+        } else {
+            attributes = ensureCapacity(attributes, slot);
+            attributes[slot] = value;
+        }
+    }
+
+    /** {@inheritDoc} */
+    public void clear() {
+        templateAttribute = null;
+        preparer = null;
+        attributes = null;
+        cascadedAttributes = null;
+        unslottedAttributes = null;
+        unslottedCascadedAttributes = null;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof SlottedAttributeContext)) {
+            return false;
+        }
+        SlottedAttributeContext context = (SlottedAttributeContext) obj;
+        return nullSafeEquals(templateAttribute, context.templateAttribute)
+                && nullSafeEquals(preparer, context.preparer)
+                && toMap(attributes, unslottedAttributes).equals(
+                        context.toMap(context.attributes, context.unslottedAttributes))
+                && toMap(cascadedAttributes, unslottedCascadedAttributes).equals(
+                        context.toMap(context.cascadedAttributes,
+                                context.unslottedCascadedAttributes));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int hashCode() {
+        return nullSafeHashCode(templateAttribute) + nullSafeHashCode(preparer)
+                + toMap(attributes, unslottedAttributes).hashCode()
+                + toMap(cascadedAttributes, unslottedCascadedAttributes).hashCode();
+    }
+
+    /**
+     * Checks if the slots of a context can be read directly.
+     *
+     * @param context The context.
+     * @return <code>true</code> if the context is slotted with the same
+     * symbol table.
+     */
+    private boolean isCompatible(AttributeContext context) {
+        return context instanceof SlottedAttributeContext
+                && ((SlottedAttributeContext) context).symbolTable == symbolTable;
+    }
+
+    /**
+     * Copies, cloning them, the cascaded attributes of a context that is
+     * not compatible with this one.
+     *
+     * @param context The context to copy from.
+     */
+    private void copyCascadedAttributes(AttributeContext context) {
+        Set<String> names = context.getCascadedAttributeNames();
+        if (names != null) {
+            for (String name : names) {
+                Attribute attribute = context.getCascadedAttribute(name);
+                if (attribute != null) {
+                    putAttribute(name, attribute.clone(), true);
+                }
+            }
+        }
+    }
+
+    /**
+     * Inherits the attributes of a map.
+     *
+     * @param source The attributes to inherit, or <code>null</code>.
+     * @param cascade If <code>true</code>, the attributes are cascaded.
+     */
+    private void inheritAttributes(Map<String, Attribute> source, boolean cascade) {
+        if (source == null || source.isEmpty()) {
+            return;
+        }
+        // Finds the slots first, so that the array is allocated once.
+        int[] slots = new int[source.size()];
+        int maxSlot = -1;
+        int i = 0;
+        for (String name : source.keySet()) {
+            slots[i] = symbolTable.getSlot(name);
+            maxSlot = Math.max(maxSlot, slots[i]);
+            i++;
+        }
+        if (maxSlot >= 0) {
+            if (cascade) {
+                cascadedAttributes = ensureCapacity(cascadedAttributes, maxSlot);
+            } else {
+                attributes = ensureCapacity(attributes, maxSlot);
+            }
+        }
+        i = 0;
+        for (Map.Entry<String, Attribute> entry : source.entrySet()) {
+            if (slots[i] >= 0) {
+                inheritAttribute(slots[i], entry.getValue(), cascade);
+            } else {
+                inheritAttribute(entry.getKey(), entry.getValue(), cascade);
+            }
+            i++;
+        }
+    }
+
+    /**
+     * Inherits the attributes of an array of a compatible context.
+     *
+     * @param source The attributes to inherit, or <code>null</code>.
+     * @param cascade If <code>true</code>, the attributes are cascaded.
+     */
+    private void inheritAttributes(Attribute[] source, boolean cascade) {
+        if (source != null) {
+            for (int slot = source.length - 1; slot >= 0; slot--) {
+                if (source[slot] != null) {
+                    inheritAttribute(slot, source[slot], cascade);
+                }
+            }
+        }
+    }
+
+    /**
+     * Inherits a single attribute, by name.
+     *
+     * @param name The name of the attribute.
+     * @param attribute The parent attribute.
+     * @param cascade If <code>true</code>, the attribute is cascaded.
+     */
+    private void inheritAttribute(String name, Attribute attribute, boolean cascade) {
+        if (attribute == null) {
+            return;
+        }
+        int slot = symbolTable.getSlot(name);
+        if (slot >= 0) {
+            inheritAttribute(slot, attribute, cascade);
+            return;
+        }
+        Attribute destAttribute = get(cascade ? unslottedCascadedAttributes
+                : unslottedAttributes, name);
+        if (destAttribute == null) {
+            putAttribute(name, attribute, cascade);
+        } else if (attribute instanceof ListAttribute
+                && destAttribute instanceof ListAttribute
+                && ((ListAttribute) destAttribute).isInherit()) {
+            ((ListAttribute) destAttribute).inherit((ListAttribute) attribute);
+        }
+    }
+
+    /**
+     * Inherits a single attribute: it is put if missing, and a list attribute
+     * that inherits is merged with the parent one.
+     *
+     * @param slot The slot of the attribute.
+     * @param attribute The parent attribute.
+     * @param cascade If <code>true</code>, the attribute is cascaded.
+     */
+    private void inheritAttribute(int slot, Attribute attribute, boolean cascade) {
+        if (attribute == null) {
+            return;
+        }
+        Attribute destAttribute = get(cascade ? cascadedAttributes : attributes, slot);
+        if (destAttribute == null) {
+            putAttribute(slot, attribute, cascade);
+        } else if (attribute instanceof ListAttribute
+                && destAttribute instanceof ListAttribute
+                && ((ListAttribute) destAttribute).isInherit()) {
+            ((ListAttribute) destAttribute).inherit((ListAttribute) attribute);
+        }
+    }
+
+    /**
+     * Makes sure that an array contains a slot. The array is only as large as
+     * the slot needs, so that copying a context is proportional to the slots
+     * it uses and not to the size of the symbol table.
+     *
+     * @param array The array, or <code>null</code>.
+     * @param slot The slot.
+     * @return The same array if large enough, a larger copy otherwise.
+     */
+    private static Attribute[] ensureCapacity(Attribute[] array, int slot) {
+        if (array != null && slot < array.length) {
+            return array;
+        }
+        Attribute[] retValue = new Attribute[slot + 1];
+        if (array != null) {
+            System.arraycopy(array, 0, retValue, 0, array.length);
+        }
+        return retValue;
+    }
+
+    /**
+     * Returns the names of the attributes of an array and of a map.
+     *
+     * @param array The attributes with a slot, or <code>null</code>.
+     * @param map The attributes without a slot, or <code>null</code>.
+     * @return The names, or <code>null</code> if there are no attributes.
+     */
+    private Set<String> getNames(Attribute[] array, Map<String, Attribute> map) {
+        Set<String> retValue = null;
+        if (array != null) {
+            for (int slot = 0; slot < array.length; slot++) {
+                if (array[slot] != null) {
+                    if (retValue == null) {
+                        retValue = new LinkedHashSet<String>();
+                    }
+                    retValue.add(symbolTable.getName(slot));
+                }
+            }
+        }
+        if (map != null && !map.isEmpty()) {
+            if (retValue == null) {
+                retValue = new LinkedHashSet<String>();
+            }
+            retValue.addAll(map.keySet());
+        }
+        return retValue;
+    }
+
+    /**
+     * Converts an attribute array and a map to a single map, for comparisons.
+     *
+     * @param array The attributes with a slot, or <code>null</code>.
+     * @param map The attributes without a slot, or <code>null</code>.
+     * @return The map.
+     */
+    private Map<String, Attribute> toMap(Attribute[] array, Map<String, Attribute> map) {
+        Map<String, Attribute> retValue = new HashMap<String, Attribute>();
+        if (map != null) {
+            retValue.putAll(map);
+        }
+        if (array != null) {
+            for (int slot = 0; slot < array.length; slot++) {
+                if (array[slot] != null) {
+                    retValue.put(symbolTable.getName(slot), array[slot]);
+                }
+            }
+        }
+        return retValue;
+    }
+
+    /**
+     * Reads a slot of an array.
+     *
+     * @param array The array, or <code>null</code>.
+     * @param slot The slot.
+     * @return The attribute, or <code>null</code> if the slot is out of the
+     * array.
+     */
+    private static Attribute get(Attribute[] array, int slot) {
+        if (array == null || slot < 0 || slot >= array.length) {
+            return null;
+        }
+        return array[slot];
+    }
+
+    /**
+     * Reads an attribute of a map.
+     *
+     * @param map The map, or <code>null</code>.
+     * @param name The name of the attribute.
+     * @return The attribute, or <code>null</code> if not found.
+     */
+    private static Attribute get(Map<String, Attribute> map, String name) {
+        if (map == null) {
+            return null;
+        }
+        return map.get(name);
+    }
+
+    /**
+     * Deep copies an attribute map, by cloning the attributes.
+     *
+     * @param map The map, or <code>null</code>.
+     * @return The copy, or <code>null</code>.
+     */
+    private static Map<String, Attribute> deepCopy(Map<String, Attribute> map) {
+        if (map == null) {
+            return null;
+        }
+        Map<String, Attribute> retValue = new HashMap<String, Attribute>(map.size());
+        for (Map.Entry<String, Attribute> entry : map.entrySet()) {
+            retValue.put(entry.getKey(), entry.getValue().clone());
+        }
+        return retValue;
+    }
+
+    /**
+     * Deep copies an attribute array, by cloning the attributes.
+     *
+     * @param array The array, or <code>null</code>.
+     * @return The copy, or <code>null</code>.
+     */
+    private static Attribute[] deepCopy(Attribute[] array) {
+        if (array == null) {
+            return null;
+        }
+        Attribute[] retValue = new Attribute[array.length];
+        for (int slot = 0; slot < array.length; slot++) {
+            if (array[slot] != null) {
+                retValue[slot] = array[slot].clone();
+            }
+        }
+        return retValue;
+    }
+}
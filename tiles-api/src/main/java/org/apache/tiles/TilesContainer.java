@@ -140,4 +140,25 @@ public interface TilesContainer {
      * @return true if the definition is found.
      */
     boolean isValidDefinition(String definition, Request request);
+
+    /**
+     * Resolves a definition name into a handle, that can be kept to render
+     * the definition without looking it up by name every time.
+     *
+     * @param definition The name of the definition.
+     * @param request The request.
+     * @return The handle, or <code>null</code> if the definition is not found.
+     * @since 3.0.8
+     */
+    DefinitionHandle getDefinitionHandle(String definition, Request request);
+
+    /**
+     * Renders the definition of a handle.
+     *
+     * @param handle The handle, obtained from
+     * {@link #getDefinitionHandle(String, Request)}.
+     * @param request The request.
+     * @since 3.0.8
+     */
+    void render(DefinitionHandle handle, Request request);
 }
@@ -88,6 +88,11 @@ public class TilesContainerWrapper implements TilesContainer {
         return container.isValidDefinition(definition, request);
     }
 
+    @Override
+    public DefinitionHandle getDefinitionHandle(String definition, Request request) {
+        return container.getDefinitionHandle(definition, request);
+    }
+
     @Override
     public void prepare(String preparer, Request request) {
         container.prepare(preparer, request);
@@ -103,6 +108,11 @@ public class TilesContainerWrapper implements TilesContainer {
         container.render(definition, request);
     }
 
+    @Override
+    public void render(DefinitionHandle handle, Request request) {
+        container.render(handle, request);
+    }
+
     @Override
     public void render(Attribute attribute, Request request) throws IOException {
         container.render(attribute, request);
@@ -0,0 +1,200 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.access;
+
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.tiles.AttributeContext;
+import org.apache.tiles.Definition;
+import org.apache.tiles.request.Request;
+
+/**
+ * Holds all the per-request state that Tiles needs while rendering: the
+ * attribute context stack, the compose stack used by template models and the
+ * definitions registered at runtime.<br>
+ * It is stored in request scope under a single key and created lazily, so that
+ * every Tiles operation needs one request-scope lookup, instead of one for each
+ * piece of state. The stacks are created by their users, that also keep them
+ * under their own request-scope keys for compatibility.
+ *
+ * @version $Rev$ $Date$
+ * @since 3.0.8
+ */
+public final class RenderState {
+
+    /**
+     * The name of the request-scope attribute that holds the render state.
+     */
+    public static final String RENDER_STATE_ATTRIBUTE_NAME = "org.apache.tiles.access.RenderState";
+
+    /**
+     * The stack of the attribute contexts.
+     */
+    private Deque<AttributeContext> contextStack;
+
+    /**
+     * The stack of the objects being composed by template models.
+     */
+    private Deque<Object> composeStack;
+
+    /**
+     * Maps the name of a definitions store to the definitions registered
+     * during this request.
+     */
+    private Map<String, Map<String, Definition>> definitions;
+
+    /**
+     * The number of anonymous definitions named during this request.
+     */
+    private int anonymousDefinitionCount;
+
+    /**
+     * Returns the render state of the request, creating it if not present.
+     *
+     * @param request The request.
+     * @return The render state.
+     * @since 3.0.8
+     */
+    public static RenderState getRenderState(Request request) {
+        return getRenderState(request.getContext("request"));
+    }
+
+    /**
+     * Returns the render state stored in a request scope, creating it if not
+     * present.
+     *
+     * @param requestScope The request scope.
+     * @return The render state.
+     * @since 3.0.8
+     */
+    public static RenderState getRenderState(Map<String, Object> requestScope) {
+        RenderState renderState = (RenderState) requestScope.get(RENDER_STATE_ATTRIBUTE_NAME);
+        if (renderState == null) {
+            renderState = new RenderState();
+            requestScope.put(RENDER_STATE_ATTRIBUTE_NAME, renderState);
+        }
+        return renderState;
+    }
+
+    /**
+     * Returns the stack of the attribute contexts, or <code>null</code> if it
+     * has not been created yet.
+     *
+     * @return The attribute context stack.
+     * @since 3.0.8
+     */
+    public Deque<AttributeContext> getContextStack() {
+        return contextStack;
+    }
+
+    /**
+     * Sets the stack of the attribute contexts.
+     *
+     * @param contextStack The attribute context stack.
+     * @since 3.0.8
+     */
+    public void setContextStack(Deque<AttributeContext> contextStack) {
+        this.contextStack = contextStack;
+    }
+
+    /**
+     * Returns the compose stack, or <code>null</code> if it has not been
+     * created yet.
+     *
+     * @return The compose stack.
+     * @since 3.0.8
+     */
+    public Deque<Object> getComposeStack() {
+        return composeStack;
+    }
+
+    /**
+     * Sets the compose stack.
+     *
+     * @param composeStack The compose stack.
+     * @since 3.0.8
+     */
+    public void setComposeStack(Deque<Object> composeStack) {
+        this.composeStack = composeStack;
+    }
+
+    /**
+     * Returns the definitions registered during this request in a store.
+     *
+     * @param storeName The name of the store.
+     * @return The definitions, or <code>null</code> if none has been
+     * registered.
+     * @since 3.0.8
+     */
+    public Map<String, Definition> getDefinitions(String storeName) {
+        if (definitions == null) {
+            return null;
+        }
+        return definitions.get(storeName);
+    }
+
+    /**
+     * Sets the definitions registered during this request in a store.
+     *
+     * @param storeName The name of the store.
+     * @param storeDefinitions The definitions.
+     * @since 3.0.8
+     */
+    public void setDefinitions(String storeName, Map<String, Definition> storeDefinitions) {
+        if (definitions == null) {
+            definitions = new HashMap<String, Map<String, Definition>>();
+        }
+        definitions.put(storeName, storeDefinitions);
+    }
+
+    /**
+     * Returns the definitions registered during this request in a store,
+     * creating the map if needed.
+     *
+     * @param storeName The name of the store.
+     * @return The definitions.
+     * @since 3.0.8
+     */
+    public Map<String, Definition> getOrCreateDefinitions(String storeName) {
+        if (definitions == null) {
+            definitions = new HashMap<String, Map<String, Definition>>();
+        }
+        Map<String, Definition> retValue = definitions.get(storeName);
+        if (retValue == null) {
+            retValue = new HashMap<String, Definition>();
+            definitions.put(storeName, retValue);
+        }
+        return retValue;
+    }
+
+    /**
+     * Returns the index to use to name the next anonymous definition
+     * registered during this request. Indexes start from 1.
+     *
+     * @return The next index.
+     * @since 3.0.8
+     */
+    public int nextAnonymousDefinitionIndex() {
+        return ++anonymousDefinitionCount;
+    }
+}
@@ -167,11 +167,10 @@ public final class TilesAccess {
      * @since 2.1.0
      */
     public static TilesContainer getCurrentContainer(Request request) {
-        ApplicationContext context = request.getApplicationContext();
         Map<String, Object> requestScope = request.getContext("request");
         TilesContainer container = (TilesContainer) requestScope.get(CURRENT_CONTAINER_ATTRIBUTE_NAME);
         if (container == null) {
-            container = getContainer(context);
+            container = getContainer(request.getApplicationContext());
             requestScope.put(CURRENT_CONTAINER_ATTRIBUTE_NAME, container);
         }
 
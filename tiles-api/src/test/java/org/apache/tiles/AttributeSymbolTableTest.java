@@ -0,0 +1,96 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link AttributeSymbolTable}.
+ *
+ * @version $Rev$ $Date$
+ */
+public class AttributeSymbolTableTest {
+
+    /**
+     * Tests {@link AttributeSymbolTable#getSlot(String)} and
+     * {@link AttributeSymbolTable#findSlot(String)}.
+     */
+    @Test
+    public void testGetSlot() {
+        AttributeSymbolTable table = new AttributeSymbolTable();
+        assertEquals(-1, table.findSlot("title"));
+        assertEquals(-1, table.findSlot(null));
+        assertEquals(0, table.getSlot("title"));
+        assertEquals(1, table.getSlot("body"));
+        assertEquals(0, table.getSlot("title"));
+        assertEquals(1, table.findSlot("body"));
+        assertEquals("title", table.getName(0));
+        assertEquals("body", table.getName(1));
+        assertEquals(2, table.size());
+    }
+
+    /**
+     * Tests that the table grows beyond its initial capacity.
+     */
+    @Test
+    public void testGrow() {
+        AttributeSymbolTable table = new AttributeSymbolTable();
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, table.getSlot("name" + i));
+        }
+        assertEquals(100, table.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals("name" + i, table.getName(i));
+            assertEquals(i, table.findSlot("name" + i));
+        }
+    }
+
+    /**
+     * Tests {@link AttributeSymbolTable#getSlot(String)} with a null name.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testGetSlotNull() {
+        new AttributeSymbolTable().getSlot(null);
+    }
+
+    /**
+     * Tests that no slot is assigned when the table is full or frozen.
+     */
+    @Test
+    public void testFullAndFrozen() {
+        AttributeSymbolTable table = new AttributeSymbolTable(2);
+        assertEquals(0, table.getSlot("title"));
+        assertEquals(1, table.getSlot("body"));
+        assertEquals(-1, table.getSlot("footer"));
+        assertEquals(2, table.size());
+
+        table = new AttributeSymbolTable();
+        assertEquals(0, table.getSlot("title"));
+        assertFalse(table.isFrozen());
+        table.freeze();
+        assertTrue(table.isFrozen());
+        assertEquals(0, table.getSlot("title"));
+        assertEquals(-1, table.getSlot("body"));
+        assertEquals(1, table.size());
+    }
+}
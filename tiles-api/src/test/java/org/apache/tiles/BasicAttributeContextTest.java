@@ -712,6 +712,19 @@ public class BasicAttributeContextTest {
                 || names.isEmpty());
     }
 
+    /**
+     * Tests {@link BasicAttributeContext#clear()} when no attribute has been
+     * put.
+     */
+    @Test
+    public void testClearEmpty() {
+        AttributeContext context = new BasicAttributeContext();
+        context.setPreparer("my.preparer");
+        context.clear();
+        assertNull(context.getPreparer());
+        assertNull(context.getLocalAttributeNames());
+    }
+
     /**
      * Tests {@link BasicAttributeContext#equals(Object)}.
      */
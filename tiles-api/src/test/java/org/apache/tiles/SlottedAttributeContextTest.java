@@ -0,0 +1,267 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests {@link SlottedAttributeContext}.
+ *
+ * @version $Rev$ $Date$
+ */
+public class SlottedAttributeContextTest {
+
+    /**
+     * The symbol table.
+     */
+    private AttributeSymbolTable symbolTable;
+
+    /**
+     * Sets up the test.
+     */
+    @Before
+    public void setUp() {
+        symbolTable = new AttributeSymbolTable();
+    }
+
+    /**
+     * Tests the methods that put and get attributes.
+     */
+    @Test
+    public void testPutAttribute() {
+        SlottedAttributeContext context = new SlottedAttributeContext(symbolTable);
+        assertNull(context.getLocalAttributeNames());
+        assertNull(context.getCascadedAttributeNames());
+        assertNull(context.getAttribute("title"));
+
+        Attribute title = new Attribute("Title");
+        Attribute cascadedTitle = new Attribute("Cascaded title");
+        Attribute body = new Attribute("/body.jsp");
+        context.putAttribute("title", title);
+        context.putAttribute("title", cascadedTitle, true);
+        context.putAttribute("body", body, true);
+        assertSame(title, context.getAttribute("title"));
+        assertSame(title, context.getLocalAttribute("title"));
+        assertSame(cascadedTitle, context.getCascadedAttribute("title"));
+        assertSame(body, context.getAttribute("body"));
+        assertNull(context.getLocalAttribute("body"));
+        assertSame(body, context.getAttribute(symbolTable.findSlot("body")));
+        assertNull(context.getAttribute(-1));
+
+        Set<String> names = context.getLocalAttributeNames();
+        assertEquals(1, names.size());
+        assertTrue(names.contains("title"));
+        names = context.getCascadedAttributeNames();
+        assertEquals(2, names.size());
+        assertTrue(names.contains("title"));
+        assertTrue(names.contains("body"));
+
+        context.clear();
+        assertNull(context.getAttribute("title"));
+        assertNull(context.getCascadedAttributeNames());
+    }
+
+    /**
+     * Tests {@link SlottedAttributeContext#SlottedAttributeContext(AttributeSymbolTable, AttributeContext)}.
+     */
+    @Test
+    public void testCopy() {
+        SlottedAttributeContext context = new SlottedAttributeContext(symbolTable);
+        context.setTemplateAttribute(Attribute.createTemplateAttribute("/layout.jsp"));
+        context.setPreparer("preparer");
+        Attribute title = new Attribute("Title");
+        Attribute body = new Attribute("/body.jsp");
+        context.putAttribute("title", title);
+        context.putAttribute("body", body, true);
+
+        SlottedAttributeContext copy = new SlottedAttributeContext(symbolTable, context);
+        assertEquals(context, copy);
+        assertEquals(context.hashCode(), copy.hashCode());
+        assertEquals("/layout.jsp", copy.getTemplateAttribute().getValue());
+        assertNotSame(context.getTemplateAttribute(), copy.getTemplateAttribute());
+        assertEquals("preparer", copy.getPreparer());
+        assertEquals(title, copy.getLocalAttribute("title"));
+        assertNotSame(title, copy.getLocalAttribute("title"));
+        assertEquals(body, copy.getCascadedAttribute("body"));
+        assertNotSame(body, copy.getCascadedAttribute("body"));
+
+        BasicAttributeContext basic = new BasicAttributeContext();
+        basic.putAttribute("title", title);
+        basic.putAttribute("body", body, true);
+        copy = new SlottedAttributeContext(new AttributeSymbolTable(), basic);
+        assertEquals(title, copy.getLocalAttribute("title"));
+        assertEquals(body, copy.getCascadedAttribute("body"));
+    }
+
+    /**
+     * Tests {@link SlottedAttributeContext#inherit(AttributeContext)} from
+     * a definition.
+     */
+    @Test
+    public void testInheritDefinition() {
+        Definition definition = new Definition();
+        definition.setTemplateAttribute(Attribute.createTemplateAttribute("/layout.jsp"));
+        definition.setPreparer("preparer");
+        Attribute title = new Attribute("Title");
+        Attribute body = new Attribute("/body.jsp");
+        ListAttribute parentList = new ListAttribute();
+        parentList.add(new Attribute("parent"));
+        definition.putAttribute("title", title);
+        definition.putAttribute("body", body, true);
+        definition.putAttribute("list", parentList);
+
+        SlottedAttributeContext context = new SlottedAttributeContext(symbolTable);
+        Attribute overridden = new Attribute("Overridden");
+        ListAttribute list = new ListAttribute();
+        list.setInherit(true);
+        list.add(new Attribute("child"));
+        context.putAttribute("title", overridden);
+        context.putAttribute("list", list);
+        context.setPreparer("myPreparer");
+        context.inherit(definition);
+
+        assertEquals("/layout.jsp", context.getTemplateAttribute().getValue());
+        assertEquals("myPreparer", context.getPreparer());
+        assertSame(overridden, context.getAttribute("title"));
+        assertSame(body, context.getCascadedAttribute("body"));
+        assertSame(list, context.getLocalAttribute("list"));
+        assertEquals(2, list.getValue().size());
+    }
+
+    /**
+     * Tests {@link SlottedAttributeContext#inherit(AttributeContext)} and
+     * {@link SlottedAttributeContext#inheritCascadedAttributes(AttributeContext)}
+     * between slotted contexts.
+     */
+    @Test
+    public void testInheritSlotted() {
+        SlottedAttributeContext parent = new SlottedAttributeContext(symbolTable);
+        Attribute title = new Attribute("Title");
+        Attribute body = new Attribute("/body.jsp");
+        parent.putAttribute("title", title);
+        parent.putAttribute("body", body, true);
+
+        SlottedAttributeContext context = new SlottedAttributeContext(symbolTable);
+        context.inherit(parent);
+        assertSame(title, context.getLocalAttribute("title"));
+        assertSame(body, context.getCascadedAttribute("body"));
+
+        context = new SlottedAttributeContext(symbolTable);
+        context.inheritCascadedAttributes(parent);
+        assertNull(context.getLocalAttributeNames());
+        assertEquals(body, context.getCascadedAttribute("body"));
+        assertNotSame(body, context.getCascadedAttribute("body"));
+    }
+
+    /**
+     * Tests {@link SlottedAttributeContext#addAll(Map)} and
+     * {@link SlottedAttributeContext#addMissing(Map)}.
+     */
+    @Test
+    public void testAddAllAndMissing() {
+        SlottedAttributeContext context = new SlottedAttributeContext(symbolTable);
+        Attribute cascaded = new Attribute("cascaded");
+        context.putAttribute("cascaded", cascaded, true);
+        Map<String, Attribute> map = new HashMap<String, Attribute>();
+        Attribute title = new Attribute("Title");
+        map.put("title", title);
+        context.addAll(map);
+        assertSame(title, context.getLocalAttribute("title"));
+
+        map = new HashMap<String, Attribute>();
+        map.put("title", new Attribute("Other"));
+        map.put("cascaded", new Attribute("Other"));
+        Attribute body = new Attribute("/body.jsp");
+        map.put("body", body);
+        context.addMissing(map);
+        assertSame(title, context.getLocalAttribute("title"));
+        assertNull(context.getLocalAttribute("cascaded"));
+        assertSame(body, context.getLocalAttribute("body"));
+    }
+
+    /**
+     * Tests that attributes whose names have no slot, because the table is
+     * frozen, are kept in the context.
+     */
+    @Test
+    public void testUnslotted() {
+        symbolTable.getSlot("title");
+        symbolTable.freeze();
+        SlottedAttributeContext context = new SlottedAttributeContext(symbolTable);
+        Attribute title = new Attribute("Title");
+        Attribute extra = new Attribute("Extra");
+        Attribute cascadedExtra = new Attribute("Cascaded extra");
+        context.putAttribute("title", title);
+        context.putAttribute("extra", extra);
+        context.putAttribute("cascadedExtra", cascadedExtra, true);
+        assertEquals(-1, symbolTable.findSlot("extra"));
+        assertEquals(1, context.getSlotLimit());
+        assertSame(title, context.getAttribute("title"));
+        assertSame(extra, context.getAttribute("extra"));
+        assertSame(extra, context.getLocalAttribute("extra"));
+        assertSame(cascadedExtra, context.getAttribute("cascadedExtra"));
+        assertNull(context.getLocalAttribute("cascadedExtra"));
+        assertEquals(2, context.getLocalAttributeNames().size());
+        assertEquals(2, context.getUnslottedAttributeNames().size());
+
+        SlottedAttributeContext copy = new SlottedAttributeContext(symbolTable, context);
+        assertEquals(context, copy);
+        assertEquals(extra, copy.getLocalAttribute("extra"));
+        assertNotSame(extra, copy.getLocalAttribute("extra"));
+
+        SlottedAttributeContext child = new SlottedAttributeContext(symbolTable);
+        child.inherit(context);
+        assertSame(extra, child.getLocalAttribute("extra"));
+        assertSame(cascadedExtra, child.getCascadedAttribute("cascadedExtra"));
+
+        context.clear();
+        assertNull(context.getUnslottedAttributeNames());
+    }
+
+    /**
+     * Tests that the arrays are as large as the highest slot in use.
+     */
+    @Test
+    public void testSlotLimit() {
+        for (int i = 0; i < 100; i++) {
+            symbolTable.getSlot("name" + i);
+        }
+        SlottedAttributeContext context = new SlottedAttributeContext(symbolTable);
+        assertEquals(0, context.getSlotLimit());
+        context.putAttribute("name4", new Attribute("value"));
+        assertEquals(5, context.getSlotLimit());
+        context.putAttribute("name2", new Attribute("value"), true);
+        assertEquals(5, context.getSlotLimit());
+
+        Definition definition = new Definition();
+        definition.putAttribute("name9", new Attribute("value"));
+        definition.putAttribute("name7", new Attribute("value"));
+        context.inherit(definition);
+        assertEquals(10, context.getSlotLimit());
+    }
+}
@@ -161,6 +161,36 @@ public class TilesContainerWrapperTest {
         verify(container, request);
     }
 
+    /**
+     * Test method for {@link TilesContainerWrapper#getDefinitionHandle(String, Request)}.
+     */
+    @Test
+    public void testGetDefinitionHandle() {
+        Request request = createMock(Request.class);
+        DefinitionHandle handle = createMock(DefinitionHandle.class);
+
+        expect(container.getDefinitionHandle("definition", request)).andReturn(handle);
+
+        replay(container, request, handle);
+        assertEquals(handle, wrapper.getDefinitionHandle("definition", request));
+        verify(container, request, handle);
+    }
+
+    /**
+     * Test method for {@link TilesContainerWrapper#render(DefinitionHandle, Request)}.
+     */
+    @Test
+    public void testRenderDefinitionHandle() {
+        Request request = createMock(Request.class);
+        DefinitionHandle handle = createMock(DefinitionHandle.class);
+
+        container.render(handle, request);
+
+        replay(container, request, handle);
+        wrapper.render(handle, request);
+        verify(container, request, handle);
+    }
+
     /**
      * Test method for {@link TilesContainerWrapper#prepare(String, Request)}.
      */
@@ -0,0 +1,88 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.access;
+
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.*;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.tiles.AttributeContext;
+import org.apache.tiles.Definition;
+import org.apache.tiles.request.Request;
+import org.junit.Test;
+
+/**
+ * Tests {@link RenderState}.
+ *
+ * @version $Rev$ $Date$
+ */
+public class RenderStateTest {
+
+    /**
+     * Tests {@link RenderState#getRenderState(Request)}.
+     */
+    @Test
+    public void testGetRenderState() {
+        Request request = createMock(Request.class);
+        Map<String, Object> requestScope = new HashMap<String, Object>();
+
+        expect(request.getContext("request")).andReturn(requestScope).times(2);
+
+        replay(request);
+        RenderState renderState = RenderState.getRenderState(request);
+        assertNotNull(renderState);
+        assertSame(renderState, requestScope.get(RenderState.RENDER_STATE_ATTRIBUTE_NAME));
+        assertSame(renderState, RenderState.getRenderState(request));
+        verify(request);
+    }
+
+    /**
+     * Tests {@link RenderState#getContextStack()}.
+     */
+    @Test
+    public void testGetContextStack() {
+        RenderState renderState = new RenderState();
+        assertNull(renderState.getContextStack());
+        assertNull(renderState.getComposeStack());
+        Deque<AttributeContext> contextStack = new ArrayDeque<AttributeContext>();
+        renderState.setContextStack(contextStack);
+        assertSame(contextStack, renderState.getContextStack());
+    }
+
+    /**
+     * Tests {@link RenderState#getDefinitions(String)} and
+     * {@link RenderState#getOrCreateDefinitions(String)}.
+     */
+    @Test
+    public void testGetDefinitions() {
+        RenderState renderState = new RenderState();
+        assertNull(renderState.getDefinitions("store"));
+        Map<String, Definition> definitions = renderState.getOrCreateDefinitions("store");
+        assertNotNull(definitions);
+        assertSame(definitions, renderState.getDefinitions("store"));
+        assertSame(definitions, renderState.getOrCreateDefinitions("store"));
+        assertNull(renderState.getDefinitions("otherStore"));
+    }
+}
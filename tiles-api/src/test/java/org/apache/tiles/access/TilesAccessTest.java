@@ -209,7 +209,6 @@ public class TilesAccessTest {
         Map<String, Object> requestScope = new HashMap<String, Object>();
         requestScope.put(TilesAccess.CURRENT_CONTAINER_ATTRIBUTE_NAME, container);
 
-        expect(request.getApplicationContext()).andReturn(context);
         expect(context.getApplicationScope()).andReturn(attribs).anyTimes();
         expect(request.getContext("request")).andReturn(requestScope);
 
@@ -0,0 +1,165 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.tiles.Attribute;
+import org.apache.tiles.AttributeSymbolTable;
+import org.apache.tiles.BasicAttributeContext;
+import org.apache.tiles.SlottedAttributeContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the copy and inheritance of {@link BasicAttributeContext} and
+ * {@link SlottedAttributeContext}, that happen for every rendered definition.
+ *
+ * @version $Rev$ $Date$
+ * @since 3.0.8
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AttributeContextBenchmark {
+
+    /**
+     * The number of local and cascaded attributes of the parent context.
+     */
+    @Param({"5", "20" })
+    private int attributeCount;
+
+    /**
+     * The parent context.
+     */
+    private BasicAttributeContext parent;
+
+    /**
+     * The symbol table of the slotted contexts.
+     */
+    private AttributeSymbolTable symbolTable;
+
+    /**
+     * The parent slotted context.
+     */
+    private SlottedAttributeContext slottedParent;
+
+    /**
+     * Fills the parent context.
+     */
+    @Setup
+    public void setUp() {
+        parent = new BasicAttributeContext();
+        parent.setTemplateAttribute(Attribute.createTemplateAttribute("/layout.jsp"));
+        parent.setPreparer("preparer");
+        for (int i = 0; i < attributeCount; i++) {
+            parent.putAttribute("local" + i, new Attribute("/local/" + i + ".jsp"));
+            parent.putAttribute("cascaded" + i, new Attribute("/cascaded/" + i + ".jsp"), true);
+        }
+        symbolTable = new AttributeSymbolTable();
+        slottedParent = new SlottedAttributeContext(symbolTable, parent);
+    }
+
+    /**
+     * Copies the context.
+     *
+     * @return The copy.
+     */
+    @Benchmark
+    public BasicAttributeContext copy() {
+        return new BasicAttributeContext(parent);
+    }
+
+    /**
+     * Creates a context with one attribute that inherits from the parent.
+     *
+     * @return The new context.
+     */
+    @Benchmark
+    public BasicAttributeContext inherit() {
+        BasicAttributeContext context = new BasicAttributeContext();
+        context.putAttribute("local0", new Attribute("/override.jsp"));
+        context.inherit(parent);
+        return context;
+    }
+
+    /**
+     * Creates a context that receives the cascaded attributes of the parent,
+     * as it happens when a nested definition is rendered.
+     *
+     * @return The new context.
+     */
+    @Benchmark
+    public BasicAttributeContext inheritCascaded() {
+        BasicAttributeContext context = new BasicAttributeContext();
+        context.inheritCascadedAttributes(parent);
+        return context;
+    }
+
+    /**
+     * Copies the slotted context.
+     *
+     * @return The copy.
+     */
+    @Benchmark
+    public SlottedAttributeContext slottedCopy() {
+        return new SlottedAttributeContext(symbolTable, slottedParent);
+    }
+
+    /**
+     * Creates a slotted context with one attribute that inherits from the
+     * slotted parent.
+     *
+     * @return The new context.
+     */
+    @Benchmark
+    public SlottedAttributeContext slottedInherit() {
+        SlottedAttributeContext context = new SlottedAttributeContext(symbolTable);
+        context.putAttribute("local0", new Attribute("/override.jsp"));
+        context.inherit(slottedParent);
+        return context;
+    }
+
+    /**
+     * Creates a slotted context that receives the cascaded attributes of the
+     * slotted parent.
+     *
+     * @return The new context.
+     */
+    @Benchmark
+    public SlottedAttributeContext slottedInheritCascaded() {
+        SlottedAttributeContext context = new SlottedAttributeContext(symbolTable);
+        context.inheritCascadedAttributes(slottedParent);
+        return context;
+    }
+}
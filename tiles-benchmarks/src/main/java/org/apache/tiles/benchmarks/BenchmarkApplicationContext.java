@@ -0,0 +1,101 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.benchmarks;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.tiles.request.ApplicationContext;
+import org.apache.tiles.request.ApplicationResource;
+
+/**
+ * Application context that serves its resources from memory.
+ *
+ * @version $Rev$ $Date$
+ * @since 3.0.8
+ */
+public class BenchmarkApplicationContext implements ApplicationContext {
+
+    /**
+     * The application scope.
+     */
+    private final Map<String, Object> applicationScope = new HashMap<String, Object>();
+
+    /**
+     * The initialization parameters.
+     */
+    private final Map<String, String> initParams = new HashMap<String, String>();
+
+    /**
+     * Maps a path, including the locale postfix, to its resource.
+     */
+    private final Map<String, ApplicationResource> resources =
+        new HashMap<String, ApplicationResource>();
+
+    /**
+     * Constructor.
+     *
+     * @param resources The resources to serve.
+     * @since 3.0.8
+     */
+    public BenchmarkApplicationContext(ApplicationResource... resources) {
+        for (ApplicationResource resource : resources) {
+            this.resources.put(resource.getLocalePath(), resource);
+        }
+    }
+
+    /** {@inheritDoc} */
+    public Object getContext() {
+        return this;
+    }
+
+    /** {@inheritDoc} */
+    public Map<String, Object> getApplicationScope() {
+        return applicationScope;
+    }
+
+    /** {@inheritDoc} */
+    public Map<String, String> getInitParams() {
+        return initParams;
+    }
+
+    /** {@inheritDoc} */
+    public ApplicationResource getResource(String localePath) {
+        return resources.get(localePath);
+    }
+
+    /** {@inheritDoc} */
+    public ApplicationResource getResource(ApplicationResource base, Locale locale) {
+        return resources.get(base.getLocalePath(locale));
+    }
+
+    /** {@inheritDoc} */
+    public Collection<ApplicationResource> getResources(String path) {
+        ApplicationResource resource = resources.get(path);
+        if (resource == null) {
+            return Collections.emptyList();
+        }
+        return Collections.singletonList(resource);
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.benchmarks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.tiles.request.AbstractClientRequest;
+import org.apache.tiles.request.ApplicationContext;
+import org.apache.tiles.request.attribute.Addable;
+
+/**
+ * In-memory request whose dispatches do nothing and whose output is
+ * discarded, so that benchmarks measure Tiles alone.
+ *
+ * @version $Rev$ $Date$
+ * @since 3.0.8
+ */
+public class BenchmarkRequest extends AbstractClientRequest {
+
+    /**
+     * The available scopes.
+     */
+    private static final List<String> SCOPES = Collections
+            .unmodifiableList(Arrays.asList(REQUEST_SCOPE, APPLICATION_SCOPE));
+
+    /**
+     * The writer that discards everything.
+     */
+    private static final Writer NULL_WRITER = new Writer() {
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            // Discarded.
+        }
+
+        @Override
+        public void write(String str, int off, int len) {
+            // Discarded.
+        }
+
+        @Override
+        public void flush() {
+            // Nothing to flush.
+        }
+
+        @Override
+        public void close() {
+            // Nothing to close.
+        }
+    };
+
+    /**
+     * The output stream that discards everything.
+     */
+    private static final OutputStream NULL_OUTPUT_STREAM = new OutputStream() {
+
+        @Override
+        public void write(int b) {
+            // Discarded.
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            // Discarded.
+        }
+    };
+
+    /**
+     * The response headers, that are discarded.
+     */
+    private static final Addable<String> NULL_HEADERS = new Addable<String>() {
+
+        public void setValue(String key, String value) {
+            // Discarded.
+        }
+    };
+
+    /**
+     * The request scope.
+     */
+    private final Map<String, Object> requestScope = new HashMap<String, Object>();
+
+    /**
+     * The print writer that discards everything.
+     */
+    private final PrintWriter printWriter = new PrintWriter(NULL_WRITER);
+
+    /**
+     * The locale of the request.
+     */
+    private final Locale locale;
+
+    /**
+     * Constructor.
+     *
+     * @param applicationContext The application context.
+     * @param locale The locale of the request.
+     * @since 3.0.8
+     */
+    public BenchmarkRequest(ApplicationContext applicationContext, Locale locale) {
+        super(applicationContext);
+        this.locale = locale;
+    }
+
+    /**
+     * Clears the request scope, so that the object can be reused as a new
+     * request.
+     *
+     * @since 3.0.8
+     */
+    public void reset() {
+        requestScope.clear();
+    }
+
+    /** {@inheritDoc} */
+    public Map<String, String> getHeader() {
+        return Collections.emptyMap();
+    }
+
+    /** {@inheritDoc} */
+    public Map<String, String[]> getHeaderValues() {
+        return Collections.emptyMap();
+    }
+
+    /** {@inheritDoc} */
+    public Addable<String> getResponseHeaders() {
+        return NULL_HEADERS;
+    }
+
+    /** {@inheritDoc} */
+    public Map<String, Object> getContext(String scope) {
+        if (REQUEST_SCOPE.equals(scope)) {
+            return requestScope;
+        }
+        if (APPLICATION_SCOPE.equals(scope)) {
+            return getApplicationScope();
+        }
+        return null;
+    }
+
+    /** {@inheritDoc} */
+    public List<String> getAvailableScopes() {
+        return SCOPES;
+    }
+
+    /** {@inheritDoc} */
+    public OutputStream getOutputStream() {
+        return NULL_OUTPUT_STREAM;
+    }
+
+    /** {@inheritDoc} */
+    public Writer getWriter() {
+        return printWriter;
+    }
+
+    /** {@inheritDoc} */
+    public PrintWriter getPrintWriter() {
+        return printWriter;
+    }
+
+    /** {@inheritDoc} */
+    public boolean isResponseCommitted() {
+        return false;
+    }
+
+    /** {@inheritDoc} */
+    public Map<String, String> getParam() {
+        return Collections.emptyMap();
+    }
+
+    /** {@inheritDoc} */
+    public Map<String, String[]> getParamValues() {
+        return Collections.emptyMap();
+    }
+
+    /** {@inheritDoc} */
+    public Locale getRequestLocale() {
+        return locale;
+    }
+
+    /** {@inheritDoc} */
+    public boolean isUserInRole(String role) {
+        return true;
+    }
+
+    /** {@inheritDoc} */
+    public void setContentType(String contentType) {
+        // Ignored.
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void doForward(String path) throws IOException {
+        // The dispatch is a no-op.
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void doInclude(String path) throws IOException {
+        // The dispatch is a no-op.
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.benchmarks;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.tiles.Definition;
+import org.apache.tiles.definition.dao.CachingLocaleUrlDefinitionDAO;
+import org.apache.tiles.definition.dao.ResolvingLocaleUrlDefinitionDAO;
+import org.apache.tiles.request.ApplicationContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the definition lookup of {@link CachingLocaleUrlDefinitionDAO}
+ * and {@link ResolvingLocaleUrlDefinitionDAO}, once the definitions are
+ * loaded. Pattern definitions are resolved at the first lookup and then
+ * cached, so they are measured as cache hits too.
+ *
+ * @version $Rev$ $Date$
+ * @since 3.0.8
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DefinitionLookupBenchmark {
+
+    /**
+     * The caching DAO.
+     */
+    private CachingLocaleUrlDefinitionDAO cachingDao;
+
+    /**
+     * The resolving DAO.
+     */
+    private ResolvingLocaleUrlDefinitionDAO resolvingDao;
+
+    /**
+     * Loads the definitions.
+     */
+    @Setup
+    public void setUp() {
+        ApplicationContext applicationContext = DefinitionsFixture.createApplicationContext();
+        cachingDao = new CachingLocaleUrlDefinitionDAO(applicationContext);
+        initialize(cachingDao, applicationContext);
+        resolvingDao = new ResolvingLocaleUrlDefinitionDAO(applicationContext);
+        initialize(resolvingDao, applicationContext);
+        for (Locale locale : new Locale[] {Locale.ROOT, Locale.ITALY }) {
+            cachingDao.getDefinition("wild.a.b", locale);
+            resolvingDao.getDefinition("wild.a.b", locale);
+        }
+    }
+
+    /**
+     * Looks up a plain definition in the caching DAO.
+     *
+     * @return The definition.
+     */
+    @Benchmark
+    public Definition cachingLookup() {
+        return cachingDao.getDefinition("page.7.3", Locale.ROOT);
+    }
+
+    /**
+     * Looks up a plain definition in the resolving DAO.
+     *
+     * @return The definition.
+     */
+    @Benchmark
+    public Definition resolvingLookup() {
+        return resolvingDao.getDefinition("page.7.3", Locale.ROOT);
+    }
+
+    /**
+     * Looks up a localized definition in the resolving DAO.
+     *
+     * @return The definition.
+     */
+    @Benchmark
+    public Definition resolvingLookupLocalized() {
+        return resolvingDao.getDefinition("page.0.3", Locale.ITALY);
+    }
+
+    /**
+     * Looks up an already resolved pattern definition in the resolving DAO.
+     *
+     * @return The definition.
+     */
+    @Benchmark
+    public Definition resolvingLookupPattern() {
+        return resolvingDao.getDefinition("wild.a.b", Locale.ROOT);
+    }
+
+    /**
+     * Sets the sources, reader and pattern resolver of a DAO.
+     *
+     * @param dao The DAO to initialize.
+     * @param applicationContext The application context.
+     */
+    private static void initialize(CachingLocaleUrlDefinitionDAO dao,
+            ApplicationContext applicationContext) {
+        dao.setReader(DefinitionsFixture.createReader());
+        dao.setSources(Arrays.asList(applicationContext
+                .getResource(DefinitionsFixture.DEFINITIONS_PATH)));
+        dao.setPatternDefinitionResolver(DefinitionsFixture.createPatternDefinitionResolver());
+    }
+}
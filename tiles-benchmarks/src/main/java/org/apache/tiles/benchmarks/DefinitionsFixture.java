@@ -0,0 +1,200 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.benchmarks;
+
+import java.util.Locale;
+
+import org.apache.tiles.definition.DefinitionsReader;
+import org.apache.tiles.definition.digester.DigesterDefinitionsReader;
+import org.apache.tiles.definition.pattern.DefinitionPatternMatcherFactory;
+import org.apache.tiles.definition.pattern.PatternDefinitionResolver;
+import org.apache.tiles.definition.pattern.PrefixedPatternDefinitionResolver;
+import org.apache.tiles.definition.pattern.regexp.RegexpDefinitionPatternMatcherFactory;
+import org.apache.tiles.definition.pattern.wildcard.WildcardDefinitionPatternMatcherFactory;
+import org.apache.tiles.request.ApplicationResource;
+
+/**
+ * Generates the definitions used by the benchmarks. For every layout
+ * <code>i</code> there is a <code>layout.i</code> definition, a
+ * <code>section.i</code> definition extending it and
+ * <code>page.i.j</code> definitions extending the section. There are also
+ * the <code>WILDCARD:wild.*.*</code> and
+ * <code>REGEXP:regexp\.([a-z]+)\.([0-9]+)</code> pattern definitions.
+ *
+ * @version $Rev$ $Date$
+ * @since 3.0.8
+ */
+public final class DefinitionsFixture {
+
+    /**
+     * The path of the generated definitions file.
+     *
+     * @since 3.0.8
+     */
+    public static final String DEFINITIONS_PATH = "/WEB-INF/tiles.xml";
+
+    /**
+     * The number of generated layouts.
+     *
+     * @since 3.0.8
+     */
+    public static final int LAYOUTS = 20;
+
+    /**
+     * The number of generated pages for each layout.
+     *
+     * @since 3.0.8
+     */
+    public static final int PAGES_PER_LAYOUT = 25;
+
+    /**
+     * The number of attributes of each layout.
+     */
+    private static final int LAYOUT_ATTRIBUTES = 10;
+
+    /**
+     * Private constructor to avoid instantiation.
+     */
+    private DefinitionsFixture() {
+    }
+
+    /**
+     * Creates the definitions file, with the root locale and an Italian
+     * localization that overrides the pages of the first layout.
+     *
+     * @return The resources of the definitions file.
+     * @since 3.0.8
+     */
+    public static ApplicationResource[] createResources() {
+        return new ApplicationResource[] {
+                new StringApplicationResource(DEFINITIONS_PATH, createDefinitionsXml(null)),
+                new StringApplicationResource(DEFINITIONS_PATH, Locale.ITALIAN,
+                        createDefinitionsXml(Locale.ITALIAN)) };
+    }
+
+    /**
+     * Creates the application context that serves the definitions file.
+     *
+     * @return The application context.
+     * @since 3.0.8
+     */
+    public static BenchmarkApplicationContext createApplicationContext() {
+        return new BenchmarkApplicationContext(createResources());
+    }
+
+    /**
+     * Creates the definitions reader.
+     *
+     * @return The reader.
+     * @since 3.0.8
+     */
+    public static DefinitionsReader createReader() {
+        return new DigesterDefinitionsReader();
+    }
+
+    /**
+     * Creates a pattern definition resolver supporting both wildcard and
+     * regular expression patterns.
+     *
+     * @return The resolver.
+     * @since 3.0.8
+     */
+    public static PatternDefinitionResolver<Locale> createPatternDefinitionResolver() {
+        DefinitionPatternMatcherFactory wildcardFactory = new WildcardDefinitionPatternMatcherFactory();
+        DefinitionPatternMatcherFactory regexpFactory = new RegexpDefinitionPatternMatcherFactory();
+        PrefixedPatternDefinitionResolver<Locale> resolver = new PrefixedPatternDefinitionResolver<Locale>();
+        resolver.registerDefinitionPatternMatcherFactory("WILDCARD", wildcardFactory);
+        resolver.registerDefinitionPatternMatcherFactory("REGEXP", regexpFactory);
+        return resolver;
+    }
+
+    /**
+     * Creates the XML content of the definitions file.
+     *
+     * @param locale The locale of the file, or <code>null</code> for the
+     * root one.
+     * @return The XML content.
+     */
+    private static String createDefinitionsXml(Locale locale) {
+        StringBuilder builder = new StringBuilder();
+        builder.append("<?xml version=\"1.0\" encoding=\"UTF-8\" ?>\n");
+        builder.append("<!DOCTYPE tiles-definitions PUBLIC\n");
+        builder.append("  \"-//Apache Software Foundation//DTD Tiles Configuration 3.0//EN\"\n");
+        builder.append("  \"http://tiles.apache.org/dtds/tiles-config_3_0.dtd\">\n");
+        builder.append("<tiles-definitions>\n");
+        if (locale != null) {
+            for (int j = 0; j < PAGES_PER_LAYOUT; j++) {
+                appendPage(builder, 0, j, locale.toString());
+            }
+        } else {
+            for (int i = 0; i < LAYOUTS; i++) {
+                builder.append("  <definition name=\"layout.").append(i)
+                        .append("\" template=\"/layout/").append(i).append(".jsp\">\n");
+                for (int k = 0; k < LAYOUT_ATTRIBUTES; k++) {
+                    builder.append("    <put-attribute name=\"attribute").append(k)
+                            .append("\" value=\"/fragment/").append(i).append('/')
+                            .append(k).append(".jsp\" />\n");
+                }
+                builder.append("  </definition>\n");
+                builder.append("  <definition name=\"section.").append(i)
+                        .append("\" extends=\"layout.").append(i).append("\">\n");
+                builder.append("    <put-attribute name=\"attribute0\" value=\"Section ")
+                        .append(i).append("\" type=\"string\" cascade=\"true\" />\n");
+                builder.append("    <put-attribute name=\"menu\" value=\"/menu/").append(i)
+                        .append(".jsp\" />\n");
+                builder.append("  </definition>\n");
+                for (int j = 0; j < PAGES_PER_LAYOUT; j++) {
+                    appendPage(builder, i, j, "");
+                }
+            }
+            builder.append("  <definition name=\"WILDCARD:wild.*.*\" extends=\"layout.0\">\n");
+            builder.append("    <put-attribute name=\"body\" value=\"/{1}/{2}.jsp\" />\n");
+            builder.append("  </definition>\n");
+            builder.append("  <definition name=\"REGEXP:regexp\\.([a-z]+)\\.([0-9]+)\""
+                    + " extends=\"layout.0\">\n");
+            builder.append("    <put-attribute name=\"body\" value=\"/{1}/{2}.jsp\" />\n");
+            builder.append("  </definition>\n");
+        }
+        builder.append("</tiles-definitions>\n");
+        return builder.toString();
+    }
+
+    /**
+     * Appends a page definition.
+     *
+     * @param builder The builder to append to.
+     * @param layout The index of the layout.
+     * @param page The index of the page.
+     * @param suffix A suffix to add to the body path.
+     */
+    private static void appendPage(StringBuilder builder, int layout, int page,
+            String suffix) {
+        builder.append("  <definition name=\"page.").append(layout).append('.')
+                .append(page).append("\" extends=\"section.").append(layout)
+                .append("\">\n");
+        builder.append("    <put-attribute name=\"title\" value=\"Page ")
+                .append(layout).append(' ').append(page)
+                .append("\" type=\"string\" />\n");
+        builder.append("    <put-attribute name=\"body\" value=\"/body/").append(layout)
+                .append('/').append(page).append(suffix).append(".jsp\" />\n");
+        builder.append("  </definition>\n");
+    }
+}
@@ -0,0 +1,272 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.benchmarks;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import javax.el.ArrayELResolver;
+import javax.el.BeanELResolver;
+import javax.el.CompositeELResolver;
+import javax.el.ELResolver;
+import javax.el.ListELResolver;
+import javax.el.MapELResolver;
+import javax.el.ResourceBundleELResolver;
+
+import ognl.OgnlException;
+import ognl.OgnlRuntime;
+import ognl.PropertyAccessor;
+
+import org.apache.el.ExpressionFactoryImpl;
+import org.apache.tiles.Attribute;
+import org.apache.tiles.Expression;
+import org.apache.tiles.context.TilesRequestContextHolder;
+import org.apache.tiles.el.ELAttributeEvaluator;
+import org.apache.tiles.el.ScopeELResolver;
+import org.apache.tiles.el.TilesContextBeanELResolver;
+import org.apache.tiles.el.TilesContextELResolver;
+import org.apache.tiles.evaluator.AttributeEvaluator;
+import org.apache.tiles.mvel.MVELAttributeEvaluator;
+import org.apache.tiles.mvel.ScopeVariableResolverFactory;
+import org.apache.tiles.mvel.TilesContextBeanVariableResolverFactory;
+import org.apache.tiles.mvel.TilesContextVariableResolverFactory;
+import org.apache.tiles.ognl.AnyScopePropertyAccessor;
+import org.apache.tiles.ognl.DelegatePropertyAccessor;
+import org.apache.tiles.ognl.NestedObjectDelegatePropertyAccessor;
+import org.apache.tiles.ognl.OGNLAttributeEvaluator;
+import org.apache.tiles.ognl.PropertyAccessorDelegateFactory;
+import org.apache.tiles.ognl.ScopePropertyAccessor;
+import org.apache.tiles.ognl.TilesApplicationContextNestedObjectExtractor;
+import org.apache.tiles.ognl.TilesContextPropertyAccessorDelegateFactory;
+import org.apache.tiles.request.Request;
+import org.mvel2.integration.VariableResolverFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the evaluation of the same property path with the EL, MVEL and
+ * OGNL evaluators, configured as in the "complete" container factory of
+ * tiles-extras.
+ *
+ * @version $Rev$ $Date$
+ * @since 3.0.8
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EvaluationBenchmark {
+
+    /**
+     * The request whose scope contains the evaluated bean.
+     */
+    private Request request;
+
+    /**
+     * The EL evaluator.
+     */
+    private AttributeEvaluator elEvaluator;
+
+    /**
+     * The MVEL evaluator.
+     */
+    private AttributeEvaluator mvelEvaluator;
+
+    /**
+     * The OGNL evaluator.
+     */
+    private AttributeEvaluator ognlEvaluator;
+
+    /**
+     * The attribute evaluated with EL.
+     */
+    private Attribute elAttribute;
+
+    /**
+     * The attribute evaluated with MVEL.
+     */
+    private Attribute mvelAttribute;
+
+    /**
+     * The attribute evaluated with OGNL.
+     */
+    private Attribute ognlAttribute;
+
+    /**
+     * Creates the evaluators and the request.
+     *
+     * @throws OgnlException If the OGNL property accessors cannot be
+     * registered.
+     */
+    @Setup
+    public void setUp() throws OgnlException {
+        BenchmarkApplicationContext applicationContext = new BenchmarkApplicationContext();
+        request = new BenchmarkRequest(applicationContext, Locale.ROOT);
+        request.getContext(Request.REQUEST_SCOPE).put("page", new PageBean("Home"));
+
+        elEvaluator = createELEvaluator();
+        mvelEvaluator = createMVELEvaluator();
+        ognlEvaluator = createOGNLEvaluator();
+        elAttribute = createAttribute("${requestScope.page.title}", "EL");
+        mvelAttribute = createAttribute("requestScope.page.title", "MVEL");
+        ognlAttribute = createAttribute("requestScope.page.title", "OGNL");
+    }
+
+    /**
+     * Evaluates with EL.
+     *
+     * @return The evaluated value.
+     */
+    @Benchmark
+    public Object el() {
+        return elEvaluator.evaluate(elAttribute, request);
+    }
+
+    /**
+     * Evaluates with MVEL.
+     *
+     * @return The evaluated value.
+     */
+    @Benchmark
+    public Object mvel() {
+        return mvelEvaluator.evaluate(mvelAttribute, request);
+    }
+
+    /**
+     * Evaluates with OGNL.
+     *
+     * @return The evaluated value.
+     */
+    @Benchmark
+    public Object ognl() {
+        return ognlEvaluator.evaluate(ognlAttribute, request);
+    }
+
+    /**
+     * Creates an attribute with an expression.
+     *
+     * @param expression The expression.
+     * @param language The expression language.
+     * @return The attribute.
+     */
+    private static Attribute createAttribute(String expression, String language) {
+        Attribute attribute = new Attribute();
+        attribute.setExpressionObject(new Expression(expression, language));
+        return attribute;
+    }
+
+    /**
+     * Creates the EL evaluator.
+     *
+     * @return The evaluator.
+     */
+    private static AttributeEvaluator createELEvaluator() {
+        ELAttributeEvaluator evaluator = new ELAttributeEvaluator();
+        evaluator.setExpressionFactory(new ExpressionFactoryImpl());
+        ELResolver elResolver = new CompositeELResolver() {
+            {
+                BeanELResolver beanElResolver = new BeanELResolver(false);
+                add(new ScopeELResolver());
+                add(new TilesContextELResolver(beanElResolver));
+                add(new TilesContextBeanELResolver());
+                add(new ArrayELResolver(false));
+                add(new ListELResolver(false));
+                add(new MapELResolver(false));
+                add(new ResourceBundleELResolver());
+                add(beanElResolver);
+            }
+        };
+        evaluator.setResolver(elResolver);
+        return evaluator;
+    }
+
+    /**
+     * Creates the MVEL evaluator.
+     *
+     * @return The evaluator.
+     */
+    private static AttributeEvaluator createMVELEvaluator() {
+        TilesRequestContextHolder requestHolder = new TilesRequestContextHolder();
+        VariableResolverFactory variableResolverFactory = new ScopeVariableResolverFactory(requestHolder);
+        variableResolverFactory.setNextFactory(new TilesContextVariableResolverFactory(requestHolder));
+        variableResolverFactory.setNextFactory(new TilesContextBeanVariableResolverFactory(requestHolder));
+        return new MVELAttributeEvaluator(requestHolder, variableResolverFactory);
+    }
+
+    /**
+     * Creates the OGNL evaluator.
+     *
+     * @return The evaluator.
+     * @throws OgnlException If the property accessors cannot be registered.
+     */
+    private static AttributeEvaluator createOGNLEvaluator() throws OgnlException {
+        PropertyAccessor objectPropertyAccessor = OgnlRuntime.getPropertyAccessor(Object.class);
+        PropertyAccessor applicationContextPropertyAccessor = new NestedObjectDelegatePropertyAccessor<Request>(
+                new TilesApplicationContextNestedObjectExtractor(), objectPropertyAccessor);
+        PropertyAccessor anyScopePropertyAccessor = new AnyScopePropertyAccessor();
+        PropertyAccessor scopePropertyAccessor = new ScopePropertyAccessor();
+        PropertyAccessorDelegateFactory<Request> factory = new TilesContextPropertyAccessorDelegateFactory(
+                objectPropertyAccessor, applicationContextPropertyAccessor, anyScopePropertyAccessor,
+                scopePropertyAccessor);
+        PropertyAccessor tilesRequestAccessor = new DelegatePropertyAccessor<Request>(factory);
+        OgnlRuntime.setPropertyAccessor(Request.class, tilesRequestAccessor);
+        return new OGNLAttributeEvaluator();
+    }
+
+    /**
+     * The bean read by the expressions.
+     */
+    public static class PageBean {
+
+        /**
+         * The title.
+         */
+        private final String title;
+
+        /**
+         * Constructor.
+         *
+         * @param title The title.
+         */
+        public PageBean(String title) {
+            this.title = title;
+        }
+
+        /**
+         * Returns the title.
+         *
+         * @return The title.
+         */
+        public String getTitle() {
+            return title;
+        }
+    }
+}
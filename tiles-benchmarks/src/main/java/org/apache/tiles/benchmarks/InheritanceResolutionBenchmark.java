@@ -0,0 +1,150 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.benchmarks;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.tiles.Definition;
+import org.apache.tiles.definition.dao.ResolvingLocaleUrlDefinitionDAO;
+import org.apache.tiles.request.ApplicationContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the inheritance resolution of all the definitions of the
+ * fixture, as {@link ResolvingLocaleUrlDefinitionDAO} does when it loads a
+ * locale. Resolution works on a deep copy of the parsed definitions: the
+ * cost of the copy alone is measured by {@link #copy()}.
+ *
+ * @version $Rev$ $Date$
+ * @since 3.0.8
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InheritanceResolutionBenchmark {
+
+    /**
+     * The DAO whose resolution is measured.
+     */
+    private ExposedResolvingDefinitionDAO dao;
+
+    /**
+     * The parsed, unresolved definitions.
+     */
+    private Map<String, Definition> rawDefinitions;
+
+    /**
+     * Parses the definitions.
+     */
+    @Setup
+    public void setUp() {
+        ApplicationContext applicationContext = DefinitionsFixture.createApplicationContext();
+        dao = new ExposedResolvingDefinitionDAO(applicationContext);
+        dao.setReader(DefinitionsFixture.createReader());
+        dao.setSources(Arrays.asList(applicationContext
+                .getResource(DefinitionsFixture.DEFINITIONS_PATH)));
+        dao.setPatternDefinitionResolver(DefinitionsFixture.createPatternDefinitionResolver());
+        rawDefinitions = dao.loadRawDefinitions(Locale.ROOT);
+    }
+
+    /**
+     * Copies and resolves all the definitions.
+     *
+     * @return The resolved definitions.
+     */
+    @Benchmark
+    public Map<String, Definition> resolve() {
+        Map<String, Definition> definitions = dao.copy(rawDefinitions);
+        dao.resolve(definitions, Locale.ROOT);
+        return definitions;
+    }
+
+    /**
+     * Copies all the definitions, without resolving them.
+     *
+     * @return The copied definitions.
+     */
+    @Benchmark
+    public Map<String, Definition> copy() {
+        return dao.copy(rawDefinitions);
+    }
+
+    /**
+     * Exposes the protected loading and resolution steps of the DAO.
+     */
+    private static class ExposedResolvingDefinitionDAO extends
+            ResolvingLocaleUrlDefinitionDAO {
+
+        /**
+         * Constructor.
+         *
+         * @param applicationContext The application context.
+         */
+        public ExposedResolvingDefinitionDAO(ApplicationContext applicationContext) {
+            super(applicationContext);
+        }
+
+        /**
+         * Parses the definitions of a locale.
+         *
+         * @param locale The locale.
+         * @return The parsed definitions.
+         */
+        public Map<String, Definition> loadRawDefinitions(Locale locale) {
+            return loadRawDefinitionsFromResources(locale);
+        }
+
+        /**
+         * Deep-copies definitions.
+         *
+         * @param definitions The definitions to copy.
+         * @return The copy.
+         */
+        public Map<String, Definition> copy(Map<String, Definition> definitions) {
+            return copyDefinitionMap(definitions);
+        }
+
+        /**
+         * Resolves the inheritances of definitions.
+         *
+         * @param definitions The definitions to resolve.
+         * @param locale The locale.
+         */
+        public void resolve(Map<String, Definition> definitions, Locale locale) {
+            resolveInheritances(definitions, locale);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.benchmarks;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.tiles.Attribute;
+import org.apache.tiles.Definition;
+import org.apache.tiles.definition.pattern.PatternDefinitionResolver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the resolution of wildcard and regular expression pattern
+ * definitions, including the creation of the resolved definition.
+ *
+ * @version $Rev$ $Date$
+ * @since 3.0.8
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PatternResolutionBenchmark {
+
+    /**
+     * The resolver to benchmark.
+     */
+    private PatternDefinitionResolver<Locale> resolver;
+
+    /**
+     * A name matching the last wildcard pattern.
+     */
+    private String wildcardName;
+
+    /**
+     * A name matching the last regular expression pattern.
+     */
+    private String regexpName;
+
+    /**
+     * Stores the patterns in the resolver.
+     */
+    @Setup
+    public void setUp() {
+        resolver = DefinitionsFixture.createPatternDefinitionResolver();
+        Map<String, Definition> definitions = new LinkedHashMap<String, Definition>();
+        for (int i = 0; i < DefinitionsFixture.LAYOUTS; i++) {
+            addDefinition(definitions, "WILDCARD:wild" + i + ".*.*");
+            addDefinition(definitions, "REGEXP:regexp" + i + "\\.([a-z]+)\\.([0-9]+)");
+        }
+        resolver.storeDefinitionPatterns(definitions, Locale.ROOT);
+        wildcardName = "wild" + (DefinitionsFixture.LAYOUTS - 1) + ".products.list";
+        regexpName = "regexp" + (DefinitionsFixture.LAYOUTS - 1) + ".products.42";
+    }
+
+    /**
+     * Resolves a wildcard pattern. The matching pattern is the last one.
+     *
+     * @return The resolved definition.
+     */
+    @Benchmark
+    public Definition wildcard() {
+        return resolver.resolveDefinition(wildcardName, Locale.ROOT);
+    }
+
+    /**
+     * Resolves a regular expression pattern. The matching pattern is the
+     * last one.
+     *
+     * @return The resolved definition.
+     */
+    @Benchmark
+    public Definition regexp() {
+        return resolver.resolveDefinition(regexpName, Locale.ROOT);
+    }
+
+    /**
+     * Looks for a name that matches no pattern.
+     *
+     * @return <code>null</code>.
+     */
+    @Benchmark
+    public Definition miss() {
+        return resolver.resolveDefinition("missing.definition", Locale.ROOT);
+    }
+
+    /**
+     * Adds a pattern definition.
+     *
+     * @param definitions The definitions to add to.
+     * @param name The pattern.
+     */
+    private static void addDefinition(Map<String, Definition> definitions, String name) {
+        Definition definition = new Definition();
+        definition.setName(name);
+        definition.setExtends("layout.0");
+        definition.putAttribute("body", new Attribute("/{1}/{2}.jsp"));
+        definitions.put(name, definition);
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.benchmarks;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.tiles.Attribute;
+import org.apache.tiles.TilesContainer;
+import org.apache.tiles.definition.pattern.DefinitionPatternMatcherFactory;
+import org.apache.tiles.definition.pattern.PatternDefinitionResolver;
+import org.apache.tiles.definition.pattern.PrefixedPatternDefinitionResolver;
+import org.apache.tiles.definition.pattern.regexp.RegexpDefinitionPatternMatcherFactory;
+import org.apache.tiles.definition.pattern.wildcard.WildcardDefinitionPatternMatcherFactory;
+import org.apache.tiles.factory.BasicTilesContainerFactory;
+import org.apache.tiles.impl.BasicTilesContainer;
+import org.apache.tiles.request.ApplicationContext;
+import org.apache.tiles.request.ApplicationResource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks a full {@link BasicTilesContainer#render(String, org.apache.tiles.request.Request)}
+ * against an in-memory application context and request. The request
+ * dispatch is a no-op and the output is discarded, so only the Tiles side
+ * of the render is measured: definition lookup, attribute context creation,
+ * evaluation and renderer selection.
+ *
+ * @version $Rev$ $Date$
+ * @since 3.0.8
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RenderBenchmark {
+
+    /**
+     * The container to benchmark.
+     */
+    private TilesContainer container;
+
+    /**
+     * The request with the root locale.
+     */
+    private BenchmarkRequest request;
+
+    /**
+     * The request with the Italian locale.
+     */
+    private BenchmarkRequest localizedRequest;
+
+    /**
+     * The string attribute to render.
+     */
+    private Attribute stringAttribute;
+
+    /**
+     * Creates the container and the requests.
+     */
+    @Setup
+    public void setUp() {
+        BenchmarkApplicationContext applicationContext = DefinitionsFixture.createApplicationContext();
+        container = new BenchmarkContainerFactory().createContainer(applicationContext);
+        request = new BenchmarkRequest(applicationContext, Locale.ROOT);
+        localizedRequest = new BenchmarkRequest(applicationContext, Locale.ITALY);
+        stringAttribute = new Attribute("Hello, world", null, null, "string");
+        container.render("wild.a.b", request);
+    }
+
+    /**
+     * Renders a definition with two levels of inheritance.
+     */
+    @Benchmark
+    public void renderDefinition() {
+        request.reset();
+        container.render("page.7.3", request);
+    }
+
+    /**
+     * Renders a localized definition.
+     */
+    @Benchmark
+    public void renderLocalizedDefinition() {
+        localizedRequest.reset();
+        container.render("page.0.3", localizedRequest);
+    }
+
+    /**
+     * Renders a definition obtained from a wildcard pattern.
+     */
+    @Benchmark
+    public void renderPatternDefinition() {
+        request.reset();
+        container.render("wild.a.b", request);
+    }
+
+    /**
+     * Renders a string attribute.
+     *
+     * @throws IOException If something goes wrong when writing.
+     */
+    @Benchmark
+    public void renderStringAttribute() throws IOException {
+        request.reset();
+        container.render(stringAttribute, request);
+    }
+
+    /**
+     * Container factory that reads the definitions of the fixture and
+     * supports both wildcard and regular expression patterns.
+     */
+    private static class BenchmarkContainerFactory extends BasicTilesContainerFactory {
+
+        /** {@inheritDoc} */
+        @Override
+        protected List<ApplicationResource> getSources(ApplicationContext applicationContext) {
+            return Collections.singletonList(applicationContext
+                    .getResource(DefinitionsFixture.DEFINITIONS_PATH));
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        protected <T> PatternDefinitionResolver<T> createPatternDefinitionResolver(
+                Class<T> customizationKeyClass) {
+            DefinitionPatternMatcherFactory wildcardFactory = new WildcardDefinitionPatternMatcherFactory();
+            DefinitionPatternMatcherFactory regexpFactory = new RegexpDefinitionPatternMatcherFactory();
+            PrefixedPatternDefinitionResolver<T> resolver = new PrefixedPatternDefinitionResolver<T>();
+            resolver.registerDefinitionPatternMatcherFactory("WILDCARD", wildcardFactory);
+            resolver.registerDefinitionPatternMatcherFactory("REGEXP", regexpFactory);
+            return resolver;
+        }
+    }
+}
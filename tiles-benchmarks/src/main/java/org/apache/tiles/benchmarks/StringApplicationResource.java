@@ -0,0 +1,86 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.Locale;
+
+import org.apache.tiles.request.locale.PostfixedApplicationResource;
+
+/**
+ * Application resource whose content is kept in memory.
+ *
+ * @version $Rev$ $Date$
+ * @since 3.0.8
+ */
+public class StringApplicationResource extends PostfixedApplicationResource {
+
+    /**
+     * The content of the resource.
+     */
+    private final byte[] content;
+
+    /**
+     * Constructor.
+     *
+     * @param localePath The path of the resource, including the locale postfix.
+     * @param content The content of the resource.
+     * @since 3.0.8
+     */
+    public StringApplicationResource(String localePath, String content) {
+        super(localePath);
+        try {
+            this.content = content.getBytes("UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException("UTF-8 is not supported", e);
+        }
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param path The path of the resource, without the locale postfix.
+     * @param locale The locale of the resource.
+     * @param content The content of the resource.
+     * @since 3.0.8
+     */
+    public StringApplicationResource(String path, Locale locale, String content) {
+        super(path, locale);
+        try {
+            this.content = content.getBytes("UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException("UTF-8 is not supported", e);
+        }
+    }
+
+    /** {@inheritDoc} */
+    public InputStream getInputStream() throws IOException {
+        return new ByteArrayInputStream(content);
+    }
+
+    /** {@inheritDoc} */
+    public long getLastModified() throws IOException {
+        return 0L;
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.definition;
+
+import org.apache.tiles.request.Request;
+
+/**
+ * A definitions factory that tells which definitions a request gets, so that
+ * a definition obtained for a request can be reused for other requests with
+ * the same customization key, e.g. by a {@link org.apache.tiles.DefinitionHandle}.
+ *
+ * @version $Rev$ $Date$
+ * @since 3.0.8
+ */
+public interface ReusableDefinitionsFactory extends DefinitionsFactory {
+
+    /**
+     * The version returned when the definitions cannot be reused, e.g.
+     * because their sources are checked for changes on every access.
+     */
+    long UNVERSIONED = -1L;
+
+    /**
+     * Returns the customization key of a request: requests with the same
+     * key get the same definitions.
+     *
+     * @param request The request.
+     * @return The customization key, e.g. the locale. It can be
+     * <code>null</code>.
+     */
+    Object getCustomizationKey(Request request);
+
+    /**
+     * Returns a number that changes whenever previously returned definitions
+     * may have changed, e.g. because they have been reloaded.
+     *
+     * @return The version of the definitions, or {@link #UNVERSIONED} if the
+     * definitions must be obtained on every access.
+     */
+    long getDefinitionsVersion();
+}
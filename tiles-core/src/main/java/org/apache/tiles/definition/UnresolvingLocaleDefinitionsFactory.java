@@ -24,6 +24,7 @@ package org.apache.tiles.definition;
 import java.util.Locale;
 
 import org.apache.tiles.Definition;
+import org.apache.tiles.definition.dao.CachingLocaleUrlDefinitionDAO;
 import org.apache.tiles.definition.dao.DefinitionDAO;
 import org.apache.tiles.locale.LocaleResolver;
 import org.apache.tiles.request.Request;
@@ -41,7 +42,7 @@ import org.apache.tiles.request.Request;
  * @version $Rev$ $Date$
  * @since 2.2.1
  */
-public class UnresolvingLocaleDefinitionsFactory implements DefinitionsFactory {
+public class UnresolvingLocaleDefinitionsFactory implements ReusableDefinitionsFactory {
 
     /**
      * The definition DAO that extracts the definitions from the sources.
@@ -88,4 +89,29 @@ public class UnresolvingLocaleDefinitionsFactory implements DefinitionsFactory {
 
         return definitionDao.getDefinition(name, locale);
     }
+
+    /**
+     * {@inheritDoc}
+     * The customization key is the locale of the request.
+     *
+     * @since 3.0.8
+     */
+    public Object getCustomizationKey(Request request) {
+        return request != null ? localeResolver.resolveLocale(request) : null;
+    }
+
+    /**
+     * {@inheritDoc}
+     * Only the definitions of a {@link CachingLocaleUrlDefinitionDAO} are
+     * versioned.
+     *
+     * @since 3.0.8
+     */
+    public long getDefinitionsVersion() {
+        if (definitionDao instanceof CachingLocaleUrlDefinitionDAO) {
+            return ((CachingLocaleUrlDefinitionDAO) definitionDao)
+                    .getDefinitionsVersion();
+        }
+        return UNVERSIONED;
+    }
 }
@@ -25,18 +25,21 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
+import org.apache.tiles.AttributeSymbolTable;
 import org.apache.tiles.Definition;
 import org.apache.tiles.definition.DefinitionsFactoryException;
 import org.apache.tiles.definition.DefinitionsReader;
 import org.apache.tiles.definition.RefreshMonitor;
 import org.apache.tiles.request.ApplicationContext;
 import org.apache.tiles.request.ApplicationResource;
+import org.apache.tiles.startup.StartupReport;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -83,13 +86,35 @@ public abstract class BaseLocaleUrlDefinitionDAO implements
      * @since 3.0.0
      */
     protected ApplicationContext applicationContext;
+
+    /**
+     * The report in which the load times are recorded, or <code>null</code>.
+     *
+     * @since 3.0.8
+     */
+    protected StartupReport startupReport;
+
+    /**
+     * Shares equal objects among the loaded definitions, or <code>null</code>.
+     *
+     * @since 3.0.8
+     */
+    protected DefinitionInterner definitionInterner;
+
+    /**
+     * Assigns slots to the attribute names of the loaded definitions, or
+     * <code>null</code>.
+     *
+     * @since 3.0.8
+     */
+    protected AttributeSymbolTable attributeSymbolTable;
     
     /**
      * Constructor.
      */
     public BaseLocaleUrlDefinitionDAO(ApplicationContext applicationContext) {
         this.applicationContext = applicationContext;
-        lastModifiedDates = new HashMap<String, Long>();
+        lastModifiedDates = new ConcurrentHashMap<String, Long>();
     }
 
     public void setSources(List<ApplicationResource> sources) {
@@ -107,6 +132,74 @@ public abstract class BaseLocaleUrlDefinitionDAO implements
         this.reader = reader;
     }
 
+    /**
+     * Sets the object that shares equal strings and attributes among the
+     * stored definitions. If not called, definitions are not interned.
+     *
+     * @param definitionInterner The definition interner.
+     * @since 3.0.8
+     */
+    public void setDefinitionInterner(DefinitionInterner definitionInterner) {
+        this.definitionInterner = definitionInterner;
+    }
+
+    /**
+     * Sets the symbol table in which the attribute names of the loaded
+     * definitions are registered, so that their slots are assigned at load
+     * time and not while rendering.
+     *
+     * @param attributeSymbolTable The symbol table.
+     * @since 3.0.8
+     */
+    public void setAttributeSymbolTable(AttributeSymbolTable attributeSymbolTable) {
+        this.attributeSymbolTable = attributeSymbolTable;
+    }
+
+    /**
+     * Sets the report in which the time spent parsing and resolving
+     * definitions is recorded.
+     *
+     * @param startupReport The startup report.
+     * @since 3.0.8
+     */
+    public void setStartupReport(StartupReport startupReport) {
+        this.startupReport = startupReport;
+    }
+
+    /**
+     * Replaces the duplicate objects of the definitions that are going to be
+     * stored with shared instances, if a definition interner is set. It must
+     * be called after the definitions have been copied for the last time,
+     * otherwise the copies discard the shared instances.
+     *
+     * @param definitions The definitions to store.
+     * @param customizationKey The locale of the definitions.
+     * @since 3.0.8
+     */
+    protected void internDefinitions(Map<String, Definition> definitions,
+            Locale customizationKey) {
+        if (definitionInterner != null) {
+            long start = System.nanoTime();
+            long savedBytes = definitionInterner.intern(definitions);
+            recordStartupPhase(StartupReport.INTERNING_PHASE, customizationKey
+                    + ", " + savedBytes + " bytes saved", start);
+        }
+    }
+
+    /**
+     * Records a load phase in the startup report, if any.
+     *
+     * @param phase The name of the phase.
+     * @param detail The detail of the phase.
+     * @param startNanos The start time, as returned by {@link System#nanoTime()}.
+     * @since 3.0.8
+     */
+    protected void recordStartupPhase(String phase, String detail, long startNanos) {
+        if (startupReport != null) {
+            startupReport.record(phase, detail, startNanos);
+        }
+    }
+
     /** {@inheritDoc} */
     public boolean refreshRequired() {
         boolean status = false;
@@ -137,9 +230,25 @@ public abstract class BaseLocaleUrlDefinitionDAO implements
      * @return The definition map that has been read.
      */
     protected Map<String, Definition> loadDefinitionsFromResource(ApplicationResource resource) {
+        return loadDefinitionsFromResource(resource, reader);
+    }
+
+    /**
+     * Loads definitions from an URL without loading from "parent" URLs, using
+     * a specific reader. It can be called concurrently, as long as every
+     * thread uses its own reader.
+     *
+     * @param resource The URL to read.
+     * @param definitionsReader The reader to use.
+     * @return The definition map that has been read.
+     * @since 3.0.8
+     */
+    protected Map<String, Definition> loadDefinitionsFromResource(
+            ApplicationResource resource, DefinitionsReader definitionsReader) {
         Map<String, Definition> defsMap = null;
 
         InputStream stream = null;
+        long start = System.nanoTime();
         try {
             lastModifiedDates.put(resource.getLocalePath(), resource
                     .getLastModified());
@@ -147,7 +256,11 @@ public abstract class BaseLocaleUrlDefinitionDAO implements
             // Definition must be collected, starting from the base
             // source up to the last localized file.
             stream = resource.getInputStream();
-            defsMap = reader.read(stream);
+            defsMap = definitionsReader.read(stream);
+            recordStartupPhase(StartupReport.PARSING_PHASE, resource.getLocalePath(), start);
+            if (attributeSymbolTable != null && defsMap != null) {
+                registerAttributeNames(defsMap.values());
+            }
         } catch (FileNotFoundException e) {
             // File not found. continue.
             if (log.isDebugEnabled()) {
@@ -169,4 +282,29 @@ public abstract class BaseLocaleUrlDefinitionDAO implements
 
         return defsMap;
     }
+
+    /**
+     * Registers the attribute names of some definitions in the symbol table.
+     *
+     * @param definitions The definitions.
+     */
+    private void registerAttributeNames(Collection<Definition> definitions) {
+        for (Definition definition : definitions) {
+            registerAttributeNames(definition.getLocalAttributeNames());
+            registerAttributeNames(definition.getCascadedAttributeNames());
+        }
+    }
+
+    /**
+     * Registers attribute names in the symbol table.
+     *
+     * @param names The names, or <code>null</code>.
+     */
+    private void registerAttributeNames(Set<String> names) {
+        if (names != null) {
+            for (String name : names) {
+                attributeSymbolTable.getSlot(name);
+            }
+        }
+    }
 }
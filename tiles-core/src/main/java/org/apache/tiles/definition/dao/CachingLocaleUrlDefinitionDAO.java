@@ -21,17 +21,30 @@
 
 package org.apache.tiles.definition.dao;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.apache.tiles.Definition;
+import org.apache.tiles.definition.DefinitionsFactoryException;
+import org.apache.tiles.definition.DefinitionsReader;
+import org.apache.tiles.definition.ReusableDefinitionsFactory;
 import org.apache.tiles.definition.pattern.PatternDefinitionResolver;
 import org.apache.tiles.definition.pattern.PatternDefinitionResolverAware;
 import org.apache.tiles.request.ApplicationContext;
 import org.apache.tiles.request.ApplicationResource;
 import org.apache.tiles.request.locale.LocaleUtil;
+import org.apache.tiles.startup.StartupReport;
 
 /**
  * <p>
@@ -80,6 +93,13 @@ public class CachingLocaleUrlDefinitionDAO extends BaseLocaleUrlDefinitionDAO
      */
     protected PatternDefinitionResolver<Locale> definitionResolver;
 
+    /**
+     * The definitions parsed by {@link #preloadDefinitions(Collection,
+     * ExecutorService, Collection)}, mapped by the locale path of their
+     * resource. It is <code>null</code> when no preload is running.
+     */
+    private Map<String, Map<String, Definition>> preloadedResources;
+
     /**
      * Constructor.
      *
@@ -133,6 +153,91 @@ public class CachingLocaleUrlDefinitionDAO extends BaseLocaleUrlDefinitionDAO
         return retValue;
     }
 
+    /**
+     * Loads the definitions of some locales in advance, so that the first
+     * request for each locale does not pay the loading cost. The definition
+     * files of all the locales, and of their parent locales, are parsed
+     * concurrently, using one reader per parsing task; then the definitions
+     * of each locale are assembled and resolved.
+     *
+     * @param locales The locales to load.
+     * @param executor The executor that runs the parsing tasks.
+     * @param readers The readers to use in the parsing tasks. Each reader is
+     * used by one task at a time, so the number of readers limits the
+     * concurrency.
+     * @since 3.0.8
+     */
+    public synchronized void preloadDefinitions(Collection<Locale> locales,
+            ExecutorService executor, Collection<? extends DefinitionsReader> readers) {
+        Set<Locale> allLocales = new LinkedHashSet<Locale>();
+        for (Locale locale : locales) {
+            while (locale != null && allLocales.add(locale)) {
+                locale = LocaleUtil.getParentLocale(locale);
+            }
+        }
+        final BlockingQueue<DefinitionsReader> readerPool =
+            new ArrayBlockingQueue<DefinitionsReader>(readers.size(), false, readers);
+        Map<String, Future<Map<String, Definition>>> tasks =
+            new LinkedHashMap<String, Future<Map<String, Definition>>>();
+        for (Locale locale : allLocales) {
+            for (ApplicationResource source : sources) {
+                final ApplicationResource resource = applicationContext.getResource(source, locale);
+                if (resource != null && !tasks.containsKey(resource.getLocalePath())) {
+                    tasks.put(resource.getLocalePath(), executor.submit(
+                            new Callable<Map<String, Definition>>() {
+
+                                public Map<String, Definition> call()
+                                        throws InterruptedException {
+                                    DefinitionsReader definitionsReader = readerPool.take();
+                                    try {
+                                        return loadDefinitionsFromResource(resource,
+                                                definitionsReader);
+                                    } finally {
+                                        readerPool.add(definitionsReader);
+                                    }
+                                }
+                            }));
+                }
+            }
+        }
+        preloadedResources = new HashMap<String, Map<String, Definition>>();
+        try {
+            for (Map.Entry<String, Future<Map<String, Definition>>> entry : tasks.entrySet()) {
+                preloadedResources.put(entry.getKey(), getTaskResult(entry.getValue()));
+            }
+            for (Locale locale : locales) {
+                getDefinitions(locale);
+            }
+        } finally {
+            preloadedResources = null;
+        }
+    }
+
+    /**
+     * Returns the locales, among the candidates, that have at least one
+     * localized definition file.
+     *
+     * @param candidates The locales to check, e.g.
+     * {@link Locale#getAvailableLocales()}.
+     * @return The localized locales.
+     * @since 3.0.8
+     */
+    public Set<Locale> getLocalizedLocales(Collection<Locale> candidates) {
+        Set<Locale> retValue = new LinkedHashSet<Locale>();
+        for (Locale locale : candidates) {
+            if (Locale.ROOT.equals(locale)) {
+                continue;
+            }
+            for (ApplicationResource source : sources) {
+                if (applicationContext.getResource(source, locale) != null) {
+                    retValue.add(locale);
+                    break;
+                }
+            }
+        }
+        return retValue;
+    }
+
     /**
      * Sets the flag to check source refresh. If not called, the default is
      * <code>false</code>.
@@ -145,6 +250,24 @@ public class CachingLocaleUrlDefinitionDAO extends BaseLocaleUrlDefinitionDAO
         this.checkRefresh = checkRefresh;
     }
 
+    /**
+     * Returns the version of the cached definitions, so that definitions
+     * obtained before can be reused as long as it does not change. Cached
+     * definitions are discarded only when sources are checked for changes,
+     * so without that check the version is always the same.
+     *
+     * @return The version of the definitions, or
+     * {@link ReusableDefinitionsFactory#UNVERSIONED} if sources are checked
+     * for changes, since they can be reloaded on every access.
+     * @since 3.0.8
+     */
+    public long getDefinitionsVersion() {
+        if (checkRefresh) {
+            return ReusableDefinitionsFactory.UNVERSIONED;
+        }
+        return 0L;
+    }
+
     /**
      * Returns a definition from the definition resolver.
      *
@@ -159,8 +282,9 @@ public class CachingLocaleUrlDefinitionDAO extends BaseLocaleUrlDefinitionDAO
     }
 
     /**
-     * Checks if sources have changed. If yes, it clears the cache. Then continues
-     * loading definitions.
+     * Checks if sources have changed. If yes, it clears the cache, and the
+     * shared instances of the definition interner. Then continues loading
+     * definitions.
      *
      * @param customizationKey The locale to use when loading sources.
      * @return The loaded definitions.
@@ -175,6 +299,9 @@ public class CachingLocaleUrlDefinitionDAO extends BaseLocaleUrlDefinitionDAO
         if (checkRefresh && refreshRequired()) {
             locale2definitionMap.clear();
             definitionResolver.clearPatternPaths(customizationKey);
+            if (definitionInterner != null) {
+                definitionInterner.clear();
+            }
         }
         loadDefinitions(customizationKey);
         return locale2definitionMap.get(customizationKey);
@@ -206,9 +333,12 @@ public class CachingLocaleUrlDefinitionDAO extends BaseLocaleUrlDefinitionDAO
      */
     protected Map<String, Definition> loadDefinitionsFromResources(Locale customizationKey) {
         Map<String, Definition> localeDefsMap = loadRawDefinitionsFromResources(customizationKey);
+        long start = System.nanoTime();
         Map<String, Definition> defsMap = definitionResolver
                 .storeDefinitionPatterns(copyDefinitionMap(localeDefsMap),
                         customizationKey);
+        recordStartupPhase(StartupReport.PATTERNS_PHASE, customizationKey.toString(), start);
+        internDefinitions(defsMap, customizationKey);
         locale2definitionMap.put(customizationKey, defsMap);
         return localeDefsMap;
     }
@@ -232,11 +362,29 @@ public class CachingLocaleUrlDefinitionDAO extends BaseLocaleUrlDefinitionDAO
                 localeDefsMap.putAll(parentDefs);
             }
         }
+        localeDefsMap.putAll(loadLocalizedRawDefinitionsFromResources(customizationKey));
+        return localeDefsMap;
+    }
+
+    /**
+     * Loads the raw definitions from the sources localized exactly for a
+     * locale, without the ones of its parent locales.
+     *
+     * @param customizationKey The locale to use when loading Resources.
+     * @return The loaded definitions.
+     * @since 3.0.8
+     */
+    protected Map<String, Definition> loadLocalizedRawDefinitionsFromResources(
+            Locale customizationKey) {
+        Map<String, Definition> localeDefsMap = new LinkedHashMap<String, Definition>();
         // For each source, the resource must be loaded.
         for (ApplicationResource resource : sources) {
             ApplicationResource newResource = applicationContext.getResource(resource, customizationKey);
             if (newResource != null) {
-                Map<String, Definition> defsMap = loadDefinitionsFromResource(newResource);
+                Map<String, Definition> defsMap = getPreloadedDefinitions(newResource);
+                if (defsMap == null) {
+                    defsMap = loadDefinitionsFromResource(newResource);
+                }
                 if (defsMap != null) {
                     localeDefsMap.putAll(defsMap);
                 }
@@ -245,6 +393,61 @@ public class CachingLocaleUrlDefinitionDAO extends BaseLocaleUrlDefinitionDAO
         return localeDefsMap;
     }
 
+    /**
+     * Returns a copy of the definitions of a resource parsed by
+     * {@link #preloadDefinitions(Collection, ExecutorService, Collection)}.
+     * The definitions are copied because the same file can be part of
+     * many locales.
+     *
+     * @param resource The resource.
+     * @return The definitions, or <code>null</code> if the resource has not
+     * been preloaded.
+     */
+    private Map<String, Definition> getPreloadedDefinitions(ApplicationResource resource) {
+        if (preloadedResources == null
+                || !preloadedResources.containsKey(resource.getLocalePath())) {
+            return null;
+        }
+        Map<String, Definition> defsMap = preloadedResources.get(resource.getLocalePath());
+        if (defsMap == null) {
+            return new LinkedHashMap<String, Definition>();
+        }
+        Map<String, Definition> retValue = new LinkedHashMap<String, Definition>(defsMap.size());
+        for (Map.Entry<String, Definition> entry : defsMap.entrySet()) {
+            retValue.put(entry.getKey(), new Definition(entry.getValue()));
+        }
+        return retValue;
+    }
+
+    /**
+     * Waits for a task that loads or resolves definitions, e.g. the ones
+     * started by {@link #preloadDefinitions(Collection, ExecutorService,
+     * Collection)}.
+     *
+     * @param <T> The type of the result.
+     * @param future The result of the task.
+     * @return The result.
+     * @throws DefinitionsFactoryException If the task has been interrupted
+     * or if it failed with a checked exception.
+     * @since 3.0.8
+     */
+    protected <T> T getTaskResult(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DefinitionsFactoryException("Interrupted while loading definitions", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new DefinitionsFactoryException("Cannot load definitions", cause);
+        }
+    }
+
     /**
      * Loads parent definitions, i.e. definitions mapped to a parent locale.
      *
@@ -0,0 +1,355 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.tiles.definition.dao;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.tiles.Attribute;
+import org.apache.tiles.Definition;
+import org.apache.tiles.Expression;
+import org.apache.tiles.ListAttribute;
+
+/**
+ * Replaces equal strings, role sets, expressions and attributes of stored
+ * definitions with shared instances, so that definitions that repeat the
+ * same values, e.g. the same header and footer, do not keep duplicate
+ * objects in the heap. It is applied after the definitions have been
+ * copied and resolved, so that the shared instances are the ones that are
+ * kept. Shared role sets are read-only.
+ * <p>
+ * Only the objects that are not modified after loading are shared:
+ * attributes are shared only if they are plain {@link Attribute} instances
+ * with a string value, while template attributes and
+ * {@link ListAttribute}s, that are modified when resolving inheritance, keep
+ * their own instance and only their content is shared.
+ * </p>
+ * <p>
+ * It is thread safe, so that the definitions of different locales can be
+ * loaded concurrently.
+ * The saved memory is estimated with typical sizes of a 64-bit JVM with
+ * compressed pointers. The shared instances are kept until {@link #clear()}
+ * is called, e.g. when the definitions are reloaded.
+ * </p>
+ *
+ * @version $Rev$ $Date$
+ * @since 3.0.8
+ */
+public class DefinitionInterner {
+
+    /**
+     * Estimated size of a string, without its characters.
+     */
+    private static final int STRING_BYTES = 40;
+
+    /**
+     * Estimated size of an attribute.
+     */
+    private static final int ATTRIBUTE_BYTES = 32;
+
+    /**
+     * Estimated size of an expression.
+     */
+    private static final int EXPRESSION_BYTES = 24;
+
+    /**
+     * Estimated size of an empty hash set.
+     */
+    private static final int SET_BYTES = 64;
+
+    /**
+     * Estimated size of an element of a hash set.
+     */
+    private static final int SET_ELEMENT_BYTES = 32;
+
+    /**
+     * The canonical strings.
+     */
+    private final ConcurrentMap<String, String> strings =
+        new ConcurrentHashMap<String, String>();
+
+    /**
+     * The canonical role sets.
+     */
+    private final ConcurrentMap<Set<String>, Set<String>> roleSets =
+        new ConcurrentHashMap<Set<String>, Set<String>>();
+
+    /**
+     * The canonical expressions.
+     */
+    private final ConcurrentMap<Expression, Expression> expressions =
+        new ConcurrentHashMap<Expression, Expression>();
+
+    /**
+     * The canonical attributes.
+     */
+    private final ConcurrentMap<Attribute, Attribute> attributes =
+        new ConcurrentHashMap<Attribute, Attribute>();
+
+    /**
+     * The number of duplicate objects that have been replaced.
+     */
+    private final AtomicLong replacedObjects = new AtomicLong();
+
+    /**
+     * The estimated number of saved bytes.
+     */
+    private final AtomicLong savedBytes = new AtomicLong();
+
+    /**
+     * Replaces the duplicate objects in some definitions with shared
+     * instances.
+     *
+     * @param definitions The definitions to process. The map is not
+     * modified, while the definitions are.
+     * @return The estimated number of bytes saved in these definitions.
+     */
+    public long intern(Map<String, Definition> definitions) {
+        long retValue = 0L;
+        if (definitions != null) {
+            for (Definition definition : definitions.values()) {
+                retValue += internDefinition(definition);
+            }
+        }
+        return retValue;
+    }
+
+    /**
+     * Returns the canonical instance of a string.
+     *
+     * @param string The string.
+     * @return The shared string, or <code>null</code> if the string is
+     * <code>null</code>.
+     */
+    public String intern(String string) {
+        if (string == null) {
+            return null;
+        }
+        String retValue = strings.putIfAbsent(string, string);
+        if (retValue == null) {
+            return string;
+        }
+        if (retValue != string) {
+            replaced(STRING_BYTES + 2 * string.length());
+        }
+        return retValue;
+    }
+
+    /**
+     * Forgets the shared instances, so that the objects of discarded
+     * definitions can be garbage collected. The counters are kept.
+     */
+    public void clear() {
+        strings.clear();
+        roleSets.clear();
+        expressions.clear();
+        attributes.clear();
+    }
+
+    /**
+     * Returns the number of duplicate objects replaced so far.
+     *
+     * @return The number of replaced objects.
+     */
+    public long getReplacedObjects() {
+        return replacedObjects.get();
+    }
+
+    /**
+     * Returns the estimated number of bytes saved so far.
+     *
+     * @return The saved bytes.
+     */
+    public long getSavedBytes() {
+        return savedBytes.get();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        return "Definition interning: " + replacedObjects.get()
+                + " duplicates replaced, about " + savedBytes.get()
+                + " bytes saved";
+    }
+
+    /**
+     * Interns the content of a definition.
+     *
+     * @param definition The definition.
+     * @return The estimated number of saved bytes.
+     */
+    private long internDefinition(Definition definition) {
+        long start = savedBytes.get();
+        definition.setName(intern(definition.getName()));
+        definition.setExtends(intern(definition.getExtends()));
+        String preparer = definition.getPreparer();
+        Attribute templateAttribute = definition.getTemplateAttribute();
+        if (templateAttribute != null) {
+            internContent(templateAttribute);
+        }
+
+        List<String> localNames = copyNames(definition.getLocalAttributeNames());
+        List<String> cascadedNames = copyNames(definition.getCascadedAttributeNames());
+        List<Attribute> localAttributes = new ArrayList<Attribute>(localNames.size());
+        for (String name : localNames) {
+            localAttributes.add(internAttribute(definition.getLocalAttribute(name)));
+        }
+        List<Attribute> cascadedAttributes = new ArrayList<Attribute>(cascadedNames.size());
+        for (String name : cascadedNames) {
+            cascadedAttributes.add(internAttribute(definition.getCascadedAttribute(name)));
+        }
+
+        // Attribute names are keys, so they can be replaced only by putting
+        // the attributes again.
+        definition.clear();
+        definition.setTemplateAttribute(templateAttribute);
+        definition.setPreparer(intern(preparer));
+        for (int i = 0; i < localNames.size(); i++) {
+            definition.putAttribute(intern(localNames.get(i)), localAttributes.get(i), false);
+        }
+        for (int i = 0; i < cascadedNames.size(); i++) {
+            definition.putAttribute(intern(cascadedNames.get(i)), cascadedAttributes.get(i), true);
+        }
+        return savedBytes.get() - start;
+    }
+
+    /**
+     * Copies a set of attribute names.
+     *
+     * @param names The names, or <code>null</code>.
+     * @return The copied names.
+     */
+    private List<String> copyNames(Set<String> names) {
+        if (names == null) {
+            return new ArrayList<String>();
+        }
+        return new ArrayList<String>(names);
+    }
+
+    /**
+     * Interns an attribute, returning the shared instance if the attribute
+     * can be shared.
+     *
+     * @param attribute The attribute.
+     * @return The attribute to use.
+     */
+    private Attribute internAttribute(Attribute attribute) {
+        if (attribute == null) {
+            return null;
+        }
+        internContent(attribute);
+        if (attribute instanceof ListAttribute) {
+            List<Attribute> elements = ((ListAttribute) attribute).getValue();
+            if (elements != null) {
+                for (int i = 0; i < elements.size(); i++) {
+                    elements.set(i, internAttribute(elements.get(i)));
+                }
+            }
+            return attribute;
+        }
+        if (attribute.getClass() != Attribute.class
+                || (attribute.getValue() != null && !(attribute.getValue() instanceof String))) {
+            return attribute;
+        }
+        Attribute retValue = attributes.putIfAbsent(attribute, attribute);
+        if (retValue == null) {
+            return attribute;
+        }
+        if (retValue != attribute) {
+            replaced(ATTRIBUTE_BYTES);
+        }
+        return retValue;
+    }
+
+    /**
+     * Interns the strings, the roles and the expression of an attribute,
+     * without replacing the attribute itself.
+     *
+     * @param attribute The attribute.
+     */
+    private void internContent(Attribute attribute) {
+        if (attribute.getValue() instanceof String) {
+            attribute.setValue(intern((String) attribute.getValue()));
+        }
+        attribute.setRenderer(intern(attribute.getRenderer()));
+        attribute.setRoles(internRoles(attribute.getRoles()));
+        Expression expression = attribute.getExpressionObject();
+        if (expression != null) {
+            Expression canonical = expressions.get(expression);
+            if (canonical == null) {
+                Expression created = new Expression(intern(expression.getExpression()),
+                        intern(expression.getLanguage()));
+                canonical = expressions.putIfAbsent(created, created);
+                if (canonical == null) {
+                    canonical = created;
+                }
+            } else if (canonical != expression) {
+                replaced(EXPRESSION_BYTES);
+            }
+            attribute.setExpressionObject(canonical);
+        }
+    }
+
+    /**
+     * Returns the canonical instance of a role set.
+     *
+     * @param roles The roles.
+     * @return The shared roles.
+     */
+    private Set<String> internRoles(Set<String> roles) {
+        if (roles == null) {
+            return null;
+        }
+        Set<String> retValue = roleSets.get(roles);
+        if (retValue == null) {
+            Set<String> canonical = new HashSet<String>();
+            for (String role : roles) {
+                canonical.add(intern(role));
+            }
+            Set<String> shared = Collections.unmodifiableSet(canonical);
+            retValue = roleSets.putIfAbsent(canonical, shared);
+            if (retValue == null) {
+                retValue = shared;
+            }
+        } else if (retValue != roles) {
+            replaced(SET_BYTES + SET_ELEMENT_BYTES * roles.size());
+        }
+        return retValue;
+    }
+
+    /**
+     * Counts a replaced object.
+     *
+     * @param bytes The estimated size of the object.
+     */
+    private void replaced(long bytes) {
+        replacedObjects.incrementAndGet();
+        savedBytes.addAndGet(bytes);
+    }
+}
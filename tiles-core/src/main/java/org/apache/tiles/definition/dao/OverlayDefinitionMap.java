@@ -0,0 +1,150 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.tiles.definition.dao;
+
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.tiles.Definition;
+
+/**
+ * The definitions of a locale, stored as an overlay on the definitions of
+ * its parent locale. It contains only the definitions that the locale
+ * changes, i.e. the ones that are localized and the ones that extend them;
+ * the other lookups fall through to the parent locale.
+ * <p>
+ * The definitions added with {@link #put(String, Definition)}, e.g. the ones
+ * resolved from patterns, are visible only in this locale, because a child
+ * locale could resolve the same name with a localized pattern.
+ * </p>
+ * <p>
+ * Iterating the map creates a snapshot of all its layers, so it should be
+ * reserved to diagnostics and tests.
+ * </p>
+ *
+ * @version $Rev$ $Date$
+ * @since 3.0.8
+ */
+class OverlayDefinitionMap extends AbstractMap<String, Definition> {
+
+    /**
+     * The definitions of the parent locale, or <code>null</code> for the
+     * root locale.
+     */
+    private final OverlayDefinitionMap parent;
+
+    /**
+     * The definitions that this locale changes.
+     */
+    private final Map<String, Definition> definitions;
+
+    /**
+     * The definitions added after loading.
+     */
+    private final Map<String, Definition> addedDefinitions;
+
+    /**
+     * Constructor.
+     *
+     * @param parent The definitions of the parent locale, or <code>null</code>
+     * for the root locale.
+     * @param definitions The definitions that this locale changes. They must
+     * be already resolved.
+     */
+    public OverlayDefinitionMap(OverlayDefinitionMap parent,
+            Map<String, Definition> definitions) {
+        this.parent = parent;
+        this.definitions = definitions;
+        addedDefinitions = new LinkedHashMap<String, Definition>();
+    }
+
+    /**
+     * Returns the definitions that this locale changes, without the ones
+     * that fall through to the parent locale.
+     *
+     * @return The local definitions.
+     */
+    public Map<String, Definition> getLocalDefinitions() {
+        return Collections.unmodifiableMap(definitions);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Definition get(Object key) {
+        Definition retValue = addedDefinitions.get(key);
+        if (retValue == null) {
+            retValue = getLoadedDefinition(key);
+        }
+        return retValue;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Definition put(String key, Definition value) {
+        Definition retValue = get(key);
+        addedDefinitions.put(key, value);
+        return retValue;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Set<Map.Entry<String, Definition>> entrySet() {
+        Deque<OverlayDefinitionMap> layers = new ArrayDeque<OverlayDefinitionMap>();
+        for (OverlayDefinitionMap layer = this; layer != null; layer = layer.parent) {
+            layers.push(layer);
+        }
+        Map<String, Definition> snapshot = new LinkedHashMap<String, Definition>();
+        while (!layers.isEmpty()) {
+            snapshot.putAll(layers.pop().definitions);
+        }
+        snapshot.putAll(addedDefinitions);
+        return Collections.unmodifiableMap(snapshot).entrySet();
+    }
+
+    /**
+     * Returns a definition loaded from the sources of this locale or of its
+     * parents.
+     *
+     * @param key The name of the definition.
+     * @return The definition, or <code>null</code> if not found.
+     */
+    private Definition getLoadedDefinition(Object key) {
+        for (OverlayDefinitionMap layer = this; layer != null; layer = layer.parent) {
+            Definition retValue = layer.definitions.get(key);
+            if (retValue != null) {
+                return retValue;
+            }
+        }
+        return null;
+    }
+}
@@ -21,15 +21,29 @@
 
 package org.apache.tiles.definition.dao;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.apache.tiles.Definition;
+import org.apache.tiles.definition.DefinitionsFactoryException;
+import org.apache.tiles.definition.DefinitionsReader;
 import org.apache.tiles.definition.NoSuchDefinitionException;
 import org.apache.tiles.request.ApplicationContext;
+import org.apache.tiles.request.locale.LocaleUtil;
+import org.apache.tiles.startup.StartupReport;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -53,6 +67,12 @@ public class ResolvingLocaleUrlDefinitionDAO extends
      */
     private final Logger log = LoggerFactory.getLogger(ResolvingLocaleUrlDefinitionDAO.class);
 
+    /**
+     * The executor that resolves independent inheritance trees in parallel,
+     * or <code>null</code>.
+     */
+    private volatile ExecutorService inheritanceExecutor;
+
     public ResolvingLocaleUrlDefinitionDAO(ApplicationContext applicationContext) {
         super(applicationContext);
     }
@@ -63,15 +83,123 @@ public class ResolvingLocaleUrlDefinitionDAO extends
         return loadRawDefinitionsFromResources(parentLocale);
     }
 
+    /**
+     * {@inheritDoc}
+     * The definitions of the root locale are stored in full. The ones of the
+     * other locales are stored as an overlay on their parent locale,
+     * containing only the definitions that are localized and the ones that
+     * extend them: the others are shared with the parent locale.
+     */
     @Override
     protected Map<String, Definition> loadDefinitions(Locale customizationKey) {
-        Map<String, Definition> localeDefsMap = super.loadDefinitions(customizationKey);
+        Map<String, Definition> retValue = locale2definitionMap.get(customizationKey);
+        if (retValue != null) {
+            return retValue;
+        }
+        Locale parentLocale = LocaleUtil.getParentLocale(customizationKey);
+        OverlayDefinitionMap parentDefinitions = null;
+        Map<String, Definition> localizedDefinitions = null;
+        Map<String, Definition> rawDefinitions;
+        if (parentLocale != null) {
+            parentDefinitions = getParentOverlay(parentLocale);
+            localizedDefinitions = loadLocalizedRawDefinitionsFromResources(customizationKey);
+            rawDefinitions = new LinkedHashMap<String, Definition>(
+                    loadParentDefinitions(parentLocale));
+            rawDefinitions.putAll(localizedDefinitions);
+        } else {
+            rawDefinitions = copyDefinitionMap(loadRawDefinitionsFromResources(customizationKey));
+        }
+
+        long start = System.nanoTime();
         Map<String, Definition> defsMap = definitionResolver
-                .storeDefinitionPatterns(copyDefinitionMap(localeDefsMap),
-                        customizationKey);
-        resolveInheritances(defsMap, customizationKey);
-        locale2definitionMap.put(customizationKey, defsMap);
-        return defsMap;
+                .storeDefinitionPatterns(rawDefinitions, customizationKey);
+        recordStartupPhase(StartupReport.PATTERNS_PHASE, customizationKey.toString(), start);
+        start = System.nanoTime();
+        if (parentDefinitions != null) {
+            defsMap = getChangedDefinitions(defsMap, localizedDefinitions.keySet());
+            resolveInheritances(defsMap, parentDefinitions);
+        } else {
+            resolveInheritances(defsMap, customizationKey);
+        }
+        recordStartupPhase(StartupReport.INHERITANCE_PHASE, customizationKey.toString(), start);
+        internDefinitions(defsMap, customizationKey);
+        retValue = new OverlayDefinitionMap(parentDefinitions, defsMap);
+        locale2definitionMap.put(customizationKey, retValue);
+        return retValue;
+    }
+
+    /**
+     * Returns the definitions of a parent locale, loading them if needed.
+     *
+     * @param parentLocale The parent locale.
+     * @return The definitions of the parent locale.
+     */
+    private OverlayDefinitionMap getParentOverlay(Locale parentLocale) {
+        Map<String, Definition> retValue = locale2definitionMap.get(parentLocale);
+        if (retValue == null) {
+            definitionResolver.clearPatternPaths(parentLocale);
+            retValue = loadDefinitions(parentLocale);
+        }
+        if (retValue instanceof OverlayDefinitionMap) {
+            return (OverlayDefinitionMap) retValue;
+        }
+        return new OverlayDefinitionMap(null, retValue);
+    }
+
+    /**
+     * Returns a copy of the definitions that are localized, or that extend,
+     * directly or not, a localized definition.
+     *
+     * @param definitions The raw definitions of a locale.
+     * @param localizedNames The names of the localized definitions.
+     * @return The copy of the changed definitions.
+     */
+    private Map<String, Definition> getChangedDefinitions(
+            Map<String, Definition> definitions, Set<String> localizedNames) {
+        Map<String, Definition> retValue = new LinkedHashMap<String, Definition>();
+        Map<String, Boolean> changed = new HashMap<String, Boolean>();
+        for (Definition definition : definitions.values()) {
+            if (isChanged(definition, definitions, localizedNames, changed)) {
+                retValue.put(definition.getName(), new Definition(definition));
+            }
+        }
+        return retValue;
+    }
+
+    /**
+     * Checks if a definition, or one of its ancestors, is localized. A
+     * circular inheritance counts as changed, so that it is reported when
+     * resolving.
+     *
+     * @param definition The definition to check.
+     * @param definitions The raw definitions of a locale.
+     * @param localizedNames The names of the localized definitions.
+     * @param changed The definitions already checked.
+     * @return <code>true</code> if the definition is changed.
+     */
+    private boolean isChanged(Definition definition, Map<String, Definition> definitions,
+            Set<String> localizedNames, Map<String, Boolean> changed) {
+        List<String> path = new ArrayList<String>();
+        Definition current = definition;
+        Boolean retValue = null;
+        while (retValue == null) {
+            String name = current.getName();
+            if (localizedNames.contains(name) || path.contains(name)) {
+                retValue = Boolean.TRUE;
+            } else if (changed.containsKey(name)) {
+                retValue = changed.get(name);
+            } else {
+                path.add(name);
+                current = current.isExtending() ? definitions.get(current.getExtends()) : null;
+                if (current == null) {
+                    retValue = Boolean.FALSE;
+                }
+            }
+        }
+        for (String name : path) {
+            changed.put(name, retValue);
+        }
+        return retValue;
     }
 
     /** {@inheritDoc} */
@@ -89,20 +217,198 @@ public class ResolvingLocaleUrlDefinitionDAO extends
 
     /**
      * Resolve locale-specific extended instances.
+     * <p>
+     * The <code>extends</code> graph is built once: since a definition has
+     * at most one parent, it is a forest whose roots are the definitions
+     * that do not extend anything. Each tree is resolved breadth-first, so
+     * that a parent is always resolved before its children, and independent
+     * trees are resolved in parallel if an executor has been set with
+     * {@link #setInheritanceExecutor(ExecutorService)}. Missing ancestors
+     * and circular inheritances are reported all together.
+     * </p>
      *
      * @param map The definition map containing the definitions to resolve.
      * @param locale The locale to use.
      * @throws NoSuchDefinitionException If a parent definition is not found.
+     * @throws DefinitionsFactoryException If there is a circular inheritance.
      * @since 2.1.0
      */
     protected void resolveInheritances(Map<String, Definition> map, Locale locale) {
         if (map != null) {
-            Set<String> alreadyResolvedDefinitions = new HashSet<String>();
-            for (Definition definition : map.values()) {
-                resolveInheritance(definition, map, locale,
-                        alreadyResolvedDefinitions);
-            }  // end loop
+            resolveInheritances(map, Collections.<String, Definition>emptyMap());
+        }
+    }
+
+    /**
+     * Resolves the inheritance of some definitions, whose ancestors can be
+     * among the definitions themselves or among already resolved ones.
+     *
+     * @param map The definitions to resolve.
+     * @param resolvedDefinitions The already resolved definitions.
+     * @throws NoSuchDefinitionException If a parent definition is not found.
+     * @throws DefinitionsFactoryException If there is a circular inheritance.
+     */
+    private void resolveInheritances(Map<String, Definition> map,
+            Map<String, Definition> resolvedDefinitions) {
+        final Map<String, List<Definition>> children = new HashMap<String, List<Definition>>();
+        List<Definition> roots = new ArrayList<Definition>();
+        final Map<String, Definition> rootParents = new HashMap<String, Definition>();
+        List<String> missingAncestors = new ArrayList<String>();
+        for (Definition definition : map.values()) {
+            if (!definition.isExtending()) {
+                roots.add(definition);
+            } else if (!map.containsKey(definition.getExtends())
+                    && resolvedDefinitions.containsKey(definition.getExtends())) {
+                roots.add(definition);
+                rootParents.put(definition.getName(),
+                        resolvedDefinitions.get(definition.getExtends()));
+            } else if (!map.containsKey(definition.getExtends())) {
+                missingAncestors.add("'" + definition.getName() + "' extends '"
+                        + definition.getExtends() + "'");
+            } else {
+                List<Definition> siblings = children.get(definition.getExtends());
+                if (siblings == null) {
+                    siblings = new ArrayList<Definition>();
+                    children.put(definition.getExtends(), siblings);
+                }
+                siblings.add(definition);
+            }
+        }
+        if (!missingAncestors.isEmpty()) {
+            throw new NoSuchDefinitionException(
+                    "Error while resolving definition inheritance: some children "
+                            + "can't find their ancestor: " + missingAncestors
+                            + ". Please check your description file.");
+        }
+
+        int resolved = roots.size();
+        ExecutorService executor = inheritanceExecutor;
+        if (executor != null && roots.size() > 1) {
+            List<Future<Integer>> tasks = new ArrayList<Future<Integer>>();
+            for (final Definition root : roots) {
+                if (children.containsKey(root.getName())
+                        || rootParents.containsKey(root.getName())) {
+                    tasks.add(executor.submit(new Callable<Integer>() {
+
+                        public Integer call() {
+                            return resolveInheritanceTree(root,
+                                    rootParents.get(root.getName()), children);
+                        }
+                    }));
+                }
+            }
+            for (Future<Integer> task : tasks) {
+                resolved += getTaskResult(task);
+            }
+        } else {
+            for (Definition root : roots) {
+                resolved += resolveInheritanceTree(root,
+                        rootParents.get(root.getName()), children);
+            }
+        }
+
+        if (resolved < map.size()) {
+            throw new DefinitionsFactoryException(
+                    "Error while resolving definition inheritance: circular inheritance in "
+                            + findInheritanceCycles(map)
+                            + ". Please check your description file.");
+        }
+    }
+
+    /**
+     * Sets the executor that resolves independent inheritance trees in
+     * parallel. By default it is <code>null</code>, i.e. inheritance is
+     * resolved by the calling thread.
+     *
+     * @param inheritanceExecutor The executor, or <code>null</code>.
+     * @since 3.0.8
+     */
+    public void setInheritanceExecutor(ExecutorService inheritanceExecutor) {
+        this.inheritanceExecutor = inheritanceExecutor;
+    }
+
+    /**
+     * {@inheritDoc}
+     * Unless another executor has been set, the inheritance of the preloaded
+     * definitions is resolved with the same executor.
+     */
+    @Override
+    public synchronized void preloadDefinitions(Collection<Locale> locales,
+            ExecutorService executor, Collection<? extends DefinitionsReader> readers) {
+        ExecutorService previousExecutor = inheritanceExecutor;
+        if (previousExecutor == null) {
+            inheritanceExecutor = executor;
+        }
+        try {
+            super.preloadDefinitions(locales, executor, readers);
+        } finally {
+            inheritanceExecutor = previousExecutor;
+        }
+    }
+
+    /**
+     * Resolves the inheritance of the descendants of a definition whose
+     * parent, if any, is already resolved, parents before children.
+     *
+     * @param root The root of the tree.
+     * @param rootParent The already resolved parent of the root, or
+     * <code>null</code> if the root does not extend anything.
+     * @param children The children of each definition, mapped by the name of
+     * the parent.
+     * @return The number of resolved definitions.
+     */
+    private int resolveInheritanceTree(Definition root, Definition rootParent,
+            Map<String, List<Definition>> children) {
+        int retValue = 0;
+        if (rootParent != null) {
+            root.inherit(rootParent);
         }
+        Queue<Definition> queue = new ArrayDeque<Definition>();
+        queue.add(root);
+        while (!queue.isEmpty()) {
+            Definition parent = queue.remove();
+            List<Definition> parentChildren = children.get(parent.getName());
+            if (parentChildren != null) {
+                for (Definition child : parentChildren) {
+                    log.debug("Resolve definition for child name='{}' extends='{}.",
+                            child.getName(), child.getExtends());
+                    child.inherit(parent);
+                    queue.add(child);
+                    retValue++;
+                }
+            }
+        }
+        return retValue;
+    }
+
+    /**
+     * Finds all the cycles in the <code>extends</code> graph.
+     *
+     * @param map The definitions.
+     * @return The cycles, each one as a chain of names, e.g.
+     * <code>a -&gt; b -&gt; a</code>.
+     */
+    private List<String> findInheritanceCycles(Map<String, Definition> map) {
+        List<String> retValue = new ArrayList<String>();
+        Set<String> visited = new HashSet<String>();
+        for (Definition definition : map.values()) {
+            List<String> path = new ArrayList<String>();
+            Definition current = definition;
+            while (current != null && current.isExtending()
+                    && !visited.contains(current.getName())) {
+                visited.add(current.getName());
+                path.add(current.getName());
+                current = map.get(current.getExtends());
+            }
+            if (current != null && path.contains(current.getName())) {
+                StringBuilder cycle = new StringBuilder();
+                for (String name : path.subList(path.indexOf(current.getName()), path.size())) {
+                    cycle.append(name).append(" -> ");
+                }
+                retValue.add(cycle.append(current.getName()).toString());
+            }
+        }
+        return retValue;
     }
 
     /**
@@ -119,7 +425,10 @@ public class ResolvingLocaleUrlDefinitionDAO extends
      * been already resolved.
      * @throws NoSuchDefinitionException If an inheritance can not be solved.
      * @since 2.1.0
+     * @deprecated Use {@link #resolveInheritances(Map, Locale)}, that resolves
+     * the definitions in topological order.
      */
+    @Deprecated
     protected void resolveInheritance(Definition definition,
             Map<String, Definition> definitions, Locale locale,
             Set<String> alreadyResolvedDefinitions) {
@@ -20,16 +20,32 @@
  */
 package org.apache.tiles.factory;
 
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
+import org.apache.tiles.AttributeSymbolTable;
 import org.apache.tiles.TilesContainer;
 import org.apache.tiles.definition.DefinitionsFactory;
 import org.apache.tiles.definition.DefinitionsReader;
 import org.apache.tiles.definition.UnresolvingLocaleDefinitionsFactory;
 import org.apache.tiles.definition.dao.BaseLocaleUrlDefinitionDAO;
+import org.apache.tiles.definition.dao.CachingLocaleUrlDefinitionDAO;
 import org.apache.tiles.definition.dao.DefinitionDAO;
+import org.apache.tiles.definition.dao.DefinitionInterner;
 import org.apache.tiles.definition.dao.ResolvingLocaleUrlDefinitionDAO;
 import org.apache.tiles.definition.digester.DigesterDefinitionsReader;
 import org.apache.tiles.definition.pattern.BasicPatternDefinitionResolver;
@@ -42,17 +58,26 @@ import org.apache.tiles.evaluator.impl.DirectAttributeEvaluator;
 import org.apache.tiles.impl.BasicTilesContainer;
 import org.apache.tiles.locale.LocaleResolver;
 import org.apache.tiles.locale.impl.DefaultLocaleResolver;
+import org.apache.tiles.metrics.InstrumentedAttributeEvaluatorFactory;
+import org.apache.tiles.metrics.InstrumentedMutableTilesContainer;
+import org.apache.tiles.metrics.InstrumentedPreparerFactory;
+import org.apache.tiles.metrics.InstrumentedRendererFactory;
+import org.apache.tiles.metrics.InstrumentedTilesContainer;
+import org.apache.tiles.metrics.RenderMetrics;
+import org.apache.tiles.mgmt.MutableTilesContainer;
 import org.apache.tiles.preparer.factory.BasicPreparerFactory;
 import org.apache.tiles.preparer.factory.PreparerFactory;
+import org.apache.tiles.renderer.ClassifyingDelegateRenderer;
 import org.apache.tiles.renderer.DefinitionRenderer;
 import org.apache.tiles.request.ApplicationContext;
 import org.apache.tiles.request.ApplicationResource;
 import org.apache.tiles.request.render.BasicRendererFactory;
-import org.apache.tiles.request.render.ChainedDelegateRenderer;
 import org.apache.tiles.request.render.DispatchRenderer;
 import org.apache.tiles.request.render.Renderer;
 import org.apache.tiles.request.render.RendererFactory;
 import org.apache.tiles.request.render.StringRenderer;
+import org.apache.tiles.startup.StartupReport;
+import org.apache.tiles.util.ResourceIndex;
 
 /**
  * Factory that builds a standard Tiles container using only Java code.
@@ -77,24 +102,260 @@ public class BasicTilesContainerFactory extends AbstractTilesContainerFactory {
      */
     protected static final String DEFINITION_RENDERER_NAME = "definition";
 
-    /** {@inheritDoc} */
+    /**
+     * Initialization parameter that, if set to <code>true</code>, enables
+     * the render metrics, exposed through JMX.
+     *
+     * @since 3.0.8
+     */
+    public static final String RENDER_METRICS_INIT_PARAM =
+        "org.apache.tiles.factory.BasicTilesContainerFactory.RENDER_METRICS";
+
+    /**
+     * Initialization parameter that contains the comma-separated list of
+     * the locales whose definitions are loaded when the container is created,
+     * e.g. <code>en,it,fr_FR</code>, or {@link #PRELOAD_LOCALIZED_LOCALES}.
+     *
+     * @since 3.0.8
+     */
+    public static final String PRELOAD_LOCALES_INIT_PARAM =
+        "org.apache.tiles.factory.BasicTilesContainerFactory.PRELOAD_LOCALES";
+
+    /**
+     * Value of {@link #PRELOAD_LOCALES_INIT_PARAM} that preloads all the
+     * locales that have at least one localized definition file.
+     *
+     * @since 3.0.8
+     */
+    public static final String PRELOAD_LOCALIZED_LOCALES = "*";
+
+    /**
+     * Initialization parameter that contains the comma-separated list of the
+     * root paths whose resources are indexed when the container is created,
+     * e.g. <code>/WEB-INF/</code>. See {@link ResourceIndex}.
+     *
+     * @since 3.0.8
+     */
+    public static final String RESOURCE_INDEX_ROOTS_INIT_PARAM =
+        "org.apache.tiles.factory.BasicTilesContainerFactory.RESOURCE_INDEX_ROOTS";
+
+    /**
+     * Initialization parameter that contains the number of milliseconds after
+     * which the resource index is listed again, or <code>0</code> to never
+     * list it again. The default is {@link #DEFAULT_RESOURCE_INDEX_REFRESH}.
+     *
+     * @since 3.0.8
+     */
+    public static final String RESOURCE_INDEX_REFRESH_INIT_PARAM =
+        "org.apache.tiles.factory.BasicTilesContainerFactory.RESOURCE_INDEX_REFRESH";
+
+    /**
+     * The default refresh interval of the resource index, in milliseconds.
+     *
+     * @since 3.0.8
+     */
+    public static final long DEFAULT_RESOURCE_INDEX_REFRESH = 60000L;
+
+    /**
+     * The number of seconds after which the idle thread that lists the
+     * resource index again ends.
+     */
+    private static final long RESOURCE_INDEX_THREAD_KEEP_ALIVE = 60L;
+
+    /**
+     * Initialization parameter that, if set to <code>true</code>, stores the
+     * attributes of attribute contexts in arrays indexed by the slots of an
+     * {@link AttributeSymbolTable}, instead of hash maps.
+     *
+     * @since 3.0.8
+     */
+    public static final String ATTRIBUTE_SLOTS_INIT_PARAM =
+        "org.apache.tiles.factory.BasicTilesContainerFactory.ATTRIBUTE_SLOTS";
+
+    /**
+     * The name of the application scope attribute that contains the
+     * {@link AttributeSymbolTable}.
+     *
+     * @since 3.0.8
+     */
+    public static final String ATTRIBUTE_SYMBOL_TABLE_ATTRIBUTE_NAME =
+        AttributeSymbolTable.class.getName();
+
+    /**
+     * {@inheritDoc}
+     * The time spent in each phase is recorded in the {@link StartupReport}
+     * of the application.
+     */
     @Override
     public TilesContainer createContainer(ApplicationContext applicationContext) {
+        StartupReport report = StartupReport.getStartupReport(applicationContext);
+        long start = System.nanoTime();
         BasicTilesContainer container = instantiateContainer(applicationContext);
         container.setApplicationContext(applicationContext);
+        container.setAttributeSymbolTable(getAttributeSymbolTable(applicationContext));
         LocaleResolver resolver = createLocaleResolver(applicationContext);
+        long phaseStart = System.nanoTime();
         container.setDefinitionsFactory(createDefinitionsFactory(applicationContext,
                 resolver));
+        report.record(StartupReport.DEFINITIONS_FACTORY_PHASE, null, phaseStart);
+        AttributeSymbolTable symbolTable = container.getAttributeSymbolTable();
+        if (symbolTable != null && isPreloadConfigured(applicationContext)) {
+            // The names of the definitions are known, the others go in maps.
+            symbolTable.freeze();
+        }
+        RenderMetrics metrics = createRenderMetrics(applicationContext);
+        if (metrics != null) {
+            RenderMetrics.setRenderMetrics(applicationContext, metrics);
+        }
+        phaseStart = System.nanoTime();
         AttributeEvaluatorFactory attributeEvaluatorFactory = createAttributeEvaluatorFactory(
                 applicationContext, resolver);
+        report.record(StartupReport.EVALUATORS_PHASE, null, phaseStart);
+        phaseStart = System.nanoTime();
+        PreparerFactory preparerFactory = createPreparerFactory(applicationContext);
+        report.record(StartupReport.PREPARERS_PHASE, null, phaseStart);
+        if (metrics != null) {
+            attributeEvaluatorFactory = new InstrumentedAttributeEvaluatorFactory(
+                    attributeEvaluatorFactory, metrics);
+            preparerFactory = new InstrumentedPreparerFactory(preparerFactory, metrics);
+        }
         container.setAttributeEvaluatorFactory(attributeEvaluatorFactory);
-        container.setPreparerFactory(createPreparerFactory(applicationContext));
+        container.setPreparerFactory(preparerFactory);
         TilesContainer injectedContainer = createDecoratedContainer(container, applicationContext);
-        container.setRendererFactory(createRendererFactory(applicationContext,
-                injectedContainer, attributeEvaluatorFactory));
+        if (metrics != null) {
+            injectedContainer = createInstrumentedContainer(injectedContainer, metrics);
+        }
+        phaseStart = System.nanoTime();
+        ResourceIndex resourceIndex = createResourceIndex(applicationContext);
+        if (resourceIndex != null) {
+            ResourceIndex.setResourceIndex(applicationContext, resourceIndex);
+            report.record(StartupReport.RESOURCE_INDEX_PHASE, null, phaseStart);
+        }
+        phaseStart = System.nanoTime();
+        RendererFactory rendererFactory = createRendererFactory(applicationContext,
+                injectedContainer, attributeEvaluatorFactory);
+        report.record(StartupReport.RENDERERS_PHASE, null, phaseStart);
+        if (metrics != null) {
+            rendererFactory = new InstrumentedRendererFactory(rendererFactory, metrics);
+        }
+        container.setRendererFactory(rendererFactory);
+        report.record(StartupReport.CONTAINER_PHASE, null, start);
         return injectedContainer;
     }
 
+    /**
+     * Creates the metrics of the render pipeline. By default it returns
+     * <code>null</code>, i.e. no instrumentation, unless the
+     * {@link #RENDER_METRICS_INIT_PARAM} initialization parameter is
+     * <code>true</code>: in that case the metrics are registered in the
+     * platform MBean server. The returned metrics are stored in the
+     * application scope, so that they are unregistered when the container is
+     * destroyed.
+     *
+     * @param applicationContext The Tiles application context.
+     * @return The metrics, or <code>null</code> to disable instrumentation.
+     * @since 3.0.8
+     */
+    protected RenderMetrics createRenderMetrics(ApplicationContext applicationContext) {
+        Map<String, String> initParams = applicationContext.getInitParams();
+        if (initParams == null
+                || !Boolean.parseBoolean(initParams.get(RENDER_METRICS_INIT_PARAM))) {
+            return null;
+        }
+        RenderMetrics metrics = new RenderMetrics();
+        metrics.register(ManagementFactory.getPlatformMBeanServer(),
+                getRenderMetricsName(applicationContext));
+        return metrics;
+    }
+
+    /**
+     * Creates the index of the existing resources, used by
+     * <code>OptionsRenderer</code> to check if a template exists. By default
+     * it returns <code>null</code>, i.e. no index, unless the
+     * {@link #RESOURCE_INDEX_ROOTS_INIT_PARAM} initialization parameter is
+     * set. The index is listed again in the background, by
+     * {@link #createResourceIndexExecutor()}, so that requests never wait for
+     * the listing.
+     *
+     * @param applicationContext The Tiles application context.
+     * @return The resource index, or <code>null</code> to check every
+     * resource through the application context.
+     * @since 3.0.8
+     */
+    protected ResourceIndex createResourceIndex(ApplicationContext applicationContext) {
+        Map<String, String> initParams = applicationContext.getInitParams();
+        String value = initParams != null ? initParams.get(RESOURCE_INDEX_ROOTS_INIT_PARAM) : null;
+        if (value == null || value.trim().length() == 0) {
+            return null;
+        }
+        List<String> roots = new ArrayList<String>();
+        for (String root : value.split(",")) {
+            root = root.trim();
+            if (root.length() > 0) {
+                roots.add(root);
+            }
+        }
+        long refresh = DEFAULT_RESOURCE_INDEX_REFRESH;
+        String refreshValue = initParams.get(RESOURCE_INDEX_REFRESH_INIT_PARAM);
+        if (refreshValue != null) {
+            refresh = Long.parseLong(refreshValue.trim());
+        }
+        return new ResourceIndex(applicationContext, roots, refresh,
+                refresh > 0 ? createResourceIndexExecutor() : null);
+    }
+
+    /**
+     * Creates the executor that lists the resource index again. By default
+     * it uses a single daemon thread, that ends when it is idle.
+     *
+     * @return The executor.
+     * @since 3.0.8
+     */
+    protected Executor createResourceIndexExecutor() {
+        ThreadPoolExecutor retValue = new ThreadPoolExecutor(1, 1,
+                RESOURCE_INDEX_THREAD_KEEP_ALIVE, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable, "tiles-resource-index");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        retValue.allowCoreThreadTimeOut(true);
+        return retValue;
+    }
+
+    /**
+     * Returns the name that distinguishes the MBeans of the created
+     * container from the ones of other containers in the same JVM.
+     *
+     * @param applicationContext The Tiles application context.
+     * @return The name of the container in JMX.
+     * @since 3.0.8
+     */
+    protected String getRenderMetricsName(ApplicationContext applicationContext) {
+        return Integer.toHexString(System.identityHashCode(applicationContext));
+    }
+
+    /**
+     * Wraps the container so that it records the render time of
+     * definitions.
+     *
+     * @param originalContainer The container to wrap.
+     * @param metrics The metrics to update.
+     * @return The instrumented container.
+     * @since 3.0.8
+     */
+    protected TilesContainer createInstrumentedContainer(
+            TilesContainer originalContainer, RenderMetrics metrics) {
+        if (originalContainer instanceof MutableTilesContainer) {
+            return new InstrumentedMutableTilesContainer(
+                    (MutableTilesContainer) originalContainer, metrics);
+        }
+        return new InstrumentedTilesContainer(originalContainer, metrics);
+    }
+
     /**
      * Instantiate the container, without initialization.
      *
@@ -167,7 +428,9 @@ public class BasicTilesContainerFactory extends AbstractTilesContainerFactory {
     }
 
     /**
-     * Creates a Locale-based definition DAO.
+     * Creates a Locale-based definition DAO. The time spent discovering,
+     * parsing and resolving definitions is recorded in the
+     * {@link StartupReport} of the application.
      * @param applicationContext The Tiles application context.
      * @param resolver The locale resolver.
      * @return The definition DAO.
@@ -178,15 +441,108 @@ public class BasicTilesContainerFactory extends AbstractTilesContainerFactory {
             LocaleResolver resolver) {
         BaseLocaleUrlDefinitionDAO definitionDao = instantiateLocaleDefinitionDao(
                 applicationContext, resolver);
+        StartupReport report = StartupReport.getStartupReport(applicationContext);
+        definitionDao.setStartupReport(report);
         definitionDao.setReader(createDefinitionsReader(applicationContext));
+        definitionDao.setDefinitionInterner(createDefinitionInterner(applicationContext));
+        definitionDao.setAttributeSymbolTable(getAttributeSymbolTable(applicationContext));
+        long start = System.nanoTime();
         definitionDao.setSources(getSources(applicationContext));
+        report.record(StartupReport.SOURCES_PHASE, null, start);
         if (definitionDao instanceof PatternDefinitionResolverAware) {
             ((PatternDefinitionResolverAware<Locale>) definitionDao)
                     .setPatternDefinitionResolver(createPatternDefinitionResolver(Locale.class));
         }
+        if (definitionDao instanceof CachingLocaleUrlDefinitionDAO) {
+            preloadDefinitions(applicationContext,
+                    (CachingLocaleUrlDefinitionDAO) definitionDao);
+        }
         return definitionDao;
     }
 
+    /**
+     * Loads the definitions of the locales returned by
+     * {@link #getPreloadLocales(ApplicationContext, CachingLocaleUrlDefinitionDAO)},
+     * so that they are ready before the container is published. The
+     * definition files are parsed concurrently, with one reader per thread.
+     *
+     * @param applicationContext The Tiles application context.
+     * @param definitionDao The definition DAO.
+     * @since 3.0.8
+     */
+    protected void preloadDefinitions(ApplicationContext applicationContext,
+            CachingLocaleUrlDefinitionDAO definitionDao) {
+        Collection<Locale> locales = getPreloadLocales(applicationContext, definitionDao);
+        if (locales.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        int threads = Math.min(Runtime.getRuntime().availableProcessors(),
+                locales.size());
+        List<DefinitionsReader> readers = new ArrayList<DefinitionsReader>(threads);
+        for (int i = 0; i < threads; i++) {
+            readers.add(createDefinitionsReader(applicationContext));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            definitionDao.preloadDefinitions(locales, executor, readers);
+        } finally {
+            executor.shutdown();
+        }
+        StartupReport.getStartupReport(applicationContext).record(
+                StartupReport.PRELOAD_PHASE, locales.toString(), start);
+    }
+
+    /**
+     * Checks if the {@link #PRELOAD_LOCALES_INIT_PARAM} initialization
+     * parameter is set, i.e. if definitions are loaded when the container is
+     * created.
+     *
+     * @param applicationContext The Tiles application context.
+     * @return <code>true</code> if definitions are preloaded.
+     */
+    private boolean isPreloadConfigured(ApplicationContext applicationContext) {
+        Map<String, String> initParams = applicationContext.getInitParams();
+        String value = initParams != null ? initParams.get(PRELOAD_LOCALES_INIT_PARAM) : null;
+        return value != null && value.trim().length() > 0;
+    }
+
+    /**
+     * Returns the locales to load when the container is created, as
+     * specified by the {@link #PRELOAD_LOCALES_INIT_PARAM} initialization
+     * parameter. If the parameter is not specified it returns an empty list,
+     * i.e. definitions are loaded when a locale is requested for the first
+     * time. Otherwise the root locale is always included.
+     *
+     * @param applicationContext The Tiles application context.
+     * @param definitionDao The definition DAO.
+     * @return The locales to preload.
+     * @since 3.0.8
+     */
+    protected Collection<Locale> getPreloadLocales(ApplicationContext applicationContext,
+            CachingLocaleUrlDefinitionDAO definitionDao) {
+        Map<String, String> initParams = applicationContext.getInitParams();
+        String value = initParams != null ? initParams.get(PRELOAD_LOCALES_INIT_PARAM) : null;
+        Set<Locale> retValue = new LinkedHashSet<Locale>();
+        if (value == null || value.trim().length() == 0) {
+            return retValue;
+        }
+        retValue.add(Locale.ROOT);
+        if (PRELOAD_LOCALIZED_LOCALES.equals(value.trim())) {
+            retValue.addAll(definitionDao.getLocalizedLocales(Arrays
+                    .asList(Locale.getAvailableLocales())));
+        } else {
+            for (String token : value.split(",")) {
+                String[] parts = token.trim().split("_", 3);
+                if (parts[0].length() > 0) {
+                    retValue.add(new Locale(parts[0], parts.length > 1 ? parts[1] : "",
+                            parts.length > 2 ? parts[2] : ""));
+                }
+            }
+        }
+        return retValue;
+    }
+
     /**
      * Creates the locale resolver. By default it creates a
      * {@link DefaultLocaleResolver}.
@@ -198,6 +554,53 @@ public class BasicTilesContainerFactory extends AbstractTilesContainerFactory {
         return new DefaultLocaleResolver();
     }
 
+    /**
+     * Returns the symbol table of attribute names shared by the container
+     * and the definitions DAO, creating it in the application scope on the
+     * first call. By default it returns <code>null</code>, unless the
+     * {@link #ATTRIBUTE_SLOTS_INIT_PARAM} initialization parameter is
+     * <code>true</code>. If definitions are preloaded, the table is frozen
+     * once they are loaded, so that names seen only at runtime do not take
+     * slots.
+     *
+     * @param applicationContext The Tiles application context.
+     * @return The symbol table, or <code>null</code> to store attributes in
+     * hash maps, as {@link org.apache.tiles.BasicAttributeContext} does.
+     * @since 3.0.8
+     */
+    protected AttributeSymbolTable getAttributeSymbolTable(
+            ApplicationContext applicationContext) {
+        Map<String, String> initParams = applicationContext.getInitParams();
+        if (initParams == null
+                || !Boolean.parseBoolean(initParams.get(ATTRIBUTE_SLOTS_INIT_PARAM))) {
+            return null;
+        }
+        Map<String, Object> scope = applicationContext.getApplicationScope();
+        synchronized (AttributeSymbolTable.class) {
+            AttributeSymbolTable retValue = (AttributeSymbolTable) scope
+                    .get(ATTRIBUTE_SYMBOL_TABLE_ATTRIBUTE_NAME);
+            if (retValue == null) {
+                retValue = new AttributeSymbolTable();
+                scope.put(ATTRIBUTE_SYMBOL_TABLE_ATTRIBUTE_NAME, retValue);
+            }
+            return retValue;
+        }
+    }
+
+    /**
+     * Creates the object that shares equal strings and attributes among the
+     * loaded definitions. By default it creates a {@link DefinitionInterner}.
+     *
+     * @param applicationContext The Tiles application context.
+     * @return The definition interner, or <code>null</code> to disable
+     * interning.
+     * @since 3.0.8
+     */
+    protected DefinitionInterner createDefinitionInterner(
+            ApplicationContext applicationContext) {
+        return new DefinitionInterner();
+    }
+
     /**
      * Creates the definitions reader. By default it creates a
      * {@link DigesterDefinitionsReader}.
@@ -275,8 +678,9 @@ public class BasicTilesContainerFactory extends AbstractTilesContainerFactory {
     }
 
     /**
-     * Creates the default attribute renderer. By default it is an
-     * {@link ChainedDelegateRenderer}.
+     * Creates the default attribute renderer. By default it is a
+     * {@link ClassifyingDelegateRenderer} that tries definitions, templates
+     * and strings, in this order.
      *
      * @param rendererFactory The renderer factory to configure.
      * @param applicationContext The Tiles application context.
@@ -290,8 +694,8 @@ public class BasicTilesContainerFactory extends AbstractTilesContainerFactory {
             ApplicationContext applicationContext,
             TilesContainer container,
             AttributeEvaluatorFactory attributeEvaluatorFactory) {
-        ChainedDelegateRenderer retValue = new ChainedDelegateRenderer();
-        retValue.addAttributeRenderer(rendererFactory.getRenderer(DEFINITION_RENDERER_NAME));
+        ClassifyingDelegateRenderer retValue = new ClassifyingDelegateRenderer(
+                rendererFactory.getRenderer(DEFINITION_RENDERER_NAME));
         retValue.addAttributeRenderer(rendererFactory.getRenderer(TEMPLATE_RENDERER_NAME));
         retValue.addAttributeRenderer(rendererFactory.getRenderer(STRING_RENDERER_NAME));
         return retValue;
@@ -21,23 +21,31 @@
 package org.apache.tiles.impl;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.Deque;
-import java.util.LinkedList;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.tiles.Attribute;
 import org.apache.tiles.AttributeContext;
+import org.apache.tiles.AttributeSymbolTable;
 import org.apache.tiles.BasicAttributeContext;
 import org.apache.tiles.Definition;
+import org.apache.tiles.DefinitionHandle;
+import org.apache.tiles.SlottedAttributeContext;
 import org.apache.tiles.TilesContainer;
+import org.apache.tiles.access.RenderState;
 import org.apache.tiles.definition.DefinitionsFactory;
 import org.apache.tiles.definition.NoSuchDefinitionException;
+import org.apache.tiles.definition.ReusableDefinitionsFactory;
 import org.apache.tiles.evaluator.AttributeEvaluator;
 import org.apache.tiles.evaluator.AttributeEvaluatorFactory;
 import org.apache.tiles.evaluator.AttributeEvaluatorFactoryAware;
 import org.apache.tiles.preparer.ViewPreparer;
 import org.apache.tiles.preparer.factory.NoSuchPreparerException;
 import org.apache.tiles.preparer.factory.PreparerFactory;
+import org.apache.tiles.renderer.ConstantValueRenderer;
 import org.apache.tiles.request.ApplicationContext;
 import org.apache.tiles.request.Request;
 import org.apache.tiles.request.render.CannotRenderException;
@@ -96,9 +104,15 @@ public class BasicTilesContainer implements TilesContainer,
      */
     private AttributeEvaluatorFactory attributeEvaluatorFactory;
 
+    /**
+     * The symbol table of attribute names, or <code>null</code> to use
+     * {@link BasicAttributeContext}.
+     */
+    private AttributeSymbolTable attributeSymbolTable;
+
     /** {@inheritDoc} */
     public AttributeContext startContext(Request request) {
-        AttributeContext context = new BasicAttributeContext();
+        AttributeContext context = createAttributeContext();
         Deque<AttributeContext>  stack = getContextStack(request);
         if (!stack.isEmpty()) {
             AttributeContext parent = stack.peek();
@@ -142,7 +156,7 @@ public class BasicTilesContainer implements TilesContainer,
     public AttributeContext getAttributeContext(Request request) {
         AttributeContext context = getContext(request);
         if (context == null) {
-            context = new BasicAttributeContext();
+            context = createAttributeContext();
             pushContext(context, request);
         }
         return context;
@@ -203,6 +217,28 @@ public class BasicTilesContainer implements TilesContainer,
         this.attributeEvaluatorFactory = attributeEvaluatorFactory;
     }
 
+    /**
+     * Sets the symbol table of attribute names. If set, attribute contexts
+     * are {@link SlottedAttributeContext}s using this table, otherwise they
+     * are {@link BasicAttributeContext}s.
+     *
+     * @param attributeSymbolTable The symbol table.
+     * @since 3.0.8
+     */
+    public void setAttributeSymbolTable(AttributeSymbolTable attributeSymbolTable) {
+        this.attributeSymbolTable = attributeSymbolTable;
+    }
+
+    /**
+     * Returns the symbol table of attribute names.
+     *
+     * @return The symbol table, or <code>null</code> if not set.
+     * @since 3.0.8
+     */
+    public AttributeSymbolTable getAttributeSymbolTable() {
+        return attributeSymbolTable;
+    }
+
     /** {@inheritDoc} */
     public void prepare(String preparer, Request request) {
         prepare(request, preparer, false);
@@ -229,7 +265,7 @@ public class BasicTilesContainer implements TilesContainer,
      */
     public void render(Definition definition, Request request) {
         AttributeContext originalContext = getAttributeContext(request);
-        BasicAttributeContext subContext = new BasicAttributeContext(originalContext);
+        AttributeContext subContext = createAttributeContext(originalContext);
         subContext.inherit(definition);
 
         pushContext(subContext, request);
@@ -256,7 +292,12 @@ public class BasicTilesContainer implements TilesContainer,
                         "Cannot render an attribute that is not a string, toString returns: "
                                 + value);
             }
-            renderer.render((String) value, request);
+            if (renderer instanceof ConstantValueRenderer
+                    && attr.getExpressionObject() == null && value == attr.getValue()) {
+                ((ConstantValueRenderer) renderer).renderConstant((String) value, request);
+            } else {
+                renderer.render((String) value, request);
+            }
         }
     }
 
@@ -279,6 +320,40 @@ public class BasicTilesContainer implements TilesContainer,
         }
     }
 
+    /** {@inheritDoc} */
+    public DefinitionHandle getDefinitionHandle(String definitionName, Request request) {
+        BasicDefinitionHandle handle = new BasicDefinitionHandle(definitionName, this);
+        try {
+            if (resolve(handle, request) != null) {
+                return handle;
+            }
+        } catch (NoSuchDefinitionException nsde) {
+            log.debug("Cannot find definition '{}'", definitionName);
+            log.debug("Exception related to the not found definition", nsde);
+        }
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     * Handles obtained from another container are rendered by name.
+     */
+    public void render(DefinitionHandle handle, Request request) {
+        if (!(handle instanceof BasicDefinitionHandle)
+                || ((BasicDefinitionHandle) handle).container != this) {
+            render(handle.getName(), request);
+            return;
+        }
+
+        Definition definition = resolve((BasicDefinitionHandle) handle, request);
+        if (definition == null) {
+            throw new NoSuchDefinitionException("Unable to find the definition '"
+                    + handle.getName() + "'");
+        }
+
+        render(definition, request);
+    }
+
     /** {@inheritDoc} */
     @Override
     public Definition getDefinition(String definitionName,
@@ -289,7 +364,77 @@ public class BasicTilesContainer implements TilesContainer,
     }
 
     /**
-     * Returns the context stack.
+     * Returns the definition of a handle for a request, looking it up by name
+     * only if the handle has not been resolved for the customization key of
+     * the request, or if the definitions have changed since.
+     *
+     * @param handle The handle.
+     * @param request The request.
+     * @return The definition, or <code>null</code> if not found.
+     */
+    private Definition resolve(BasicDefinitionHandle handle, Request request) {
+        if (!(definitionsFactory instanceof ReusableDefinitionsFactory)) {
+            return getDefinition(handle.name, request);
+        }
+        ReusableDefinitionsFactory factory = (ReusableDefinitionsFactory) definitionsFactory;
+        long version = factory.getDefinitionsVersion();
+        if (version == ReusableDefinitionsFactory.UNVERSIONED) {
+            return getDefinition(handle.name, request);
+        }
+
+        HandleState state = handle.state;
+        if (state == null || state.version != version) {
+            state = new HandleState(version);
+            handle.state = state;
+        }
+        Object key = factory.getCustomizationKey(request);
+        if (key == null) {
+            key = HandleState.NULL_KEY;
+        }
+        Definition definition = state.definitions.get(key);
+        if (definition == null) {
+            definition = getDefinition(handle.name, request);
+            if (definition != null
+                    && state.definitions.size() < HandleState.MAX_CUSTOMIZATION_KEYS) {
+                state.definitions.putIfAbsent(key, definition);
+            }
+        }
+        return definition;
+    }
+
+    /**
+     * Creates an empty attribute context.
+     *
+     * @return The new context.
+     * @since 3.0.8
+     */
+    protected AttributeContext createAttributeContext() {
+        if (attributeSymbolTable != null) {
+            return new SlottedAttributeContext(attributeSymbolTable);
+        }
+        return new BasicAttributeContext();
+    }
+
+    /**
+     * Creates an attribute context that copies another one.
+     *
+     * @param context The context to copy.
+     * @return The new context.
+     * @since 3.0.8
+     */
+    protected AttributeContext createAttributeContext(AttributeContext context) {
+        if (attributeSymbolTable != null) {
+            return new SlottedAttributeContext(attributeSymbolTable, context);
+        }
+        return new BasicAttributeContext(context);
+    }
+
+    /**
+     * Returns the context stack. It is kept in the request {@link RenderState}
+     * and published in request scope under
+     * <code>org.apache.tiles.AttributeContext.STACK</code>, as in previous
+     * versions. A stack that has been put under that key before the render
+     * state was created is adopted.
      *
      * @param tilesContext The Tiles context object to use.
      * @return The needed stack of contexts.
@@ -298,13 +443,17 @@ public class BasicTilesContainer implements TilesContainer,
     @SuppressWarnings("unchecked")
     protected Deque<AttributeContext> getContextStack(Request tilesContext) {
         Map<String, Object> requestScope = tilesContext.getContext("request");
-        Deque<AttributeContext> contextStack = (Deque<AttributeContext>) requestScope
-                .get(ATTRIBUTE_CONTEXT_STACK);
+        RenderState renderState = RenderState.getRenderState(requestScope);
+        Deque<AttributeContext> contextStack = renderState.getContextStack();
         if (contextStack == null) {
-            contextStack = new LinkedList<AttributeContext>();
-            requestScope.put(ATTRIBUTE_CONTEXT_STACK, contextStack);
+            contextStack = (Deque<AttributeContext>) requestScope
+                    .get(ATTRIBUTE_CONTEXT_STACK);
+            if (contextStack == null) {
+                contextStack = new ArrayDeque<AttributeContext>();
+                requestScope.put(ATTRIBUTE_CONTEXT_STACK, contextStack);
+            }
+            renderState.setContextStack(contextStack);
         }
-
         return contextStack;
     }
 
@@ -399,4 +548,84 @@ public class BasicTilesContainer implements TilesContainer,
             throw new CannotRenderException(e.getMessage(), e);
         }
     }
+
+    /**
+     * The handle of a definition resolved by this container.
+     */
+    private static final class BasicDefinitionHandle implements DefinitionHandle {
+
+        /**
+         * The definition name.
+         */
+        private final String name;
+
+        /**
+         * The container that resolved the handle.
+         */
+        private final BasicTilesContainer container;
+
+        /**
+         * The resolved definitions.
+         */
+        private volatile HandleState state;
+
+        /**
+         * Constructor.
+         *
+         * @param name The definition name.
+         * @param container The container that resolves the handle.
+         */
+        private BasicDefinitionHandle(String name, BasicTilesContainer container) {
+            this.name = name;
+            this.container = container;
+        }
+
+        /** {@inheritDoc} */
+        public String getName() {
+            return name;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public String toString() {
+            return "Handle of definition '" + name + "'";
+        }
+    }
+
+    /**
+     * The definitions of a handle, by customization key, for a version of
+     * the definitions.
+     */
+    private static final class HandleState {
+
+        /**
+         * The key used for a <code>null</code> customization key.
+         */
+        private static final Object NULL_KEY = new Object();
+
+        /**
+         * The maximum number of customization keys remembered by a handle.
+         */
+        private static final int MAX_CUSTOMIZATION_KEYS = 64;
+
+        /**
+         * The version of the definitions.
+         */
+        private final long version;
+
+        /**
+         * Maps a customization key to the definition.
+         */
+        private final ConcurrentMap<Object, Definition> definitions =
+            new ConcurrentHashMap<Object, Definition>();
+
+        /**
+         * Constructor.
+         *
+         * @param version The version of the definitions.
+         */
+        private HandleState(long version) {
+            this.version = version;
+        }
+    }
 }
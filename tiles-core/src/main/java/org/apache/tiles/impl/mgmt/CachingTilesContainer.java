@@ -20,12 +20,13 @@
  */
 package org.apache.tiles.impl.mgmt;
 
-import java.util.HashMap;
 import java.util.Map;
 
 import org.apache.tiles.Definition;
+import org.apache.tiles.DefinitionHandle;
 import org.apache.tiles.TilesContainer;
 import org.apache.tiles.TilesContainerWrapper;
+import org.apache.tiles.access.RenderState;
 import org.apache.tiles.definition.NoSuchDefinitionException;
 import org.apache.tiles.mgmt.MutableTilesContainer;
 import org.apache.tiles.request.Request;
@@ -39,13 +40,14 @@ import org.apache.tiles.request.Request;
 public class CachingTilesContainer extends TilesContainerWrapper implements MutableTilesContainer {
 
     /**
-     * The default name of the attribute in which storing custom definitions.
+     * The default name of the store, in the request render state, in which
+     * storing custom definitions.
      */
     private static final String DEFAULT_DEFINITIONS_ATTRIBUTE_NAME =
         "org.apache.tiles.impl.mgmt.DefinitionManager.DEFINITIONS";
 
     /**
-     * The name of the attribute in which storing custom definitions.
+     * The name of the store in which storing custom definitions.
      */
     private String definitionsAttributeName;
 
@@ -100,12 +102,29 @@ public class CachingTilesContainer extends TilesContainerWrapper implements Muta
         return super.isValidDefinition(definition, request);
     }
 
+    /**
+     * {@inheritDoc}
+     * If the definition is a custom one, the handle renders the custom
+     * definition with the same name registered in the request, if any.
+     */
+    @Override
+    public DefinitionHandle getDefinitionHandle(String definition, Request request) {
+        DefinitionHandle retValue = super.getDefinitionHandle(definition, request);
+        if (retValue == null && getCustomDefinition(definition, request) != null) {
+            retValue = new CustomDefinitionHandle(definition);
+        }
+        return retValue;
+    }
+
     /** {@inheritDoc} */
     @Override
     public void register(Definition definition, Request request) {
-        Map<String, Definition> definitions = getOrCreateDefinitions(request);
+        RenderState renderState = RenderState.getRenderState(request);
+        Map<String, Definition> definitions = renderState
+                .getOrCreateDefinitions(definitionsAttributeName);
         if (definition.getName() == null) {
-            definition.setName(getNextUniqueDefinitionName(definitions));
+            definition.setName(getNextUniqueDefinitionName(definitions,
+                    renderState));
         }
 
         if (definition.isExtending()) {
@@ -126,6 +145,21 @@ public class CachingTilesContainer extends TilesContainerWrapper implements Muta
         super.render(toRender, request);
     }
 
+    /**
+     * {@inheritDoc}
+     * A custom definition with the same name, registered in the request,
+     * takes precedence over the main definition of the handle.
+     */
+    @Override
+    public void render(DefinitionHandle handle, Request request) {
+        Definition toRender = getCustomDefinition(handle.getName(), request);
+        if (toRender != null) {
+            super.render(toRender, request);
+        } else {
+            super.render(handle, request);
+        }
+    }
+
     /**
      * Resolve inheritance.
      * First, resolve parent's inheritance, then set template to the parent's
@@ -177,49 +211,30 @@ public class CachingTilesContainer extends TilesContainerWrapper implements Muta
      * @param request The current request.
      * @return A map that connects a definition name to a definition.
      */
-    @SuppressWarnings("unchecked")
     private Map<String, Definition> getDefinitions(
             Request request) {
-        return (Map<String, Definition>) request.getContext("request")
-                .get(definitionsAttributeName);
-    }
-
-    /**
-     * Returns a map of type "definition name -> definition" and, if it has not
-     * been defined before, creates one.
-     *
-     * @param request The current request.
-     * @return A map that connects a definition name to a definition.
-     */
-    @SuppressWarnings("unchecked")
-    private Map<String, Definition> getOrCreateDefinitions(
-            Request request) {
-        Map<String, Definition> definitions =
-            (Map<String, Definition>) request.getContext("request").get(definitionsAttributeName);
-        if (definitions == null) {
-            definitions = new HashMap<String, Definition>();
-            request.getContext("request")
-                    .put(definitionsAttributeName, definitions);
-        }
-
-        return definitions;
+        return RenderState.getRenderState(request).getDefinitions(
+                definitionsAttributeName);
     }
 
     /**
      * Create a unique definition name usable to store anonymous definitions.
      *
      * @param definitions The already created definitions.
+     * @param renderState The render state, that counts the anonymous
+     * definitions of the request.
      * @return The unique definition name to be used to store the definition.
      * @since 2.1.0
      */
     private String getNextUniqueDefinitionName(
-            Map<String, Definition> definitions) {
+            Map<String, Definition> definitions, RenderState renderState) {
         String candidate;
-        int anonymousDefinitionIndex = 1;
 
+        // Only a name that has been explicitly used by a named definition is
+        // skipped, instead of probing all the names from the first one.
         do {
-            candidate = "$anonymousMutableDefinition" + anonymousDefinitionIndex;
-            anonymousDefinitionIndex++;
+            candidate = "$anonymousMutableDefinition"
+                    + renderState.nextAnonymousDefinitionIndex();
         } while (definitions.containsKey(candidate));
 
         return candidate;
@@ -239,4 +254,29 @@ public class CachingTilesContainer extends TilesContainerWrapper implements Muta
         }
         return null;
     }
+
+    /**
+     * Handle of a definition that exists only as a custom definition.
+     */
+    private static final class CustomDefinitionHandle implements DefinitionHandle {
+
+        /**
+         * The definition name.
+         */
+        private final String name;
+
+        /**
+         * Constructor.
+         *
+         * @param name The definition name.
+         */
+        private CustomDefinitionHandle(String name) {
+            this.name = name;
+        }
+
+        /** {@inheritDoc} */
+        public String getName() {
+            return name;
+        }
+    }
 }
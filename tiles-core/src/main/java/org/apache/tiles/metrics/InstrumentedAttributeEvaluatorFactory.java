@@ -0,0 +1,155 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.metrics;
+
+import org.apache.tiles.Attribute;
+import org.apache.tiles.Expression;
+import org.apache.tiles.evaluator.AttributeEvaluator;
+import org.apache.tiles.evaluator.AttributeEvaluatorFactory;
+import org.apache.tiles.request.Request;
+
+/**
+ * Attribute evaluator factory that wraps the evaluators of another factory,
+ * recording their evaluation time under the {@link RenderMetrics#EVALUATOR}
+ * category, keyed by expression language.
+ *
+ * @version $Rev$ $Date$
+ * @since 3.0.8
+ */
+public class InstrumentedAttributeEvaluatorFactory implements AttributeEvaluatorFactory {
+
+    /**
+     * The name under which the default evaluator is recorded.
+     */
+    private static final String DEFAULT_LANGUAGE_NAME = "(default)";
+
+    /**
+     * The wrapped factory.
+     */
+    private final AttributeEvaluatorFactory attributeEvaluatorFactory;
+
+    /**
+     * The metrics to update.
+     */
+    private final RenderMetrics metrics;
+
+    /**
+     * Constructor.
+     *
+     * @param attributeEvaluatorFactory The factory to wrap.
+     * @param metrics The metrics to update.
+     * @since 3.0.8
+     */
+    public InstrumentedAttributeEvaluatorFactory(
+            AttributeEvaluatorFactory attributeEvaluatorFactory,
+            RenderMetrics metrics) {
+        this.attributeEvaluatorFactory = attributeEvaluatorFactory;
+        this.metrics = metrics;
+    }
+
+    /** {@inheritDoc} */
+    public AttributeEvaluator getAttributeEvaluator(Attribute attribute) {
+        String language = null;
+        Expression expression = attribute.getExpressionObject();
+        if (expression != null) {
+            language = expression.getLanguage();
+        }
+        return wrap(language, attributeEvaluatorFactory.getAttributeEvaluator(attribute));
+    }
+
+    /** {@inheritDoc} */
+    public AttributeEvaluator getAttributeEvaluator(String language) {
+        return wrap(language, attributeEvaluatorFactory.getAttributeEvaluator(language));
+    }
+
+    /**
+     * Wraps an evaluator.
+     *
+     * @param language The expression language.
+     * @param evaluator The evaluator to wrap.
+     * @return The wrapping evaluator.
+     */
+    private AttributeEvaluator wrap(String language, AttributeEvaluator evaluator) {
+        return new InstrumentedAttributeEvaluator(language != null ? language
+                : DEFAULT_LANGUAGE_NAME, evaluator);
+    }
+
+    /**
+     * Evaluator that records the evaluation time of a wrapped evaluator.
+     */
+    private class InstrumentedAttributeEvaluator implements AttributeEvaluator {
+
+        /**
+         * The name under which the evaluator is recorded.
+         */
+        private final String name;
+
+        /**
+         * The wrapped evaluator.
+         */
+        private final AttributeEvaluator evaluator;
+
+        /**
+         * Constructor.
+         *
+         * @param name The name under which the evaluator is recorded.
+         * @param evaluator The wrapped evaluator.
+         */
+        public InstrumentedAttributeEvaluator(String name, AttributeEvaluator evaluator) {
+            this.name = name;
+            this.evaluator = evaluator;
+        }
+
+        /** {@inheritDoc} */
+        public Object evaluate(String expression, Request request) {
+            if (!metrics.isEnabled()) {
+                return evaluator.evaluate(expression, request);
+            }
+            long start = System.nanoTime();
+            boolean failed = true;
+            try {
+                Object retValue = evaluator.evaluate(expression, request);
+                failed = false;
+                return retValue;
+            } finally {
+                metrics.record(RenderMetrics.EVALUATOR, name, System.nanoTime()
+                        - start, failed);
+            }
+        }
+
+        /** {@inheritDoc} */
+        public Object evaluate(Attribute attribute, Request request) {
+            if (!metrics.isEnabled()) {
+                return evaluator.evaluate(attribute, request);
+            }
+            long start = System.nanoTime();
+            boolean failed = true;
+            try {
+                Object retValue = evaluator.evaluate(attribute, request);
+                failed = false;
+                return retValue;
+            } finally {
+                metrics.record(RenderMetrics.EVALUATOR, name, System.nanoTime()
+                        - start, failed);
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.metrics;
+
+import org.apache.tiles.Definition;
+import org.apache.tiles.mgmt.MutableTilesContainer;
+import org.apache.tiles.request.Request;
+
+/**
+ * Instrumented container that wraps a {@link MutableTilesContainer}, keeping
+ * it mutable.
+ *
+ * @version $Rev$ $Date$
+ * @since 3.0.8
+ */
+public class InstrumentedMutableTilesContainer extends InstrumentedTilesContainer
+        implements MutableTilesContainer {
+
+    /**
+     * Constructor.
+     *
+     * @param container The container to wrap.
+     * @param metrics The metrics to update.
+     * @since 3.0.8
+     */
+    public InstrumentedMutableTilesContainer(MutableTilesContainer container,
+            RenderMetrics metrics) {
+        super(container, metrics);
+    }
+
+    /** {@inheritDoc} */
+    public void register(Definition definition, Request request) {
+        ((MutableTilesContainer) container).register(definition, request);
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.metrics;
+
+import org.apache.tiles.AttributeContext;
+import org.apache.tiles.preparer.ViewPreparer;
+import org.apache.tiles.preparer.factory.PreparerFactory;
+import org.apache.tiles.request.Request;
+
+/**
+ * Preparer factory that wraps the preparers of another factory, recording
+ * their execution time under the {@link RenderMetrics#PREPARER} category.
+ *
+ * @version $Rev$ $Date$
+ * @since 3.0.8
+ */
+public class InstrumentedPreparerFactory implements PreparerFactory {
+
+    /**
+     * The wrapped factory.
+     */
+    private final PreparerFactory preparerFactory;
+
+    /**
+     * The metrics to update.
+     */
+    private final RenderMetrics metrics;
+
+    /**
+     * Constructor.
+     *
+     * @param preparerFactory The factory to wrap.
+     * @param metrics The metrics to update.
+     * @since 3.0.8
+     */
+    public InstrumentedPreparerFactory(PreparerFactory preparerFactory,
+            RenderMetrics metrics) {
+        this.preparerFactory = preparerFactory;
+        this.metrics = metrics;
+    }
+
+    /** {@inheritDoc} */
+    public ViewPreparer getPreparer(String name, Request context) {
+        ViewPreparer preparer = preparerFactory.getPreparer(name, context);
+        if (preparer == null) {
+            return null;
+        }
+        return new InstrumentedViewPreparer(name, preparer);
+    }
+
+    /**
+     * View preparer that records the execution time of a wrapped preparer.
+     */
+    private class InstrumentedViewPreparer implements ViewPreparer {
+
+        /**
+         * The name under which the preparer is recorded.
+         */
+        private final String name;
+
+        /**
+         * The wrapped preparer.
+         */
+        private final ViewPreparer preparer;
+
+        /**
+         * Constructor.
+         *
+         * @param name The name under which the preparer is recorded.
+         * @param preparer The wrapped preparer.
+         */
+        public InstrumentedViewPreparer(String name, ViewPreparer preparer) {
+            this.name = name;
+            this.preparer = preparer;
+        }
+
+        /** {@inheritDoc} */
+        public void execute(Request tilesContext, AttributeContext attributeContext) {
+            if (!metrics.isEnabled()) {
+                preparer.execute(tilesContext, attributeContext);
+                return;
+            }
+            long start = System.nanoTime();
+            boolean failed = true;
+            try {
+                preparer.execute(tilesContext, attributeContext);
+                failed = false;
+            } finally {
+                metrics.record(RenderMetrics.PREPARER, name, System.nanoTime()
+                        - start, failed);
+            }
+        }
+    }
+}
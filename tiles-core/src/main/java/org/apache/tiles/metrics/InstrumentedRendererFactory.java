@@ -0,0 +1,205 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.metrics;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.tiles.renderer.ConstantValueRenderer;
+import org.apache.tiles.request.Request;
+import org.apache.tiles.request.render.Renderer;
+import org.apache.tiles.request.render.RendererFactory;
+
+/**
+ * Renderer factory that wraps the renderers of another factory, recording
+ * their render time under the {@link RenderMetrics#RENDERER} category. The
+ * wrappers are cached by renderer name, and replaced if the wrapped factory
+ * returns a different renderer for the same name.
+ *
+ * @version $Rev$ $Date$
+ * @since 3.0.8
+ */
+public class InstrumentedRendererFactory implements RendererFactory {
+
+    /**
+     * The name under which the default renderer is recorded.
+     */
+    private static final String DEFAULT_RENDERER_NAME = "(default)";
+
+    /**
+     * The maximum number of cached wrappers.
+     */
+    private static final int MAX_CACHED_RENDERERS = 1000;
+
+    /**
+     * The wrapped factory.
+     */
+    private final RendererFactory rendererFactory;
+
+    /**
+     * The metrics to update.
+     */
+    private final RenderMetrics metrics;
+
+    /**
+     * Maps the name of a renderer to its wrapper.
+     */
+    private final ConcurrentMap<String, InstrumentedRenderer> renderers =
+        new ConcurrentHashMap<String, InstrumentedRenderer>();
+
+    /**
+     * The number of cached wrappers.
+     */
+    private final AtomicInteger rendererCount = new AtomicInteger();
+
+    /**
+     * Constructor.
+     *
+     * @param rendererFactory The factory to wrap.
+     * @param metrics The metrics to update.
+     * @since 3.0.8
+     */
+    public InstrumentedRendererFactory(RendererFactory rendererFactory,
+            RenderMetrics metrics) {
+        this.rendererFactory = rendererFactory;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Returns the wrapped factory.
+     *
+     * @return The wrapped factory.
+     * @since 3.0.8
+     */
+    public RendererFactory getWrappedRendererFactory() {
+        return rendererFactory;
+    }
+
+    /** {@inheritDoc} */
+    public Renderer getRenderer(String name) {
+        Renderer renderer = rendererFactory.getRenderer(name);
+        if (renderer == null) {
+            return null;
+        }
+        String key = name != null ? name : DEFAULT_RENDERER_NAME;
+        InstrumentedRenderer retValue = renderers.get(key);
+        if (retValue != null && retValue.renderer == renderer) {
+            return retValue;
+        }
+        retValue = new InstrumentedRenderer(key, renderer);
+        if (renderers.containsKey(key) || rendererCount.get() < MAX_CACHED_RENDERERS) {
+            if (renderers.put(key, retValue) == null) {
+                rendererCount.incrementAndGet();
+            }
+        }
+        return retValue;
+    }
+
+    /**
+     * Renderer that records the render time of a wrapped renderer. Constant
+     * values are rendered as constant only if the wrapped renderer supports
+     * it.
+     */
+    private class InstrumentedRenderer implements ConstantValueRenderer {
+
+        /**
+         * The name under which the renderer is recorded.
+         */
+        private final String name;
+
+        /**
+         * The wrapped renderer.
+         */
+        private final Renderer renderer;
+
+        /**
+         * Constructor.
+         *
+         * @param name The name under which the renderer is recorded.
+         * @param renderer The wrapped renderer.
+         */
+        public InstrumentedRenderer(String name, Renderer renderer) {
+            this.name = name;
+            this.renderer = renderer;
+        }
+
+        /** {@inheritDoc} */
+        public void render(String path, Request request) throws IOException {
+            render(path, request, false);
+        }
+
+        /** {@inheritDoc} */
+        public void renderConstant(String value, Request request) throws IOException {
+            render(value, request, renderer instanceof ConstantValueRenderer);
+        }
+
+        /**
+         * Renders a value with the wrapped renderer, recording the time.
+         *
+         * @param path The value to render.
+         * @param request The request.
+         * @param constant If <code>true</code> the value is rendered as a
+         * constant.
+         * @throws IOException If something goes wrong during rendition.
+         */
+        private void render(String path, Request request, boolean constant)
+                throws IOException {
+            if (!metrics.isEnabled()) {
+                delegate(path, request, constant);
+                return;
+            }
+            long start = System.nanoTime();
+            boolean failed = true;
+            try {
+                delegate(path, request, constant);
+                failed = false;
+            } finally {
+                metrics.record(RenderMetrics.RENDERER, name, System.nanoTime()
+                        - start, failed);
+            }
+        }
+
+        /**
+         * Calls the wrapped renderer.
+         *
+         * @param path The value to render.
+         * @param request The request.
+         * @param constant If <code>true</code> the value is rendered as a
+         * constant.
+         * @throws IOException If something goes wrong during rendition.
+         */
+        private void delegate(String path, Request request, boolean constant)
+                throws IOException {
+            if (constant) {
+                ((ConstantValueRenderer) renderer).renderConstant(path, request);
+            } else {
+                renderer.render(path, request);
+            }
+        }
+
+        /** {@inheritDoc} */
+        public boolean isRenderable(String path, Request request) {
+            return renderer.isRenderable(path, request);
+        }
+    }
+}
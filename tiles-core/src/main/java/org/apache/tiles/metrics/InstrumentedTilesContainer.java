@@ -0,0 +1,140 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.metrics;
+
+import org.apache.tiles.Definition;
+import org.apache.tiles.DefinitionHandle;
+import org.apache.tiles.TilesContainer;
+import org.apache.tiles.TilesContainerWrapper;
+import org.apache.tiles.definition.NoSuchDefinitionException;
+import org.apache.tiles.request.Request;
+
+/**
+ * Container that records the render time of every definition in a
+ * {@link RenderMetrics} object, under the {@link RenderMetrics#DEFINITION}
+ * category. Renders of definitions that do not exist are not recorded, since
+ * their names may come from the request.
+ *
+ * @version $Rev$ $Date$
+ * @since 3.0.8
+ */
+public class InstrumentedTilesContainer extends TilesContainerWrapper {
+
+    /**
+     * The name under which anonymous definitions are recorded.
+     */
+    private static final String ANONYMOUS_DEFINITION_NAME = "(anonymous)";
+
+    /**
+     * The metrics to update.
+     */
+    private final RenderMetrics metrics;
+
+    /**
+     * Constructor.
+     *
+     * @param container The container to wrap.
+     * @param metrics The metrics to update.
+     * @since 3.0.8
+     */
+    public InstrumentedTilesContainer(TilesContainer container, RenderMetrics metrics) {
+        super(container);
+        this.metrics = metrics;
+    }
+
+    /**
+     * Returns the metrics updated by this container.
+     *
+     * @return The metrics.
+     * @since 3.0.8
+     */
+    public RenderMetrics getMetrics() {
+        return metrics;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void render(String definition, Request request) {
+        if (!metrics.isEnabled()) {
+            super.render(definition, request);
+            return;
+        }
+        long start = System.nanoTime();
+        boolean failed = true;
+        boolean existing = true;
+        try {
+            super.render(definition, request);
+            failed = false;
+        } catch (NoSuchDefinitionException e) {
+            existing = super.isValidDefinition(definition, request);
+            throw e;
+        } finally {
+            if (existing) {
+                metrics.record(RenderMetrics.DEFINITION, definition,
+                        System.nanoTime() - start, failed);
+            }
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void render(DefinitionHandle handle, Request request) {
+        if (!metrics.isEnabled()) {
+            super.render(handle, request);
+            return;
+        }
+        long start = System.nanoTime();
+        boolean failed = true;
+        boolean existing = true;
+        try {
+            super.render(handle, request);
+            failed = false;
+        } catch (NoSuchDefinitionException e) {
+            existing = super.isValidDefinition(handle.getName(), request);
+            throw e;
+        } finally {
+            if (existing) {
+                metrics.record(RenderMetrics.DEFINITION, handle.getName(),
+                        System.nanoTime() - start, failed);
+            }
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void render(Definition definition, Request request) {
+        if (!metrics.isEnabled()) {
+            super.render(definition, request);
+            return;
+        }
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            super.render(definition, request);
+            failed = false;
+        } finally {
+            String name = definition.getName();
+            metrics.record(RenderMetrics.DEFINITION,
+                    name != null ? name : ANONYMOUS_DEFINITION_NAME,
+                    System.nanoTime() - start, failed);
+        }
+    }
+}
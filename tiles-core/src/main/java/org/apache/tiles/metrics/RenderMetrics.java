@@ -0,0 +1,375 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.metrics;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.tiles.request.ApplicationContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Collects the {@link RenderStatistics} of the render pipeline, grouped by
+ * category and element name. It can register itself and all of its
+ * statistics as MBeans; statistics created after the registration are
+ * registered as soon as they are created. The number of names tracked in
+ * each category is limited: other names are recorded together, under
+ * {@link #OTHER_NAME}.
+ *
+ * @version $Rev$ $Date$
+ * @since 3.0.8
+ */
+public class RenderMetrics implements RenderMetricsMBean {
+
+    /**
+     * The category of definition renders, keyed by definition name.
+     *
+     * @since 3.0.8
+     */
+    public static final String DEFINITION = "definition";
+
+    /**
+     * The category of attribute renders, keyed by renderer name.
+     *
+     * @since 3.0.8
+     */
+    public static final String RENDERER = "renderer";
+
+    /**
+     * The category of view preparer executions, keyed by preparer name.
+     *
+     * @since 3.0.8
+     */
+    public static final String PREPARER = "preparer";
+
+    /**
+     * The category of attribute evaluations, keyed by expression language.
+     *
+     * @since 3.0.8
+     */
+    public static final String EVALUATOR = "evaluator";
+
+    /**
+     * The JMX domain of the registered MBeans.
+     *
+     * @since 3.0.8
+     */
+    public static final String DOMAIN = "org.apache.tiles";
+
+    /**
+     * The name under which the elements are recorded, once the maximum number
+     * of names of their category is reached.
+     *
+     * @since 3.0.8
+     */
+    public static final String OTHER_NAME = "(other)";
+
+    /**
+     * The default maximum number of names tracked in each category.
+     *
+     * @since 3.0.8
+     */
+    public static final int DEFAULT_MAX_NAMES = 1000;
+
+    /**
+     * The name of the application-scope attribute that holds the metrics of
+     * the container.
+     *
+     * @since 3.0.8
+     */
+    public static final String RENDER_METRICS_ATTRIBUTE_NAME = RenderMetrics.class.getName();
+
+    /**
+     * The logging object.
+     */
+    private final Logger log = LoggerFactory.getLogger(RenderMetrics.class);
+
+    /**
+     * Maps a category to the statistics of its elements.
+     */
+    private final ConcurrentMap<String, ConcurrentMap<String, RenderStatistics>> categories =
+        new ConcurrentHashMap<String, ConcurrentMap<String, RenderStatistics>>();
+
+    /**
+     * The names of the registered MBeans.
+     */
+    private final List<ObjectName> registeredNames = new CopyOnWriteArrayList<ObjectName>();
+
+    /**
+     * Indicates if recording is enabled.
+     */
+    private volatile boolean enabled = true;
+
+    /**
+     * The MBean server in which statistics are registered, or
+     * <code>null</code>.
+     */
+    private volatile MBeanServer mBeanServer;
+
+    /**
+     * The value of the "container" key of the registered MBean names.
+     */
+    private volatile String containerName;
+
+    /**
+     * The maximum number of names tracked in each category.
+     */
+    private final int maxNames;
+
+    /**
+     * Constructor, that tracks up to {@link #DEFAULT_MAX_NAMES} names in each
+     * category.
+     *
+     * @since 3.0.8
+     */
+    public RenderMetrics() {
+        this(DEFAULT_MAX_NAMES);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param maxNames The maximum number of names tracked in each category.
+     * @since 3.0.8
+     */
+    public RenderMetrics(int maxNames) {
+        this.maxNames = maxNames;
+    }
+
+    /**
+     * Returns the metrics stored in the application scope.
+     *
+     * @param applicationContext The application context.
+     * @return The metrics, or <code>null</code> if not present.
+     * @since 3.0.8
+     */
+    public static RenderMetrics getRenderMetrics(ApplicationContext applicationContext) {
+        Map<String, Object> scope = applicationContext.getApplicationScope();
+        return scope != null ? (RenderMetrics) scope
+                .get(RENDER_METRICS_ATTRIBUTE_NAME) : null;
+    }
+
+    /**
+     * Stores the metrics in the application scope, so that they can be
+     * unregistered when the container is destroyed.
+     *
+     * @param applicationContext The application context.
+     * @param metrics The metrics, or <code>null</code> to remove them.
+     * @since 3.0.8
+     */
+    public static void setRenderMetrics(ApplicationContext applicationContext,
+            RenderMetrics metrics) {
+        Map<String, Object> scope = applicationContext.getApplicationScope();
+        if (metrics != null) {
+            scope.put(RENDER_METRICS_ATTRIBUTE_NAME, metrics);
+        } else {
+            scope.remove(RENDER_METRICS_ATTRIBUTE_NAME);
+        }
+    }
+
+    /** {@inheritDoc} */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** {@inheritDoc} */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Records an execution.
+     *
+     * @param category The category of the measured element.
+     * @param name The name of the measured element.
+     * @param nanos The execution time, in nanoseconds.
+     * @param failed <code>true</code> if the execution threw an exception.
+     * @since 3.0.8
+     */
+    public void record(String category, String name, long nanos, boolean failed) {
+        getStatistics(category, name).record(nanos, failed);
+    }
+
+    /**
+     * Returns the statistics of an element, creating them if needed. If the
+     * maximum number of names of the category has been reached, the
+     * statistics of {@link #OTHER_NAME} are returned instead.
+     *
+     * @param category The category of the element.
+     * @param name The name of the element.
+     * @return The statistics.
+     * @since 3.0.8
+     */
+    public RenderStatistics getStatistics(String category, String name) {
+        ConcurrentMap<String, RenderStatistics> statistics = getCategory(category);
+        RenderStatistics retValue = statistics.get(name);
+        if (retValue == null) {
+            if (statistics.size() >= maxNames && !OTHER_NAME.equals(name)) {
+                return getStatistics(category, OTHER_NAME);
+            }
+            retValue = new RenderStatistics(category, name);
+            RenderStatistics existing = statistics.putIfAbsent(name, retValue);
+            if (existing != null) {
+                retValue = existing;
+            } else if (mBeanServer != null) {
+                registerMBean(retValue, createObjectName(category, name));
+            }
+        }
+        return retValue;
+    }
+
+    /**
+     * Returns the statistics of all the elements of a category.
+     *
+     * @param category The category.
+     * @return The statistics, mapped by element name.
+     * @since 3.0.8
+     */
+    public Map<String, RenderStatistics> getStatistics(String category) {
+        return Collections.unmodifiableMap(getCategory(category));
+    }
+
+    /** {@inheritDoc} */
+    public String[] getNames(String category) {
+        return getCategory(category).keySet().toArray(new String[0]);
+    }
+
+    /** {@inheritDoc} */
+    public void reset() {
+        for (Map<String, RenderStatistics> statistics : categories.values()) {
+            for (RenderStatistics statistic : statistics.values()) {
+                statistic.reset();
+            }
+        }
+    }
+
+    /**
+     * Registers this object and all the statistics as MBeans.
+     *
+     * @param server The MBean server to use.
+     * @param container The value of the "container" key of the MBean names,
+     * to distinguish between different containers.
+     * @since 3.0.8
+     */
+    public synchronized void register(MBeanServer server, String container) {
+        this.containerName = container;
+        this.mBeanServer = server;
+        registerMBean(this, createObjectName(null, null));
+        for (Map<String, RenderStatistics> statistics : categories.values()) {
+            for (RenderStatistics statistic : statistics.values()) {
+                registerMBean(statistic, createObjectName(statistic
+                        .getCategory(), statistic.getName()));
+            }
+        }
+    }
+
+    /**
+     * Unregisters all the MBeans registered by this object.
+     *
+     * @since 3.0.8
+     */
+    public synchronized void unregister() {
+        MBeanServer server = mBeanServer;
+        mBeanServer = null;
+        if (server == null) {
+            return;
+        }
+        for (ObjectName name : registeredNames) {
+            try {
+                server.unregisterMBean(name);
+            } catch (JMException e) {
+                log.debug("Cannot unregister MBean " + name, e);
+            }
+        }
+        registeredNames.clear();
+    }
+
+    /**
+     * Returns the statistics of a category, creating the category if needed.
+     *
+     * @param category The category.
+     * @return The statistics, mapped by element name.
+     */
+    private ConcurrentMap<String, RenderStatistics> getCategory(String category) {
+        ConcurrentMap<String, RenderStatistics> retValue = categories.get(category);
+        if (retValue == null) {
+            retValue = new ConcurrentHashMap<String, RenderStatistics>();
+            ConcurrentMap<String, RenderStatistics> existing = categories
+                    .putIfAbsent(category, retValue);
+            if (existing != null) {
+                retValue = existing;
+            }
+        }
+        return retValue;
+    }
+
+    /**
+     * Creates an MBean name.
+     *
+     * @param category The category, or <code>null</code> for this object.
+     * @param name The element name, or <code>null</code> for this object.
+     * @return The object name, or <code>null</code> if it is not valid.
+     */
+    private ObjectName createObjectName(String category, String name) {
+        StringBuilder builder = new StringBuilder(DOMAIN);
+        builder.append(":type=");
+        builder.append(category == null ? "RenderMetrics" : "RenderStatistics");
+        builder.append(",container=").append(ObjectName.quote(containerName));
+        if (category != null) {
+            builder.append(",category=").append(ObjectName.quote(category));
+            builder.append(",name=").append(ObjectName.quote(name));
+        }
+        try {
+            return new ObjectName(builder.toString());
+        } catch (JMException e) {
+            log.warn("Invalid MBean name " + builder, e);
+            return null;
+        }
+    }
+
+    /**
+     * Registers an MBean, logging any failure.
+     *
+     * @param mBean The MBean.
+     * @param name The MBean name.
+     */
+    private void registerMBean(Object mBean, ObjectName name) {
+        MBeanServer server = mBeanServer;
+        if (server == null || name == null) {
+            return;
+        }
+        try {
+            server.registerMBean(mBean, name);
+            registeredNames.add(name);
+        } catch (JMException e) {
+            log.warn("Cannot register MBean " + name, e);
+        }
+    }
+}
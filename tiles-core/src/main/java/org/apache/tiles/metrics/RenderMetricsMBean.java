@@ -0,0 +1,63 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.metrics;
+
+/**
+ * JMX management interface of {@link RenderMetrics}.
+ *
+ * @version $Rev$ $Date$
+ * @since 3.0.8
+ */
+public interface RenderMetricsMBean {
+
+    /**
+     * Checks if the metrics are being recorded.
+     *
+     * @return <code>true</code> if recording is enabled.
+     * @since 3.0.8
+     */
+    boolean isEnabled();
+
+    /**
+     * Enables or disables recording. When disabled, the instrumented
+     * components only check this flag and delegate directly.
+     *
+     * @param enabled <code>true</code> to enable recording.
+     * @since 3.0.8
+     */
+    void setEnabled(boolean enabled);
+
+    /**
+     * Returns the names of the elements recorded under a category.
+     *
+     * @param category The category, e.g. "definition".
+     * @return The names of the recorded elements.
+     * @since 3.0.8
+     */
+    String[] getNames(String category);
+
+    /**
+     * Clears all the recorded statistics.
+     *
+     * @since 3.0.8
+     */
+    void reset();
+}
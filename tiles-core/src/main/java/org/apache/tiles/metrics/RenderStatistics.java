@@ -0,0 +1,196 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Execution statistics of a single element of the render pipeline, e.g. a
+ * definition or an attribute renderer. It is thread-safe and lock-free.
+ *
+ * @version $Rev$ $Date$
+ * @since 3.0.8
+ */
+public class RenderStatistics implements RenderStatisticsMBean {
+
+    /**
+     * The inclusive upper bounds of the histogram buckets, in microseconds.
+     * An additional bucket collects everything above the last bound.
+     */
+    private static final long[] BUCKET_BOUNDS = {100L, 250L, 500L, 1000L,
+            2500L, 5000L, 10000L, 25000L, 50000L, 100000L, 250000L, 500000L,
+            1000000L };
+
+    /**
+     * The category of the measured element.
+     */
+    private final String category;
+
+    /**
+     * The name of the measured element.
+     */
+    private final String name;
+
+    /**
+     * The execution count.
+     */
+    private final AtomicLong count = new AtomicLong();
+
+    /**
+     * The failure count.
+     */
+    private final AtomicLong failureCount = new AtomicLong();
+
+    /**
+     * The total time, in nanoseconds.
+     */
+    private final AtomicLong totalNanos = new AtomicLong();
+
+    /**
+     * The maximum time, in nanoseconds.
+     */
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * The histogram counts.
+     */
+    private final AtomicLongArray histogram = new AtomicLongArray(
+            BUCKET_BOUNDS.length + 1);
+
+    /**
+     * Constructor.
+     *
+     * @param category The category of the measured element.
+     * @param name The name of the measured element.
+     * @since 3.0.8
+     */
+    public RenderStatistics(String category, String name) {
+        this.category = category;
+        this.name = name;
+    }
+
+    /**
+     * Records an execution.
+     *
+     * @param nanos The execution time, in nanoseconds.
+     * @param failed <code>true</code> if the execution threw an exception.
+     * @since 3.0.8
+     */
+    public void record(long nanos, boolean failed) {
+        count.incrementAndGet();
+        if (failed) {
+            failureCount.incrementAndGet();
+        }
+        totalNanos.addAndGet(nanos);
+        long max = maxNanos.get();
+        while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+            max = maxNanos.get();
+        }
+        histogram.incrementAndGet(getBucket(TimeUnit.NANOSECONDS.toMicros(nanos)));
+    }
+
+    /** {@inheritDoc} */
+    public String getCategory() {
+        return category;
+    }
+
+    /** {@inheritDoc} */
+    public String getName() {
+        return name;
+    }
+
+    /** {@inheritDoc} */
+    public long getCount() {
+        return count.get();
+    }
+
+    /** {@inheritDoc} */
+    public long getFailureCount() {
+        return failureCount.get();
+    }
+
+    /** {@inheritDoc} */
+    public long getTotalTimeMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(totalNanos.get());
+    }
+
+    /** {@inheritDoc} */
+    public double getAverageTimeMicros() {
+        long currentCount = count.get();
+        if (currentCount == 0) {
+            return 0;
+        }
+        return totalNanos.get() / (currentCount * 1000.0);
+    }
+
+    /** {@inheritDoc} */
+    public long getMaxTimeMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(maxNanos.get());
+    }
+
+    /** {@inheritDoc} */
+    public long[] getHistogram() {
+        long[] retValue = new long[histogram.length()];
+        for (int i = 0; i < retValue.length; i++) {
+            retValue[i] = histogram.get(i);
+        }
+        return retValue;
+    }
+
+    /** {@inheritDoc} */
+    public String[] getHistogramBuckets() {
+        String[] retValue = new String[BUCKET_BOUNDS.length + 1];
+        for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+            retValue[i] = "<= " + BUCKET_BOUNDS[i] + "us";
+        }
+        retValue[BUCKET_BOUNDS.length] = "> "
+                + BUCKET_BOUNDS[BUCKET_BOUNDS.length - 1] + "us";
+        return retValue;
+    }
+
+    /** {@inheritDoc} */
+    public void reset() {
+        count.set(0L);
+        failureCount.set(0L);
+        totalNanos.set(0L);
+        maxNanos.set(0L);
+        for (int i = 0; i < histogram.length(); i++) {
+            histogram.set(i, 0L);
+        }
+    }
+
+    /**
+     * Returns the histogram bucket for a time.
+     *
+     * @param micros The time, in microseconds.
+     * @return The index of the bucket.
+     */
+    private static int getBucket(long micros) {
+        for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+            if (micros <= BUCKET_BOUNDS[i]) {
+                return i;
+            }
+        }
+        return BUCKET_BOUNDS.length;
+    }
+}
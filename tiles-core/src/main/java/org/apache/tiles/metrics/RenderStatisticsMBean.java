@@ -0,0 +1,112 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.metrics;
+
+/**
+ * JMX management interface of {@link RenderStatistics}.
+ *
+ * @version $Rev$ $Date$
+ * @since 3.0.8
+ */
+public interface RenderStatisticsMBean {
+
+    /**
+     * Returns the category of the measured element, e.g. "definition" or
+     * "renderer".
+     *
+     * @return The category.
+     * @since 3.0.8
+     */
+    String getCategory();
+
+    /**
+     * Returns the name of the measured element, e.g. the definition name.
+     *
+     * @return The name.
+     * @since 3.0.8
+     */
+    String getName();
+
+    /**
+     * Returns the number of recorded executions.
+     *
+     * @return The execution count.
+     * @since 3.0.8
+     */
+    long getCount();
+
+    /**
+     * Returns the number of executions that ended with an exception.
+     *
+     * @return The failure count.
+     * @since 3.0.8
+     */
+    long getFailureCount();
+
+    /**
+     * Returns the total time spent, in microseconds.
+     *
+     * @return The total time.
+     * @since 3.0.8
+     */
+    long getTotalTimeMicros();
+
+    /**
+     * Returns the average time of an execution, in microseconds.
+     *
+     * @return The average time, or 0 if nothing has been recorded.
+     * @since 3.0.8
+     */
+    double getAverageTimeMicros();
+
+    /**
+     * Returns the longest execution time, in microseconds.
+     *
+     * @return The maximum time.
+     * @since 3.0.8
+     */
+    long getMaxTimeMicros();
+
+    /**
+     * Returns the latency histogram. The element at position <code>i</code>
+     * counts the executions that fall in the bucket described by
+     * {@link #getHistogramBuckets()} at the same position.
+     *
+     * @return The histogram counts.
+     * @since 3.0.8
+     */
+    long[] getHistogram();
+
+    /**
+     * Returns the descriptions of the histogram buckets.
+     *
+     * @return The bucket descriptions.
+     * @since 3.0.8
+     */
+    String[] getHistogramBuckets();
+
+    /**
+     * Clears all the recorded data.
+     *
+     * @since 3.0.8
+     */
+    void reset();
+}
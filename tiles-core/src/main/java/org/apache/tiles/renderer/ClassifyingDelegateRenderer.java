@@ -0,0 +1,215 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.renderer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.tiles.Definition;
+import org.apache.tiles.request.Request;
+import org.apache.tiles.request.render.CannotRenderException;
+import org.apache.tiles.request.render.Renderer;
+
+/**
+ * Default renderer for attributes without a type, that replaces a
+ * {@link org.apache.tiles.request.render.ChainedDelegateRenderer} whose first
+ * renderer is the definition renderer.
+ * <p>
+ * Values are first offered to the definition renderer. If it is a
+ * {@link DefinitionRenderer}, the definition is looked up only once and the
+ * resolved definition is rendered directly. If the value is not a
+ * definition, the first of the other renderers that can render it is
+ * remembered for that value and type of request, so that the chain is probed
+ * only the first time a value is rendered. Definitions are always looked up,
+ * since they depend on the locale and on the definitions registered during
+ * the request. The last renderer of the chain is the fall-through, usually
+ * the string renderer: values that reach it are not remembered, since they
+ * are usually text that changes from request to request.
+ * </p>
+ * <p>
+ * The delegate renderers must decide if a value is renderable only by the
+ * value itself and the type of the request, as all the renderers provided by
+ * Tiles do. The number of remembered values is bounded: once the limit is
+ * reached, new values are classified every time.
+ * </p>
+ *
+ * @version $Rev$ $Date$
+ * @since 3.0.8
+ */
+public class ClassifyingDelegateRenderer implements Renderer {
+
+    /**
+     * The default maximum number of remembered values.
+     */
+    public static final int DEFAULT_CACHE_SIZE = 10000;
+
+    /**
+     * The renderer of definitions.
+     */
+    private final Renderer definitionRenderer;
+
+    /**
+     * The definition renderer, if it can render a resolved definition,
+     * otherwise <code>null</code>.
+     */
+    private final DefinitionRenderer definitionResolver;
+
+    /**
+     * The delegate renderers, in order of priority.
+     */
+    private final List<Renderer> renderers = new ArrayList<Renderer>();
+
+    /**
+     * Maps a type of request to the renderers chosen for the values.
+     */
+    private final ConcurrentMap<Class<?>, ConcurrentMap<String, Renderer>> classifications =
+        new ConcurrentHashMap<Class<?>, ConcurrentMap<String, Renderer>>();
+
+    /**
+     * The number of remembered values.
+     */
+    private final AtomicInteger cachedValues = new AtomicInteger();
+
+    /**
+     * The maximum number of remembered values.
+     */
+    private final int cacheSize;
+
+    /**
+     * Constructor.
+     *
+     * @param definitionRenderer The renderer of definitions.
+     */
+    public ClassifyingDelegateRenderer(Renderer definitionRenderer) {
+        this(definitionRenderer, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param definitionRenderer The renderer of definitions.
+     * @param cacheSize The maximum number of remembered values.
+     */
+    public ClassifyingDelegateRenderer(Renderer definitionRenderer, int cacheSize) {
+        this.definitionRenderer = definitionRenderer;
+        if (definitionRenderer instanceof DefinitionRenderer) {
+            definitionResolver = (DefinitionRenderer) definitionRenderer;
+        } else {
+            definitionResolver = null;
+        }
+        this.cacheSize = cacheSize;
+    }
+
+    /**
+     * Adds a renderer to the chain of renderers tried when the value is not
+     * a definition. The last added renderer is the fall-through.
+     *
+     * @param renderer The renderer to add.
+     */
+    public void addAttributeRenderer(Renderer renderer) {
+        renderers.add(renderer);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void render(String value, Request request) throws IOException {
+        if (value == null) {
+            throw new NullPointerException("The attribute value is null");
+        }
+
+        if (definitionResolver != null) {
+            Definition definition = definitionResolver.getDefinition(value, request);
+            if (definition != null) {
+                definitionResolver.render(definition, request);
+                return;
+            }
+        } else if (definitionRenderer.isRenderable(value, request)) {
+            definitionRenderer.render(value, request);
+            return;
+        }
+
+        Renderer renderer = classify(value, request);
+        if (renderer == null) {
+            throw new CannotRenderException("Cannot render value '" + value + "'");
+        }
+        renderer.render(value, request);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isRenderable(String value, Request request) {
+        return value != null
+                && (definitionRenderer.isRenderable(value, request) || classify(
+                        value, request) != null);
+    }
+
+    /**
+     * Returns the first renderer, excluding definitions, that can render a
+     * value.
+     *
+     * @param value The value.
+     * @param request The request.
+     * @return The renderer, or <code>null</code> if no renderer can render the
+     * value.
+     */
+    private Renderer classify(String value, Request request) {
+        Class<?> requestClass = request.getClass();
+        ConcurrentMap<String, Renderer> requestClassifications = classifications
+                .get(requestClass);
+        if (requestClassifications != null) {
+            Renderer retValue = requestClassifications.get(value);
+            if (retValue != null) {
+                return retValue;
+            }
+        }
+
+        Renderer retValue = null;
+        int fallThrough = renderers.size() - 1;
+        boolean remember = false;
+        for (int i = 0; i <= fallThrough; i++) {
+            Renderer renderer = renderers.get(i);
+            if (renderer.isRenderable(value, request)) {
+                retValue = renderer;
+                remember = i < fallThrough;
+                break;
+            }
+        }
+
+        if (remember && cachedValues.get() < cacheSize) {
+            if (requestClassifications == null) {
+                requestClassifications = new ConcurrentHashMap<String, Renderer>();
+                ConcurrentMap<String, Renderer> existing = classifications
+                        .putIfAbsent(requestClass, requestClassifications);
+                if (existing != null) {
+                    requestClassifications = existing;
+                }
+            }
+            if (requestClassifications.putIfAbsent(value, retValue) == null) {
+                cachedValues.incrementAndGet();
+            }
+        }
+        return retValue;
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.renderer;
+
+import java.io.IOException;
+
+import org.apache.tiles.request.Request;
+import org.apache.tiles.request.render.Renderer;
+
+/**
+ * Renderer that is told when a value is constant, i.e. it is the value of the
+ * attribute itself, not the result of an expression, so that it can keep data
+ * about the value across requests.
+ *
+ * @version $Rev$ $Date$
+ * @since 3.0.8
+ */
+public interface ConstantValueRenderer extends Renderer {
+
+    /**
+     * Renders a value that is the constant value of an attribute.
+     *
+     * @param value The value to render.
+     * @param request The request.
+     * @throws IOException If something goes wrong during rendition.
+     */
+    void renderConstant(String value, Request request) throws IOException;
+}
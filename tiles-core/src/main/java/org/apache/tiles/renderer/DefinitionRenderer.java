@@ -22,7 +22,9 @@ package org.apache.tiles.renderer;
 
 import java.io.IOException;
 
+import org.apache.tiles.Definition;
 import org.apache.tiles.TilesContainer;
+import org.apache.tiles.definition.NoSuchDefinitionException;
 import org.apache.tiles.request.Request;
 import org.apache.tiles.request.render.CannotRenderException;
 import org.apache.tiles.request.render.Renderer;
@@ -63,4 +65,37 @@ public class DefinitionRenderer implements Renderer {
     public boolean isRenderable(String path, Request request) {
         return path != null && container.isValidDefinition(path, request);
     }
+
+    /**
+     * Returns the definition that a path refers to, so that it can be
+     * rendered with {@link #render(Definition, Request)} without looking it
+     * up again.
+     *
+     * @param path The path, i.e. the name of the definition.
+     * @param request The request.
+     * @return The definition, or <code>null</code> if the path is not a
+     * definition.
+     * @since 3.0.8
+     */
+    Definition getDefinition(String path, Request request) {
+        if (path == null) {
+            return null;
+        }
+        try {
+            return container.getDefinition(path, request);
+        } catch (NoSuchDefinitionException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Renders a definition returned by {@link #getDefinition(String, Request)}.
+     *
+     * @param definition The definition to render.
+     * @param request The request.
+     * @since 3.0.8
+     */
+    void render(Definition definition, Request request) {
+        container.render(definition, request);
+    }
 }
@@ -24,8 +24,11 @@ package org.apache.tiles.startup;
 import org.apache.tiles.TilesContainer;
 import org.apache.tiles.access.TilesAccess;
 import org.apache.tiles.factory.AbstractTilesContainerFactory;
+import org.apache.tiles.metrics.RenderMetrics;
 import org.apache.tiles.request.ApplicationAccess;
 import org.apache.tiles.request.ApplicationContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Default Tiles initialization delegate implementation under a servlet
@@ -46,6 +49,11 @@ public abstract class AbstractTilesInitializer implements TilesInitializer {
     public static final String CONTAINER_KEY_INIT_PARAMETER =
         "org.apache.tiles.startup.AbstractTilesInitializer.CONTAINER_KEY";
 
+    /**
+     * The logging object.
+     */
+    private final Logger log = LoggerFactory.getLogger(AbstractTilesInitializer.class);
+
     /**
      * The initialized application context.
      */
@@ -58,15 +66,26 @@ public abstract class AbstractTilesInitializer implements TilesInitializer {
 
     /** {@inheritDoc} */
     public void initialize(ApplicationContext applicationContext) {
+        long start = System.nanoTime();
         this.applicationContext = createTilesApplicationContext(applicationContext);
+        StartupReport report = StartupReport.getStartupReport(this.applicationContext);
+        report.record(StartupReport.APPLICATION_CONTEXT_PHASE, null, start);
         ApplicationAccess.register(applicationContext);
         String key = getContainerKey(this.applicationContext);
         container = createContainer(this.applicationContext);
         TilesAccess.setContainer(this.applicationContext, container, key);
+        if (log.isInfoEnabled()) {
+            log.info(report.toString());
+        }
     }
 
     /** {@inheritDoc} */
     public void destroy() {
+        RenderMetrics metrics = RenderMetrics.getRenderMetrics(applicationContext);
+        if (metrics != null) {
+            metrics.unregister();
+            RenderMetrics.setRenderMetrics(applicationContext, null);
+        }
         TilesAccess.setContainer(applicationContext, null,
                 getContainerKey(applicationContext));
     }
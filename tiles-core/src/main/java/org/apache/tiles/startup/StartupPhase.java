@@ -0,0 +1,112 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.startup;
+
+/**
+ * A timed phase of the construction of a Tiles container.
+ *
+ * @version $Rev$ $Date$
+ * @since 3.0.8
+ */
+public class StartupPhase {
+
+    /**
+     * The name of the phase.
+     */
+    private final String name;
+
+    /**
+     * The detail, e.g. the parsed resource, or <code>null</code>.
+     */
+    private final String detail;
+
+    /**
+     * The duration, in nanoseconds.
+     */
+    private final long durationNanos;
+
+    /**
+     * Constructor.
+     *
+     * @param name The name of the phase.
+     * @param detail The detail, e.g. the parsed resource. It can be
+     * <code>null</code>.
+     * @param durationNanos The duration, in nanoseconds.
+     * @since 3.0.8
+     */
+    public StartupPhase(String name, String detail, long durationNanos) {
+        this.name = name;
+        this.detail = detail;
+        this.durationNanos = durationNanos;
+    }
+
+    /**
+     * Returns the name of the phase.
+     *
+     * @return The name.
+     * @since 3.0.8
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the detail of the phase, e.g. the parsed resource.
+     *
+     * @return The detail, or <code>null</code>.
+     * @since 3.0.8
+     */
+    public String getDetail() {
+        return detail;
+    }
+
+    /**
+     * Returns the duration of the phase.
+     *
+     * @return The duration, in nanoseconds.
+     * @since 3.0.8
+     */
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    /**
+     * Returns the duration of the phase.
+     *
+     * @return The duration, in milliseconds.
+     * @since 3.0.8
+     */
+    public double getDurationMillis() {
+        return durationNanos / 1000000.0;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder(name);
+        if (detail != null) {
+            builder.append(" [").append(detail).append(']');
+        }
+        builder.append(": ").append(String.format("%.3f", getDurationMillis()))
+                .append(" ms");
+        return builder.toString();
+    }
+}
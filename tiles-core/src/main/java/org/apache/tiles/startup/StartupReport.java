@@ -0,0 +1,309 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.startup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.tiles.request.ApplicationContext;
+
+/**
+ * Records how long each phase of the construction of a Tiles container
+ * takes. The report of an application is stored in the application scope
+ * and can be obtained with {@link #getStartupReport(ApplicationContext)}.
+ * <p>
+ * Phases are recorded when they end, so a phase that contains other phases,
+ * e.g. {@link #CONTAINER_PHASE}, comes after them. Definitions are loaded
+ * lazily the first time a locale is requested: the
+ * {@link #PARSING_PHASE}, {@link #PATTERNS_PHASE} and
+ * {@link #INHERITANCE_PHASE} phases of a locale are appended at that time,
+ * unless the locale is preloaded in the {@link #PRELOAD_PHASE}.
+ * </p>
+ * <p>
+ * Since phases are also recorded while the application runs, e.g. when
+ * definitions are reloaded, the number of recorded phases is bounded: once
+ * the limit is reached, other phases are only counted.
+ * </p>
+ *
+ * @version $Rev$ $Date$
+ * @since 3.0.8
+ */
+public class StartupReport {
+
+    /**
+     * The name of the application scope attribute that stores the report.
+     *
+     * @since 3.0.8
+     */
+    public static final String STARTUP_REPORT_ATTRIBUTE_NAME =
+        "org.apache.tiles.startup.StartupReport";
+
+    /**
+     * The creation of the Tiles application context.
+     *
+     * @since 3.0.8
+     */
+    public static final String APPLICATION_CONTEXT_PHASE = "application-context";
+
+    /**
+     * The whole creation of the container, including all the phases below.
+     *
+     * @since 3.0.8
+     */
+    public static final String CONTAINER_PHASE = "container";
+
+    /**
+     * The discovery of the definition files.
+     *
+     * @since 3.0.8
+     */
+    public static final String SOURCES_PHASE = "sources";
+
+    /**
+     * The creation of the definitions factory, including the discovery of the
+     * definition files.
+     *
+     * @since 3.0.8
+     */
+    public static final String DEFINITIONS_FACTORY_PHASE = "definitions-factory";
+
+    /**
+     * The loading of the definitions of the locales to preload. The detail
+     * is the list of locales.
+     *
+     * @since 3.0.8
+     */
+    public static final String PRELOAD_PHASE = "preload";
+
+    /**
+     * The parsing of a definition file. The detail is the path of the file.
+     *
+     * @since 3.0.8
+     */
+    public static final String PARSING_PHASE = "parsing";
+
+    /**
+     * The sharing of equal strings and attributes among the stored
+     * definitions of a locale. The detail is the locale and the estimated
+     * saved memory.
+     *
+     * @since 3.0.8
+     */
+    public static final String INTERNING_PHASE = "interning";
+
+    /**
+     * The registration of the pattern definitions of a locale. The detail is
+     * the locale.
+     *
+     * @since 3.0.8
+     */
+    public static final String PATTERNS_PHASE = "patterns";
+
+    /**
+     * The resolution of the inheritance of the definitions of a locale. The
+     * detail is the locale.
+     *
+     * @since 3.0.8
+     */
+    public static final String INHERITANCE_PHASE = "inheritance";
+
+    /**
+     * The creation of the attribute evaluators.
+     *
+     * @since 3.0.8
+     */
+    public static final String EVALUATORS_PHASE = "evaluators";
+
+    /**
+     * The creation of the preparer factory.
+     *
+     * @since 3.0.8
+     */
+    public static final String PREPARERS_PHASE = "preparers";
+
+    /**
+     * The listing of the resources of the
+     * {@link org.apache.tiles.util.ResourceIndex}.
+     *
+     * @since 3.0.8
+     */
+    public static final String RESOURCE_INDEX_PHASE = "resource-index";
+
+    /**
+     * The creation of the attribute renderers, including the bootstrap of
+     * template engines, e.g. Velocity or FreeMarker.
+     *
+     * @since 3.0.8
+     */
+    public static final String RENDERERS_PHASE = "renderers";
+
+    /**
+     * The default maximum number of recorded phases.
+     *
+     * @since 3.0.8
+     */
+    public static final int DEFAULT_MAX_PHASES = 1000;
+
+    /**
+     * The recorded phases.
+     */
+    private final List<StartupPhase> phases = new CopyOnWriteArrayList<StartupPhase>();
+
+    /**
+     * The number of phases that were recorded, or discarded.
+     */
+    private final AtomicInteger phaseCount = new AtomicInteger();
+
+    /**
+     * The maximum number of recorded phases.
+     */
+    private final int maxPhases;
+
+    /**
+     * Constructor.
+     *
+     * @since 3.0.8
+     */
+    public StartupReport() {
+        this(DEFAULT_MAX_PHASES);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param maxPhases The maximum number of recorded phases.
+     * @since 3.0.8
+     */
+    public StartupReport(int maxPhases) {
+        this.maxPhases = maxPhases;
+    }
+
+    /**
+     * Returns the report of an application, creating it if needed.
+     *
+     * @param applicationContext The application context.
+     * @return The report.
+     * @since 3.0.8
+     */
+    public static StartupReport getStartupReport(ApplicationContext applicationContext) {
+        Map<String, Object> applicationScope = applicationContext.getApplicationScope();
+        synchronized (StartupReport.class) {
+            StartupReport retValue = (StartupReport) applicationScope
+                    .get(STARTUP_REPORT_ATTRIBUTE_NAME);
+            if (retValue == null) {
+                retValue = new StartupReport();
+                applicationScope.put(STARTUP_REPORT_ATTRIBUTE_NAME, retValue);
+            }
+            return retValue;
+        }
+    }
+
+    /**
+     * Records a phase that started at a given time and ends now. If the
+     * maximum number of phases has been reached, the phase is only counted.
+     *
+     * @param name The name of the phase.
+     * @param detail The detail, e.g. the parsed resource. It can be
+     * <code>null</code>.
+     * @param startNanos The start time, as returned by
+     * {@link System#nanoTime()}.
+     * @since 3.0.8
+     */
+    public void record(String name, String detail, long startNanos) {
+        if (phaseCount.incrementAndGet() <= maxPhases) {
+            phases.add(new StartupPhase(name, detail, System.nanoTime() - startNanos));
+        }
+    }
+
+    /**
+     * Returns the number of phases that were not recorded, since the maximum
+     * number of phases had been reached.
+     *
+     * @return The number of discarded phases.
+     * @since 3.0.8
+     */
+    public int getDiscardedPhaseCount() {
+        return Math.max(phaseCount.get() - maxPhases, 0);
+    }
+
+    /**
+     * Returns all the recorded phases, in the order they ended.
+     *
+     * @return The phases.
+     * @since 3.0.8
+     */
+    public List<StartupPhase> getPhases() {
+        return Collections.unmodifiableList(new ArrayList<StartupPhase>(phases));
+    }
+
+    /**
+     * Returns the recorded phases with a given name, e.g. the parsing of
+     * every file.
+     *
+     * @param name The name of the phases.
+     * @return The phases.
+     * @since 3.0.8
+     */
+    public List<StartupPhase> getPhases(String name) {
+        List<StartupPhase> retValue = new ArrayList<StartupPhase>();
+        for (StartupPhase phase : phases) {
+            if (phase.getName().equals(name)) {
+                retValue.add(phase);
+            }
+        }
+        return retValue;
+    }
+
+    /**
+     * Returns the total duration of the phases with a given name.
+     *
+     * @param name The name of the phases.
+     * @return The total duration, in nanoseconds.
+     * @since 3.0.8
+     */
+    public long getTotalNanos(String name) {
+        long retValue = 0L;
+        for (StartupPhase phase : phases) {
+            if (phase.getName().equals(name)) {
+                retValue += phase.getDurationNanos();
+            }
+        }
+        return retValue;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("Tiles startup report");
+        for (StartupPhase phase : phases) {
+            builder.append("\n  ").append(phase);
+        }
+        int discarded = getDiscardedPhaseCount();
+        if (discarded > 0) {
+            builder.append("\n  (").append(discarded).append(" more phases)");
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,344 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.tiles.request.ApplicationContext;
+import org.apache.tiles.request.ApplicationResource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Index of the resources that exist under some root paths, e.g.
+ * <code>/WEB-INF/</code>, to answer existence checks of templates without
+ * accessing the resources.
+ * <p>
+ * The resources are listed once, when the index is created, using
+ * {@link ApplicationContext#getResources(String)} with the pattern
+ * <code>&lt;root&gt;**</code>, so the application context must support
+ * wildcards, as the one of <code>tiles-request-servlet-wildcard</code> does.
+ * Roots where no resource is found are not considered indexed, and paths
+ * outside the indexed roots are checked with
+ * {@link ApplicationContext#getResource(String)}, so an application context
+ * without wildcard support works as without an index.
+ * </p>
+ * <p>
+ * The index is listed again when it is older than the refresh interval: the
+ * first check that finds it stale starts a new listing on the refresh
+ * executor, while the other checks keep using the current index.
+ * {@link org.apache.tiles.factory.BasicTilesContainerFactory} uses a
+ * background thread, so that no request waits for the listing.
+ * </p>
+ * <p>
+ * In Tiles, the index is used by
+ * <code>org.apache.tiles.extras.renderer.OptionsRenderer</code>; other
+ * template renderers do not check if a template exists.
+ * </p>
+ *
+ * @version $Rev$ $Date$
+ * @since 3.0.8
+ */
+public class ResourceIndex {
+
+    /**
+     * The name of the application scope attribute that contains the index.
+     */
+    public static final String RESOURCE_INDEX_ATTRIBUTE_NAME =
+        ResourceIndex.class.getName();
+
+    /**
+     * Executes the refreshes in the thread that finds the index stale.
+     */
+    private static final Executor SAME_THREAD_EXECUTOR = new Executor() {
+
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    /**
+     * The logging object.
+     */
+    private final Logger log = LoggerFactory.getLogger(ResourceIndex.class);
+
+    /**
+     * The application context, used to list and look up the resources.
+     */
+    private final ApplicationContext applicationContext;
+
+    /**
+     * The root paths to index, ending with "/".
+     */
+    private final List<String> roots;
+
+    /**
+     * The refresh interval, in milliseconds, or <code>0</code> to never
+     * refresh.
+     */
+    private final long refreshInterval;
+
+    /**
+     * The executor of the refreshes.
+     */
+    private final Executor refreshExecutor;
+
+    /**
+     * Tells if a refresh is in progress.
+     */
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+
+    /**
+     * The current listing.
+     */
+    private volatile Snapshot snapshot;
+
+    /**
+     * Constructor. Lists the resources in the calling thread.
+     *
+     * @param applicationContext The application context.
+     * @param roots The root paths to index, e.g. <code>/WEB-INF/</code>.
+     * @param refreshInterval The refresh interval, in milliseconds, or
+     * <code>0</code> to never refresh.
+     * @param refreshExecutor The executor of the refreshes, or
+     * <code>null</code> to refresh in the thread that finds the index stale.
+     */
+    public ResourceIndex(ApplicationContext applicationContext,
+            Collection<String> roots, long refreshInterval,
+            Executor refreshExecutor) {
+        this.applicationContext = applicationContext;
+        this.roots = new ArrayList<String>(roots.size());
+        for (String root : roots) {
+            this.roots.add(root.endsWith("/") ? root : root + "/");
+        }
+        this.refreshInterval = refreshInterval;
+        this.refreshExecutor = refreshExecutor != null ? refreshExecutor
+                : SAME_THREAD_EXECUTOR;
+        snapshot = list();
+    }
+
+    /**
+     * Returns the index stored in the application scope.
+     *
+     * @param applicationContext The application context.
+     * @return The index, or <code>null</code> if resources are not indexed.
+     */
+    public static ResourceIndex getResourceIndex(
+            ApplicationContext applicationContext) {
+        Map<String, Object> scope = applicationContext.getApplicationScope();
+        return scope != null ? (ResourceIndex) scope
+                .get(RESOURCE_INDEX_ATTRIBUTE_NAME) : null;
+    }
+
+    /**
+     * Stores an index in the application scope.
+     *
+     * @param applicationContext The application context.
+     * @param index The index, or <code>null</code> to remove it.
+     */
+    public static void setResourceIndex(ApplicationContext applicationContext,
+            ResourceIndex index) {
+        Map<String, Object> scope = applicationContext.getApplicationScope();
+        if (index != null) {
+            scope.put(RESOURCE_INDEX_ATTRIBUTE_NAME, index);
+        } else {
+            scope.remove(RESOURCE_INDEX_ATTRIBUTE_NAME);
+        }
+    }
+
+    /**
+     * Checks if a resource exists.
+     *
+     * @param path The path of the resource, e.g.
+     * <code>/WEB-INF/tiles/page.jsp</code>.
+     * @return <code>true</code> if the resource exists.
+     */
+    public boolean exists(String path) {
+        Snapshot current = snapshot;
+        if (refreshInterval > 0
+                && System.currentTimeMillis() - current.created >= refreshInterval) {
+            refresh();
+            current = snapshot;
+        }
+        if (current.isIndexed(path)) {
+            return current.paths.contains(path);
+        }
+        return applicationContext.getResource(path) != null;
+    }
+
+    /**
+     * Returns the number of indexed resources.
+     *
+     * @return The number of resources.
+     */
+    public int size() {
+        return snapshot.paths.size();
+    }
+
+    /**
+     * Lists the resources again, using the refresh executor, unless a refresh
+     * is already in progress.
+     */
+    public void refresh() {
+        if (!refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    try {
+                        snapshot = list();
+                    } finally {
+                        refreshing.set(false);
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            refreshing.set(false);
+            throw e;
+        }
+    }
+
+    /**
+     * Lists the resources under the roots.
+     *
+     * @return The listing.
+     */
+    private Snapshot list() {
+        Set<String> paths = new HashSet<String>();
+        List<String> indexedRoots = new ArrayList<String>(roots.size());
+        for (String root : roots) {
+            Collection<ApplicationResource> resources;
+            try {
+                resources = applicationContext.getResources(root + "**");
+            } catch (RuntimeException e) {
+                log.warn("Cannot index the resources under " + root, e);
+                continue;
+            }
+            boolean found = false;
+            if (resources != null) {
+                for (ApplicationResource resource : resources) {
+                    String path = toPath(root, resource);
+                    if (path != null) {
+                        paths.add(path);
+                        found = true;
+                    }
+                }
+            }
+            if (found) {
+                indexedRoots.add(root);
+            }
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Indexed " + paths.size() + " resources under "
+                    + indexedRoots);
+        }
+        return new Snapshot(Collections.unmodifiableSet(paths), indexedRoots,
+                System.currentTimeMillis());
+    }
+
+    /**
+     * Returns the path of a resource relative to the application, i.e.
+     * starting with the root.
+     *
+     * @param root The root under which the resource has been found.
+     * @param resource The resource.
+     * @return The path, or <code>null</code> if it cannot be computed.
+     */
+    private static String toPath(String root, ApplicationResource resource) {
+        String path = resource.getLocalePath();
+        if (path == null) {
+            return null;
+        }
+        if (path.startsWith(root)) {
+            return path;
+        }
+        // Resources found by wildcard are often identified by their URL.
+        int index = path.indexOf(root);
+        return index >= 0 ? path.substring(index) : null;
+    }
+
+    /**
+     * An immutable listing of the resources.
+     */
+    private static final class Snapshot {
+
+        /**
+         * The existing resources.
+         */
+        private final Set<String> paths;
+
+        /**
+         * The roots where at least a resource has been found.
+         */
+        private final List<String> indexedRoots;
+
+        /**
+         * The time of the listing.
+         */
+        private final long created;
+
+        /**
+         * Constructor.
+         *
+         * @param paths The existing resources.
+         * @param indexedRoots The roots where at least a resource has been
+         * found.
+         * @param created The time of the listing.
+         */
+        private Snapshot(Set<String> paths, List<String> indexedRoots,
+                long created) {
+            this.paths = paths;
+            this.indexedRoots = indexedRoots;
+            this.created = created;
+        }
+
+        /**
+         * Checks if a path is under an indexed root.
+         *
+         * @param path The path.
+         * @return <code>true</code> if the index knows if the path exists.
+         */
+        private boolean isIndexed(String path) {
+            if (path.indexOf("/.") >= 0) {
+                // Relative segments are left to the application context.
+                return false;
+            }
+            for (String root : indexedRoots) {
+                if (path.startsWith(root)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -25,12 +25,16 @@ import static org.easymock.EasyMock.*;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import junit.framework.TestCase;
 
@@ -258,6 +262,58 @@ public class CachingLocaleUrlDefinitionDAOTest extends TestCase {
                 "test.def.overridden").getAttribute("title"));
     }
 
+    /**
+     * Tests {@link CachingLocaleUrlDefinitionDAO#preloadDefinitions(java.util.Collection,
+     * ExecutorService, java.util.Collection)}.
+     */
+    public void testPreloadDefinitions() {
+        List<ApplicationResource> sourceURLs = new ArrayList<ApplicationResource>();
+        sourceURLs.add(url1);
+        sourceURLs.add(url2);
+        sourceURLs.add(url3);
+        definitionDao.setSources(sourceURLs);
+        DefinitionsReader reader = createMock(DefinitionsReader.class);
+        replay(reader);
+        definitionDao.setReader(reader);
+
+        List<DefinitionsReader> readers = new ArrayList<DefinitionsReader>();
+        readers.add(new DigesterDefinitionsReader());
+        readers.add(new DigesterDefinitionsReader());
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            definitionDao.preloadDefinitions(Arrays.asList(Locale.ROOT,
+                    Locale.CANADA_FRENCH, Locale.US), executor, readers);
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(3, definitionDao.locale2definitionMap.size());
+        assertNotNull(definitionDao.getDefinition("test.def1", null));
+        assertNotNull(definitionDao.getDefinition("test.common.french",
+                Locale.CANADA_FRENCH));
+        assertEquals("Canada", definitionDao.getDefinition("test.def1",
+                Locale.CANADA_FRENCH).getAttribute("country").getValue());
+        assertEquals("US", definitionDao.getDefinition("test.def1",
+                Locale.US).getAttribute("country").getValue());
+        assertNull(definitionDao.getDefinition("test.common.french", Locale.US));
+        verify(reader);
+    }
+
+    /**
+     * Tests {@link CachingLocaleUrlDefinitionDAO#getLocalizedLocales(java.util.Collection)}.
+     */
+    public void testGetLocalizedLocales() {
+        List<ApplicationResource> sourceURLs = new ArrayList<ApplicationResource>();
+        sourceURLs.add(url1);
+        sourceURLs.add(url2);
+        definitionDao.setSources(sourceURLs);
+
+        Set<Locale> locales = definitionDao.getLocalizedLocales(Arrays.asList(
+                Locale.ROOT, Locale.FRENCH, Locale.CHINA, Locale.US));
+        assertEquals(new LinkedHashSet<Locale>(Arrays.asList(Locale.FRENCH,
+                Locale.US)), locales);
+    }
+
     /**
      * Tests {@link LocaleUrlDefinitionDAO#setSources(List)}.
      */
@@ -0,0 +1,146 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.tiles.definition.dao;
+
+import static org.junit.Assert.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.tiles.Attribute;
+import org.apache.tiles.Definition;
+import org.apache.tiles.Expression;
+import org.apache.tiles.ListAttribute;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests {@link DefinitionInterner}.
+ *
+ * @version $Rev$ $Date$
+ */
+public class DefinitionInternerTest {
+
+    /**
+     * The object to test.
+     */
+    private DefinitionInterner interner;
+
+    /**
+     * Sets up the test.
+     */
+    @Before
+    public void setUp() {
+        interner = new DefinitionInterner();
+    }
+
+    /**
+     * Test method for {@link DefinitionInterner#intern(Map)}.
+     */
+    @Test
+    public void testIntern() {
+        Map<String, Definition> definitions = new LinkedHashMap<String, Definition>();
+        definitions.put("one", createDefinition("one"));
+        assertEquals(0L, interner.intern(definitions));
+        Definition one = definitions.get("one");
+
+        Map<String, Definition> otherDefinitions = new LinkedHashMap<String, Definition>();
+        otherDefinitions.put("three", createDefinition("three"));
+        long savedBytes = interner.intern(otherDefinitions);
+        Definition three = otherDefinitions.get("three");
+        assertTrue(savedBytes > 0L);
+        assertEquals(savedBytes, interner.getSavedBytes());
+        assertTrue(interner.getReplacedObjects() > 0L);
+
+        assertSame(one.getLocalAttribute("header"), three.getLocalAttribute("header"));
+        assertSame(one.getCascadedAttribute("footer"), three.getCascadedAttribute("footer"));
+        assertSame(one.getLocalAttribute("secured").getRoles(),
+                three.getLocalAttribute("secured").getRoles());
+        try {
+            three.getLocalAttribute("secured").getRoles().add("guest");
+            fail("The shared roles must be read-only");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        assertSame(one.getLocalAttribute("el").getExpressionObject(),
+                three.getLocalAttribute("el").getExpressionObject());
+        assertSame(one.getPreparer(), three.getPreparer());
+        assertSame(one.getExtends(), three.getExtends());
+        assertNotSame(one.getTemplateAttribute(), three.getTemplateAttribute());
+        assertSame(one.getTemplateAttribute().getValue(), three.getTemplateAttribute().getValue());
+        assertNotSame(one.getLocalAttribute("list"), three.getLocalAttribute("list"));
+        assertSame(((ListAttribute) one.getLocalAttribute("list")).getValue().get(0),
+                ((ListAttribute) three.getLocalAttribute("list")).getValue().get(0));
+        assertNull(three.getLocalAttribute("footer"));
+        assertEquals("/header.jsp", three.getAttribute("header").getValue());
+    }
+
+    /**
+     * Test method for {@link DefinitionInterner#intern(String)}.
+     */
+    @Test
+    public void testInternString() {
+        String string = new String("value");
+        assertSame(string, interner.intern(string));
+        assertSame(string, interner.intern(new String("value")));
+        assertNull(interner.intern((String) null));
+        assertEquals(1L, interner.getReplacedObjects());
+        assertEquals(50L, interner.getSavedBytes());
+    }
+
+    /**
+     * Test method for {@link DefinitionInterner#clear()}.
+     */
+    @Test
+    public void testClear() {
+        String string = new String("value");
+        assertSame(string, interner.intern(string));
+        interner.clear();
+        String other = new String("value");
+        assertSame(other, interner.intern(other));
+        assertEquals(0L, interner.getReplacedObjects());
+    }
+
+    /**
+     * Creates a definition with newly created, but equal, content.
+     *
+     * @param name The name of the definition.
+     * @return The definition.
+     */
+    private Definition createDefinition(String name) {
+        Definition definition = new Definition(name, Attribute
+                .createTemplateAttribute(new String("/layout.jsp")), null);
+        definition.setExtends(new String("parent"));
+        definition.setPreparer(new String("my.preparer"));
+        definition.putAttribute(new String("header"), new Attribute(new String("/header.jsp")));
+        definition.putAttribute(new String("footer"), new Attribute(new String("/footer.jsp")), true);
+        definition.putAttribute("secured", new Attribute(new String("/secured.jsp"),
+                new String("admin,manager")));
+        Attribute el = new Attribute();
+        el.setExpressionObject(new Expression(new String("${title}"), new String("EL")));
+        definition.putAttribute("el", el);
+        ListAttribute list = new ListAttribute();
+        list.add(new Attribute(new String("/item.jsp")));
+        definition.putAttribute("list", list);
+        return definition;
+    }
+}
@@ -26,16 +26,21 @@ import static org.junit.Assert.*;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.apache.tiles.Attribute;
 import org.apache.tiles.Definition;
 import org.apache.tiles.ListAttribute;
+import org.apache.tiles.definition.DefinitionsFactoryException;
 import org.apache.tiles.definition.DefinitionsReader;
 import org.apache.tiles.definition.MockDefinitionsReader;
 import org.apache.tiles.definition.NoSuchDefinitionException;
@@ -74,6 +79,7 @@ public class ResolvingLocaleUrlDefinitionDAOTest {
     private ApplicationResource urlWildcard;
     private ApplicationResource url21;
     private ApplicationResource url513;
+    private ApplicationResource urlOverlay;
 
     private ApplicationResource setupUrl(String filename, Locale... locales) throws IOException {
         ApplicationResource url = new URLApplicationResource("org/apache/tiles/config/" + filename + ".xml", this
@@ -108,6 +114,7 @@ public class ResolvingLocaleUrlDefinitionDAOTest {
         urlWildcard = setupUrl("defs-wildcard");
         url21 = setupUrl("tiles-defs-2.1", Locale.ITALIAN);
         url513 = setupUrl("defs-tiles-513");
+        urlOverlay = setupUrl("defs-overlay", Locale.ITALIAN);
         replay(applicationContext);
 
         definitionDao = new ResolvingLocaleUrlDefinitionDAO(applicationContext);
@@ -244,9 +251,165 @@ public class ResolvingLocaleUrlDefinitionDAOTest {
         assertEquals("There reader has not been set correctly", reader, definitionDao.reader);
     }
 
+    /**
+     * Tests that the definitions that a locale does not change are shared with
+     * its parent locale.
+     */
+    @Test
+    public void testLocaleOverlay() {
+        List<ApplicationResource> sourceURLs = new ArrayList<ApplicationResource>();
+        sourceURLs.add(urlOverlay);
+        definitionDao.setSources(sourceURLs);
+        definitionDao.setReader(new DigesterDefinitionsReader());
+
+        Definition rootOther = definitionDao.getDefinition("overlay.other", null);
+        Definition rootPage = definitionDao.getDefinition("overlay.page", null);
+        Definition italianPage = definitionDao.getDefinition("overlay.page", Locale.ITALIAN);
+        assertSame(rootOther, definitionDao.getDefinition("overlay.other", Locale.ITALIAN));
+        assertSame(rootOther, definitionDao.getDefinition("overlay.other", Locale.ITALY));
+        assertNotSame(rootPage, italianPage);
+        assertSame(italianPage, definitionDao.getDefinition("overlay.page", Locale.ITALY));
+        assertEquals("Title", rootPage.getAttribute("title").getValue());
+        assertEquals("Titolo", italianPage.getAttribute("title").getValue());
+        assertEquals("/body.jsp", italianPage.getAttribute("body").getValue());
+
+        OverlayDefinitionMap italianDefinitions = (OverlayDefinitionMap) definitionDao
+                .getDefinitions(Locale.ITALIAN);
+        assertEquals(new HashSet<String>(Arrays.asList("overlay.layout", "overlay.page")),
+                italianDefinitions.getLocalDefinitions().keySet());
+        assertEquals(3, italianDefinitions.size());
+        assertTrue(((OverlayDefinitionMap) definitionDao.getDefinitions(Locale.ITALY))
+                .getLocalDefinitions().isEmpty());
+    }
+
+    /**
+     * Tests that the stored definitions of a locale keep the instances shared
+     * with its parent locale, after they have been copied and resolved.
+     */
+    @Test
+    public void testInternStoredDefinitions() {
+        List<ApplicationResource> sourceURLs = new ArrayList<ApplicationResource>();
+        sourceURLs.add(urlOverlay);
+        definitionDao.setSources(sourceURLs);
+        definitionDao.setReader(new DigesterDefinitionsReader());
+        DefinitionInterner interner = new DefinitionInterner();
+        definitionDao.setDefinitionInterner(interner);
+
+        Definition rootPage = definitionDao.getDefinition("overlay.page", null);
+        Definition italianPage = definitionDao.getDefinition("overlay.page", Locale.ITALIAN);
+        assertNotSame(rootPage, italianPage);
+        assertSame(rootPage.getLocalAttribute("body"), italianPage.getLocalAttribute("body"));
+        assertSame(rootPage.getTemplateAttribute().getValue(),
+                italianPage.getTemplateAttribute().getValue());
+        assertTrue(interner.getSavedBytes() > 0L);
+    }
+
+    /**
+     * Tests {@link ResolvingLocaleUrlDefinitionDAO#resolveInheritances(Map, Locale)}.
+     */
+    @Test
+    public void testResolveInheritances() {
+        Map<String, Definition> map = createInheritanceMap("child", "parent",
+                "parent", "grandparent", "grandparent", null, "other", "otherParent",
+                "otherParent", null);
+        map.get("grandparent").putAttribute("title", new Attribute("Grandparent"));
+        map.get("parent").putAttribute("body", new Attribute("Parent"));
+        map.get("otherParent").putAttribute("title", new Attribute("Other"));
+
+        definitionDao.resolveInheritances(map, Locale.ITALY);
+        assertEquals("Grandparent", map.get("child").getAttribute("title").getValue());
+        assertEquals("Parent", map.get("child").getAttribute("body").getValue());
+        assertEquals("Other", map.get("other").getAttribute("title").getValue());
+    }
+
+    /**
+     * Tests {@link ResolvingLocaleUrlDefinitionDAO#resolveInheritances(Map, Locale)}
+     * with an executor.
+     */
+    @Test
+    public void testResolveInheritancesParallel() {
+        Map<String, Definition> map = new LinkedHashMap<String, Definition>();
+        for (int i = 0; i < 10; i++) {
+            Definition layout = new Definition("layout" + i, null, null);
+            layout.putAttribute("title", new Attribute("Layout " + i));
+            map.put(layout.getName(), layout);
+            String parentName = layout.getName();
+            for (int j = 0; j < 10; j++) {
+                Definition page = new Definition("page" + i + "." + j, null, null);
+                page.setExtends(parentName);
+                map.put(page.getName(), page);
+                parentName = page.getName();
+            }
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            definitionDao.setInheritanceExecutor(executor);
+            definitionDao.resolveInheritances(map, Locale.ITALY);
+        } finally {
+            definitionDao.setInheritanceExecutor(null);
+            executor.shutdown();
+        }
+        for (int i = 0; i < 10; i++) {
+            assertEquals("Layout " + i, map.get("page" + i + ".9").getAttribute("title")
+                    .getValue());
+        }
+    }
+
+    /**
+     * Tests {@link ResolvingLocaleUrlDefinitionDAO#resolveInheritances(Map, Locale)}
+     * when some ancestors are missing.
+     */
+    @Test
+    public void testResolveInheritancesNoParent() {
+        Map<String, Definition> map = createInheritanceMap("one", "missing1",
+                "two", "missing2", "three", null);
+        try {
+            definitionDao.resolveInheritances(map, Locale.ITALY);
+            fail("The missing ancestors have not been detected");
+        } catch (NoSuchDefinitionException e) {
+            assertTrue(e.getMessage().contains("'one' extends 'missing1'"));
+            assertTrue(e.getMessage().contains("'two' extends 'missing2'"));
+        }
+    }
+
+    /**
+     * Tests {@link ResolvingLocaleUrlDefinitionDAO#resolveInheritances(Map, Locale)}
+     * when there are circular inheritances.
+     */
+    @Test
+    public void testResolveInheritancesCycle() {
+        Map<String, Definition> map = createInheritanceMap("a", "b", "b", "c",
+                "c", "a", "d", "d", "e", "a", "f", null);
+        try {
+            definitionDao.resolveInheritances(map, Locale.ITALY);
+            fail("The cycles have not been detected");
+        } catch (DefinitionsFactoryException e) {
+            assertTrue(e.getMessage().contains("[a -> b -> c -> a, d -> d]"));
+        }
+    }
+
+    /**
+     * Creates a map of definitions.
+     *
+     * @param namesAndParents Pairs of definition names and the names of their
+     * parents, or <code>null</code>.
+     * @return The definitions.
+     */
+    private Map<String, Definition> createInheritanceMap(String... namesAndParents) {
+        Map<String, Definition> retValue = new LinkedHashMap<String, Definition>();
+        for (int i = 0; i < namesAndParents.length; i += 2) {
+            Definition definition = new Definition(namesAndParents[i], null, null);
+            definition.setExtends(namesAndParents[i + 1]);
+            retValue.put(definition.getName(), definition);
+        }
+        return retValue;
+    }
+
     /**
      * Tests {@link ResolvingLocaleUrlDefinitionDAO#resolveInheritance(Definition, Map, Locale, Set)}.
      */
+    @SuppressWarnings("deprecation")
     @Test(expected = NoSuchDefinitionException.class)
     public void testResolveInheritanceNoParent() {
         Definition definition = new Definition("mydef", null, null);
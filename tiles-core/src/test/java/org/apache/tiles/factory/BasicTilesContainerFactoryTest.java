@@ -23,7 +23,18 @@ package org.apache.tiles.factory;
 import static org.easymock.EasyMock.*;
 import static org.easymock.classextension.EasyMock.*;
 
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
 
 import junit.framework.TestCase;
 
@@ -37,18 +48,22 @@ import org.apache.tiles.evaluator.impl.DirectAttributeEvaluator;
 import org.apache.tiles.impl.BasicTilesContainer;
 import org.apache.tiles.locale.LocaleResolver;
 import org.apache.tiles.locale.impl.DefaultLocaleResolver;
+import org.apache.tiles.metrics.InstrumentedTilesContainer;
+import org.apache.tiles.metrics.RenderMetrics;
 import org.apache.tiles.preparer.factory.BasicPreparerFactory;
 import org.apache.tiles.preparer.factory.PreparerFactory;
+import org.apache.tiles.renderer.ClassifyingDelegateRenderer;
 import org.apache.tiles.renderer.DefinitionRenderer;
 import org.apache.tiles.request.ApplicationContext;
 import org.apache.tiles.request.ApplicationResource;
 import org.apache.tiles.request.locale.URLApplicationResource;
 import org.apache.tiles.request.render.BasicRendererFactory;
-import org.apache.tiles.request.render.ChainedDelegateRenderer;
 import org.apache.tiles.request.render.DispatchRenderer;
 import org.apache.tiles.request.render.Renderer;
 import org.apache.tiles.request.render.RendererFactory;
 import org.apache.tiles.request.render.StringRenderer;
+import org.apache.tiles.startup.StartupPhase;
+import org.apache.tiles.startup.StartupReport;
 import org.easymock.EasyMock;
 
 /**
@@ -80,6 +95,10 @@ public class BasicTilesContainerFactoryTest extends TestCase {
         resource = new URLApplicationResource("/org/apache/tiles/config/tiles-defs.xml", getClass().getResource(
                 "/org/apache/tiles/config/tiles-defs.xml"));
         EasyMock.expect(applicationContext.getResource("/WEB-INF/tiles.xml")).andReturn(resource);
+        EasyMock.expect(applicationContext.getInitParams()).andReturn(
+                new HashMap<String, String>()).anyTimes();
+        EasyMock.expect(applicationContext.getApplicationScope()).andReturn(
+                new HashMap<String, Object>()).anyTimes();
         EasyMock.replay(applicationContext);
         factory = new BasicTilesContainerFactory();
     }
@@ -92,6 +111,69 @@ public class BasicTilesContainerFactoryTest extends TestCase {
         assertTrue("The class of the container is not correct", container instanceof BasicTilesContainer);
     }
 
+    /**
+     * Tests {@link BasicTilesContainerFactory#createContainer(ApplicationContext)}
+     * when the render metrics are enabled.
+     *
+     * @throws MalformedObjectNameException If the MBean name is not valid.
+     */
+    public void testCreateContainerRenderMetrics() throws MalformedObjectNameException {
+        ApplicationContext context = createMock(ApplicationContext.class);
+        Map<String, String> initParams = new HashMap<String, String>();
+        initParams.put(BasicTilesContainerFactory.RENDER_METRICS_INIT_PARAM, "true");
+        expect(context.getResource("/WEB-INF/tiles.xml")).andReturn(resource);
+        expect(context.getInitParams()).andReturn(initParams).anyTimes();
+        expect(context.getApplicationScope()).andReturn(
+                new HashMap<String, Object>()).anyTimes();
+        replay(context);
+
+        TilesContainer container = factory.createContainer(context);
+        assertTrue("The class of the container is not correct",
+                container instanceof InstrumentedTilesContainer);
+        RenderMetrics metrics = ((InstrumentedTilesContainer) container).getMetrics();
+        assertSame(metrics, RenderMetrics.getRenderMetrics(context));
+        ObjectName name = new ObjectName(RenderMetrics.DOMAIN
+                + ":type=RenderMetrics,container="
+                + ObjectName.quote(factory.getRenderMetricsName(context)));
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            assertTrue(server.isRegistered(name));
+        } finally {
+            metrics.unregister();
+        }
+        assertFalse(server.isRegistered(name));
+        verify(context);
+    }
+
+    /**
+     * Tests {@link BasicTilesContainerFactory#createContainer(ApplicationContext)}
+     * when some locales are preloaded.
+     */
+    public void testCreateContainerPreloadLocales() {
+        ApplicationContext context = createMock(ApplicationContext.class);
+        Map<String, String> initParams = new HashMap<String, String>();
+        initParams.put(BasicTilesContainerFactory.PRELOAD_LOCALES_INIT_PARAM, "it, en_US");
+        Map<String, Object> applicationScope = new HashMap<String, Object>();
+        expect(context.getResource("/WEB-INF/tiles.xml")).andReturn(resource);
+        expect(context.getResource(resource, Locale.ROOT)).andReturn(resource).anyTimes();
+        expect(context.getResource(resource, Locale.ITALIAN)).andReturn(null).anyTimes();
+        expect(context.getResource(resource, Locale.US)).andReturn(null).anyTimes();
+        expect(context.getResource(resource, Locale.ENGLISH)).andReturn(null).anyTimes();
+        expect(context.getInitParams()).andReturn(initParams).anyTimes();
+        expect(context.getApplicationScope()).andReturn(applicationScope).anyTimes();
+        replay(context);
+
+        factory.createContainer(context);
+        StartupReport report = (StartupReport) applicationScope
+                .get(StartupReport.STARTUP_REPORT_ATTRIBUTE_NAME);
+        List<StartupPhase> phases = report.getPhases(StartupReport.PRELOAD_PHASE);
+        assertEquals(1, phases.size());
+        assertEquals("[, it, en_US]", phases.get(0).getDetail());
+        assertEquals(1, report.getPhases(StartupReport.PARSING_PHASE).size());
+        assertEquals(4, report.getPhases(StartupReport.INHERITANCE_PHASE).size());
+        verify(context);
+    }
+
     /**
      * Tests {@link BasicTilesContainerFactory#createDefinitionsFactory(
      * ApplicationContext, LocaleResolver)}.
@@ -176,6 +258,28 @@ public class BasicTilesContainerFactoryTest extends TestCase {
         assertTrue("The definition renderer class is not correct", renderer instanceof DefinitionRenderer);
     }
 
+    /**
+     * Tests {@link BasicTilesContainerFactory#createResourceIndexExecutor()}.
+     *
+     * @throws InterruptedException If the test is interrupted.
+     */
+    public void testCreateResourceIndexExecutor() throws InterruptedException {
+        final Thread[] threads = new Thread[1];
+        final CountDownLatch latch = new CountDownLatch(1);
+        Executor executor = factory.createResourceIndexExecutor();
+        executor.execute(new Runnable() {
+
+            public void run() {
+                threads[0] = Thread.currentThread();
+                latch.countDown();
+            }
+        });
+        assertTrue("The task has not been run", latch.await(10, TimeUnit.SECONDS));
+        assertNotSame("The task has been run in the calling thread",
+                Thread.currentThread(), threads[0]);
+        assertTrue("The thread is not a daemon", threads[0].isDaemon());
+    }
+
     /**
      * Tests
      * {@link BasicTilesContainerFactory#createDefaultAttributeRenderer(BasicRendererFactory,
@@ -196,7 +300,7 @@ public class BasicTilesContainerFactoryTest extends TestCase {
         replay(container, attributeEvaluatorFactory, rendererFactory);
         Renderer renderer = factory.createDefaultAttributeRenderer(rendererFactory, applicationContext, container,
                 attributeEvaluatorFactory);
-        assertTrue("The default renderer class is not correct", renderer instanceof ChainedDelegateRenderer);
+        assertTrue("The default renderer class is not correct", renderer instanceof ClassifyingDelegateRenderer);
         verify(container, attributeEvaluatorFactory, rendererFactory);
     }
 
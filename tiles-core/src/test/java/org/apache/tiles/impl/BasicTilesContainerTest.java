@@ -23,6 +23,7 @@ package org.apache.tiles.impl;
 import java.io.IOException;
 import java.io.StringWriter;
 import java.net.URL;
+import java.util.HashMap;
 
 import junit.framework.TestCase;
 
@@ -69,6 +70,10 @@ public class BasicTilesContainerTest extends TestCase {
 
         EasyMock.expect(context.getResource("/WEB-INF/tiles.xml"))
                 .andReturn(resource);
+        EasyMock.expect(context.getInitParams()).andReturn(
+                new HashMap<String, String>()).anyTimes();
+        EasyMock.expect(context.getApplicationScope()).andReturn(
+                new HashMap<String, Object>()).anyTimes();
         EasyMock.replay(context);
         AbstractTilesContainerFactory factory = new BasicTilesContainerFactory();
         container = (BasicTilesContainer) factory.createContainer(context);
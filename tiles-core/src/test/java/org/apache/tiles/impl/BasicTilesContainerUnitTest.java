@@ -25,21 +25,30 @@ import static org.easymock.classextension.EasyMock.*;
 import static org.junit.Assert.*;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Deque;
-import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 import org.apache.tiles.Attribute;
 import org.apache.tiles.AttributeContext;
+import org.apache.tiles.AttributeSymbolTable;
 import org.apache.tiles.BasicAttributeContext;
 import org.apache.tiles.Definition;
+import org.apache.tiles.DefinitionHandle;
+import org.apache.tiles.SlottedAttributeContext;
+import org.apache.tiles.access.RenderState;
 import org.apache.tiles.definition.DefinitionsFactory;
 import org.apache.tiles.definition.NoSuchDefinitionException;
+import org.apache.tiles.definition.ReusableDefinitionsFactory;
 import org.apache.tiles.evaluator.AttributeEvaluator;
 import org.apache.tiles.evaluator.AttributeEvaluatorFactory;
 import org.apache.tiles.preparer.ViewPreparer;
 import org.apache.tiles.preparer.factory.NoSuchPreparerException;
 import org.apache.tiles.preparer.factory.PreparerFactory;
+import org.apache.tiles.renderer.ConstantValueRenderer;
 import org.apache.tiles.request.ApplicationContext;
 import org.apache.tiles.request.Request;
 import org.apache.tiles.request.render.CannotRenderException;
@@ -122,7 +131,7 @@ public class BasicTilesContainerUnitTest {
         AttributeContext attributeContext = createMock(AttributeContext.class);
 
         expect(request.getContext("request")).andReturn(requestScope);
-        expect(requestScope.get(ATTRIBUTE_CONTEXT_STACK)).andReturn(deque);
+        expect(requestScope.get(RenderState.RENDER_STATE_ATTRIBUTE_NAME)).andReturn(createRenderState(deque));
         expect(deque.isEmpty()).andReturn(false);
         expect(deque.peek()).andReturn(attributeContext);
         expect(attributeContext.getCascadedAttributeNames()).andReturn(null);
@@ -137,6 +146,40 @@ public class BasicTilesContainerUnitTest {
                 requestScope, deque, attributeContext);
     }
 
+    /**
+     * Test method for {@link BasicTilesContainer#startContext(Request)}, when
+     * an attribute symbol table is set.
+     */
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testStartContextSlotted() {
+        Request request = createMock(Request.class);
+        Map<String, Object> requestScope = createMock(Map.class);
+        Deque<AttributeContext> deque = createMock(Deque.class);
+        AttributeSymbolTable symbolTable = new AttributeSymbolTable();
+        SlottedAttributeContext parent = new SlottedAttributeContext(symbolTable);
+        Attribute attribute = new Attribute("value");
+        parent.putAttribute("cascaded", attribute, true);
+
+        expect(request.getContext("request")).andReturn(requestScope);
+        expect(requestScope.get(RenderState.RENDER_STATE_ATTRIBUTE_NAME)).andReturn(createRenderState(deque));
+        expect(deque.isEmpty()).andReturn(false);
+        expect(deque.peek()).andReturn(parent);
+        deque.push(isA(SlottedAttributeContext.class));
+
+        replay(applicationContext, attributeEvaluatorFactory,
+                definitionsFactory, preparerFactory, rendererFactory, request,
+                requestScope, deque);
+        container.setAttributeSymbolTable(symbolTable);
+        assertSame(symbolTable, container.getAttributeSymbolTable());
+        AttributeContext context = container.startContext(request);
+        assertTrue(context instanceof SlottedAttributeContext);
+        assertEquals(attribute, context.getCascadedAttribute("cascaded"));
+        verify(applicationContext, attributeEvaluatorFactory,
+                definitionsFactory, preparerFactory, rendererFactory, request,
+                requestScope, deque);
+    }
+
     /**
      * Test method for {@link BasicTilesContainer#endContext(Request)}.
      */
@@ -149,7 +192,7 @@ public class BasicTilesContainerUnitTest {
         AttributeContext attributeContext = createMock(AttributeContext.class);
 
         expect(request.getContext("request")).andReturn(requestScope);
-        expect(requestScope.get(ATTRIBUTE_CONTEXT_STACK)).andReturn(deque);
+        expect(requestScope.get(RenderState.RENDER_STATE_ATTRIBUTE_NAME)).andReturn(createRenderState(deque));
         expect(deque.pop()).andReturn(attributeContext);
 
         replay(applicationContext, attributeEvaluatorFactory,
@@ -178,7 +221,7 @@ public class BasicTilesContainerUnitTest {
         AttributeEvaluator evaluator = createMock(AttributeEvaluator.class);
 
         expect(request.getContext("request")).andReturn(requestScope);
-        expect(requestScope.get(ATTRIBUTE_CONTEXT_STACK)).andReturn(deque);
+        expect(requestScope.get(RenderState.RENDER_STATE_ATTRIBUTE_NAME)).andReturn(createRenderState(deque));
         expect(deque.isEmpty()).andReturn(false);
         expect(deque.peek()).andReturn(attributeContext);
         expect(attributeContext.getPreparer()).andReturn(null);
@@ -223,7 +266,7 @@ public class BasicTilesContainerUnitTest {
         AttributeContext attributeContext = createMock(AttributeContext.class);
 
         expect(request.getContext("request")).andReturn(requestScope);
-        expect(requestScope.get(ATTRIBUTE_CONTEXT_STACK)).andReturn(deque);
+        expect(requestScope.get(RenderState.RENDER_STATE_ATTRIBUTE_NAME)).andReturn(createRenderState(deque));
         expect(deque.isEmpty()).andReturn(false);
         expect(deque.peek()).andReturn(attributeContext);
 
@@ -248,7 +291,7 @@ public class BasicTilesContainerUnitTest {
         AttributeContext attributeContext = createMock(AttributeContext.class);
 
         expect(request.getContext("request")).andReturn(requestScope).times(2);
-        expect(requestScope.get(ATTRIBUTE_CONTEXT_STACK)).andReturn(deque).times(2);
+        expect(requestScope.get(RenderState.RENDER_STATE_ATTRIBUTE_NAME)).andReturn(createRenderState(deque)).times(2);
         expect(deque.isEmpty()).andReturn(true);
         deque.push(isA(BasicAttributeContext.class));
 
@@ -299,7 +342,7 @@ public class BasicTilesContainerUnitTest {
 
         expect(preparerFactory.getPreparer("preparer", request)).andReturn(preparer);
         expect(request.getContext("request")).andReturn(requestScope);
-        expect(requestScope.get(ATTRIBUTE_CONTEXT_STACK)).andReturn(deque);
+        expect(requestScope.get(RenderState.RENDER_STATE_ATTRIBUTE_NAME)).andReturn(createRenderState(deque));
         expect(deque.isEmpty()).andReturn(false);
         expect(deque.peek()).andReturn(attributeContext);
         preparer.execute(request, attributeContext);
@@ -358,7 +401,7 @@ public class BasicTilesContainerUnitTest {
 
         expect(definitionsFactory.getDefinition("definition", request)).andReturn(definition);
         expect(request.getContext("request")).andReturn(requestScope).times(3);
-        expect(requestScope.get(ATTRIBUTE_CONTEXT_STACK)).andReturn(deque).times(3);
+        expect(requestScope.get(RenderState.RENDER_STATE_ATTRIBUTE_NAME)).andReturn(createRenderState(deque)).times(3);
         expect(deque.isEmpty()).andReturn(false);
         expect(deque.peek()).andReturn(attributeContext);
         expect(attributeContext.getPreparer()).andReturn(null);
@@ -428,6 +471,32 @@ public class BasicTilesContainerUnitTest {
                 templateAttribute, renderer);
     }
 
+    /**
+     * Test method for {@link BasicTilesContainer#render(Request, org.apache.tiles.Attribute)},
+     * when the value of the attribute is constant.
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    public void testRenderAttributeRequestConstant() throws IOException {
+        Request request = createMock(Request.class);
+        Attribute attribute = new Attribute("Hello", null, null, "renderer");
+        ConstantValueRenderer renderer = createMock(ConstantValueRenderer.class);
+        AttributeEvaluator evaluator = createMock(AttributeEvaluator.class);
+
+        expect(rendererFactory.getRenderer("renderer")).andReturn(renderer);
+        expect(attributeEvaluatorFactory.getAttributeEvaluator(attribute)).andReturn(evaluator);
+        expect(evaluator.evaluate(attribute, request)).andReturn(attribute.getValue());
+        renderer.renderConstant("Hello", request);
+
+        replay(applicationContext, attributeEvaluatorFactory, evaluator,
+                definitionsFactory, preparerFactory, rendererFactory, request,
+                renderer);
+        container.render(attribute, request);
+        verify(applicationContext, attributeEvaluatorFactory, evaluator,
+                definitionsFactory, preparerFactory, rendererFactory, request,
+                renderer);
+    }
+
     /**
      * Test method for {@link BasicTilesContainer#render(Request, org.apache.tiles.Attribute)}.
      * @throws IOException If something goes wrong.
@@ -549,6 +618,45 @@ public class BasicTilesContainerUnitTest {
                 templateAttribute, evaluator);
     }
 
+    /**
+     * Tests {@link BasicTilesContainer#getDefinitionHandle(String, Request)} and
+     * {@link BasicTilesContainer#render(DefinitionHandle, Request)}.
+     */
+    @Test
+    public void testDefinitionHandle() {
+        ReusableDefinitionsFactory factory = createMock(ReusableDefinitionsFactory.class);
+        Request request = createMock(Request.class);
+        Definition definition1 = new Definition();
+        Definition definition2 = new Definition();
+        final List<Definition> rendered = new ArrayList<Definition>();
+        BasicTilesContainer container = new BasicTilesContainer() {
+
+            @Override
+            public void render(Definition definition, Request request) {
+                rendered.add(definition);
+            }
+        };
+        container.setDefinitionsFactory(factory);
+
+        expect(factory.getDefinitionsVersion()).andReturn(0L).times(2);
+        expect(factory.getDefinitionsVersion()).andReturn(1L).times(2);
+        expect(factory.getCustomizationKey(request)).andReturn(Locale.ITALY).times(4);
+        expect(factory.getDefinition("definition", request)).andReturn(definition1);
+        expect(factory.getDefinition("definition", request)).andReturn(definition2);
+        expect(factory.getDefinition("missing", request)).andReturn(null);
+
+        replay(factory, request);
+        DefinitionHandle handle = container.getDefinitionHandle("definition", request);
+        assertEquals("definition", handle.getName());
+        container.render(handle, request);
+        container.render(handle, request);
+        assertNull(container.getDefinitionHandle("missing", request));
+        assertEquals(2, rendered.size());
+        assertSame(definition1, rendered.get(0));
+        assertSame(definition2, rendered.get(1));
+        verify(factory, request);
+    }
+
     /**
      * Test method for {@link BasicTilesContainer#isValidDefinition(java.lang.String, Request)}.
      */
@@ -627,7 +735,7 @@ public class BasicTilesContainerUnitTest {
         Deque<AttributeContext> deque = createMock(Deque.class);
 
         expect(request.getContext("request")).andReturn(requestScope);
-        expect(requestScope.get(ATTRIBUTE_CONTEXT_STACK)).andReturn(deque);
+        expect(requestScope.get(RenderState.RENDER_STATE_ATTRIBUTE_NAME)).andReturn(createRenderState(deque));
 
         replay(applicationContext, attributeEvaluatorFactory,
                 definitionsFactory, preparerFactory, rendererFactory, request,
@@ -648,18 +756,46 @@ public class BasicTilesContainerUnitTest {
         Map<String, Object> requestScope = createMock(Map.class);
 
         expect(request.getContext("request")).andReturn(requestScope);
+        expect(requestScope.get(RenderState.RENDER_STATE_ATTRIBUTE_NAME)).andReturn(null);
+        expect(requestScope.put(eq(RenderState.RENDER_STATE_ATTRIBUTE_NAME), isA(RenderState.class))).andReturn(null);
         expect(requestScope.get(ATTRIBUTE_CONTEXT_STACK)).andReturn(null);
-        expect(requestScope.put(eq(ATTRIBUTE_CONTEXT_STACK), isA(LinkedList.class))).andReturn(null);
+        expect(requestScope.put(eq(ATTRIBUTE_CONTEXT_STACK), isA(ArrayDeque.class))).andReturn(null);
 
         replay(applicationContext, attributeEvaluatorFactory,
                 definitionsFactory, preparerFactory, rendererFactory, request,
                 requestScope);
-        assertTrue(container.getContextStack(request) instanceof LinkedList);
+        assertTrue(container.getContextStack(request) instanceof ArrayDeque);
         verify(applicationContext, attributeEvaluatorFactory,
                 definitionsFactory, preparerFactory, rendererFactory, request,
                 requestScope);
     }
 
+    /**
+     * Test method for {@link BasicTilesContainer#getContextStack(Request)},
+     * when a stack has already been put in request scope.
+     */
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testGetContextStackLegacy() {
+        Request request = createMock(Request.class);
+        Map<String, Object> requestScope = createMock(Map.class);
+        Deque<AttributeContext> deque = createMock(Deque.class);
+        RenderState renderState = new RenderState();
+
+        expect(request.getContext("request")).andReturn(requestScope);
+        expect(requestScope.get(RenderState.RENDER_STATE_ATTRIBUTE_NAME)).andReturn(renderState);
+        expect(requestScope.get(ATTRIBUTE_CONTEXT_STACK)).andReturn(deque);
+
+        replay(applicationContext, attributeEvaluatorFactory,
+                definitionsFactory, preparerFactory, rendererFactory, request,
+                requestScope, deque);
+        assertSame(deque, container.getContextStack(request));
+        assertSame(deque, renderState.getContextStack());
+        verify(applicationContext, attributeEvaluatorFactory,
+                definitionsFactory, preparerFactory, rendererFactory, request,
+                requestScope, deque);
+    }
+
     /**
      * Test method for {@link BasicTilesContainer#pushContext(org.apache.tiles.AttributeContext, Request)}.
      */
@@ -672,7 +808,7 @@ public class BasicTilesContainerUnitTest {
         AttributeContext attributeContext = createMock(AttributeContext.class);
 
         expect(request.getContext("request")).andReturn(requestScope);
-        expect(requestScope.get(ATTRIBUTE_CONTEXT_STACK)).andReturn(deque);
+        expect(requestScope.get(RenderState.RENDER_STATE_ATTRIBUTE_NAME)).andReturn(createRenderState(deque));
         deque.push(attributeContext);
 
         replay(applicationContext, attributeEvaluatorFactory,
@@ -696,7 +832,7 @@ public class BasicTilesContainerUnitTest {
         AttributeContext attributeContext = createMock(AttributeContext.class);
 
         expect(request.getContext("request")).andReturn(requestScope);
-        expect(requestScope.get(ATTRIBUTE_CONTEXT_STACK)).andReturn(deque);
+        expect(requestScope.get(RenderState.RENDER_STATE_ATTRIBUTE_NAME)).andReturn(createRenderState(deque));
         expect(deque.pop()).andReturn(attributeContext);
 
         replay(applicationContext, attributeEvaluatorFactory,
@@ -720,7 +856,7 @@ public class BasicTilesContainerUnitTest {
         AttributeContext attributeContext = createMock(AttributeContext.class);
 
         expect(request.getContext("request")).andReturn(requestScope);
-        expect(requestScope.get(ATTRIBUTE_CONTEXT_STACK)).andReturn(deque);
+        expect(requestScope.get(RenderState.RENDER_STATE_ATTRIBUTE_NAME)).andReturn(createRenderState(deque));
         expect(deque.isEmpty()).andReturn(false);
         expect(deque.peek()).andReturn(attributeContext);
 
@@ -744,7 +880,7 @@ public class BasicTilesContainerUnitTest {
         Deque<AttributeContext> deque = createMock(Deque.class);
 
         expect(request.getContext("request")).andReturn(requestScope);
-        expect(requestScope.get(ATTRIBUTE_CONTEXT_STACK)).andReturn(deque);
+        expect(requestScope.get(RenderState.RENDER_STATE_ATTRIBUTE_NAME)).andReturn(createRenderState(deque));
         expect(deque.isEmpty()).andReturn(true);
 
         replay(applicationContext, attributeEvaluatorFactory,
@@ -775,7 +911,7 @@ public class BasicTilesContainerUnitTest {
         Attribute templateAttribute = Attribute.createTemplateAttribute("/my/template.jsp");
 
         expect(request.getContext("request")).andReturn(requestScope).times(3);
-        expect(requestScope.get(ATTRIBUTE_CONTEXT_STACK)).andReturn(deque).times(3);
+        expect(requestScope.get(RenderState.RENDER_STATE_ATTRIBUTE_NAME)).andReturn(createRenderState(deque)).times(3);
         expect(deque.isEmpty()).andReturn(false);
         expect(deque.peek()).andReturn(attributeContext);
         expect(attributeContext.getPreparer()).andReturn(null);
@@ -818,7 +954,7 @@ public class BasicTilesContainerUnitTest {
         Attribute templateAttribute = Attribute.createTemplateAttribute("/my/template.jsp");
 
         expect(request.getContext("request")).andReturn(requestScope).times(3);
-        expect(requestScope.get(ATTRIBUTE_CONTEXT_STACK)).andReturn(deque).times(3);
+        expect(requestScope.get(RenderState.RENDER_STATE_ATTRIBUTE_NAME)).andReturn(createRenderState(deque)).times(3);
         expect(deque.isEmpty()).andReturn(false);
         expect(deque.peek()).andReturn(attributeContext);
         expect(attributeContext.getPreparer()).andReturn(null);
@@ -919,4 +1055,16 @@ public class BasicTilesContainerUnitTest {
                     templateAttribute, renderer);
         }
     }
+
+    /**
+     * Creates a render state that uses the given context stack.
+     *
+     * @param deque The context stack.
+     * @return The render state.
+     */
+    private RenderState createRenderState(Deque<AttributeContext> deque) {
+        RenderState renderState = new RenderState();
+        renderState.setContextStack(deque);
+        return renderState;
+    }
 }
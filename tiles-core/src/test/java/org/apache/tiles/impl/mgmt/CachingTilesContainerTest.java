@@ -27,8 +27,11 @@ import static org.junit.Assert.*;
 import java.util.HashMap;
 import java.util.Map;
 
+import org.apache.tiles.Attribute;
 import org.apache.tiles.Definition;
+import org.apache.tiles.DefinitionHandle;
 import org.apache.tiles.TilesContainer;
+import org.apache.tiles.access.RenderState;
 import org.apache.tiles.definition.NoSuchDefinitionException;
 import org.apache.tiles.request.Request;
 import org.junit.Before;
@@ -81,7 +84,8 @@ public class CachingTilesContainerTest {
         Definition definition = createMock(Definition.class);
 
         expect(request.getContext("request")).andReturn(scope);
-        expect(scope.get("myattribute")).andReturn(definitions);
+        expect(scope.get(RenderState.RENDER_STATE_ATTRIBUTE_NAME)).andReturn(
+                createRenderState("myattribute", definitions));
         expect(definitions.get("definition")).andReturn(definition);
 
         replay(wrapped, request, definitions, scope, definition);
@@ -106,8 +110,8 @@ public class CachingTilesContainerTest {
         TilesContainer wrapped = createMock(TilesContainer.class);
 
         expect(request.getContext("request")).andReturn(scope);
-        expect(scope.get(DEFAULT_DEFINITIONS_ATTRIBUTE_NAME)).andReturn(
-                definitions);
+        expect(scope.get(RenderState.RENDER_STATE_ATTRIBUTE_NAME)).andReturn(
+                createRenderState(DEFAULT_DEFINITIONS_ATTRIBUTE_NAME, definitions));
         expect(definitions.get("definition")).andReturn(definition);
 
         replay(wrapped, request, definitions, scope, definition);
@@ -131,8 +135,8 @@ public class CachingTilesContainerTest {
         Definition definition = createMock(Definition.class);
 
         expect(request.getContext("request")).andReturn(scope);
-        expect(scope.get(DEFAULT_DEFINITIONS_ATTRIBUTE_NAME)).andReturn(
-                definitions);
+        expect(scope.get(RenderState.RENDER_STATE_ATTRIBUTE_NAME)).andReturn(
+                createRenderState(DEFAULT_DEFINITIONS_ATTRIBUTE_NAME, definitions));
         expect(definitions.get("definition")).andReturn(definition);
 
         replay(wrapped, request, definitions, scope, definition);
@@ -153,8 +157,8 @@ public class CachingTilesContainerTest {
         Definition definition = createMock(Definition.class);
 
         expect(request.getContext("request")).andReturn(scope);
-        expect(scope.get(DEFAULT_DEFINITIONS_ATTRIBUTE_NAME)).andReturn(
-                null);
+        expect(scope.get(RenderState.RENDER_STATE_ATTRIBUTE_NAME)).andReturn(
+                new RenderState());
         expect(wrapped.getDefinition("definition", request)).andReturn(
                 definition);
 
@@ -177,8 +181,8 @@ public class CachingTilesContainerTest {
         Definition definition = createMock(Definition.class);
 
         expect(request.getContext("request")).andReturn(scope);
-        expect(scope.get(DEFAULT_DEFINITIONS_ATTRIBUTE_NAME)).andReturn(
-                definitions);
+        expect(scope.get(RenderState.RENDER_STATE_ATTRIBUTE_NAME)).andReturn(
+                createRenderState(DEFAULT_DEFINITIONS_ATTRIBUTE_NAME, definitions));
         expect(definitions.get("definition")).andReturn(definition);
 
         replay(wrapped, request, definitions, scope, definition);
@@ -199,8 +203,8 @@ public class CachingTilesContainerTest {
         Map<String, Object> scope = createMock(Map.class);
 
         expect(request.getContext("request")).andReturn(scope);
-        expect(scope.get(DEFAULT_DEFINITIONS_ATTRIBUTE_NAME)).andReturn(
-                definitions);
+        expect(scope.get(RenderState.RENDER_STATE_ATTRIBUTE_NAME)).andReturn(
+                createRenderState(DEFAULT_DEFINITIONS_ATTRIBUTE_NAME, definitions));
         expect(definitions.get("definition")).andReturn(null);
         expect(wrapped.isValidDefinition("definition", request)).andReturn(true);
 
@@ -223,8 +227,8 @@ public class CachingTilesContainerTest {
         Definition definition = createMock(Definition.class);
 
         expect(request.getContext("request")).andReturn(scope);
-        expect(scope.get(DEFAULT_DEFINITIONS_ATTRIBUTE_NAME)).andReturn(
-                definitions);
+        expect(scope.get(RenderState.RENDER_STATE_ATTRIBUTE_NAME)).andReturn(
+                createRenderState(DEFAULT_DEFINITIONS_ATTRIBUTE_NAME, definitions));
         expect(definition.getName()).andReturn(null);
         expect(definitions.containsKey("$anonymousMutableDefinition1"))
                 .andReturn(false);
@@ -257,8 +261,8 @@ public class CachingTilesContainerTest {
         Definition grandparent = createMock(Definition.class);
 
         expect(request.getContext("request")).andReturn(scope).anyTimes();
-        expect(scope.get(DEFAULT_DEFINITIONS_ATTRIBUTE_NAME)).andReturn(
-                definitions).anyTimes();
+        expect(scope.get(RenderState.RENDER_STATE_ATTRIBUTE_NAME)).andReturn(
+                createRenderState(DEFAULT_DEFINITIONS_ATTRIBUTE_NAME, definitions)).anyTimes();
         expect(definition.getName()).andReturn(null);
         expect(definitions.containsKey("$anonymousMutableDefinition1"))
                 .andReturn(false);
@@ -300,8 +304,8 @@ public class CachingTilesContainerTest {
         Definition definition = createMock(Definition.class);
 
         expect(request.getContext("request")).andReturn(scope).anyTimes();
-        expect(scope.get(DEFAULT_DEFINITIONS_ATTRIBUTE_NAME)).andReturn(
-                definitions).anyTimes();
+        expect(scope.get(RenderState.RENDER_STATE_ATTRIBUTE_NAME)).andReturn(
+                createRenderState(DEFAULT_DEFINITIONS_ATTRIBUTE_NAME, definitions)).anyTimes();
         expect(definition.getName()).andReturn(null);
         expect(definitions.containsKey("$anonymousMutableDefinition1"))
                 .andReturn(false);
@@ -335,9 +339,8 @@ public class CachingTilesContainerTest {
         Definition definition = createMock(Definition.class);
 
         expect(request.getContext("request")).andReturn(scope).anyTimes();
-        expect(scope.get(DEFAULT_DEFINITIONS_ATTRIBUTE_NAME)).andReturn(
-                null);
-        expect(scope.put(eq(DEFAULT_DEFINITIONS_ATTRIBUTE_NAME), isA(HashMap.class))).andReturn(null);
+        expect(scope.get(RenderState.RENDER_STATE_ATTRIBUTE_NAME)).andReturn(
+                new RenderState());
         expect(definition.getName()).andReturn(null);
         definition.setName("$anonymousMutableDefinition1");
         expect(definition.isExtending()).andReturn(true);
@@ -350,6 +353,36 @@ public class CachingTilesContainerTest {
         verify(wrapped, request, scope, definition);
     }
 
+    /**
+     * Test method for
+     * {@link CachingTilesContainer#register(Definition, Request)}, when the
+     * parent is a configured definition, whose attributes are shared.
+     */
+    @Test
+    public void testRegisterConfiguredParent() {
+        Request request = createMock(Request.class);
+        Map<String, Object> scope = new HashMap<String, Object>();
+        Definition parent = new Definition("parent",
+                Attribute.createTemplateAttribute("/layout.jsp"), null);
+        Attribute title = new Attribute("Parent title");
+        parent.putAttribute("title", title);
+
+        expect(request.getContext("request")).andReturn(scope).anyTimes();
+        expect(wrapped.getDefinition("parent", request)).andReturn(parent);
+
+        replay(wrapped, request);
+        Definition definition = new Definition();
+        definition.setExtends("parent");
+        definition.putAttribute("body", new Attribute("/body.jsp"));
+        container.register(definition, request);
+        assertEquals("$anonymousMutableDefinition1", definition.getName());
+        assertSame(definition, container.getDefinition(
+                "$anonymousMutableDefinition1", request));
+        assertEquals("/layout.jsp", definition.getTemplateAttribute().getValue());
+        assertSame(title, definition.getAttribute("title"));
+        verify(wrapped, request);
+    }
+
     /**
      * Test method for
      * {@link org.apache.tiles.impl.mgmt.CachingTilesContainer#render(String, Request)}
@@ -364,8 +397,8 @@ public class CachingTilesContainerTest {
         Definition definition = createMock(Definition.class);
 
         expect(request.getContext("request")).andReturn(scope);
-        expect(scope.get(DEFAULT_DEFINITIONS_ATTRIBUTE_NAME)).andReturn(
-                definitions);
+        expect(scope.get(RenderState.RENDER_STATE_ATTRIBUTE_NAME)).andReturn(
+                createRenderState(DEFAULT_DEFINITIONS_ATTRIBUTE_NAME, definitions));
         expect(definitions.get("definition")).andReturn(definition);
         container.render(definition, request);
 
@@ -387,8 +420,8 @@ public class CachingTilesContainerTest {
         Map<String, Object> scope = createMock(Map.class);
 
         expect(request.getContext("request")).andReturn(scope);
-        expect(scope.get(DEFAULT_DEFINITIONS_ATTRIBUTE_NAME)).andReturn(
-                definitions);
+        expect(scope.get(RenderState.RENDER_STATE_ATTRIBUTE_NAME)).andReturn(
+                createRenderState(DEFAULT_DEFINITIONS_ATTRIBUTE_NAME, definitions));
         expect(definitions.get("definition")).andReturn(null);
         expect(wrapped.getDefinition("definition", request)).andReturn(null);
 
@@ -399,4 +432,68 @@ public class CachingTilesContainerTest {
             verify(wrapped, request, definitions, scope);
         }
     }
+
+    /**
+     * Test method for
+     * {@link CachingTilesContainer#render(DefinitionHandle, Request)}
+     * when a custom definition has the name of the handle.
+     */
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testRenderHandleCustom() {
+        Request request = createMock(Request.class);
+        Map<String, Definition> definitions = createMock(Map.class);
+        Map<String, Object> scope = createMock(Map.class);
+        Definition definition = createMock(Definition.class);
+        DefinitionHandle handle = createMock(DefinitionHandle.class);
+
+        expect(handle.getName()).andReturn("definition");
+        expect(request.getContext("request")).andReturn(scope);
+        expect(scope.get(RenderState.RENDER_STATE_ATTRIBUTE_NAME)).andReturn(
+                createRenderState(DEFAULT_DEFINITIONS_ATTRIBUTE_NAME, definitions));
+        expect(definitions.get("definition")).andReturn(definition);
+        wrapped.render(definition, request);
+
+        replay(wrapped, request, definitions, scope, definition, handle);
+        container.render(handle, request);
+        verify(wrapped, request, definitions, scope, definition, handle);
+    }
+
+    /**
+     * Test method for
+     * {@link CachingTilesContainer#render(DefinitionHandle, Request)}
+     * when no custom definition has the name of the handle.
+     */
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testRenderHandle() {
+        Request request = createMock(Request.class);
+        Map<String, Definition> definitions = createMock(Map.class);
+        Map<String, Object> scope = createMock(Map.class);
+        DefinitionHandle handle = createMock(DefinitionHandle.class);
+
+        expect(handle.getName()).andReturn("definition");
+        expect(request.getContext("request")).andReturn(scope);
+        expect(scope.get(RenderState.RENDER_STATE_ATTRIBUTE_NAME)).andReturn(
+                createRenderState(DEFAULT_DEFINITIONS_ATTRIBUTE_NAME, definitions));
+        expect(definitions.get("definition")).andReturn(null);
+        wrapped.render(handle, request);
+
+        replay(wrapped, request, definitions, scope, handle);
+        container.render(handle, request);
+        verify(wrapped, request, definitions, scope, handle);
+    }
+
+    /**
+     * Creates a render state that contains the given definitions.
+     *
+     * @param storeName The name of the definitions store.
+     * @param definitions The definitions.
+     * @return The render state.
+     */
+    private RenderState createRenderState(String storeName, Map<String, Definition> definitions) {
+        RenderState renderState = new RenderState();
+        renderState.setDefinitions(storeName, definitions);
+        return renderState;
+    }
 }
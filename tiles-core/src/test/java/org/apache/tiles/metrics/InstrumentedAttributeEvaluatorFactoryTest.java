@@ -0,0 +1,74 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.metrics;
+
+import static org.easymock.EasyMock.*;
+import static org.easymock.classextension.EasyMock.*;
+import static org.junit.Assert.*;
+
+import org.apache.tiles.Attribute;
+import org.apache.tiles.Expression;
+import org.apache.tiles.evaluator.AttributeEvaluator;
+import org.apache.tiles.evaluator.AttributeEvaluatorFactory;
+import org.apache.tiles.request.Request;
+import org.junit.Test;
+
+/**
+ * Tests {@link InstrumentedAttributeEvaluatorFactory}.
+ *
+ * @version $Rev$ $Date$
+ */
+public class InstrumentedAttributeEvaluatorFactoryTest {
+
+    /**
+     * Test method for {@link InstrumentedAttributeEvaluatorFactory#getAttributeEvaluator(Attribute)}
+     * and {@link InstrumentedAttributeEvaluatorFactory#getAttributeEvaluator(String)}.
+     */
+    @Test
+    public void testGetAttributeEvaluator() {
+        AttributeEvaluatorFactory wrapped = createMock(AttributeEvaluatorFactory.class);
+        AttributeEvaluator evaluator = createMock(AttributeEvaluator.class);
+        Request request = createMock(Request.class);
+        RenderMetrics metrics = new RenderMetrics();
+        Attribute elAttribute = new Attribute();
+        elAttribute.setExpressionObject(new Expression("${value}", "EL"));
+        Attribute plainAttribute = new Attribute("value");
+
+        expect(wrapped.getAttributeEvaluator(elAttribute)).andReturn(evaluator);
+        expect(wrapped.getAttributeEvaluator(plainAttribute)).andReturn(evaluator);
+        expect(wrapped.getAttributeEvaluator("OGNL")).andReturn(evaluator);
+        expect(evaluator.evaluate(elAttribute, request)).andReturn("one");
+        expect(evaluator.evaluate(plainAttribute, request)).andReturn("value");
+        expect(evaluator.evaluate("expression", request)).andReturn("two");
+
+        replay(wrapped, evaluator, request);
+        InstrumentedAttributeEvaluatorFactory factory = new InstrumentedAttributeEvaluatorFactory(
+                wrapped, metrics);
+        assertEquals("one", factory.getAttributeEvaluator(elAttribute).evaluate(elAttribute, request));
+        assertEquals("value", factory.getAttributeEvaluator(plainAttribute).evaluate(
+                plainAttribute, request));
+        assertEquals("two", factory.getAttributeEvaluator("OGNL").evaluate("expression", request));
+        assertEquals(1L, metrics.getStatistics(RenderMetrics.EVALUATOR, "EL").getCount());
+        assertEquals(1L, metrics.getStatistics(RenderMetrics.EVALUATOR, "(default)").getCount());
+        assertEquals(1L, metrics.getStatistics(RenderMetrics.EVALUATOR, "OGNL").getCount());
+        verify(wrapped, evaluator, request);
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.metrics;
+
+import static org.easymock.EasyMock.*;
+import static org.easymock.classextension.EasyMock.*;
+import static org.junit.Assert.*;
+
+import org.apache.tiles.AttributeContext;
+import org.apache.tiles.preparer.ViewPreparer;
+import org.apache.tiles.preparer.factory.PreparerFactory;
+import org.apache.tiles.request.Request;
+import org.junit.Test;
+
+/**
+ * Tests {@link InstrumentedPreparerFactory}.
+ *
+ * @version $Rev$ $Date$
+ */
+public class InstrumentedPreparerFactoryTest {
+
+    /**
+     * Test method for {@link InstrumentedPreparerFactory#getPreparer(String, Request)}.
+     */
+    @Test
+    public void testGetPreparer() {
+        PreparerFactory wrapped = createMock(PreparerFactory.class);
+        ViewPreparer preparer = createMock(ViewPreparer.class);
+        Request request = createMock(Request.class);
+        AttributeContext attributeContext = createMock(AttributeContext.class);
+        RenderMetrics metrics = new RenderMetrics();
+
+        expect(wrapped.getPreparer("preparer", request)).andReturn(preparer);
+        expect(wrapped.getPreparer("missing", request)).andReturn(null);
+        preparer.execute(request, attributeContext);
+
+        replay(wrapped, preparer, request, attributeContext);
+        InstrumentedPreparerFactory factory = new InstrumentedPreparerFactory(wrapped, metrics);
+        factory.getPreparer("preparer", request).execute(request, attributeContext);
+        assertNull(factory.getPreparer("missing", request));
+        assertEquals(1L, metrics.getStatistics(RenderMetrics.PREPARER, "preparer").getCount());
+        verify(wrapped, preparer, request, attributeContext);
+    }
+}
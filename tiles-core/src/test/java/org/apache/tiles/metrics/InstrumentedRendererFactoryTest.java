@@ -0,0 +1,101 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.metrics;
+
+import static org.easymock.EasyMock.*;
+import static org.easymock.classextension.EasyMock.*;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+
+import org.apache.tiles.request.Request;
+import org.apache.tiles.request.render.Renderer;
+import org.apache.tiles.request.render.RendererFactory;
+import org.junit.Test;
+
+/**
+ * Tests {@link InstrumentedRendererFactory}.
+ *
+ * @version $Rev$ $Date$
+ */
+public class InstrumentedRendererFactoryTest {
+
+    /**
+     * Test method for {@link InstrumentedRendererFactory#getRenderer(String)}.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    public void testGetRenderer() throws IOException {
+        RendererFactory wrapped = createMock(RendererFactory.class);
+        Renderer renderer = createMock(Renderer.class);
+        Renderer defaultRenderer = createMock(Renderer.class);
+        Request request = createMock(Request.class);
+        RenderMetrics metrics = new RenderMetrics();
+
+        expect(wrapped.getRenderer("string")).andReturn(renderer);
+        expect(wrapped.getRenderer(null)).andReturn(defaultRenderer);
+        expect(wrapped.getRenderer("missing")).andReturn(null);
+        renderer.render("value", request);
+        expect(renderer.isRenderable("value", request)).andReturn(true);
+        defaultRenderer.render("/template.jsp", request);
+        expectLastCall().andThrow(new IOException());
+
+        replay(wrapped, renderer, defaultRenderer, request);
+        InstrumentedRendererFactory factory = new InstrumentedRendererFactory(wrapped, metrics);
+        assertSame(wrapped, factory.getWrappedRendererFactory());
+        Renderer instrumented = factory.getRenderer("string");
+        instrumented.render("value", request);
+        assertTrue(instrumented.isRenderable("value", request));
+        try {
+            factory.getRenderer(null).render("/template.jsp", request);
+            fail("The exception has not been propagated");
+        } catch (IOException e) {
+            // Expected.
+        }
+        assertNull(factory.getRenderer("missing"));
+        assertEquals(1L, metrics.getStatistics(RenderMetrics.RENDERER, "string").getCount());
+        assertEquals(1L, metrics.getStatistics(RenderMetrics.RENDERER, "(default)")
+                .getFailureCount());
+        verify(wrapped, renderer, defaultRenderer, request);
+    }
+
+    /**
+     * Tests that {@link InstrumentedRendererFactory#getRenderer(String)}
+     * reuses the wrappers, unless the wrapped renderer changes.
+     */
+    @Test
+    public void testGetRendererCached() {
+        RendererFactory wrapped = createMock(RendererFactory.class);
+        Renderer renderer = createMock(Renderer.class);
+        Renderer otherRenderer = createMock(Renderer.class);
+
+        expect(wrapped.getRenderer("string")).andReturn(renderer).times(2);
+        expect(wrapped.getRenderer("string")).andReturn(otherRenderer);
+
+        replay(wrapped, renderer, otherRenderer);
+        InstrumentedRendererFactory factory = new InstrumentedRendererFactory(wrapped, new RenderMetrics());
+        Renderer instrumented = factory.getRenderer("string");
+        assertSame(instrumented, factory.getRenderer("string"));
+        assertNotSame(instrumented, factory.getRenderer("string"));
+        verify(wrapped, renderer, otherRenderer);
+    }
+}
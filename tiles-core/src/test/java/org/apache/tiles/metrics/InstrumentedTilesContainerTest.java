@@ -0,0 +1,151 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.metrics;
+
+import static org.easymock.EasyMock.*;
+import static org.easymock.classextension.EasyMock.*;
+import static org.junit.Assert.*;
+
+import org.apache.tiles.Definition;
+import org.apache.tiles.TilesContainer;
+import org.apache.tiles.definition.NoSuchDefinitionException;
+import org.apache.tiles.mgmt.MutableTilesContainer;
+import org.apache.tiles.request.Request;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests {@link InstrumentedTilesContainer} and
+ * {@link InstrumentedMutableTilesContainer}.
+ *
+ * @version $Rev$ $Date$
+ */
+public class InstrumentedTilesContainerTest {
+
+    /**
+     * The metrics to update.
+     */
+    private RenderMetrics metrics;
+
+    /**
+     * Sets up the test.
+     */
+    @Before
+    public void setUp() {
+        metrics = new RenderMetrics();
+    }
+
+    /**
+     * Test method for {@link InstrumentedTilesContainer#render(String, Request)}.
+     */
+    @Test
+    public void testRenderString() {
+        TilesContainer wrapped = createMock(TilesContainer.class);
+        Request request = createMock(Request.class);
+
+        wrapped.render("definition", request);
+        wrapped.render("missing", request);
+        expectLastCall().andThrow(new NoSuchDefinitionException());
+        expect(wrapped.isValidDefinition("missing", request)).andReturn(false);
+        wrapped.render("nested", request);
+        expectLastCall().andThrow(new NoSuchDefinitionException());
+        expect(wrapped.isValidDefinition("nested", request)).andReturn(true);
+
+        replay(wrapped, request);
+        InstrumentedTilesContainer container = new InstrumentedTilesContainer(wrapped, metrics);
+        assertSame(metrics, container.getMetrics());
+        container.render("definition", request);
+        try {
+            container.render("missing", request);
+            fail("The exception has not been propagated");
+        } catch (NoSuchDefinitionException e) {
+            // Expected.
+        }
+        try {
+            container.render("nested", request);
+            fail("The exception has not been propagated");
+        } catch (NoSuchDefinitionException e) {
+            // Expected.
+        }
+        assertEquals(1L, metrics.getStatistics(RenderMetrics.DEFINITION, "definition").getCount());
+        assertFalse(metrics.getStatistics(RenderMetrics.DEFINITION).containsKey("missing"));
+        RenderStatistics nested = metrics.getStatistics(RenderMetrics.DEFINITION, "nested");
+        assertEquals(1L, nested.getCount());
+        assertEquals(1L, nested.getFailureCount());
+        verify(wrapped, request);
+    }
+
+    /**
+     * Test method for {@link InstrumentedTilesContainer#render(Definition, Request)}.
+     */
+    @Test
+    public void testRenderDefinition() {
+        TilesContainer wrapped = createMock(TilesContainer.class);
+        Request request = createMock(Request.class);
+        Definition definition = new Definition();
+        definition.setName("definition");
+        Definition anonymous = new Definition();
+
+        wrapped.render(definition, request);
+        wrapped.render(anonymous, request);
+
+        replay(wrapped, request);
+        InstrumentedTilesContainer container = new InstrumentedTilesContainer(wrapped, metrics);
+        container.render(definition, request);
+        container.render(anonymous, request);
+        assertEquals(1L, metrics.getStatistics(RenderMetrics.DEFINITION, "definition").getCount());
+        assertEquals(1L, metrics.getStatistics(RenderMetrics.DEFINITION, "(anonymous)").getCount());
+        verify(wrapped, request);
+    }
+
+    /**
+     * Tests that nothing is recorded when the metrics are disabled.
+     */
+    @Test
+    public void testRenderDisabled() {
+        TilesContainer wrapped = createMock(TilesContainer.class);
+        Request request = createMock(Request.class);
+
+        wrapped.render("definition", request);
+
+        replay(wrapped, request);
+        metrics.setEnabled(false);
+        new InstrumentedTilesContainer(wrapped, metrics).render("definition", request);
+        assertEquals(0, metrics.getNames(RenderMetrics.DEFINITION).length);
+        verify(wrapped, request);
+    }
+
+    /**
+     * Test method for {@link InstrumentedMutableTilesContainer#register(Definition, Request)}.
+     */
+    @Test
+    public void testRegister() {
+        MutableTilesContainer wrapped = createMock(MutableTilesContainer.class);
+        Request request = createMock(Request.class);
+        Definition definition = new Definition();
+
+        wrapped.register(definition, request);
+
+        replay(wrapped, request);
+        new InstrumentedMutableTilesContainer(wrapped, metrics).register(definition, request);
+        verify(wrapped, request);
+    }
+}
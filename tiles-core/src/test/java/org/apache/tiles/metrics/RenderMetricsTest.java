@@ -0,0 +1,145 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.metrics;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests {@link RenderMetrics}.
+ *
+ * @version $Rev$ $Date$
+ */
+public class RenderMetricsTest {
+
+    /**
+     * The object to test.
+     */
+    private RenderMetrics metrics;
+
+    /**
+     * Sets up the test.
+     */
+    @Before
+    public void setUp() {
+        metrics = new RenderMetrics();
+    }
+
+    /**
+     * Test method for {@link RenderMetrics#record(String, String, long, boolean)}.
+     */
+    @Test
+    public void testRecord() {
+        metrics.record(RenderMetrics.DEFINITION, "one", 1000L, false);
+        metrics.record(RenderMetrics.DEFINITION, "one", 2000L, false);
+        metrics.record(RenderMetrics.RENDERER, "string", 1000L, true);
+
+        Map<String, RenderStatistics> definitions = metrics
+                .getStatistics(RenderMetrics.DEFINITION);
+        assertEquals(1, definitions.size());
+        assertEquals(2L, definitions.get("one").getCount());
+        assertSame(definitions.get("one"), metrics.getStatistics(
+                RenderMetrics.DEFINITION, "one"));
+        assertEquals(1L, metrics.getStatistics(RenderMetrics.RENDERER, "string")
+                .getFailureCount());
+        assertTrue(Arrays.equals(new String[] {"string" },
+                metrics.getNames(RenderMetrics.RENDERER)));
+        assertEquals(0, metrics.getNames(RenderMetrics.PREPARER).length);
+
+        metrics.reset();
+        assertEquals(0L, definitions.get("one").getCount());
+    }
+
+    /**
+     * Tests that the names of a category are limited.
+     */
+    @Test
+    public void testRecordLimit() {
+        RenderMetrics limited = new RenderMetrics(2);
+        limited.record(RenderMetrics.DEFINITION, "one", 1000L, false);
+        limited.record(RenderMetrics.DEFINITION, "two", 1000L, false);
+        limited.record(RenderMetrics.DEFINITION, "three", 1000L, false);
+        limited.record(RenderMetrics.DEFINITION, "four", 1000L, true);
+        limited.record(RenderMetrics.DEFINITION, "one", 1000L, false);
+
+        Map<String, RenderStatistics> definitions = limited
+                .getStatistics(RenderMetrics.DEFINITION);
+        assertEquals(3, definitions.size());
+        assertEquals(2L, definitions.get("one").getCount());
+        assertEquals(2L, definitions.get(RenderMetrics.OTHER_NAME).getCount());
+        assertEquals(1L, definitions.get(RenderMetrics.OTHER_NAME).getFailureCount());
+        assertFalse(definitions.containsKey("three"));
+    }
+
+    /**
+     * Test method for {@link RenderMetrics#setEnabled(boolean)}.
+     */
+    @Test
+    public void testSetEnabled() {
+        assertTrue(metrics.isEnabled());
+        metrics.setEnabled(false);
+        assertFalse(metrics.isEnabled());
+    }
+
+    /**
+     * Test method for {@link RenderMetrics#register(MBeanServer, String)}
+     * and {@link RenderMetrics#unregister()}.
+     *
+     * @throws Exception If something goes wrong.
+     */
+    @Test
+    public void testRegister() throws Exception {
+        MBeanServer server = MBeanServerFactory.newMBeanServer();
+        metrics.record(RenderMetrics.DEFINITION, "before", 1000L, false);
+        metrics.register(server, "test");
+        metrics.record(RenderMetrics.DEFINITION, "after,\"quoted\"", 1000L, false);
+
+        ObjectName metricsName = new ObjectName(
+                "org.apache.tiles:type=RenderMetrics,container=\"test\"");
+        ObjectName beforeName = new ObjectName("org.apache.tiles:type=RenderStatistics,"
+                + "container=\"test\",category=\"definition\",name=\"before\"");
+        ObjectName afterName = new ObjectName("org.apache.tiles:type=RenderStatistics,"
+                + "container=\"test\",category=\"definition\",name="
+                + ObjectName.quote("after,\"quoted\""));
+        assertTrue(server.isRegistered(metricsName));
+        assertTrue(server.isRegistered(beforeName));
+        assertTrue(server.isRegistered(afterName));
+        assertEquals(1L, server.getAttribute(afterName, "Count"));
+        assertEquals(Boolean.TRUE, server.getAttribute(metricsName, "Enabled"));
+
+        metrics.unregister();
+        assertFalse(server.isRegistered(metricsName));
+        assertFalse(server.isRegistered(beforeName));
+        assertFalse(server.isRegistered(afterName));
+        metrics.record(RenderMetrics.DEFINITION, "late", 1000L, false);
+        assertEquals(0, server.queryNames(new ObjectName("org.apache.tiles:*"),
+                null).size());
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.metrics;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests {@link RenderStatistics}.
+ *
+ * @version $Rev$ $Date$
+ */
+public class RenderStatisticsTest {
+
+    /**
+     * The object to test.
+     */
+    private RenderStatistics statistics;
+
+    /**
+     * Sets up the test.
+     */
+    @Before
+    public void setUp() {
+        statistics = new RenderStatistics("definition", "my.definition");
+    }
+
+    /**
+     * Test method for {@link RenderStatistics#record(long, boolean)}.
+     */
+    @Test
+    public void testRecord() {
+        statistics.record(TimeUnit.MICROSECONDS.toNanos(50L), false);
+        statistics.record(TimeUnit.MICROSECONDS.toNanos(150L), true);
+        statistics.record(TimeUnit.SECONDS.toNanos(2L), false);
+
+        assertEquals("definition", statistics.getCategory());
+        assertEquals("my.definition", statistics.getName());
+        assertEquals(3L, statistics.getCount());
+        assertEquals(1L, statistics.getFailureCount());
+        assertEquals(2000200L, statistics.getTotalTimeMicros());
+        assertEquals(2000200.0 / 3, statistics.getAverageTimeMicros(), 0.001);
+        assertEquals(2000000L, statistics.getMaxTimeMicros());
+        long[] histogram = statistics.getHistogram();
+        String[] buckets = statistics.getHistogramBuckets();
+        assertEquals(buckets.length, histogram.length);
+        assertEquals(1L, histogram[0]);
+        assertEquals(1L, histogram[1]);
+        assertEquals(1L, histogram[histogram.length - 1]);
+        assertEquals("<= 100us", buckets[0]);
+        assertEquals("> 1000000us", buckets[buckets.length - 1]);
+    }
+
+    /**
+     * Test method for {@link RenderStatistics#reset()}.
+     */
+    @Test
+    public void testReset() {
+        statistics.record(1000L, true);
+        statistics.reset();
+        assertEquals(0L, statistics.getCount());
+        assertEquals(0L, statistics.getFailureCount());
+        assertEquals(0L, statistics.getTotalTimeMicros());
+        assertEquals(0.0, statistics.getAverageTimeMicros(), 0.0);
+        assertEquals(0L, statistics.getMaxTimeMicros());
+        for (long count : statistics.getHistogram()) {
+            assertEquals(0L, count);
+        }
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.renderer;
+
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+
+import org.apache.tiles.Definition;
+import org.apache.tiles.TilesContainer;
+import org.apache.tiles.definition.NoSuchDefinitionException;
+import org.apache.tiles.request.Request;
+import org.apache.tiles.request.render.CannotRenderException;
+import org.apache.tiles.request.render.Renderer;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests {@link ClassifyingDelegateRenderer}.
+ *
+ * @version $Rev$ $Date$
+ */
+public class ClassifyingDelegateRendererTest {
+
+    /**
+     * The definition renderer.
+     */
+    private Renderer definitionRenderer;
+
+    /**
+     * The template renderer.
+     */
+    private Renderer templateRenderer;
+
+    /**
+     * The string renderer.
+     */
+    private Renderer stringRenderer;
+
+    /**
+     * The renderer to test.
+     */
+    private ClassifyingDelegateRenderer renderer;
+
+    /**
+     * Sets up the test.
+     */
+    @Before
+    public void setUp() {
+        definitionRenderer = createMock(Renderer.class);
+        templateRenderer = createMock(Renderer.class);
+        stringRenderer = createMock(Renderer.class);
+        renderer = new ClassifyingDelegateRenderer(definitionRenderer);
+        renderer.addAttributeRenderer(templateRenderer);
+        renderer.addAttributeRenderer(stringRenderer);
+    }
+
+    /**
+     * Tests that a definition is rendered by the definition renderer.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    public void testRenderDefinition() throws IOException {
+        Request request = createMock(Request.class);
+        expect(definitionRenderer.isRenderable("my.definition", request)).andReturn(true);
+        definitionRenderer.render("my.definition", request);
+
+        replay(definitionRenderer, templateRenderer, stringRenderer, request);
+        renderer.render("my.definition", request);
+        verify(definitionRenderer, templateRenderer, stringRenderer, request);
+    }
+
+    /**
+     * Tests that a definition rendered by a {@link DefinitionRenderer} is
+     * looked up only once.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    public void testRenderResolvedDefinition() throws IOException {
+        TilesContainer container = createMock(TilesContainer.class);
+        Request request = createMock(Request.class);
+        Definition definition = new Definition("my.definition", null, null);
+        renderer = new ClassifyingDelegateRenderer(new DefinitionRenderer(container));
+        renderer.addAttributeRenderer(templateRenderer);
+        renderer.addAttributeRenderer(stringRenderer);
+        expect(container.getDefinition("my.definition", request)).andReturn(definition);
+        container.render(definition, request);
+        expect(container.getDefinition("/page.jsp", request)).andReturn(null);
+        expect(container.getDefinition("Hello", request)).andThrow(
+                new NoSuchDefinitionException("Hello"));
+        expect(templateRenderer.isRenderable("/page.jsp", request)).andReturn(true);
+        templateRenderer.render("/page.jsp", request);
+        expect(templateRenderer.isRenderable("Hello", request)).andReturn(false);
+        expect(stringRenderer.isRenderable("Hello", request)).andReturn(true);
+        stringRenderer.render("Hello", request);
+
+        replay(container, templateRenderer, stringRenderer, request);
+        renderer.render("my.definition", request);
+        renderer.render("/page.jsp", request);
+        renderer.render("Hello", request);
+        verify(container, templateRenderer, stringRenderer, request);
+    }
+
+    /**
+     * Tests that the renderer of a template is chosen only the first time,
+     * while strings that fall through to the last renderer are classified
+     * every time.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    public void testRenderClassified() throws IOException {
+        Request request = createMock(Request.class);
+        expect(definitionRenderer.isRenderable("/page.jsp", request)).andReturn(false).times(2);
+        expect(definitionRenderer.isRenderable("Hello", request)).andReturn(false).times(2);
+        expect(templateRenderer.isRenderable("/page.jsp", request)).andReturn(true);
+        expect(templateRenderer.isRenderable("Hello", request)).andReturn(false).times(2);
+        expect(stringRenderer.isRenderable("Hello", request)).andReturn(true).times(2);
+        templateRenderer.render("/page.jsp", request);
+        expectLastCall().times(2);
+        stringRenderer.render("Hello", request);
+        expectLastCall().times(2);
+
+        replay(definitionRenderer, templateRenderer, stringRenderer, request);
+        renderer.render("/page.jsp", request);
+        renderer.render("/page.jsp", request);
+        renderer.render("Hello", request);
+        renderer.render("Hello", request);
+        verify(definitionRenderer, templateRenderer, stringRenderer, request);
+    }
+
+    /**
+     * Tests that nothing is remembered when the cache size is zero.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    public void testRenderNoCache() throws IOException {
+        Request request = createMock(Request.class);
+        renderer = new ClassifyingDelegateRenderer(definitionRenderer, 0);
+        renderer.addAttributeRenderer(templateRenderer);
+        renderer.addAttributeRenderer(stringRenderer);
+        expect(definitionRenderer.isRenderable("/page.jsp", request)).andReturn(false).times(2);
+        expect(templateRenderer.isRenderable("/page.jsp", request)).andReturn(true).times(2);
+        templateRenderer.render("/page.jsp", request);
+        expectLastCall().times(2);
+
+        replay(definitionRenderer, templateRenderer, stringRenderer, request);
+        renderer.render("/page.jsp", request);
+        renderer.render("/page.jsp", request);
+        verify(definitionRenderer, templateRenderer, stringRenderer, request);
+    }
+
+    /**
+     * Tests rendering a value that no renderer accepts.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test(expected = CannotRenderException.class)
+    public void testRenderException() throws IOException {
+        Request request = createMock(Request.class);
+        expect(definitionRenderer.isRenderable("value", request)).andReturn(false);
+        expect(templateRenderer.isRenderable("value", request)).andReturn(false);
+        expect(stringRenderer.isRenderable("value", request)).andReturn(false);
+
+        replay(definitionRenderer, templateRenderer, stringRenderer, request);
+        try {
+            renderer.render("value", request);
+        } finally {
+            verify(definitionRenderer, templateRenderer, stringRenderer, request);
+        }
+    }
+
+    /**
+     * Tests {@link ClassifyingDelegateRenderer#isRenderable(String, Request)}.
+     */
+    @Test
+    public void testIsRenderable() {
+        Request request = createMock(Request.class);
+        expect(definitionRenderer.isRenderable("my.definition", request)).andReturn(true);
+        expect(definitionRenderer.isRenderable("value", request)).andReturn(false);
+        expect(templateRenderer.isRenderable("value", request)).andReturn(false);
+        expect(stringRenderer.isRenderable("value", request)).andReturn(false);
+
+        replay(definitionRenderer, templateRenderer, stringRenderer, request);
+        assertTrue(renderer.isRenderable("my.definition", request));
+        assertFalse(renderer.isRenderable("value", request));
+        assertFalse(renderer.isRenderable(null, request));
+        verify(definitionRenderer, templateRenderer, stringRenderer, request);
+    }
+}
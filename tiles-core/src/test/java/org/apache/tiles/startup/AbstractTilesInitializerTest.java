@@ -24,11 +24,13 @@ package org.apache.tiles.startup;
 import static org.easymock.classextension.EasyMock.*;
 import static org.junit.Assert.*;
 
+import java.util.HashMap;
 import java.util.Map;
 
 import org.apache.tiles.TilesContainer;
 import org.apache.tiles.access.TilesAccess;
 import org.apache.tiles.factory.AbstractTilesContainerFactory;
+import org.apache.tiles.metrics.RenderMetrics;
 import org.apache.tiles.request.ApplicationAccess;
 import org.apache.tiles.request.ApplicationContext;
 import org.junit.Before;
@@ -79,9 +81,13 @@ public class AbstractTilesInitializerTest {
 
         expect(containerFactory.createContainer(context)).andReturn(container);
         expect(context.getApplicationScope()).andReturn(scope).anyTimes();
+        expect(scope.get(StartupReport.STARTUP_REPORT_ATTRIBUTE_NAME)).andReturn(null);
+        expect(scope.put(eq(StartupReport.STARTUP_REPORT_ATTRIBUTE_NAME),
+                isA(StartupReport.class))).andReturn(null);
         expect(scope.put(ApplicationAccess.APPLICATION_CONTEXT_ATTRIBUTE,
                 context)).andReturn(null);
         expect(scope.put(TilesAccess.CONTAINER_ATTRIBUTE, container)).andReturn(null);
+        expect(scope.get(RenderMetrics.RENDER_METRICS_ATTRIBUTE_NAME)).andReturn(null);
         expect(scope.remove(TilesAccess.CONTAINER_ATTRIBUTE)).andReturn(container);
 
         replay(containerFactory, context, container, scope);
@@ -90,6 +96,30 @@ public class AbstractTilesInitializerTest {
         verify(containerFactory, context, container, scope);
     }
 
+    /**
+     * Test method for {@link AbstractTilesInitializer#destroy()} when render
+     * metrics have been created.
+     */
+    @Test
+    public void testDestroyRenderMetrics() {
+        ApplicationContext context = createMock(ApplicationContext.class);
+        TilesContainer container = createMock(TilesContainer.class);
+        RenderMetrics metrics = createMock(RenderMetrics.class);
+        Map<String, Object> scope = new HashMap<String, Object>();
+        scope.put(RenderMetrics.RENDER_METRICS_ATTRIBUTE_NAME, metrics);
+
+        expect(containerFactory.createContainer(context)).andReturn(container);
+        expect(context.getApplicationScope()).andReturn(scope).anyTimes();
+        metrics.unregister();
+
+        replay(containerFactory, context, container, metrics);
+        initializer.initialize(context);
+        initializer.destroy();
+        assertNull(RenderMetrics.getRenderMetrics(context));
+        assertNull(scope.get(TilesAccess.CONTAINER_ATTRIBUTE));
+        verify(containerFactory, context, container, metrics);
+    }
+
     /**
      * Test method for {@link AbstractTilesInitializer#createTilesApplicationContext(ApplicationContext)}.
      */
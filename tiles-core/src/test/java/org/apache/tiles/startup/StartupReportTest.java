@@ -0,0 +1,105 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.tiles.startup;
+
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.tiles.request.ApplicationContext;
+import org.junit.Test;
+
+/**
+ * Tests {@link StartupReport}.
+ *
+ * @version $Rev$ $Date$
+ */
+public class StartupReportTest {
+
+    /**
+     * Test method for {@link StartupReport#getStartupReport(ApplicationContext)}.
+     */
+    @Test
+    public void testGetStartupReport() {
+        ApplicationContext context = createMock(ApplicationContext.class);
+        Map<String, Object> scope = new HashMap<String, Object>();
+
+        expect(context.getApplicationScope()).andReturn(scope).times(2);
+
+        replay(context);
+        StartupReport report = StartupReport.getStartupReport(context);
+        assertSame(report, scope.get(StartupReport.STARTUP_REPORT_ATTRIBUTE_NAME));
+        assertSame(report, StartupReport.getStartupReport(context));
+        verify(context);
+    }
+
+    /**
+     * Test method for {@link StartupReport#record(String, String, long)}.
+     */
+    @Test
+    public void testRecord() {
+        StartupReport report = new StartupReport();
+        long start = System.nanoTime();
+        report.record(StartupReport.PARSING_PHASE, "/WEB-INF/tiles.xml", start);
+        report.record(StartupReport.PARSING_PHASE, "/WEB-INF/tiles_it.xml", start);
+        report.record(StartupReport.CONTAINER_PHASE, null, start);
+
+        List<StartupPhase> phases = report.getPhases();
+        assertEquals(3, phases.size());
+        assertEquals(StartupReport.PARSING_PHASE, phases.get(0).getName());
+        assertEquals("/WEB-INF/tiles.xml", phases.get(0).getDetail());
+        assertEquals(StartupReport.CONTAINER_PHASE, phases.get(2).getName());
+        assertNull(phases.get(2).getDetail());
+        assertTrue(phases.get(2).getDurationNanos() >= phases.get(0).getDurationNanos());
+
+        List<StartupPhase> parsing = report.getPhases(StartupReport.PARSING_PHASE);
+        assertEquals(2, parsing.size());
+        assertEquals(parsing.get(0).getDurationNanos() + parsing.get(1).getDurationNanos(),
+                report.getTotalNanos(StartupReport.PARSING_PHASE));
+        assertEquals(0L, report.getTotalNanos(StartupReport.RENDERERS_PHASE));
+
+        String string = report.toString();
+        assertTrue(string.startsWith("Tiles startup report"));
+        assertTrue(string.contains("parsing [/WEB-INF/tiles_it.xml]: "));
+        assertEquals(0, report.getDiscardedPhaseCount());
+    }
+
+    /**
+     * Test method for {@link StartupReport#record(String, String, long)} when
+     * the maximum number of phases is reached.
+     */
+    @Test
+    public void testRecordLimit() {
+        StartupReport report = new StartupReport(2);
+        long start = System.nanoTime();
+        report.record(StartupReport.PARSING_PHASE, "/WEB-INF/tiles.xml", start);
+        report.record(StartupReport.PARSING_PHASE, "/WEB-INF/tiles_it.xml", start);
+        report.record(StartupReport.PARSING_PHASE, "/WEB-INF/tiles_fr.xml", start);
+
+        assertEquals(2, report.getPhases().size());
+        assertEquals(1, report.getDiscardedPhaseCount());
+        assertTrue(report.toString().endsWith("(1 more phases)"));
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.util;
+
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import org.apache.tiles.request.ApplicationContext;
+import org.apache.tiles.request.ApplicationResource;
+import org.junit.Test;
+
+/**
+ * Tests {@link ResourceIndex}.
+ *
+ * @version $Rev$ $Date$
+ */
+public class ResourceIndexTest {
+
+    /**
+     * Tests {@link ResourceIndex#exists(String)}.
+     */
+    @Test
+    public void testExists() {
+        ApplicationContext applicationContext = createMock(ApplicationContext.class);
+        ApplicationResource resource1 = createResource("/WEB-INF/tiles/page.jsp");
+        ApplicationResource resource2 = createResource("jndi:/localhost/app/WEB-INF/tiles/other.jsp");
+        ApplicationResource outside = createMock(ApplicationResource.class);
+
+        expect(applicationContext.getResources("/WEB-INF/**")).andReturn(
+                Arrays.asList(resource1, resource2));
+        expect(applicationContext.getResource("/page.jsp")).andReturn(outside);
+        expect(applicationContext.getResource("/WEB-INF/tiles/../page.jsp")).andReturn(null);
+        replay(applicationContext, resource1, resource2, outside);
+
+        ResourceIndex index = new ResourceIndex(applicationContext,
+                Collections.singletonList("/WEB-INF"), 0, null);
+        assertEquals(2, index.size());
+        assertTrue(index.exists("/WEB-INF/tiles/page.jsp"));
+        assertTrue(index.exists("/WEB-INF/tiles/other.jsp"));
+        assertFalse(index.exists("/WEB-INF/tiles/missing.jsp"));
+        assertTrue(index.exists("/page.jsp"));
+        assertFalse(index.exists("/WEB-INF/tiles/../page.jsp"));
+        verify(applicationContext, resource1, resource2, outside);
+    }
+
+    /**
+     * Tests {@link ResourceIndex#exists(String)} when the application context
+     * does not list resources.
+     */
+    @Test
+    public void testExistsNotIndexed() {
+        ApplicationContext applicationContext = createMock(ApplicationContext.class);
+        ApplicationResource resource = createMock(ApplicationResource.class);
+
+        Collection<ApplicationResource> empty = Collections.emptyList();
+        expect(applicationContext.getResources("/WEB-INF/**")).andReturn(empty);
+        expect(applicationContext.getResource("/WEB-INF/tiles/page.jsp")).andReturn(resource);
+        replay(applicationContext, resource);
+
+        ResourceIndex index = new ResourceIndex(applicationContext,
+                Collections.singletonList("/WEB-INF/"), 0, null);
+        assertTrue(index.exists("/WEB-INF/tiles/page.jsp"));
+        verify(applicationContext, resource);
+    }
+
+    /**
+     * Tests that a stale index is listed again using the refresh executor.
+     *
+     * @throws InterruptedException If the test is interrupted.
+     */
+    @Test
+    public void testRefresh() throws InterruptedException {
+        ApplicationContext applicationContext = createMock(ApplicationContext.class);
+        ApplicationResource resource1 = createResource("/WEB-INF/page.jsp");
+        ApplicationResource resource2 = createResource("/WEB-INF/page.jsp");
+        ApplicationResource resource3 = createResource("/WEB-INF/new.jsp");
+
+        expect(applicationContext.getResources("/WEB-INF/**")).andReturn(
+                Collections.singletonList(resource1));
+        expect(applicationContext.getResources("/WEB-INF/**")).andReturn(
+                Arrays.asList(resource2, resource3));
+        replay(applicationContext, resource1, resource2, resource3);
+
+        final List<Runnable> commands = new ArrayList<Runnable>();
+        Executor executor = new Executor() {
+
+            @Override
+            public void execute(Runnable command) {
+                commands.add(command);
+            }
+        };
+        ResourceIndex index = new ResourceIndex(applicationContext,
+                Collections.singletonList("/WEB-INF/"), 1, executor);
+        Thread.sleep(5);
+        assertFalse(index.exists("/WEB-INF/new.jsp"));
+        assertFalse(index.exists("/WEB-INF/new.jsp"));
+        assertEquals(1, commands.size());
+        commands.get(0).run();
+        assertTrue(index.exists("/WEB-INF/new.jsp"));
+        assertEquals(2, index.size());
+        verify(applicationContext, resource1, resource2, resource3);
+    }
+
+    /**
+     * Tests {@link ResourceIndex#getResourceIndex(ApplicationContext)} and
+     * {@link ResourceIndex#setResourceIndex(ApplicationContext, ResourceIndex)}.
+     */
+    @Test
+    public void testGetSetResourceIndex() {
+        ApplicationContext applicationContext = createMock(ApplicationContext.class);
+        Map<String, Object> scope = new HashMap<String, Object>();
+
+        Collection<ApplicationResource> empty = Collections.emptyList();
+        expect(applicationContext.getApplicationScope()).andReturn(scope).anyTimes();
+        expect(applicationContext.getResources("/WEB-INF/**")).andReturn(empty);
+        replay(applicationContext);
+
+        assertNull(ResourceIndex.getResourceIndex(applicationContext));
+        ResourceIndex index = new ResourceIndex(applicationContext,
+                Collections.singletonList("/WEB-INF/"), 0, null);
+        ResourceIndex.setResourceIndex(applicationContext, index);
+        assertSame(index, ResourceIndex.getResourceIndex(applicationContext));
+        ResourceIndex.setResourceIndex(applicationContext, null);
+        assertNull(ResourceIndex.getResourceIndex(applicationContext));
+        verify(applicationContext);
+    }
+
+    /**
+     * Creates a mock resource.
+     *
+     * @param path The path of the resource.
+     * @return The resource, to be replayed.
+     */
+    private ApplicationResource createResource(String path) {
+        ApplicationResource resource = createMock(ApplicationResource.class);
+        expect(resource.getLocalePath()).andReturn(path);
+        return resource;
+    }
+}
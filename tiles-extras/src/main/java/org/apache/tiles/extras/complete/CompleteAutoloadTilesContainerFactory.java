@@ -73,6 +73,7 @@ import org.apache.tiles.ognl.PropertyAccessorDelegateFactory;
 import org.apache.tiles.ognl.ScopePropertyAccessor;
 import org.apache.tiles.ognl.TilesApplicationContextNestedObjectExtractor;
 import org.apache.tiles.ognl.TilesContextPropertyAccessorDelegateFactory;
+import org.apache.tiles.renderer.ClassifyingDelegateRenderer;
 import org.apache.tiles.request.ApplicationContext;
 import org.apache.tiles.request.ApplicationResource;
 import org.apache.tiles.request.Request;
@@ -81,11 +82,12 @@ import org.apache.tiles.request.freemarker.render.FreemarkerRendererBuilder;
 import org.apache.tiles.request.freemarker.servlet.SharedVariableLoaderFreemarkerServlet;
 import org.apache.tiles.request.mustache.MustacheRenderer;
 import org.apache.tiles.request.render.BasicRendererFactory;
-import org.apache.tiles.request.render.ChainedDelegateRenderer;
 import org.apache.tiles.request.render.Renderer;
 import org.apache.tiles.request.servlet.ServletUtil;
 import org.apache.tiles.request.velocity.render.VelocityRenderer;
 import org.apache.tiles.request.velocity.render.VelocityRendererBuilder;
+import org.apache.tiles.web.render.CachingDispatchRenderer;
+import org.apache.tiles.web.render.EncodedStringRenderer;
 import org.mvel2.integration.VariableResolverFactory;
 
 /**
@@ -93,6 +95,8 @@ import org.mvel2.integration.VariableResolverFactory;
  * <ul>
  * <li>create supporting objects for Velocity and FreeMarker;</li>
  * <li>create renderers for Velocity, FreeMarker, and Mustache templates;</li>
+ * <li>caches the request dispatchers of JSP and servlet templates;</li>
+ * <li>caches the encoded bytes of string attributes;</li>
  * <li>allows using EL, MVEL and OGNL as attribute expressions;</li>
  * <li>allows using Wildcards and Regular Expressions in definition names;</li>
  * <li>loads Tiles 1.x definition files;</li>
@@ -159,14 +163,52 @@ public class CompleteAutoloadTilesContainerFactory extends BasicTilesContainerFa
         rendererFactory.registerRenderer(MUSTACHE_RENDERER_NAME, mustacheRenderer);
     }
 
+    /**
+     * Creates an {@link EncodedStringRenderer}, that keeps the encoded bytes of
+     * the constant strings of fragment requests.
+     *
+     * @param rendererFactory The renderer factory to configure.
+     * @param applicationContext The Tiles application context.
+     * @param container The container.
+     * @param attributeEvaluatorFactory The attribute evaluator factory.
+     * @return The renderer.
+     * @since 3.0.8
+     */
+    @Override
+    protected Renderer createStringAttributeRenderer(
+            BasicRendererFactory rendererFactory,
+            ApplicationContext applicationContext, TilesContainer container,
+            AttributeEvaluatorFactory attributeEvaluatorFactory) {
+        return new EncodedStringRenderer();
+    }
+
+    /**
+     * Creates a {@link CachingDispatchRenderer}, that keeps the request
+     * dispatchers of the templates.
+     *
+     * @param rendererFactory The renderer factory to configure.
+     * @param applicationContext The Tiles application context.
+     * @param container The container.
+     * @param attributeEvaluatorFactory The attribute evaluator factory.
+     * @return The renderer.
+     * @since 3.0.8
+     */
+    @Override
+    protected Renderer createTemplateAttributeRenderer(
+            BasicRendererFactory rendererFactory,
+            ApplicationContext applicationContext, TilesContainer container,
+            AttributeEvaluatorFactory attributeEvaluatorFactory) {
+        return new CachingDispatchRenderer();
+    }
+
     /** {@inheritDoc} */
     @Override
     protected Renderer createDefaultAttributeRenderer(BasicRendererFactory rendererFactory,
             ApplicationContext applicationContext, TilesContainer container,
             AttributeEvaluatorFactory attributeEvaluatorFactory) {
 
-        ChainedDelegateRenderer retValue = new ChainedDelegateRenderer();
-        retValue.addAttributeRenderer(rendererFactory.getRenderer(DEFINITION_RENDERER_NAME));
+        ClassifyingDelegateRenderer retValue = new ClassifyingDelegateRenderer(
+                rendererFactory.getRenderer(DEFINITION_RENDERER_NAME));
         retValue.addAttributeRenderer(rendererFactory.getRenderer(VELOCITY_RENDERER_NAME));
         retValue.addAttributeRenderer(rendererFactory.getRenderer(FREEMARKER_RENDERER_NAME));
         retValue.addAttributeRenderer(rendererFactory.getRenderer(MUSTACHE_RENDERER_NAME));
@@ -21,8 +21,13 @@
 package org.apache.tiles.extras.renderer;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -30,12 +35,17 @@ import java.util.regex.Pattern;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import org.apache.tiles.Attribute;
 import org.apache.tiles.ListAttribute;
 import org.apache.tiles.access.TilesAccess;
 import org.apache.tiles.request.ApplicationContext;
 import org.apache.tiles.request.Request;
 import org.apache.tiles.request.render.Renderer;
+import org.apache.tiles.util.ResourceIndex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -68,11 +78,16 @@ import org.slf4j.LoggerFactory;
  * <p/>
  * Limitation: "looking" for templates is implemented using applicationContext.getResource(..)
  * therefore the option values in the options list need to be visible as applicationResources.
+ * If a {@link ResourceIndex} is stored in the application scope, templates under its roots are looked up
+ * in the index instead.
  * <p/>
- * The attribute found and rendered is cached so to improve performance on subsequent lookups.
+ * The templates that exist for a path and a list of options are cached by each renderer instance, so to improve
+ * performance on subsequent lookups. Concurrent lookups of the same path and options wait for a single resolution.
  * The default cache time-to-live is {@value #DEFAULT_CACHE_LIFE}, specified by {@link #DEFAULT_CACHE_LIFE}.
  * It can be customised by setting the system property {@value #CACHE_LIFE_PROPERTY}, see {@link #CACHE_LIFE_PROPERTY}.
  * Setting it to zero will disable the cache.
+ * After the time-to-live an entry is refreshed using the executor given to the constructor, while the old value
+ * keeps being used. Without an executor the refresh is done by the first request that finds the entry stale.
  */
 public final class OptionsRenderer implements Renderer {
 
@@ -85,12 +100,41 @@ public final class OptionsRenderer implements Renderer {
 
     private static final Logger LOG = LoggerFactory.getLogger(OptionsRenderer.class);
 
+    /** The text that starts an options pattern, checked before using the regular expression. */
+    private static final String OPTIONS_START = "{options[";
+
+    /** The maximum number of cached paths, and of cached resolutions. */
+    private static final int MAX_CACHE_SIZE = 10000;
+
     private final ApplicationContext applicationContext;
     private final Renderer renderer;
 
+    /** The parsed paths containing an options pattern. */
+    private final ConcurrentMap<String, PathTemplate> pathTemplates = new ConcurrentHashMap<String, PathTemplate>();
+
+    /** Maps a path and a list of options to the existing templates, or null if the cache is disabled. */
+    private final LoadingCache<Resolution, List<String>> resolutions;
+
     public OptionsRenderer(final ApplicationContext applicationContext, final Renderer renderer) {
+        this(applicationContext, renderer, null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param applicationContext The application context, used to look up templates.
+     * @param renderer The renderer of the found templates.
+     * @param refreshExecutor The executor of the refreshes of expired cache entries,
+     * or null to refresh them in the requesting thread.
+     * @since 3.0.8
+     */
+    public OptionsRenderer(final ApplicationContext applicationContext, final Renderer renderer,
+            final Executor refreshExecutor) {
         this.applicationContext = applicationContext;
         this.renderer = renderer;
+        long cacheLife = Long.getLong(CACHE_LIFE_PROPERTY, DEFAULT_CACHE_LIFE);
+        LOG.info("cache_ttl_ms=" + cacheLife);
+        resolutions = cacheLife > 0 ? createCache(cacheLife, refreshExecutor) : null;
     }
 
     @Override
@@ -101,11 +145,10 @@ public final class OptionsRenderer implements Renderer {
     @Override
     public void render(final String path, final Request request) throws IOException {
 
-        Matcher matcher =  OPTIONS_PATTERN.matcher((String) path);
+        PathTemplate pathTemplate = getPathTemplate(path);
 
-        if (null != matcher && matcher.find()) {
-            boolean done = false;
-            String match = matcher.group(1);
+        if (null != pathTemplate) {
+            String match = pathTemplate.listName;
             ListAttribute fallbacks = (ListAttribute) TilesAccess
                     .getCurrentContainer(request)
                     .getAttributeContext(request)
@@ -118,8 +161,15 @@ public final class OptionsRenderer implements Renderer {
                         "list-attribute name=\"" + match + "\" must have minimum one attribute");
             }
 
+            List<String> options = new ArrayList<String>(fallbacks.getValue().size());
             for (Attribute option : (List<Attribute>) fallbacks.getValue()) {
-                String template = path.replaceFirst(Pattern.quote(matcher.group()), (String) option.getValue());
+                options.add((String) option.getValue());
+            }
+            Resolution resolution = new Resolution(pathTemplate, options);
+            List<String> templates = resolve(resolution);
+
+            boolean done = false;
+            for (String template : templates) {
                 done = renderAttempt(template, request);
                 if (done) { break; }
             }
@@ -131,72 +181,166 @@ public final class OptionsRenderer implements Renderer {
         }
     }
 
+    private List<String> resolve(final Resolution resolution) {
+        if (resolutions == null) {
+            return resolution.resolve(applicationContext);
+        }
+        try {
+            return resolutions.getUnchecked(resolution);
+        } catch (UncheckedExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw ex;
+        }
+    }
+
+    private PathTemplate getPathTemplate(final String path) {
+        if (path.indexOf(OPTIONS_START) < 0) {
+            return null;
+        }
+        PathTemplate retValue = pathTemplates.get(path);
+        if (retValue == null) {
+            Matcher matcher = OPTIONS_PATTERN.matcher(path);
+            if (!matcher.find()) {
+                return null;
+            }
+            retValue = new PathTemplate(path.substring(0, matcher.start()), matcher.group(1),
+                    path.substring(matcher.end()));
+            if (pathTemplates.size() < MAX_CACHE_SIZE) {
+                pathTemplates.putIfAbsent(path, retValue);
+            }
+        }
+        return retValue;
+    }
+
     private boolean renderAttempt(final String template, final Request request) throws IOException {
         boolean result = false;
-        if (Cache.attemptTemplate(template)) {
-            try {
-                if (null != applicationContext.getResource(template)) {
-                    renderer.render(template, request);
-                    result = true;
-                }
-            } catch (IOException ex) {
-                if (ex.getMessage().contains(template)) {
-                    // expected outcome. continue loop.
-                    LOG.trace(ex.getMessage());
-                } else {
-                    // comes from an inner templateAttribute.render(..) so throw on
-                    throw ex;
-                }
-            } catch (RuntimeException ex) {
-                if (ex.getMessage().contains(template)) {
-                    // expected outcome. continue loop.
-                    LOG.trace(ex.getMessage());
-                } else {
-                    // comes from an inner templateAttribute.render(..) so throw on
-                    throw ex;
-                }
+        try {
+            renderer.render(template, request);
+            result = true;
+        } catch (IOException ex) {
+            if (ex.getMessage().contains(template)) {
+                // expected outcome. continue loop.
+                LOG.trace(ex.getMessage());
+            } else {
+                // comes from an inner templateAttribute.render(..) so throw on
+                throw ex;
+            }
+        } catch (RuntimeException ex) {
+            if (ex.getMessage().contains(template)) {
+                // expected outcome. continue loop.
+                LOG.trace(ex.getMessage());
+            } else {
+                // comes from an inner templateAttribute.render(..) so throw on
+                throw ex;
             }
-            Cache.update(template, result);
         }
         return result;
     }
 
-    private static final class Cache {
+    private LoadingCache<Resolution, List<String>> createCache(final long cacheLife, final Executor refreshExecutor) {
+        final Executor executor = refreshExecutor != null ? refreshExecutor : MoreExecutors.sameThreadExecutor();
+        return CacheBuilder
+                .newBuilder()
+                .maximumSize(MAX_CACHE_SIZE)
+                .refreshAfterWrite(cacheLife, TimeUnit.MILLISECONDS)
+                .build(
+                    new CacheLoader<Resolution, List<String>>() {
+                        @Override
+                        public List<String> load(final Resolution key) {
+                            return key.resolve(applicationContext);
+                        }
 
-        private static final long CACHE_LIFE = Long.getLong(CACHE_LIFE_PROPERTY, DEFAULT_CACHE_LIFE);
+                        @Override
+                        public ListenableFuture<List<String>> reload(final Resolution key,
+                                final List<String> oldValue) {
+                            ListenableFutureTask<List<String>> task = ListenableFutureTask.create(
+                                    new Callable<List<String>>() {
+                                        @Override
+                                        public List<String> call() {
+                                            return key.resolve(applicationContext);
+                                        }
+                                    });
+                            executor.execute(task);
+                            return task;
+                        }
+                    });
+    }
 
-        /** It takes CACHE_LIFE milliseconds for any hot deployments to register.
-         */
-        private static final ConcurrentMap<String,Boolean> TEMPLATE_EXISTS;
-        
-        static {
-            LOG.info("cache_ttl_ms=" + CACHE_LIFE);
-
-            LoadingCache<String,Boolean> builder = CacheBuilder
-                    .newBuilder()
-                    .expireAfterWrite(CACHE_LIFE, TimeUnit.MILLISECONDS)
-                    .build(
-                        new CacheLoader<String, Boolean>() {
-                            @Override
-                            public Boolean load(String key) {
-                                throw new UnsupportedOperationException(
-                                        "illegal TEMPLATE_EXISTS.get(\"" + key
-                                        + "\") before TEMPLATE_EXISTS.containsKey(\"" + key + "\")");
-                            }
-                        });
-
-            TEMPLATE_EXISTS = builder.asMap();
+    /**
+     * A path split around its options pattern, so that templates are built by concatenation.
+     */
+    private static final class PathTemplate {
+
+        private final String prefix;
+        private final String listName;
+        private final String suffix;
+
+        private PathTemplate(final String prefix, final String listName, final String suffix) {
+            this.prefix = prefix;
+            this.listName = listName;
+            this.suffix = suffix;
+        }
+
+        private String getTemplate(final String option) {
+            return prefix + option + suffix;
         }
+    }
+
+    /**
+     * A path with the options to try, i.e. the key of the cache.
+     */
+    private static final class Resolution {
 
+        private final PathTemplate pathTemplate;
+        private final List<String> options;
+
+        private Resolution(final PathTemplate pathTemplate, final List<String> options) {
+            this.pathTemplate = pathTemplate;
+            this.options = options;
+        }
 
-        static boolean attemptTemplate(final String template) {
-            return !TEMPLATE_EXISTS.containsKey(template) || TEMPLATE_EXISTS.get(template);
+        /**
+         * Returns the templates that exist, in order of preference.
+         */
+        private List<String> resolve(final ApplicationContext applicationContext) {
+            List<String> retValue = new ArrayList<String>(options.size());
+            ResourceIndex index = ResourceIndex.getResourceIndex(applicationContext);
+            for (String option : options) {
+                String template = pathTemplate.getTemplate(option);
+                try {
+                    if (index != null ? index.exists(template) : null != applicationContext.getResource(template)) {
+                        retValue.add(template);
+                    }
+                } catch (RuntimeException ex) {
+                    if (ex.getMessage() != null && ex.getMessage().contains(template)) {
+                        // expected outcome. continue loop.
+                        LOG.trace(ex.getMessage());
+                    } else {
+                        throw ex;
+                    }
+                }
+            }
+            return Collections.unmodifiableList(retValue);
         }
 
-        static void update(final String template, final boolean found) {
-            TEMPLATE_EXISTS.putIfAbsent(template, found);
+        @Override
+        public boolean equals(final Object obj) {
+            if (!(obj instanceof Resolution)) {
+                return false;
+            }
+            Resolution resolution = (Resolution) obj;
+            return pathTemplate.prefix.equals(resolution.pathTemplate.prefix)
+                    && pathTemplate.listName.equals(resolution.pathTemplate.listName)
+                    && pathTemplate.suffix.equals(resolution.pathTemplate.suffix)
+                    && options.equals(resolution.options);
         }
 
-        private Cache() {}
+        @Override
+        public int hashCode() {
+            return ((pathTemplate.prefix.hashCode() * 31 + pathTemplate.listName.hashCode()) * 31
+                    + pathTemplate.suffix.hashCode()) * 31 + options.hashCode();
+        }
     }
 }
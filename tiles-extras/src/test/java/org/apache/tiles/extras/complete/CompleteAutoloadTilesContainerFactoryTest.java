@@ -48,18 +48,18 @@ import org.apache.tiles.evaluator.AttributeEvaluatorFactory;
 import org.apache.tiles.evaluator.BasicAttributeEvaluatorFactory;
 import org.apache.tiles.impl.mgmt.CachingTilesContainer;
 import org.apache.tiles.locale.LocaleResolver;
+import org.apache.tiles.renderer.ClassifyingDelegateRenderer;
 import org.apache.tiles.renderer.DefinitionRenderer;
 import org.apache.tiles.request.ApplicationContext;
 import org.apache.tiles.request.ApplicationResource;
 import org.apache.tiles.request.freemarker.render.FreemarkerRenderer;
 import org.apache.tiles.request.mustache.MustacheRenderer;
 import org.apache.tiles.request.render.BasicRendererFactory;
-import org.apache.tiles.request.render.ChainedDelegateRenderer;
-import org.apache.tiles.request.render.DispatchRenderer;
 import org.apache.tiles.request.render.Renderer;
-import org.apache.tiles.request.render.StringRenderer;
 import org.apache.tiles.request.servlet.ServletApplicationContext;
 import org.apache.tiles.request.velocity.render.VelocityRenderer;
+import org.apache.tiles.web.render.CachingDispatchRenderer;
+import org.apache.tiles.web.render.EncodedStringRenderer;
 import org.apache.velocity.tools.view.VelocityView;
 import org.junit.Before;
 import org.junit.Test;
@@ -117,8 +117,8 @@ public class CompleteAutoloadTilesContainerFactoryTest {
         AttributeEvaluatorFactory attributeEvaluatorFactory = createMock(AttributeEvaluatorFactory.class);
         ServletContext servletContext = createMock(ServletContext.class);
 
-        rendererFactory.registerRenderer(eq("string"), isA(StringRenderer.class));
-        rendererFactory.registerRenderer(eq("template"), isA(DispatchRenderer.class));
+        rendererFactory.registerRenderer(eq("string"), isA(EncodedStringRenderer.class));
+        rendererFactory.registerRenderer(eq("template"), isA(CachingDispatchRenderer.class));
         rendererFactory.registerRenderer(eq("definition"), isA(DefinitionRenderer.class));
         rendererFactory.registerRenderer(eq("freemarker"), isA(FreemarkerRenderer.class));
         rendererFactory.registerRenderer(eq("velocity"), isA(VelocityRenderer.class));
@@ -172,7 +172,7 @@ public class CompleteAutoloadTilesContainerFactoryTest {
         replay(container, attributeEvaluatorFactory, rendererFactory, applicationContext);
         Renderer renderer = factory.createDefaultAttributeRenderer(rendererFactory, applicationContext, container,
                 attributeEvaluatorFactory);
-        assertTrue("The default renderer class is not correct", renderer instanceof ChainedDelegateRenderer);
+        assertTrue("The default renderer class is not correct", renderer instanceof ClassifyingDelegateRenderer);
         verify(container, attributeEvaluatorFactory, rendererFactory, applicationContext);
     }
 
@@ -27,6 +27,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.StringWriter;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
@@ -39,7 +40,9 @@ import org.apache.tiles.request.ApplicationResource;
 
 import org.apache.tiles.request.Request;
 import org.apache.tiles.request.locale.PostfixedApplicationResource;
+import org.apache.tiles.request.render.Renderer;
 import org.apache.tiles.request.render.StringRenderer;
+import org.apache.tiles.util.ResourceIndex;
 import org.junit.Test;
 
 /**
@@ -109,7 +112,7 @@ public final class OptionsRendererTest {
         requestScope.put(TilesAccess.CURRENT_CONTAINER_ATTRIBUTE_NAME, container);
 
         expect(request.getContext(matches("request"))).andReturn(requestScope).anyTimes();
-        expect(request.getApplicationContext()).andReturn(context);
+        expect(request.getApplicationContext()).andReturn(context).anyTimes();
         expect(request.getWriter()).andReturn(writer);
         replay(request);
 
@@ -126,6 +129,79 @@ public final class OptionsRendererTest {
         verify(request);
     }
 
+    /**
+     * Tests that the existing templates are looked up once for the same path and options.
+     *
+     * @throws IOException If something goes wrong during rendition.
+     */
+    @Test
+    public void testWriteCached() throws IOException {
+        Request request = createMock(Request.class);
+        ApplicationContext applicationContext = createMock(ApplicationContext.class);
+        Renderer delegate = createMock(Renderer.class);
+
+        requestScope.put(TilesAccess.CURRENT_CONTAINER_ATTRIBUTE_NAME, container);
+
+        expect(request.getContext(matches("request"))).andReturn(requestScope).anyTimes();
+        expect(request.getApplicationContext()).andReturn(context).anyTimes();
+        expect(applicationContext.getApplicationScope()).andReturn(new HashMap<String, Object>()).anyTimes();
+        expect(applicationContext.getResource("/a/content.jsp")).andReturn(null);
+        expect(applicationContext.getResource("/b/content.jsp")).andReturn(template);
+        delegate.render("/b/content.jsp", request);
+        expectLastCall().times(2);
+        replay(request, applicationContext, delegate);
+
+        container
+                .getAttributeContext(request)
+                .putAttribute("test-fallback", new ListAttribute(){{
+                    add(new Attribute("a"));
+                    add(new Attribute("b"));
+                }});
+
+        OptionsRenderer renderer = new OptionsRenderer(applicationContext, delegate);
+        renderer.render("/{options[test-fallback]}/content.jsp", request);
+        renderer.render("/{options[test-fallback]}/content.jsp", request);
+        verify(request, applicationContext, delegate);
+    }
+
+    /**
+     * Tests that the existing templates are looked up in the resource index, if present.
+     *
+     * @throws IOException If something goes wrong during rendition.
+     */
+    @Test
+    public void testWriteIndexed() throws IOException {
+        Request request = createMock(Request.class);
+        ApplicationContext applicationContext = createMock(ApplicationContext.class);
+        ApplicationResource indexed = createMock(ApplicationResource.class);
+        Renderer delegate = createMock(Renderer.class);
+        Map<String, Object> scope = new HashMap<String, Object>();
+
+        requestScope.put(TilesAccess.CURRENT_CONTAINER_ATTRIBUTE_NAME, container);
+
+        expect(request.getContext(matches("request"))).andReturn(requestScope).anyTimes();
+        expect(request.getApplicationContext()).andReturn(context).anyTimes();
+        expect(applicationContext.getApplicationScope()).andReturn(scope).anyTimes();
+        expect(applicationContext.getResources("/WEB-INF/**")).andReturn(
+                Collections.singletonList(indexed));
+        expect(indexed.getLocalePath()).andReturn("file:/app/WEB-INF/b/content.jsp");
+        delegate.render("/WEB-INF/b/content.jsp", request);
+        replay(request, applicationContext, indexed, delegate);
+
+        ResourceIndex.setResourceIndex(applicationContext, new ResourceIndex(applicationContext,
+                Collections.singletonList("/WEB-INF/"), 0, null));
+        container
+                .getAttributeContext(request)
+                .putAttribute("test-fallback", new ListAttribute(){{
+                    add(new Attribute("a"));
+                    add(new Attribute("b"));
+                }});
+
+        OptionsRenderer renderer = new OptionsRenderer(applicationContext, delegate);
+        renderer.render("/WEB-INF/{options[test-fallback]}/content.jsp", request);
+        verify(request, applicationContext, indexed, delegate);
+    }
+
     /**
      * Tests
      * {@link OptionsRenderer#isRenderable(String, Request)}.
@@ -0,0 +1,233 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.web.render;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.RequestDispatcher;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.tiles.request.AbstractRequest;
+import org.apache.tiles.request.DispatchRequest;
+import org.apache.tiles.request.Request;
+import org.apache.tiles.request.RequestWrapper;
+import org.apache.tiles.request.render.DispatchRenderer;
+import org.apache.tiles.request.servlet.ServletRequest;
+import org.apache.tiles.request.servlet.ServletUtil;
+
+/**
+ * {@link DispatchRenderer} that keeps the {@link RequestDispatcher} of every
+ * template path, so that the servlet container maps the path only the first
+ * time it is rendered.
+ * <p>
+ * Dispatchers are obtained from the {@link ServletContext}, so only absolute
+ * paths are cached, and only when the request is a plain
+ * {@link ServletRequest}: view requests, e.g. the ones of JSP pages, include
+ * through their own page context and are dispatched by
+ * {@link DispatchRenderer}. Paths without a dispatcher are remembered too,
+ * and fail without asking the servlet container again.
+ * </p>
+ * <p>
+ * The cache belongs to the servlet context it has been filled from: when a
+ * request comes from another servlet context, e.g. after the application has
+ * been redeployed, the cache is discarded. The number of cached paths is
+ * bounded: once the limit is reached, other paths are mapped every time.
+ * </p>
+ *
+ * @version $Rev$ $Date$
+ * @since 3.0.8
+ */
+public class CachingDispatchRenderer extends DispatchRenderer {
+
+    /**
+     * The default maximum number of cached paths.
+     */
+    public static final int DEFAULT_CACHE_SIZE = 1000;
+
+    /**
+     * Marks the paths without a dispatcher.
+     */
+    private static final Object MISSING = new Object();
+
+    /**
+     * The maximum number of cached paths.
+     */
+    private final int cacheSize;
+
+    /**
+     * The cache of the current servlet context.
+     */
+    private volatile DispatcherCache cache;
+
+    /**
+     * Constructor.
+     */
+    public CachingDispatchRenderer() {
+        this(DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param cacheSize The maximum number of cached paths.
+     */
+    public CachingDispatchRenderer(int cacheSize) {
+        this.cacheSize = cacheSize;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void render(String path, Request request) throws IOException {
+        ServletRequest servletRequest = getServletRequest(request);
+        if (path == null || servletRequest == null || !path.startsWith("/")) {
+            super.render(path, request);
+            return;
+        }
+        Object context = servletRequest.getApplicationContext().getContext();
+        if (!(context instanceof ServletContext)) {
+            super.render(path, request);
+            return;
+        }
+
+        RequestDispatcher rd = getRequestDispatcher(path, (ServletContext) context);
+        if (rd == null) {
+            throw new IOException("No request dispatcher returned for path '"
+                    + path + "'");
+        }
+        HttpServletRequest req = servletRequest.getRequest();
+        HttpServletResponse res = servletRequest.getResponse();
+        // Same choice between forward and include as ServletRequest.
+        boolean include = Boolean.TRUE.equals(req
+                .getAttribute(AbstractRequest.FORCE_INCLUDE_ATTRIBUTE_NAME));
+        if (!include) {
+            req.setAttribute(AbstractRequest.FORCE_INCLUDE_ATTRIBUTE_NAME,
+                    Boolean.TRUE);
+            include = res.isCommitted();
+        }
+        try {
+            if (include) {
+                rd.include(req, res);
+            } else {
+                rd.forward(req, res);
+            }
+        } catch (ServletException ex) {
+            throw ServletUtil.wrapServletException(ex, "ServletException "
+                    + (include ? "including" : "forwarding") + " path '" + path + "'.");
+        }
+    }
+
+    /**
+     * Discards all the cached paths.
+     */
+    public void clear() {
+        cache = null;
+    }
+
+    /**
+     * Returns the dispatcher of a path, from the cache if possible.
+     *
+     * @param path The absolute path.
+     * @param servletContext The servlet context of the request.
+     * @return The dispatcher, or <code>null</code> if the path has no
+     * dispatcher.
+     */
+    private RequestDispatcher getRequestDispatcher(String path,
+            ServletContext servletContext) {
+        DispatcherCache current = cache;
+        if (current == null || current.servletContext != servletContext) {
+            current = new DispatcherCache(servletContext);
+            cache = current;
+        }
+
+        Object retValue = current.dispatchers.get(path);
+        if (retValue == null) {
+            retValue = servletContext.getRequestDispatcher(path);
+            if (retValue == null) {
+                retValue = MISSING;
+            }
+            if (current.count.get() < cacheSize
+                    && current.dispatchers.putIfAbsent(path, retValue) == null) {
+                current.count.incrementAndGet();
+            }
+        }
+        return retValue != MISSING ? (RequestDispatcher) retValue : null;
+    }
+
+    /**
+     * Returns the servlet request that is dispatched by
+     * {@link DispatchRenderer}, if it is a plain {@link ServletRequest}.
+     *
+     * @param request The request.
+     * @return The servlet request, or <code>null</code> if the request must be
+     * dispatched by {@link DispatchRenderer}.
+     */
+    static ServletRequest getServletRequest(Request request) {
+        Request currentRequest = request;
+        // Stops at the same request as DispatchRenderer, e.g. a view request.
+        while (!(currentRequest instanceof DispatchRequest)
+                && currentRequest instanceof RequestWrapper) {
+            currentRequest = ((RequestWrapper) currentRequest).getWrappedRequest();
+        }
+        // Subclasses may override the way they dispatch.
+        if (currentRequest == null
+                || currentRequest.getClass() != ServletRequest.class) {
+            return null;
+        }
+        return (ServletRequest) currentRequest;
+    }
+
+    /**
+     * The dispatchers obtained from a servlet context.
+     */
+    private static final class DispatcherCache {
+
+        /**
+         * The servlet context.
+         */
+        private final ServletContext servletContext;
+
+        /**
+         * Maps a path to its dispatcher, or to {@link #MISSING}.
+         */
+        private final ConcurrentMap<String, Object> dispatchers =
+            new ConcurrentHashMap<String, Object>();
+
+        /**
+         * The number of cached paths.
+         */
+        private final AtomicInteger count = new AtomicInteger();
+
+        /**
+         * Constructor.
+         *
+         * @param servletContext The servlet context.
+         */
+        private DispatcherCache(ServletContext servletContext) {
+            this.servletContext = servletContext;
+        }
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.web.render;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.apache.tiles.renderer.ConstantValueRenderer;
+import org.apache.tiles.request.Request;
+import org.apache.tiles.request.render.StringRenderer;
+import org.apache.tiles.request.servlet.ServletRequest;
+
+/**
+ * {@link StringRenderer} that can write strings to the output stream of the
+ * response, keeping the encoded bytes of constant strings, so that they are
+ * encoded only the first time they are rendered.
+ * <p>
+ * A servlet response can be written either through its writer or through its
+ * output stream, so bytes are written only when the code that owns the
+ * response allows it, by setting the {@link #BYTE_OUTPUT_ATTRIBUTE} request
+ * attribute to {@link Boolean#TRUE}, and only when the request is a plain
+ * {@link ServletRequest}: view requests, e.g. the ones of JSP pages, have a
+ * writer of their own and are rendered by {@link StringRenderer}. If the
+ * writer of the response is already in use, the attribute is removed and the
+ * string is written through the writer. In Tiles, only the fragment requests
+ * of {@link org.apache.tiles.web.util.TilesDispatchServlet} allow it: the
+ * strings of a full page are rendered by its template, through a view
+ * request.
+ * </p>
+ * <p>
+ * Only the bytes of constant values, i.e. of attributes without an
+ * expression, are kept, per character encoding of the response, since the
+ * results of expressions may be different in every request. The number of
+ * kept strings is bounded: once the limit is reached, other strings are
+ * encoded every time.
+ * </p>
+ *
+ * @version $Rev$ $Date$
+ * @since 3.0.8
+ */
+public class EncodedStringRenderer extends StringRenderer implements
+        ConstantValueRenderer {
+
+    /**
+     * The name of the request attribute that allows writing bytes to the
+     * output stream of the response.
+     */
+    public static final String BYTE_OUTPUT_ATTRIBUTE =
+        EncodedStringRenderer.class.getName() + ".BYTE_OUTPUT";
+
+    /**
+     * The default maximum number of kept strings.
+     */
+    public static final int DEFAULT_CACHE_SIZE = 1000;
+
+    /**
+     * Maps a character encoding to the bytes of the strings.
+     */
+    private final ConcurrentMap<String, ConcurrentMap<String, byte[]>> encodings =
+        new ConcurrentHashMap<String, ConcurrentMap<String, byte[]>>();
+
+    /**
+     * The number of kept strings.
+     */
+    private final AtomicInteger cachedValues = new AtomicInteger();
+
+    /**
+     * The maximum number of kept strings.
+     */
+    private final int cacheSize;
+
+    /**
+     * Constructor.
+     */
+    public EncodedStringRenderer() {
+        this(DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param cacheSize The maximum number of kept strings.
+     */
+    public EncodedStringRenderer(int cacheSize) {
+        this.cacheSize = cacheSize;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void render(String value, Request request) throws IOException {
+        render(value, request, false);
+    }
+
+    /** {@inheritDoc} */
+    public void renderConstant(String value, Request request) throws IOException {
+        render(value, request, true);
+    }
+
+    /**
+     * Renders a string, writing bytes if allowed.
+     *
+     * @param value The string.
+     * @param request The request.
+     * @param constant If <code>true</code> the bytes of the string are kept.
+     * @throws IOException If something goes wrong when writing.
+     */
+    private void render(String value, Request request, boolean constant)
+            throws IOException {
+        ServletRequest servletRequest = value != null ? CachingDispatchRenderer
+                .getServletRequest(request) : null;
+        if (servletRequest != null) {
+            HttpServletRequest req = servletRequest.getRequest();
+            if (Boolean.TRUE.equals(req.getAttribute(BYTE_OUTPUT_ATTRIBUTE))) {
+                byte[] bytes = getBytes(value, servletRequest.getResponse()
+                        .getCharacterEncoding(), constant);
+                if (bytes != null) {
+                    try {
+                        servletRequest.getOutputStream().write(bytes);
+                        return;
+                    } catch (IllegalStateException e) {
+                        // The writer is in use, do not try again.
+                        req.removeAttribute(BYTE_OUTPUT_ATTRIBUTE);
+                    }
+                }
+            }
+        }
+        super.render(value, request);
+    }
+
+    /**
+     * Returns the encoded bytes of a string, from the cache if possible.
+     *
+     * @param value The string.
+     * @param encoding The character encoding.
+     * @param constant If <code>true</code> the string is constant, and its
+     * bytes can be kept.
+     * @return The bytes, or <code>null</code> if the encoding is not supported.
+     */
+    private byte[] getBytes(String value, String encoding, boolean constant) {
+        if (encoding == null) {
+            return null;
+        }
+        if (!constant) {
+            try {
+                return value.getBytes(encoding);
+            } catch (UnsupportedEncodingException e) {
+                return null;
+            }
+        }
+        ConcurrentMap<String, byte[]> values = encodings.get(encoding);
+        if (values != null) {
+            byte[] retValue = values.get(value);
+            if (retValue != null) {
+                return retValue;
+            }
+        }
+
+        byte[] retValue;
+        try {
+            retValue = value.getBytes(encoding);
+        } catch (UnsupportedEncodingException e) {
+            return null;
+        }
+
+        if (cachedValues.get() < cacheSize) {
+            if (values == null) {
+                values = new ConcurrentHashMap<String, byte[]>();
+                ConcurrentMap<String, byte[]> existing = encodings.putIfAbsent(
+                        encoding, values);
+                if (existing != null) {
+                    values = existing;
+                }
+            }
+            if (values.putIfAbsent(value, retValue) == null) {
+                cachedValues.incrementAndGet();
+            }
+        }
+        return retValue;
+    }
+}
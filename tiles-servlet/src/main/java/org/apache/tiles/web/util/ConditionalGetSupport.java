@@ -0,0 +1,393 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.web.util;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.tiles.Attribute;
+import org.apache.tiles.AttributeContext;
+import org.apache.tiles.BasicAttributeContext;
+import org.apache.tiles.Definition;
+import org.apache.tiles.TilesContainer;
+import org.apache.tiles.TilesContainerWrapper;
+import org.apache.tiles.definition.DefinitionsFactory;
+import org.apache.tiles.definition.NoSuchDefinitionException;
+import org.apache.tiles.definition.ReusableDefinitionsFactory;
+import org.apache.tiles.impl.BasicTilesContainer;
+import org.apache.tiles.locale.LocaleResolver;
+import org.apache.tiles.locale.impl.DefaultLocaleResolver;
+import org.apache.tiles.request.ApplicationResource;
+import org.apache.tiles.request.Request;
+
+/**
+ * Answers conditional GET requests for static definitions, i.e. definitions
+ * without preparers, expressions and roles, whose attributes are constant
+ * strings, templates or other static definitions.
+ * <p>
+ * The entity tag of a static definition is a digest of the resolved
+ * definitions, of the locale and of the last modification times of the
+ * templates, so it changes when definitions are reloaded or templates are
+ * modified. The locale is the one resolved by the definitions factory of the
+ * container, and since it usually comes from the request the responses vary
+ * on <code>Accept-Language</code>. The last modification time is the latest of
+ * the templates, or the time the resolved definitions were first seen if
+ * later, so that a definition reload advances it too; it does not depend on
+ * the locale, so that clients cannot fill the remembered times by sending
+ * many locales.
+ * </p>
+ * <p>
+ * Templates are expected to produce the same output for the same attributes:
+ * a template that depends on the request must not be used by a definition
+ * served with conditional GET support.
+ * </p>
+ *
+ * @version $Rev$ $Date$
+ * @since 3.0.8
+ */
+final class ConditionalGetSupport {
+
+    /**
+     * The maximum depth of nested definitions.
+     */
+    private static final int MAX_DEPTH = 8;
+
+    /**
+     * The maximum number of remembered entity tags.
+     */
+    private static final int MAX_ENTITY_TAGS = 10000;
+
+    /**
+     * Resolves the locale when the container has no definitions factory that
+     * can do it.
+     */
+    private static final LocaleResolver DEFAULT_LOCALE_RESOLVER = new DefaultLocaleResolver();
+
+    /**
+     * Maps the digest of resolved definitions to the time it was first seen.
+     */
+    private final ConcurrentMap<String, Long> firstSeen = new ConcurrentHashMap<String, Long>();
+
+    /**
+     * The number of remembered entity tags.
+     */
+    private final AtomicInteger firstSeenCount = new AtomicInteger();
+
+    /**
+     * Checks if the response to a request can be a "304 Not Modified". If the
+     * definition is static, the validators are set in the response, and if
+     * they match the request the status is set to 304.
+     *
+     * @param container The container.
+     * @param definitionName The name of the definition to render.
+     * @param request The Tiles request.
+     * @param req The servlet request.
+     * @param res The servlet response.
+     * @return <code>true</code> if the status has been set to 304, so that the
+     * definition must not be rendered.
+     * @throws IOException If the templates cannot be accessed.
+     */
+    boolean checkNotModified(TilesContainer container, String definitionName,
+            Request request, HttpServletRequest req, HttpServletResponse res)
+            throws IOException {
+        String method = req.getMethod();
+        if (!"GET".equals(method) && !"HEAD".equals(method)) {
+            return false;
+        }
+        Definition definition;
+        try {
+            definition = container.getDefinition(definitionName, request);
+        } catch (NoSuchDefinitionException e) {
+            return false;
+        }
+        if (definition == null) {
+            return false;
+        }
+        AttributeContext context = new BasicAttributeContext(container.getAttributeContext(request));
+        context.inherit(definition);
+
+        Validator validator = new Validator();
+        if (!validator.appendContext(container, request, definitionName, context,
+                new HashSet<String>(), 0)) {
+            return false;
+        }
+
+        String contentDigest = validator.getDigest();
+        String entityTag = '"' + digest(contentDigest + ";locale:"
+                + getCustomizationKey(container, request)) + '"';
+        long lastModified = getLastModified(contentDigest, validator.lastModified);
+        res.setHeader("ETag", entityTag);
+        res.setHeader("Vary", "Accept-Language");
+        if (lastModified > 0) {
+            res.setDateHeader("Last-Modified", lastModified);
+        }
+
+        String ifNoneMatch = req.getHeader("If-None-Match");
+        boolean notModified;
+        if (ifNoneMatch != null) {
+            notModified = matches(ifNoneMatch, entityTag);
+        } else {
+            long ifModifiedSince = req.getDateHeader("If-Modified-Since");
+            notModified = lastModified > 0 && ifModifiedSince >= 0
+                    && lastModified / 1000 <= ifModifiedSince / 1000;
+        }
+        if (notModified) {
+            res.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        }
+        return notModified;
+    }
+
+    /**
+     * Returns the customization key, i.e. the locale, that the definitions
+     * factory of the container uses for a request.
+     *
+     * @param container The container.
+     * @param request The request.
+     * @return The customization key.
+     */
+    private static Object getCustomizationKey(TilesContainer container, Request request) {
+        TilesContainer current = container;
+        while (current instanceof TilesContainerWrapper) {
+            current = ((TilesContainerWrapper) current).getWrappedContainer();
+        }
+        if (current instanceof BasicTilesContainer) {
+            DefinitionsFactory factory = ((BasicTilesContainer) current).getDefinitionsFactory();
+            if (factory instanceof ReusableDefinitionsFactory) {
+                return ((ReusableDefinitionsFactory) factory).getCustomizationKey(request);
+            }
+        }
+        return DEFAULT_LOCALE_RESOLVER.resolveLocale(request);
+    }
+
+    /**
+     * Returns the last modification time of a response.
+     *
+     * @param contentDigest The digest of the resolved definitions of the
+     * response.
+     * @param templatesLastModified The last modification time of the
+     * templates.
+     * @return The last modification time, or <code>0</code> if unknown.
+     */
+    private long getLastModified(String contentDigest, long templatesLastModified) {
+        Long seen = firstSeen.get(contentDigest);
+        if (seen == null) {
+            if (firstSeenCount.get() >= MAX_ENTITY_TAGS) {
+                return 0L;
+            }
+            seen = Long.valueOf(System.currentTimeMillis());
+            Long existing = firstSeen.putIfAbsent(contentDigest, seen);
+            if (existing != null) {
+                seen = existing;
+            } else {
+                firstSeenCount.incrementAndGet();
+            }
+        }
+        return Math.max(seen.longValue(), templatesLastModified);
+    }
+
+    /**
+     * Returns the hexadecimal SHA-1 digest of a string.
+     *
+     * @param content The string.
+     * @return The digest.
+     */
+    private static String digest(String content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(content.getBytes("UTF-8"));
+            StringBuilder retValue = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                retValue.append(Character.forDigit((b >> 4) & 0xF, 16));
+                retValue.append(Character.forDigit(b & 0xF, 16));
+            }
+            return retValue.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 is not available", e);
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException("UTF-8 is not available", e);
+        }
+    }
+
+    /**
+     * Checks if an <code>If-None-Match</code> header matches an entity tag.
+     *
+     * @param ifNoneMatch The header.
+     * @param entityTag The entity tag.
+     * @return <code>true</code> if it matches.
+     */
+    private static boolean matches(String ifNoneMatch, String entityTag) {
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if ("*".equals(candidate) || entityTag.equals(candidate)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Accumulates the content of a static definition.
+     */
+    private static final class Validator {
+
+        /**
+         * The accumulated content.
+         */
+        private final StringBuilder content = new StringBuilder();
+
+        /**
+         * The last modification time of the templates.
+         */
+        private long lastModified = 0L;
+
+        /**
+         * Appends a name and a value.
+         *
+         * @param name The name.
+         * @param value The value.
+         */
+        private void append(String name, String value) {
+            content.append(name.length()).append(':').append(name)
+                    .append(value.length()).append(':').append(value).append(';');
+        }
+
+        /**
+         * Appends an attribute context, if static.
+         *
+         * @param container The container.
+         * @param request The request.
+         * @param name The name of the definition.
+         * @param context The attributes of the definition.
+         * @param visited The definitions already appended.
+         * @param depth The depth of the definition.
+         * @return <code>true</code> if the context is static.
+         * @throws IOException If a template cannot be accessed.
+         */
+        private boolean appendContext(TilesContainer container, Request request,
+                String name, AttributeContext context, Set<String> visited, int depth)
+                throws IOException {
+            if (depth > MAX_DEPTH || context.getPreparer() != null) {
+                return false;
+            }
+            append("definition", name);
+            Attribute template = context.getTemplateAttribute();
+            if (template == null || !appendAttribute(container, request, "", template,
+                    "template", visited, depth)) {
+                return false;
+            }
+            Set<String> names = new TreeSet<String>();
+            if (context.getLocalAttributeNames() != null) {
+                names.addAll(context.getLocalAttributeNames());
+            }
+            if (context.getCascadedAttributeNames() != null) {
+                names.addAll(context.getCascadedAttributeNames());
+            }
+            for (String attributeName : names) {
+                if (!appendAttribute(container, request, attributeName,
+                        context.getAttribute(attributeName), null, visited, depth)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Appends an attribute, if static.
+         *
+         * @param container The container.
+         * @param request The request.
+         * @param name The name of the attribute.
+         * @param attribute The attribute.
+         * @param defaultRenderer The renderer to use if the attribute has none.
+         * @param visited The definitions already appended.
+         * @param depth The depth of the definition containing the attribute.
+         * @return <code>true</code> if the attribute is static.
+         * @throws IOException If a template cannot be accessed.
+         */
+        private boolean appendAttribute(TilesContainer container, Request request,
+                String name, Attribute attribute, String defaultRenderer,
+                Set<String> visited, int depth) throws IOException {
+            if (attribute == null) {
+                return true;
+            }
+            if (attribute.getExpressionObject() != null || attribute.getRoles() != null
+                    && !attribute.getRoles().isEmpty() || !(attribute.getValue() instanceof String)) {
+                return false;
+            }
+            String value = (String) attribute.getValue();
+            String renderer = attribute.getRenderer() != null ? attribute.getRenderer() : defaultRenderer;
+            if (renderer == null) {
+                if (container.isValidDefinition(value, request)) {
+                    renderer = "definition";
+                } else if (value.startsWith("/")) {
+                    renderer = "template";
+                } else {
+                    renderer = "string";
+                }
+            }
+            append(name, renderer + ":" + value);
+            if ("string".equals(renderer)) {
+                return true;
+            }
+            if ("template".equals(renderer)) {
+                ApplicationResource resource = request.getApplicationContext().getResource(value);
+                if (resource == null) {
+                    return false;
+                }
+                long templateLastModified = resource.getLastModified();
+                lastModified = Math.max(lastModified, templateLastModified);
+                append("", String.valueOf(templateLastModified));
+                return true;
+            }
+            if ("definition".equals(renderer)) {
+                if (!visited.add(value)) {
+                    return true;
+                }
+                Definition definition = container.getDefinition(value, request);
+                return definition != null && appendContext(container, request, value,
+                        definition, visited, depth + 1);
+            }
+            return false;
+        }
+
+        /**
+         * Returns the digest of the content.
+         *
+         * @return The digest.
+         */
+        private String getDigest() {
+            return digest(content.toString());
+        }
+    }
+}
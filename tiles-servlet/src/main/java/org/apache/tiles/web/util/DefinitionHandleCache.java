@@ -0,0 +1,94 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.web.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.tiles.DefinitionHandle;
+import org.apache.tiles.TilesContainer;
+import org.apache.tiles.request.Request;
+
+/**
+ * Keeps the handles of the definitions rendered by a servlet or filter, so
+ * that they are rendered without looking them up by name on every request.
+ * The number of kept handles is bounded: once the limit is reached, other
+ * definitions are rendered by name.
+ *
+ * @version $Rev$ $Date$
+ * @since 3.0.8
+ */
+final class DefinitionHandleCache {
+
+    /**
+     * The default maximum number of handles.
+     */
+    static final int DEFAULT_SIZE = 1000;
+
+    /**
+     * Maps a definition name to its handle.
+     */
+    private final ConcurrentMap<String, DefinitionHandle> handles =
+        new ConcurrentHashMap<String, DefinitionHandle>();
+
+    /**
+     * The number of kept handles.
+     */
+    private final AtomicInteger count = new AtomicInteger();
+
+    /**
+     * The maximum number of handles.
+     */
+    private final int size;
+
+    /**
+     * Constructor.
+     *
+     * @param size The maximum number of handles.
+     */
+    DefinitionHandleCache(int size) {
+        this.size = size;
+    }
+
+    /**
+     * Renders a definition, through its handle if possible.
+     *
+     * @param container The container.
+     * @param definitionName The name of the definition.
+     * @param request The request.
+     */
+    void render(TilesContainer container, String definitionName, Request request) {
+        DefinitionHandle handle = handles.get(definitionName);
+        if (handle == null) {
+            handle = container.getDefinitionHandle(definitionName, request);
+            if (handle == null) {
+                // Let the container report the missing definition.
+                container.render(definitionName, request);
+                return;
+            }
+            if (count.get() < size && handles.putIfAbsent(definitionName, handle) == null) {
+                count.incrementAndGet();
+            }
+        }
+        container.render(handle, request);
+    }
+}
@@ -24,6 +24,9 @@ import java.io.IOException;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.servlet.Filter;
 import javax.servlet.FilterChain;
@@ -80,6 +83,19 @@ import org.slf4j.LoggerFactory;
  * "test.definition" definition.  The filter will only redecorate those requests
  * which do not contain the request attribute associated with the prevent token
  * "layout".
+ * <p/>
+ * Requests can be mapped to other definitions with init parameters like
+ * <code>definition(/admin/*)</code>, whose value is the definition to use for
+ * servlet paths starting with <code>/admin/</code>. When more prefixes match,
+ * the longest one wins. The <code>route-cache-size</code> init parameter
+ * enables a cache of the definitions chosen for the servlet paths, bounded to
+ * the given number of paths.
+ * <p/>
+ * If the <code>conditional-get</code> init parameter is <code>true</code>,
+ * conditional requests decorated with static definitions are answered with
+ * "304 Not Modified", without rendering the definition and without invoking
+ * the rest of the chain, as in {@link TilesDispatchServlet}. The decorated
+ * resources must be static too.
  */
 public class TilesDecorationFilter implements Filter {
 
@@ -130,6 +146,38 @@ public class TilesDecorationFilter implements Filter {
      */
     private Map<String, String> alternateDefinitions;
 
+    /**
+     * The alternate definitions, indexed by mask for longest-prefix matching.
+     */
+    private PrefixTrie alternateDefinitionTrie;
+
+    /**
+     * Maps a request base to the definition to render, or <code>null</code>
+     * if the cache is disabled.
+     */
+    private ConcurrentMap<String, String> routeCache;
+
+    /**
+     * The number of cached routes.
+     */
+    private AtomicInteger routeCacheCount = new AtomicInteger();
+
+    /**
+     * The maximum number of cached routes.
+     */
+    private int routeCacheSize;
+
+    /**
+     * The handles of the rendered definitions.
+     */
+    private DefinitionHandleCache handles = new DefinitionHandleCache(
+            DefinitionHandleCache.DEFAULT_SIZE);
+
+    /**
+     * Answers conditional requests, or <code>null</code> if disabled.
+     */
+    private ConditionalGetSupport conditionalGet;
+
     /**
      * The object that will mutate the attribute context so that it uses
      * different attributes.
@@ -164,6 +212,20 @@ public class TilesDecorationFilter implements Filter {
                 + (temp == null ? definitionName : temp);
 
         alternateDefinitions = parseAlternateDefinitions();
+        alternateDefinitionTrie = new PrefixTrie();
+        for (Map.Entry<String, String> entry : alternateDefinitions.entrySet()) {
+            alternateDefinitionTrie.put(entry.getKey(), entry.getValue());
+        }
+
+        temp = config.getInitParameter("route-cache-size");
+        routeCacheSize = temp != null ? Integer.parseInt(temp.trim()) : 0;
+        routeCache = routeCacheSize > 0 && !alternateDefinitions.isEmpty()
+                ? new ConcurrentHashMap<String, String>() : null;
+
+        temp = config.getInitParameter(TilesDispatchServlet.CONDITIONAL_GET_INIT_PARAMETER);
+        if (Boolean.parseBoolean(temp)) {
+            conditionalGet = new ConditionalGetSupport();
+        }
 
         temp = config.getInitParameter("mutator");
         if (temp != null) {
@@ -227,7 +289,11 @@ public class TilesDecorationFilter implements Filter {
                 req.setAttribute(preventDecorationToken, Boolean.TRUE);
             }
             String definitionName = getDefinitionForRequest(req);
-            container.render(definitionName, request);
+            if (conditionalGet != null && conditionalGet.checkNotModified(container,
+                    definitionName, request, (HttpServletRequest) req, (HttpServletResponse) res)) {
+                return;
+            }
+            handles.render(container, definitionName, request);
         }
         filterChain.doFilter(req, res);
     }
@@ -243,12 +309,30 @@ public class TilesDecorationFilter implements Filter {
             return definitionName;
         }
         String base = getRequestBase(request);
-        for (Map.Entry<String, String> pair : alternateDefinitions.entrySet()) {
-            if (base.startsWith(pair.getKey())) {
-                return pair.getValue();
+        if (routeCache == null) {
+            return findDefinition(base);
+        }
+        String retValue = routeCache.get(base);
+        if (retValue == null) {
+            retValue = findDefinition(base);
+            if (routeCacheCount.get() < routeCacheSize
+                    && routeCache.putIfAbsent(base, retValue) == null) {
+                routeCacheCount.incrementAndGet();
             }
         }
-        return definitionName;
+        return retValue;
+    }
+
+    /**
+     * Returns the definition of the longest mask that is a prefix of the
+     * request base.
+     *
+     * @param base The request base.
+     * @return The definition name.
+     */
+    private String findDefinition(String base) {
+        String retValue = alternateDefinitionTrie.findLongestPrefix(base);
+        return retValue != null ? retValue : definitionName;
     }
 
     /**
@@ -284,6 +368,75 @@ public class TilesDecorationFilter implements Filter {
         }
     }
 
+    /**
+     * A trie of masks, to find the longest mask that is a prefix of a path
+     * in time proportional to the length of the path.
+     */
+    private static class PrefixTrie {
+
+        /**
+         * The root node, i.e. the empty mask.
+         */
+        private final Node root = new Node();
+
+        /**
+         * Associates a value to a mask.
+         *
+         * @param mask The mask.
+         * @param value The value.
+         */
+        public void put(String mask, String value) {
+            Node node = root;
+            for (int i = 0; i < mask.length(); i++) {
+                Character c = Character.valueOf(mask.charAt(i));
+                Node child = node.children.get(c);
+                if (child == null) {
+                    child = new Node();
+                    node.children.put(c, child);
+                }
+                node = child;
+            }
+            node.value = value;
+        }
+
+        /**
+         * Returns the value of the longest mask that is a prefix of a path.
+         *
+         * @param path The path.
+         * @return The value, or <code>null</code> if no mask matches.
+         */
+        public String findLongestPrefix(String path) {
+            Node node = root;
+            String retValue = node.value;
+            for (int i = 0; i < path.length() && !node.children.isEmpty(); i++) {
+                node = node.children.get(Character.valueOf(path.charAt(i)));
+                if (node == null) {
+                    break;
+                }
+                if (node.value != null) {
+                    retValue = node.value;
+                }
+            }
+            return retValue;
+        }
+
+        /**
+         * A node of the trie.
+         */
+        private static class Node {
+
+            /**
+             * The children, by next character of the mask.
+             */
+            private final Map<Character, Node> children = new HashMap<Character, Node>();
+
+            /**
+             * The value of the mask ending at this node, if any.
+             */
+            private String value;
+        }
+    }
+
     /**
      * Checks if the prevent evaluation token is present.
      *
@@ -20,24 +20,69 @@
  */
 package org.apache.tiles.web.util;
 
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import javax.servlet.ServletException;
+import javax.servlet.ServletResponse;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import org.apache.tiles.Attribute;
 import org.apache.tiles.AttributeContext;
+import org.apache.tiles.Definition;
 import org.apache.tiles.TilesContainer;
 import org.apache.tiles.access.TilesAccess;
+import org.apache.tiles.definition.NoSuchDefinitionException;
+import org.apache.tiles.preparer.factory.NoSuchPreparerException;
 import org.apache.tiles.request.ApplicationContext;
 import org.apache.tiles.request.Request;
 import org.apache.tiles.request.reflect.ClassUtil;
+import org.apache.tiles.request.render.CannotRenderException;
 import org.apache.tiles.request.servlet.ServletRequest;
+import org.apache.tiles.web.render.EncodedStringRenderer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Tiles dispatching servlet.  Used to invoke
  * a definition directly.
+ * <p/>
+ * If the <code>fragment-parameter</code> init parameter is set, e.g. to
+ * <code>fragment</code>, a request with that parameter renders only the named
+ * attribute of the definition, e.g. <code>/page.tiles?fragment=body</code>,
+ * without its template. The roles of the definition are checked and its
+ * preparer is executed first, since it may put the attribute. This is useful to update a part of a page
+ * with an asynchronous request. Since the fragment is the whole response, a
+ * string attribute may be written as bytes by an {@link EncodedStringRenderer}.
+ * <p/>
+ * If the <code>conditional-get</code> init parameter is <code>true</code>,
+ * definitions made only of constant strings, templates and other such
+ * definitions, without preparers, expressions and roles, get an entity tag
+ * and a last modification time, and conditional requests are answered with
+ * "304 Not Modified" without rendering. Their templates must not depend on
+ * the request.
+ * <p/>
+ * If the <code>async-threads</code> init parameter is set, and the servlet
+ * container supports Servlet 3.0 asynchronous requests for this servlet,
+ * requests are rendered, preparers included, by an executor with that number
+ * of threads, so that the request threads of the servlet container are not
+ * blocked while preparers wait for other services. The
+ * <code>async-timeout</code> init parameter sets the timeout of the
+ * asynchronous requests, in milliseconds. A request that times out before
+ * its task starts is not rendered, and it is never completed by the servlet,
+ * since the servlet container has already ended it.
  */
 public class TilesDispatchServlet extends HttpServlet {
 
@@ -49,6 +94,43 @@ public class TilesDispatchServlet extends HttpServlet {
     public static final String CONTAINER_KEY_INIT_PARAMETER =
         "org.apache.tiles.web.util.TilesDispatchServlet.CONTAINER_KEY";
 
+    /**
+     * Init parameter to define the name of the request parameter that
+     * contains the attribute to render, instead of the whole definition.
+     *
+     * @since 3.0.8
+     */
+    public static final String FRAGMENT_PARAMETER_INIT_PARAMETER = "fragment-parameter";
+
+    /**
+     * Init parameter that, if <code>true</code>, enables the answer to
+     * conditional requests for static definitions.
+     *
+     * @since 3.0.8
+     */
+    public static final String CONDITIONAL_GET_INIT_PARAMETER = "conditional-get";
+
+    /**
+     * Init parameter that contains the number of threads that render
+     * asynchronous requests. If not set, requests are rendered synchronously.
+     *
+     * @since 3.0.8
+     */
+    public static final String ASYNC_THREADS_INIT_PARAMETER = "async-threads";
+
+    /**
+     * Init parameter that contains the timeout of asynchronous requests, in
+     * milliseconds.
+     *
+     * @since 3.0.8
+     */
+    public static final String ASYNC_TIMEOUT_INIT_PARAMETER = "async-timeout";
+
+    /**
+     * The name of the Servlet 3.0 asynchronous context interface.
+     */
+    private static final String ASYNC_CONTEXT_CLASS_NAME = "javax.servlet.AsyncContext";
+
     /**
      * The logging object.
      */
@@ -66,6 +148,34 @@ public class TilesDispatchServlet extends HttpServlet {
      */
     private AttributeContextMutator mutator;
 
+    /**
+     * The handles of the rendered definitions.
+     */
+    private DefinitionHandleCache handles = new DefinitionHandleCache(
+            DefinitionHandleCache.DEFAULT_SIZE);
+
+    /**
+     * The name of the request parameter that contains the attribute to
+     * render, or <code>null</code> if fragments are not supported.
+     */
+    private String fragmentParameter;
+
+    /**
+     * Answers conditional requests, or <code>null</code> if disabled.
+     */
+    private ConditionalGetSupport conditionalGet;
+
+    /**
+     * The executor of asynchronous requests, or <code>null</code> if requests
+     * are rendered synchronously.
+     */
+    private Executor asyncExecutor;
+
+    /**
+     * The timeout of asynchronous requests, or a negative number to use the
+     * default of the servlet container.
+     */
+    private long asyncTimeout = -1L;
 
     /** {@inheritDoc} */
     @Override
@@ -85,12 +195,245 @@ public class TilesDispatchServlet extends HttpServlet {
         } else {
             mutator = new DefaultMutator();
         }
+
+        fragmentParameter = getInitParameter(FRAGMENT_PARAMETER_INIT_PARAMETER);
+        if (Boolean.parseBoolean(getInitParameter(CONDITIONAL_GET_INIT_PARAMETER))) {
+            conditionalGet = new ConditionalGetSupport();
+        }
+
+        temp = getInitParameter(ASYNC_THREADS_INIT_PARAMETER);
+        if (temp != null) {
+            asyncExecutor = createAsyncExecutor(Integer.parseInt(temp.trim()));
+            temp = getInitParameter(ASYNC_TIMEOUT_INIT_PARAMETER);
+            if (temp != null) {
+                asyncTimeout = Long.parseLong(temp.trim());
+            }
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void destroy() {
+        if (asyncExecutor instanceof ExecutorService) {
+            ((ExecutorService) asyncExecutor).shutdown();
+        }
+        asyncExecutor = null;
+        super.destroy();
+    }
+
+    /**
+     * Creates the executor of asynchronous requests. This implementation
+     * creates a pool with a fixed number of daemon threads.
+     *
+     * @param threads The number of threads.
+     * @return The executor.
+     * @since 3.0.8
+     */
+    protected Executor createAsyncExecutor(int threads) {
+        return Executors.newFixedThreadPool(threads, new ThreadFactory() {
+
+            private final AtomicInteger count = new AtomicInteger();
+
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "tiles-dispatch-"
+                        + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
     }
 
     /** {@inheritDoc} */
     @Override
     protected void doGet(HttpServletRequest req, HttpServletResponse res) {
+        if (asyncExecutor != null && dispatchAsync(req, res)) {
+            return;
+        }
+        dispatch(req, res);
+    }
 
+    /**
+     * Starts an asynchronous request that renders the definition on the
+     * executor, if the servlet container supports it.
+     *
+     * @param req The request.
+     * @param res The response.
+     * @return <code>true</code> if the request has been started asynchronously.
+     */
+    private boolean dispatchAsync(final HttpServletRequest req, final HttpServletResponse res) {
+        Method isAsyncSupported = findMethod(req, "javax.servlet.ServletRequest",
+                "isAsyncSupported");
+        Method startAsync = findMethod(req, "javax.servlet.ServletRequest", "startAsync",
+                javax.servlet.ServletRequest.class, ServletResponse.class);
+        if (isAsyncSupported == null || startAsync == null) {
+            return false;
+        }
+        final Object asyncContext;
+        final AtomicBoolean timedOut;
+        try {
+            if (!Boolean.TRUE.equals(isAsyncSupported.invoke(req))) {
+                return false;
+            }
+            asyncContext = startAsync.invoke(req, req, res);
+            if (asyncTimeout >= 0) {
+                findMethod(asyncContext, ASYNC_CONTEXT_CLASS_NAME, "setTimeout", Long.TYPE)
+                        .invoke(asyncContext, asyncTimeout);
+            }
+            timedOut = addTimeoutListener(asyncContext);
+        } catch (IllegalAccessException e) {
+            throw new CannotRenderException("Cannot start an asynchronous request", e);
+        } catch (InvocationTargetException e) {
+            throw new CannotRenderException("Cannot start an asynchronous request", e.getCause());
+        }
+
+        Runnable task = new Runnable() {
+
+            public void run() {
+                if (timedOut.get()) {
+                    log.warn("The asynchronous request timed out before being rendered");
+                    return;
+                }
+                try {
+                    dispatch(req, res);
+                } catch (RuntimeException e) {
+                    log.error("Cannot render the asynchronous request", e);
+                    if (!timedOut.get()) {
+                        sendServerError(res);
+                    }
+                } finally {
+                    if (!timedOut.get()) {
+                        try {
+                            findMethod(asyncContext, ASYNC_CONTEXT_CLASS_NAME, "complete")
+                                    .invoke(asyncContext);
+                        } catch (Exception e) {
+                            log.error("Cannot complete the asynchronous request", e);
+                        }
+                    }
+                }
+            }
+        };
+        try {
+            asyncExecutor.execute(task);
+        } catch (RejectedExecutionException e) {
+            log.warn("Rendering the asynchronous request in the request thread", e);
+            task.run();
+        }
+        return true;
+    }
+
+    /**
+     * Registers a listener of an asynchronous request, that marks the request
+     * when it times out or fails. Once marked, the servlet container has
+     * already ended the request, so it must not be rendered nor completed.
+     *
+     * @param asyncContext The asynchronous context.
+     * @return The mark, that becomes <code>true</code> when the request times
+     * out or fails.
+     * @throws IllegalAccessException If the listener cannot be registered.
+     * @throws InvocationTargetException If the listener cannot be registered.
+     */
+    private static AtomicBoolean addTimeoutListener(Object asyncContext)
+            throws IllegalAccessException, InvocationTargetException {
+        final AtomicBoolean timedOut = new AtomicBoolean();
+        Method addListener = findAddListenerMethod(asyncContext);
+        if (addListener == null) {
+            return timedOut;
+        }
+        Class<?> listenerType = addListener.getParameterTypes()[0];
+        Object listener = Proxy.newProxyInstance(listenerType.getClassLoader(),
+                new Class<?>[] {listenerType}, new InvocationHandler() {
+
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        String name = method.getName();
+                        if ("onTimeout".equals(name) || "onError".equals(name)) {
+                            timedOut.set(true);
+                        } else if ("equals".equals(name)) {
+                            return proxy == args[0];
+                        } else if ("hashCode".equals(name)) {
+                            return System.identityHashCode(proxy);
+                        } else if ("toString".equals(name)) {
+                            return "TimeoutListener[" + timedOut.get() + "]";
+                        }
+                        return null;
+                    }
+                });
+        addListener.invoke(asyncContext, listener);
+        return timedOut;
+    }
+
+    /**
+     * Finds the Servlet 3.0 method that registers an asynchronous listener,
+     * whose listener interface cannot be referenced directly since Tiles is
+     * compiled against Servlet 2.5.
+     *
+     * @param asyncContext The asynchronous context.
+     * @return The method, or <code>null</code> if not found.
+     */
+    private static Method findAddListenerMethod(Object asyncContext) {
+        Method[] methods;
+        try {
+            methods = Class.forName(ASYNC_CONTEXT_CLASS_NAME).getMethods();
+        } catch (ClassNotFoundException e) {
+            methods = asyncContext.getClass().getMethods();
+        }
+        for (Method method : methods) {
+            Class<?>[] parameterTypes = method.getParameterTypes();
+            if ("addListener".equals(method.getName()) && parameterTypes.length == 1
+                    && parameterTypes[0].isInterface()) {
+                return method;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reports a server error, if the response has not been committed yet.
+     *
+     * @param res The response.
+     */
+    private void sendServerError(HttpServletResponse res) {
+        if (!res.isCommitted()) {
+            try {
+                res.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            } catch (IOException e) {
+                log.error("Cannot send the error", e);
+            }
+        }
+    }
+
+    /**
+     * Finds a Servlet 3.0 method, that cannot be called directly since Tiles
+     * is compiled against Servlet 2.5.
+     *
+     * @param target The object whose method is needed.
+     * @param interfaceName The interface that declares the method.
+     * @param name The name of the method.
+     * @param parameterTypes The parameter types.
+     * @return The method, or <code>null</code> if not found.
+     */
+    private static Method findMethod(Object target, String interfaceName, String name,
+            Class<?>... parameterTypes) {
+        try {
+            return Class.forName(interfaceName).getMethod(name, parameterTypes);
+        } catch (ClassNotFoundException e) {
+            // Falls back to the class of the object.
+        } catch (NoSuchMethodException e) {
+            // Falls back to the class of the object.
+        }
+        try {
+            return target.getClass().getMethod(name, parameterTypes);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Renders the definition of a request.
+     *
+     * @param req The request.
+     * @param res The response.
+     */
+    private void dispatch(HttpServletRequest req, HttpServletResponse res) {
         ApplicationContext applicationContext = org.apache.tiles.request.servlet.ServletUtil
                 .getApplicationContext(getServletContext());
         Request request = new ServletRequest(applicationContext,
@@ -99,10 +442,84 @@ public class TilesDispatchServlet extends HttpServlet {
                 containerKey);
         mutator.mutate(container.getAttributeContext(request), req);
         String definition = getDefinitionName(req);
+        String fragment = fragmentParameter != null ? req.getParameter(fragmentParameter) : null;
+        if (fragment != null) {
+            if (log.isDebugEnabled()) {
+                log.debug("Dispatching to fragment '" + fragment + "' of tile '" + definition + "'");
+            }
+            try {
+                req.setAttribute(EncodedStringRenderer.BYTE_OUTPUT_ATTRIBUTE, Boolean.TRUE);
+                renderFragment(container, definition, fragment, request, res);
+            } catch (IOException e) {
+                throw new CannotRenderException(e.getMessage(), e);
+            }
+            return;
+        }
+        try {
+            if (conditionalGet != null
+                    && conditionalGet.checkNotModified(container, definition, request, req, res)) {
+                return;
+            }
+        } catch (IOException e) {
+            throw new CannotRenderException(e.getMessage(), e);
+        }
         if (log.isDebugEnabled()) {
             log.info("Dispatching to tile '" + definition + "'");
         }
-        container.render(definition, request);
+        handles.render(container, definition, request);
+    }
+
+    /**
+     * Renders only an attribute of a definition, after executing the preparer
+     * of the definition. The template of the definition is not rendered, but
+     * its roles are checked: if the current user is not allowed to see the
+     * definition, "403 Forbidden" is sent. As when the whole definition is
+     * rendered, a missing preparer is ignored.
+     *
+     * @param container The container.
+     * @param definitionName The name of the definition.
+     * @param attributeName The name of the attribute to render.
+     * @param request The request.
+     * @param res The servlet response, used to report a missing attribute.
+     * @throws IOException If something goes wrong during rendering.
+     * @since 3.0.8
+     */
+    protected void renderFragment(TilesContainer container, String definitionName,
+            String attributeName, Request request, HttpServletResponse res) throws IOException {
+        Definition definition = container.getDefinition(definitionName, request);
+        if (definition == null) {
+            throw new NoSuchDefinitionException("Unable to find the definition '"
+                    + definitionName + "'");
+        }
+        AttributeContext originalContext = container.getAttributeContext(request);
+        AttributeContext context = container.startContext(request);
+        try {
+            context.inherit(originalContext);
+            context.inherit(definition);
+            Attribute templateAttribute = context.getTemplateAttribute();
+            if (templateAttribute != null && !templateAttribute.isPermitted(request)) {
+                res.sendError(HttpServletResponse.SC_FORBIDDEN);
+                return;
+            }
+            if (context.getPreparer() != null) {
+                try {
+                    container.prepare(context.getPreparer(), request);
+                } catch (NoSuchPreparerException e) {
+                    // A missing preparer is ignored, as when the definition is rendered.
+                    log.debug("Ignoring missing preparer", e);
+                }
+            }
+            Attribute attribute = context.getAttribute(attributeName);
+            if (attribute == null) {
+                res.sendError(HttpServletResponse.SC_NOT_FOUND, "Attribute '"
+                        + attributeName + "' not found in definition '"
+                        + definitionName + "'");
+                return;
+            }
+            container.render(attribute, request);
+        } finally {
+            container.endContext(request);
+        }
     }
 
     /**
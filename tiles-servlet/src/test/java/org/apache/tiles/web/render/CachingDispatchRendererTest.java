@@ -0,0 +1,161 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.web.render;
+
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+
+import javax.servlet.RequestDispatcher;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.tiles.request.AbstractRequest;
+import org.apache.tiles.request.ApplicationContext;
+import org.apache.tiles.request.DispatchRequest;
+import org.apache.tiles.request.servlet.ServletRequest;
+import org.junit.Test;
+
+/**
+ * Tests {@link CachingDispatchRenderer}.
+ *
+ * @version $Rev$ $Date$
+ */
+public class CachingDispatchRendererTest {
+
+    /**
+     * Tests {@link CachingDispatchRenderer#render(String, org.apache.tiles.request.Request)}.
+     *
+     * @throws IOException If something goes wrong.
+     * @throws ServletException If something goes wrong.
+     */
+    @Test
+    public void testRender() throws IOException, ServletException {
+        ApplicationContext applicationContext = createMock(ApplicationContext.class);
+        ServletContext servletContext = createMock(ServletContext.class);
+        HttpServletRequest req = createMock(HttpServletRequest.class);
+        HttpServletResponse res = createMock(HttpServletResponse.class);
+        RequestDispatcher rd = createMock(RequestDispatcher.class);
+
+        expect(applicationContext.getContext()).andReturn(servletContext).times(2);
+        expect(servletContext.getRequestDispatcher("/layout.jsp")).andReturn(rd);
+        expect(req.getAttribute(AbstractRequest.FORCE_INCLUDE_ATTRIBUTE_NAME)).andReturn(null);
+        req.setAttribute(AbstractRequest.FORCE_INCLUDE_ATTRIBUTE_NAME, Boolean.TRUE);
+        expect(res.isCommitted()).andReturn(false);
+        rd.forward(req, res);
+        expect(req.getAttribute(AbstractRequest.FORCE_INCLUDE_ATTRIBUTE_NAME)).andReturn(Boolean.TRUE);
+        rd.include(req, res);
+
+        replay(applicationContext, servletContext, req, res, rd);
+        CachingDispatchRenderer renderer = new CachingDispatchRenderer();
+        ServletRequest request = new ServletRequest(applicationContext, req, res);
+        renderer.render("/layout.jsp", request);
+        renderer.render("/layout.jsp", request);
+        verify(applicationContext, servletContext, req, res, rd);
+    }
+
+    /**
+     * Tests {@link CachingDispatchRenderer#render(String, org.apache.tiles.request.Request)}
+     * when the path has no dispatcher.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    public void testRenderMissing() throws IOException {
+        ApplicationContext applicationContext = createMock(ApplicationContext.class);
+        ServletContext servletContext = createMock(ServletContext.class);
+        HttpServletRequest req = createMock(HttpServletRequest.class);
+        HttpServletResponse res = createMock(HttpServletResponse.class);
+
+        expect(applicationContext.getContext()).andReturn(servletContext).times(2);
+        expect(servletContext.getRequestDispatcher("/missing.jsp")).andReturn(null);
+
+        replay(applicationContext, servletContext, req, res);
+        CachingDispatchRenderer renderer = new CachingDispatchRenderer();
+        ServletRequest request = new ServletRequest(applicationContext, req, res);
+        for (int i = 0; i < 2; i++) {
+            try {
+                renderer.render("/missing.jsp", request);
+                fail("The path should be missing");
+            } catch (IOException e) {
+                assertEquals("No request dispatcher returned for path '/missing.jsp'",
+                        e.getMessage());
+            }
+        }
+        verify(applicationContext, servletContext, req, res);
+    }
+
+    /**
+     * Tests that the cache is discarded when the servlet context changes.
+     *
+     * @throws IOException If something goes wrong.
+     * @throws ServletException If something goes wrong.
+     */
+    @Test
+    public void testRenderRedeploy() throws IOException, ServletException {
+        ApplicationContext applicationContext = createMock(ApplicationContext.class);
+        ApplicationContext newApplicationContext = createMock(ApplicationContext.class);
+        ServletContext servletContext = createMock(ServletContext.class);
+        ServletContext newServletContext = createMock(ServletContext.class);
+        HttpServletRequest req = createMock(HttpServletRequest.class);
+        HttpServletResponse res = createMock(HttpServletResponse.class);
+        RequestDispatcher rd = createMock(RequestDispatcher.class);
+        RequestDispatcher newRd = createMock(RequestDispatcher.class);
+
+        expect(applicationContext.getContext()).andReturn(servletContext);
+        expect(newApplicationContext.getContext()).andReturn(newServletContext);
+        expect(servletContext.getRequestDispatcher("/layout.jsp")).andReturn(rd);
+        expect(newServletContext.getRequestDispatcher("/layout.jsp")).andReturn(newRd);
+        expect(req.getAttribute(AbstractRequest.FORCE_INCLUDE_ATTRIBUTE_NAME))
+                .andReturn(Boolean.TRUE).times(2);
+        rd.include(req, res);
+        newRd.include(req, res);
+
+        replay(applicationContext, newApplicationContext, servletContext,
+                newServletContext, req, res, rd, newRd);
+        CachingDispatchRenderer renderer = new CachingDispatchRenderer();
+        renderer.render("/layout.jsp", new ServletRequest(applicationContext, req, res));
+        renderer.render("/layout.jsp", new ServletRequest(newApplicationContext, req, res));
+        verify(applicationContext, newApplicationContext, servletContext,
+                newServletContext, req, res, rd, newRd);
+    }
+
+    /**
+     * Tests {@link CachingDispatchRenderer#render(String, org.apache.tiles.request.Request)}
+     * when the request is not a servlet request.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    public void testRenderNotServlet() throws IOException {
+        DispatchRequest request = createMock(DispatchRequest.class);
+
+        request.dispatch("/layout.jsp");
+
+        replay(request);
+        CachingDispatchRenderer renderer = new CachingDispatchRenderer();
+        renderer.render("/layout.jsp", request);
+        verify(request);
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.web.render;
+
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.tiles.request.ApplicationContext;
+import org.apache.tiles.request.Request;
+import org.apache.tiles.request.servlet.ServletRequest;
+import org.junit.Test;
+
+/**
+ * Tests {@link EncodedStringRenderer}.
+ *
+ * @version $Rev$ $Date$
+ */
+public class EncodedStringRendererTest {
+
+    /**
+     * Tests {@link EncodedStringRenderer#render(String, Request)} and
+     * {@link EncodedStringRenderer#renderConstant(String, Request)} when bytes
+     * are allowed.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    public void testRenderBytes() throws IOException {
+        ApplicationContext applicationContext = createMock(ApplicationContext.class);
+        HttpServletRequest req = createMock(HttpServletRequest.class);
+        HttpServletResponse res = createMock(HttpServletResponse.class);
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ServletOutputStream out = new ServletOutputStream() {
+
+            @Override
+            public void write(int b) {
+                bytes.write(b);
+            }
+        };
+
+        expect(req.getAttribute(EncodedStringRenderer.BYTE_OUTPUT_ATTRIBUTE))
+                .andReturn(Boolean.TRUE).times(2);
+        expect(res.getCharacterEncoding()).andReturn("UTF-8").times(2);
+        expect(res.getOutputStream()).andReturn(out);
+
+        replay(applicationContext, req, res);
+        EncodedStringRenderer renderer = new EncodedStringRenderer();
+        Request request = new ServletRequest(applicationContext, req, res);
+        renderer.renderConstant("caf\u00e9", request);
+        renderer.render("caf\u00e9", request);
+        assertEquals("caf\u00e9caf\u00e9", bytes.toString("UTF-8"));
+        verify(applicationContext, req, res);
+    }
+
+    /**
+     * Tests {@link EncodedStringRenderer#render(String, Request)} when bytes
+     * are not allowed.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    public void testRenderWriter() throws IOException {
+        ApplicationContext applicationContext = createMock(ApplicationContext.class);
+        HttpServletRequest req = createMock(HttpServletRequest.class);
+        HttpServletResponse res = createMock(HttpServletResponse.class);
+        StringWriter writer = new StringWriter();
+
+        expect(req.getAttribute(EncodedStringRenderer.BYTE_OUTPUT_ATTRIBUTE)).andReturn(null);
+        expect(res.getWriter()).andReturn(new PrintWriter(writer));
+
+        replay(applicationContext, req, res);
+        EncodedStringRenderer renderer = new EncodedStringRenderer();
+        Request request = new ServletRequest(applicationContext, req, res);
+        renderer.render("Result", request);
+        request.getPrintWriter().flush();
+        assertEquals("Result", writer.toString());
+        verify(applicationContext, req, res);
+    }
+
+    /**
+     * Tests {@link EncodedStringRenderer#render(String, Request)} when the
+     * writer of the response is already in use.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    public void testRenderWriterInUse() throws IOException {
+        ApplicationContext applicationContext = createMock(ApplicationContext.class);
+        HttpServletRequest req = createMock(HttpServletRequest.class);
+        HttpServletResponse res = createMock(HttpServletResponse.class);
+        StringWriter writer = new StringWriter();
+
+        expect(req.getAttribute(EncodedStringRenderer.BYTE_OUTPUT_ATTRIBUTE)).andReturn(Boolean.TRUE);
+        expect(res.getCharacterEncoding()).andReturn("ISO-8859-1");
+        expect(res.getOutputStream()).andThrow(new IllegalStateException());
+        req.removeAttribute(EncodedStringRenderer.BYTE_OUTPUT_ATTRIBUTE);
+        expect(res.getWriter()).andReturn(new PrintWriter(writer));
+
+        replay(applicationContext, req, res);
+        EncodedStringRenderer renderer = new EncodedStringRenderer();
+        Request request = new ServletRequest(applicationContext, req, res);
+        renderer.render("Result", request);
+        request.getPrintWriter().flush();
+        assertEquals("Result", writer.toString());
+        verify(applicationContext, req, res);
+    }
+}
@@ -36,6 +36,7 @@ import javax.servlet.http.HttpServletResponse;
 
 import org.apache.tiles.request.ApplicationAccess;
 import org.apache.tiles.AttributeContext;
+import org.apache.tiles.DefinitionHandle;
 import org.apache.tiles.TilesContainer;
 import org.apache.tiles.request.ApplicationContext;
 import org.apache.tiles.request.servlet.ServletRequest;
@@ -86,6 +87,8 @@ public class TilesDecorationFilterTest {
         expect(names.hasMoreElements()).andReturn(false);
         expect(config.getInitParameterNames()).andReturn(names);
         expect(config.getInitParameter("definition(hello*)")).andReturn("alternateDef");
+        expect(config.getInitParameter("route-cache-size")).andReturn(null);
+        expect(config.getInitParameter(TilesDispatchServlet.CONDITIONAL_GET_INIT_PARAMETER)).andReturn(null);
         expect(config.getInitParameter("mutator")).andReturn(CustomAttributeMutator.class.getName());
 
         replay(config, names);
@@ -117,6 +120,7 @@ public class TilesDecorationFilterTest {
         Map<String, Object> applicationScope = createMock(Map.class);
         TilesContainer container = createMock(TilesContainer.class);
         AttributeContext attributeContext = createMock(AttributeContext.class);
+        DefinitionHandle handle = createMock(DefinitionHandle.class);
 
         expect(request.getAttribute("org.apache.tiles.decoration.PREVENT:tokenKey")).andReturn(null);
         expect(servletContext.getAttribute(ApplicationAccess.APPLICATION_CONTEXT_ATTRIBUTE))
@@ -127,6 +131,119 @@ public class TilesDecorationFilterTest {
         request.setAttribute("org.apache.tiles.decoration.PREVENT:tokenKey", true);
         expect(request.getAttribute("javax.servlet.include.servlet_path")).andReturn(null);
         expect(request.getServletPath()).andReturn("/tiles");
+        expect(container.getDefinitionHandle(eq("definitionKey"), isA(ServletRequest.class))).andReturn(handle);
+        container.render(eq(handle), isA(ServletRequest.class));
+        chain.doFilter(request, response);
+
+        replay(servletContext, request, response, chain, applicationContext,
+                applicationScope, container, attributeContext, handle);
+        filter.doFilter(request, response, chain);
+        verify(request, response, chain, applicationContext, applicationScope, container, attributeContext,
+                handle);
+    }
+
+    /**
+     * Tests that the longest matching mask chooses the definition, and that
+     * the choice is cached.
+     *
+     * @throws ServletException If something goes wrong
+     * @throws IOException If something goes wrong.
+     */
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testDoFilterLongestPrefix() throws IOException, ServletException {
+        FilterConfig config = createMock(FilterConfig.class);
+        Enumeration<String> names = createMock(Enumeration.class);
+        HttpServletRequest request = createMock(HttpServletRequest.class);
+        HttpServletResponse response = createMock(HttpServletResponse.class);
+        FilterChain chain = createMock(FilterChain.class);
+        ApplicationContext applicationContext = createMock(ApplicationContext.class);
+        Map<String, Object> applicationScope = createMock(Map.class);
+        TilesContainer container = createMock(TilesContainer.class);
+        AttributeContext attributeContext = createMock(AttributeContext.class);
+        DefinitionHandle usersHandle = createMock(DefinitionHandle.class);
+        DefinitionHandle adminHandle = createMock(DefinitionHandle.class);
+        DefinitionHandle layoutHandle = createMock(DefinitionHandle.class);
+
+        expect(config.getServletContext()).andReturn(servletContext);
+        expect(config.getInitParameter(TilesDecorationFilter.CONTAINER_KEY_INIT_PARAMETER)).andReturn("key");
+        expect(config.getInitParameter("attribute-name")).andReturn(null);
+        expect(config.getInitParameter("definition")).andReturn(null);
+        expect(config.getInitParameter("prevent-token")).andReturn(null);
+        expect(names.hasMoreElements()).andReturn(true).times(3);
+        expect(names.nextElement()).andReturn("definition(/admin*)");
+        expect(names.nextElement()).andReturn("definition(/admin/users*)");
+        expect(names.nextElement()).andReturn("definition(/ad*)");
+        expect(names.hasMoreElements()).andReturn(false);
+        expect(config.getInitParameterNames()).andReturn(names);
+        expect(config.getInitParameter("definition(/admin*)")).andReturn("admin");
+        expect(config.getInitParameter("definition(/admin/users*)")).andReturn("users");
+        expect(config.getInitParameter("definition(/ad*)")).andReturn("ad");
+        expect(config.getInitParameter("route-cache-size")).andReturn("10");
+        expect(config.getInitParameter(TilesDispatchServlet.CONDITIONAL_GET_INIT_PARAMETER)).andReturn(null);
+        expect(config.getInitParameter("mutator")).andReturn(CustomAttributeMutator.class.getName());
+
+        expect(request.getAttribute("org.apache.tiles.decoration.PREVENT:layout")).andReturn(null).times(4);
+        expect(servletContext.getAttribute(ApplicationAccess.APPLICATION_CONTEXT_ATTRIBUTE))
+                .andReturn(applicationContext).times(4);
+        expect(applicationContext.getApplicationScope()).andReturn(applicationScope).times(4);
+        expect(applicationScope.get("key")).andReturn(container).times(4);
+        expect(container.getAttributeContext(isA(ServletRequest.class))).andReturn(attributeContext).times(4);
+        request.setAttribute("org.apache.tiles.decoration.PREVENT:layout", true);
+        expectLastCall().times(4);
+        expect(request.getAttribute("javax.servlet.include.servlet_path")).andReturn(null).times(4);
+        expect(request.getServletPath()).andReturn("/admin/users/list");
+        expect(request.getServletPath()).andReturn("/admin/users/list");
+        expect(request.getServletPath()).andReturn("/admin/index");
+        expect(request.getServletPath()).andReturn("/home");
+        expect(container.getDefinitionHandle(eq("users"), isA(ServletRequest.class))).andReturn(usersHandle);
+        expect(container.getDefinitionHandle(eq("admin"), isA(ServletRequest.class))).andReturn(adminHandle);
+        expect(container.getDefinitionHandle(eq("layout"), isA(ServletRequest.class))).andReturn(layoutHandle);
+        container.render(eq(usersHandle), isA(ServletRequest.class));
+        expectLastCall().times(2);
+        container.render(eq(adminHandle), isA(ServletRequest.class));
+        container.render(eq(layoutHandle), isA(ServletRequest.class));
+        chain.doFilter(request, response);
+        expectLastCall().times(4);
+
+        replay(config, names, servletContext, request, response, chain, applicationContext,
+                applicationScope, container, attributeContext);
+        TilesDecorationFilter filter = new TilesDecorationFilter();
+        filter.init(config);
+        for (int i = 0; i < 4; i++) {
+            filter.doFilter(request, response, chain);
+        }
+        verify(names, request, response, chain, applicationContext, applicationScope, container,
+                attributeContext);
+    }
+
+    /**
+     * Tests that a definition without a handle is rendered by name.
+     *
+     * @throws ServletException If something goes wrong
+     * @throws IOException If something goes wrong.
+     */
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testDoFilterNoHandle() throws IOException, ServletException {
+        HttpServletRequest request = createMock(HttpServletRequest.class);
+        HttpServletResponse response = createMock(HttpServletResponse.class);
+        FilterChain chain = createMock(FilterChain.class);
+        ApplicationContext applicationContext = createMock(ApplicationContext.class);
+        Map<String, Object> applicationScope = createMock(Map.class);
+        TilesContainer container = createMock(TilesContainer.class);
+        AttributeContext attributeContext = createMock(AttributeContext.class);
+
+        expect(request.getAttribute("org.apache.tiles.decoration.PREVENT:tokenKey")).andReturn(null);
+        expect(servletContext.getAttribute(ApplicationAccess.APPLICATION_CONTEXT_ATTRIBUTE))
+                .andReturn(applicationContext);
+        expect(applicationContext.getApplicationScope()).andReturn(applicationScope);
+        expect(applicationScope.get("key")).andReturn(container);
+        expect(container.getAttributeContext(isA(ServletRequest.class))).andReturn(attributeContext);
+        request.setAttribute("org.apache.tiles.decoration.PREVENT:tokenKey", true);
+        expect(request.getAttribute("javax.servlet.include.servlet_path")).andReturn(null);
+        expect(request.getServletPath()).andReturn("/tiles");
+        expect(container.getDefinitionHandle(eq("definitionKey"), isA(ServletRequest.class))).andReturn(null);
         container.render(eq("definitionKey"), isA(ServletRequest.class));
         chain.doFilter(request, response);
 
@@ -0,0 +1,545 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.web.util;
+
+import static org.easymock.EasyMock.*;
+import static org.easymock.classextension.EasyMock.*;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.tiles.Attribute;
+import org.apache.tiles.AttributeContext;
+import org.apache.tiles.BasicAttributeContext;
+import org.apache.tiles.Definition;
+import org.apache.tiles.DefinitionHandle;
+import org.apache.tiles.TilesContainer;
+import org.apache.tiles.preparer.factory.NoSuchPreparerException;
+import org.apache.tiles.request.ApplicationAccess;
+import org.apache.tiles.request.ApplicationContext;
+import org.apache.tiles.request.ApplicationResource;
+import org.apache.tiles.request.servlet.ServletRequest;
+import org.apache.tiles.web.render.EncodedStringRenderer;
+import org.easymock.Capture;
+import org.easymock.IAnswer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests {@link TilesDispatchServlet}.
+ *
+ * @version $Rev$ $Date$
+ */
+public class TilesDispatchServletTest {
+
+    /**
+     * The servlet configuration.
+     */
+    private ServletConfig config;
+
+    /**
+     * The servlet context.
+     */
+    private ServletContext servletContext;
+
+    /**
+     * The application context.
+     */
+    private ApplicationContext applicationContext;
+
+    /**
+     * The application scope.
+     */
+    private Map<String, Object> applicationScope;
+
+    /**
+     * The container.
+     */
+    private TilesContainer container;
+
+    /**
+     * The servlet to test.
+     */
+    private TilesDispatchServlet servlet;
+
+    /**
+     * Sets up the test.
+     *
+     * @throws ServletException If something goes wrong.
+     */
+    @SuppressWarnings("unchecked")
+    @Before
+    public void setUp() throws ServletException {
+        config = createMock(ServletConfig.class);
+        servletContext = createMock(ServletContext.class);
+        applicationContext = createMock(ApplicationContext.class);
+        applicationScope = createMock(Map.class);
+        container = createMock(TilesContainer.class);
+
+        expect(config.getServletContext()).andReturn(servletContext).anyTimes();
+        expect(config.getInitParameter(TilesDispatchServlet.CONTAINER_KEY_INIT_PARAMETER)).andReturn("key");
+        expect(config.getInitParameter("mutator")).andReturn(null);
+        expect(config.getInitParameter(TilesDispatchServlet.FRAGMENT_PARAMETER_INIT_PARAMETER))
+                .andReturn("fragment");
+        expect(config.getInitParameter(TilesDispatchServlet.CONDITIONAL_GET_INIT_PARAMETER)).andReturn(null);
+        expect(config.getInitParameter(TilesDispatchServlet.ASYNC_THREADS_INIT_PARAMETER)).andReturn(null);
+        expect(servletContext.getAttribute(ApplicationAccess.APPLICATION_CONTEXT_ATTRIBUTE))
+                .andReturn(applicationContext);
+        expect(applicationContext.getApplicationScope()).andReturn(applicationScope);
+        expect(applicationScope.get("key")).andReturn(container);
+
+        replay(config);
+        servlet = new TilesDispatchServlet();
+        servlet.init(config);
+    }
+
+    /**
+     * Tears down the test.
+     */
+    @After
+    public void tearDown() {
+        verify(config, servletContext, applicationContext, applicationScope, container);
+    }
+
+    /**
+     * Tests {@link TilesDispatchServlet#doGet(HttpServletRequest, HttpServletResponse)}.
+     */
+    @Test
+    public void testDoGet() {
+        HttpServletRequest request = createMock(HttpServletRequest.class);
+        HttpServletResponse response = createMock(HttpServletResponse.class);
+        DefinitionHandle handle = createMock(DefinitionHandle.class);
+
+        expect(request.getAttribute("javax.servlet.include.servlet_path")).andReturn(null);
+        expect(request.getServletPath()).andReturn("/page.tiles");
+        expect(request.getParameter("fragment")).andReturn(null);
+        expect(container.getAttributeContext(isA(ServletRequest.class))).andReturn(
+                new BasicAttributeContext());
+        expect(container.getDefinitionHandle(eq("page"), isA(ServletRequest.class))).andReturn(handle);
+        container.render(eq(handle), isA(ServletRequest.class));
+
+        replay(servletContext, applicationContext, applicationScope, container, request, response, handle);
+        servlet.doGet(request, response);
+        verify(request, response, handle);
+    }
+
+    /**
+     * Tests {@link TilesDispatchServlet#doGet(HttpServletRequest, HttpServletResponse)}
+     * in asynchronous mode.
+     *
+     * @throws ServletException If something goes wrong.
+     */
+    @Test
+    public void testDoGetAsync() throws ServletException {
+        ServletConfig asyncConfig = createMock(ServletConfig.class);
+        AsyncHttpServletRequest request = createMock(AsyncHttpServletRequest.class);
+        HttpServletResponse response = createMock(HttpServletResponse.class);
+        AsyncContextStub asyncContext = createMock(AsyncContextStub.class);
+        DefinitionHandle handle = createMock(DefinitionHandle.class);
+        final List<Runnable> tasks = new ArrayList<Runnable>();
+
+        expect(asyncConfig.getServletContext()).andReturn(servletContext).anyTimes();
+        expect(asyncConfig.getInitParameter(TilesDispatchServlet.CONTAINER_KEY_INIT_PARAMETER))
+                .andReturn("key");
+        expect(asyncConfig.getInitParameter("mutator")).andReturn(null);
+        expect(asyncConfig.getInitParameter(TilesDispatchServlet.FRAGMENT_PARAMETER_INIT_PARAMETER))
+                .andReturn(null);
+        expect(asyncConfig.getInitParameter(TilesDispatchServlet.CONDITIONAL_GET_INIT_PARAMETER))
+                .andReturn(null);
+        expect(asyncConfig.getInitParameter(TilesDispatchServlet.ASYNC_THREADS_INIT_PARAMETER))
+                .andReturn("4");
+        expect(asyncConfig.getInitParameter(TilesDispatchServlet.ASYNC_TIMEOUT_INIT_PARAMETER))
+                .andReturn("30000");
+        expect(request.isAsyncSupported()).andReturn(true);
+        expect(request.startAsync(request, response)).andReturn(asyncContext);
+        asyncContext.setTimeout(30000L);
+        asyncContext.addListener(isA(AsyncListenerStub.class));
+        expect(request.getAttribute("javax.servlet.include.servlet_path")).andReturn(null);
+        expect(request.getServletPath()).andReturn("/page.tiles");
+        expect(container.getAttributeContext(isA(ServletRequest.class))).andReturn(
+                new BasicAttributeContext());
+        expect(container.getDefinitionHandle(eq("page"), isA(ServletRequest.class))).andReturn(handle);
+        container.render(eq(handle), isA(ServletRequest.class));
+        asyncContext.complete();
+
+        replay(asyncConfig, servletContext, applicationContext, applicationScope, container,
+                request, response, asyncContext, handle);
+        servlet = new TilesDispatchServlet() {
+
+            @Override
+            protected Executor createAsyncExecutor(int threads) {
+                assertEquals(4, threads);
+                return new Executor() {
+
+                    public void execute(Runnable command) {
+                        tasks.add(command);
+                    }
+                };
+            }
+        };
+        servlet.init(asyncConfig);
+        servlet.doGet(request, response);
+        assertEquals(1, tasks.size());
+        tasks.get(0).run();
+        verify(asyncConfig, request, response, asyncContext, handle);
+    }
+
+    /**
+     * Tests {@link TilesDispatchServlet#doGet(HttpServletRequest, HttpServletResponse)}
+     * in asynchronous mode, when the request times out before being rendered.
+     *
+     * @throws ServletException If something goes wrong.
+     */
+    @Test
+    public void testDoGetAsyncTimeout() throws ServletException {
+        ServletConfig asyncConfig = createMock(ServletConfig.class);
+        AsyncHttpServletRequest request = createMock(AsyncHttpServletRequest.class);
+        HttpServletResponse response = createMock(HttpServletResponse.class);
+        AsyncContextStub asyncContext = createMock(AsyncContextStub.class);
+        Capture<AsyncListenerStub> listener = new Capture<AsyncListenerStub>();
+        final List<Runnable> tasks = new ArrayList<Runnable>();
+
+        expect(asyncConfig.getServletContext()).andReturn(servletContext).anyTimes();
+        expect(asyncConfig.getInitParameter(TilesDispatchServlet.CONTAINER_KEY_INIT_PARAMETER))
+                .andReturn("key");
+        expect(asyncConfig.getInitParameter("mutator")).andReturn(null);
+        expect(asyncConfig.getInitParameter(TilesDispatchServlet.FRAGMENT_PARAMETER_INIT_PARAMETER))
+                .andReturn(null);
+        expect(asyncConfig.getInitParameter(TilesDispatchServlet.CONDITIONAL_GET_INIT_PARAMETER))
+                .andReturn(null);
+        expect(asyncConfig.getInitParameter(TilesDispatchServlet.ASYNC_THREADS_INIT_PARAMETER))
+                .andReturn("4");
+        expect(asyncConfig.getInitParameter(TilesDispatchServlet.ASYNC_TIMEOUT_INIT_PARAMETER))
+                .andReturn(null);
+        expect(request.isAsyncSupported()).andReturn(true);
+        expect(request.startAsync(request, response)).andReturn(asyncContext);
+        asyncContext.addListener(capture(listener));
+        reset(servletContext, applicationContext, applicationScope);
+
+        replay(asyncConfig, servletContext, applicationContext, applicationScope, container,
+                request, response, asyncContext);
+        servlet = new TilesDispatchServlet() {
+
+            @Override
+            protected Executor createAsyncExecutor(int threads) {
+                return new Executor() {
+
+                    public void execute(Runnable command) {
+                        tasks.add(command);
+                    }
+                };
+            }
+        };
+        servlet.init(asyncConfig);
+        servlet.doGet(request, response);
+        assertEquals(1, tasks.size());
+        listener.getValue().onTimeout(null);
+        tasks.get(0).run();
+        verify(asyncConfig, container, request, response, asyncContext);
+    }
+
+    /**
+     * Tests {@link TilesDispatchServlet#doGet(HttpServletRequest, HttpServletResponse)}
+     * with a conditional request for a static definition.
+     *
+     * @throws ServletException If something goes wrong.
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    public void testDoGetNotModified() throws ServletException, IOException {
+        ServletConfig conditionalConfig = createMock(ServletConfig.class);
+        HttpServletRequest request1 = createMock(HttpServletRequest.class);
+        HttpServletResponse response1 = createMock(HttpServletResponse.class);
+        HttpServletRequest request2 = createMock(HttpServletRequest.class);
+        HttpServletResponse response2 = createMock(HttpServletResponse.class);
+        ApplicationResource layout = createMock(ApplicationResource.class);
+        ApplicationResource body = createMock(ApplicationResource.class);
+        DefinitionHandle handle = createMock(DefinitionHandle.class);
+        Definition definition = new Definition();
+        definition.setTemplateAttribute(Attribute.createTemplateAttribute("/layout.jsp"));
+        definition.putAttribute("title", new Attribute("Hello", null, null, "string"));
+        definition.putAttribute("body", new Attribute("/body.jsp"));
+        final Capture<String> entityTag = new Capture<String>();
+
+        expect(conditionalConfig.getServletContext()).andReturn(servletContext).anyTimes();
+        expect(conditionalConfig.getInitParameter(TilesDispatchServlet.CONTAINER_KEY_INIT_PARAMETER))
+                .andReturn("key");
+        expect(conditionalConfig.getInitParameter("mutator")).andReturn(null);
+        expect(conditionalConfig.getInitParameter(TilesDispatchServlet.FRAGMENT_PARAMETER_INIT_PARAMETER))
+                .andReturn(null);
+        expect(conditionalConfig.getInitParameter(TilesDispatchServlet.CONDITIONAL_GET_INIT_PARAMETER))
+                .andReturn("true");
+        expect(conditionalConfig.getInitParameter(TilesDispatchServlet.ASYNC_THREADS_INIT_PARAMETER))
+                .andReturn(null);
+        expect(servletContext.getAttribute(ApplicationAccess.APPLICATION_CONTEXT_ATTRIBUTE))
+                .andReturn(applicationContext);
+        expect(applicationContext.getApplicationScope()).andReturn(applicationScope);
+        expect(applicationScope.get("key")).andReturn(container);
+        expect(container.getAttributeContext(isA(ServletRequest.class))).andReturn(
+                new BasicAttributeContext()).times(4);
+        expect(container.getDefinition(eq("page"), isA(ServletRequest.class))).andReturn(definition).times(2);
+        expect(container.isValidDefinition(eq("/body.jsp"), isA(ServletRequest.class))).andReturn(false).times(2);
+        expect(applicationContext.getResource("/layout.jsp")).andReturn(layout).times(2);
+        expect(applicationContext.getResource("/body.jsp")).andReturn(body).times(2);
+        expect(layout.getLastModified()).andReturn(1000L).times(2);
+        expect(body.getLastModified()).andReturn(2000L).times(2);
+
+        expect(request1.getAttribute("javax.servlet.include.servlet_path")).andReturn(null);
+        expect(request1.getServletPath()).andReturn("/page.tiles");
+        expect(request1.getMethod()).andReturn("GET");
+        expect(request1.getSession(false)).andReturn(null);
+        expect(request1.getLocale()).andReturn(Locale.ITALY);
+        expect(request1.getHeader("If-None-Match")).andReturn(null);
+        expect(request1.getDateHeader("If-Modified-Since")).andReturn(-1L);
+        response1.setHeader(eq("ETag"), capture(entityTag));
+        response1.setHeader("Vary", "Accept-Language");
+        response1.setDateHeader(eq("Last-Modified"), anyLong());
+        expect(container.getDefinitionHandle(eq("page"), isA(ServletRequest.class))).andReturn(handle);
+        container.render(eq(handle), isA(ServletRequest.class));
+
+        expect(request2.getAttribute("javax.servlet.include.servlet_path")).andReturn(null);
+        expect(request2.getServletPath()).andReturn("/page.tiles");
+        expect(request2.getMethod()).andReturn("GET");
+        expect(request2.getSession(false)).andReturn(null);
+        expect(request2.getLocale()).andReturn(Locale.ITALY);
+        expect(request2.getHeader("If-None-Match")).andAnswer(new IAnswer<String>() {
+
+            @Override
+            public String answer() {
+                return entityTag.getValue();
+            }
+        });
+        response2.setHeader(eq("ETag"), isA(String.class));
+        response2.setHeader("Vary", "Accept-Language");
+        response2.setDateHeader(eq("Last-Modified"), anyLong());
+        response2.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+
+        replay(conditionalConfig, servletContext, applicationContext, applicationScope, container,
+                request1, response1, request2, response2, layout, body, handle);
+        servlet = new TilesDispatchServlet();
+        servlet.init(conditionalConfig);
+        servlet.doGet(request1, response1);
+        servlet.doGet(request2, response2);
+        verify(conditionalConfig, request1, response1, request2, response2, layout, body, handle);
+    }
+
+    /**
+     * Tests {@link TilesDispatchServlet#doGet(HttpServletRequest, HttpServletResponse)}
+     * rendering a fragment.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    public void testDoGetFragment() throws IOException {
+        HttpServletRequest request = createMock(HttpServletRequest.class);
+        HttpServletResponse response = createMock(HttpServletResponse.class);
+        AttributeContext originalContext = new BasicAttributeContext();
+        originalContext.putAttribute("title", new Attribute("Title"));
+        AttributeContext context = new BasicAttributeContext();
+        Attribute body = new Attribute("/body.jsp");
+        Definition definition = new Definition();
+        definition.setTemplateAttribute(Attribute.createTemplateAttribute("/layout.jsp"));
+        definition.setPreparer("preparer");
+        definition.putAttribute("body", body);
+
+        expect(request.getAttribute("javax.servlet.include.servlet_path")).andReturn(null);
+        expect(request.getServletPath()).andReturn("/page.tiles");
+        expect(request.getParameter("fragment")).andReturn("body");
+        request.setAttribute(EncodedStringRenderer.BYTE_OUTPUT_ATTRIBUTE, Boolean.TRUE);
+        expect(container.getAttributeContext(isA(ServletRequest.class))).andReturn(originalContext).times(2);
+        expect(container.getDefinition(eq("page"), isA(ServletRequest.class))).andReturn(definition);
+        expect(container.startContext(isA(ServletRequest.class))).andReturn(context);
+        container.prepare(eq("preparer"), isA(ServletRequest.class));
+        container.render(eq(body), isA(ServletRequest.class));
+        container.endContext(isA(ServletRequest.class));
+
+        replay(servletContext, applicationContext, applicationScope, container, request, response);
+        servlet.doGet(request, response);
+        verify(request, response);
+    }
+
+    /**
+     * Tests {@link TilesDispatchServlet#doGet(HttpServletRequest, HttpServletResponse)}
+     * rendering a fragment that does not exist.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    public void testDoGetFragmentNotFound() throws IOException {
+        HttpServletRequest request = createMock(HttpServletRequest.class);
+        HttpServletResponse response = createMock(HttpServletResponse.class);
+        Definition definition = new Definition();
+
+        expect(request.getAttribute("javax.servlet.include.servlet_path")).andReturn(null);
+        expect(request.getServletPath()).andReturn("/page.tiles");
+        expect(request.getParameter("fragment")).andReturn("body");
+        request.setAttribute(EncodedStringRenderer.BYTE_OUTPUT_ATTRIBUTE, Boolean.TRUE);
+        expect(container.getAttributeContext(isA(ServletRequest.class))).andReturn(
+                new BasicAttributeContext()).times(2);
+        expect(container.getDefinition(eq("page"), isA(ServletRequest.class))).andReturn(definition);
+        expect(container.startContext(isA(ServletRequest.class))).andReturn(new BasicAttributeContext());
+        response.sendError(eq(HttpServletResponse.SC_NOT_FOUND), isA(String.class));
+        container.endContext(isA(ServletRequest.class));
+
+        replay(servletContext, applicationContext, applicationScope, container, request, response);
+        servlet.doGet(request, response);
+        verify(request, response);
+    }
+
+    /**
+     * Tests {@link TilesDispatchServlet#doGet(HttpServletRequest, HttpServletResponse)}
+     * rendering a fragment of a definition that the user is not allowed to see.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    public void testDoGetFragmentForbidden() throws IOException {
+        HttpServletRequest request = createMock(HttpServletRequest.class);
+        HttpServletResponse response = createMock(HttpServletResponse.class);
+        Definition definition = new Definition();
+        definition.setTemplateAttribute(new Attribute("/admin.jsp", null, "admin", "template"));
+        definition.setPreparer("preparer");
+        definition.putAttribute("body", new Attribute("/body.jsp"));
+
+        expect(request.getAttribute("javax.servlet.include.servlet_path")).andReturn(null);
+        expect(request.getServletPath()).andReturn("/admin.tiles");
+        expect(request.getParameter("fragment")).andReturn("body");
+        request.setAttribute(EncodedStringRenderer.BYTE_OUTPUT_ATTRIBUTE, Boolean.TRUE);
+        expect(request.isUserInRole("admin")).andReturn(false);
+        expect(container.getAttributeContext(isA(ServletRequest.class))).andReturn(
+                new BasicAttributeContext()).times(2);
+        expect(container.getDefinition(eq("admin"), isA(ServletRequest.class))).andReturn(definition);
+        expect(container.startContext(isA(ServletRequest.class))).andReturn(new BasicAttributeContext());
+        response.sendError(HttpServletResponse.SC_FORBIDDEN);
+        container.endContext(isA(ServletRequest.class));
+
+        replay(servletContext, applicationContext, applicationScope, container, request, response);
+        servlet.doGet(request, response);
+        verify(request, response, container);
+    }
+
+    /**
+     * Tests {@link TilesDispatchServlet#doGet(HttpServletRequest, HttpServletResponse)}
+     * rendering a fragment of a definition whose preparer is missing.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    public void testDoGetFragmentMissingPreparer() throws IOException {
+        HttpServletRequest request = createMock(HttpServletRequest.class);
+        HttpServletResponse response = createMock(HttpServletResponse.class);
+        Attribute body = new Attribute("/body.jsp");
+        Definition definition = new Definition();
+        definition.setTemplateAttribute(Attribute.createTemplateAttribute("/layout.jsp"));
+        definition.setPreparer("missing");
+        definition.putAttribute("body", body);
+
+        expect(request.getAttribute("javax.servlet.include.servlet_path")).andReturn(null);
+        expect(request.getServletPath()).andReturn("/page.tiles");
+        expect(request.getParameter("fragment")).andReturn("body");
+        request.setAttribute(EncodedStringRenderer.BYTE_OUTPUT_ATTRIBUTE, Boolean.TRUE);
+        expect(container.getAttributeContext(isA(ServletRequest.class))).andReturn(
+                new BasicAttributeContext()).times(2);
+        expect(container.getDefinition(eq("page"), isA(ServletRequest.class))).andReturn(definition);
+        expect(container.startContext(isA(ServletRequest.class))).andReturn(new BasicAttributeContext());
+        container.prepare(eq("missing"), isA(ServletRequest.class));
+        expectLastCall().andThrow(new NoSuchPreparerException("Preparer 'missing' not found"));
+        container.render(eq(body), isA(ServletRequest.class));
+        container.endContext(isA(ServletRequest.class));
+
+        replay(servletContext, applicationContext, applicationScope, container, request, response);
+        servlet.doGet(request, response);
+        verify(request, response, container);
+    }
+
+    /**
+     * A request with the Servlet 3.0 methods used by asynchronous requests.
+     */
+    public abstract static class AsyncHttpServletRequest implements HttpServletRequest {
+
+        /**
+         * Checks if this request supports asynchronous operation.
+         *
+         * @return <code>true</code> if supported.
+         */
+        public abstract boolean isAsyncSupported();
+
+        /**
+         * Puts this request into asynchronous mode.
+         *
+         * @param request The request.
+         * @param response The response.
+         * @return The asynchronous context.
+         */
+        public abstract AsyncContextStub startAsync(javax.servlet.ServletRequest request,
+                javax.servlet.ServletResponse response);
+    }
+
+    /**
+     * The Servlet 3.0 asynchronous context methods used by the servlet.
+     */
+    public interface AsyncContextStub {
+
+        /**
+         * Sets the timeout.
+         *
+         * @param timeout The timeout in milliseconds.
+         */
+        void setTimeout(long timeout);
+
+        /**
+         * Completes the asynchronous operation.
+         */
+        void complete();
+
+        /**
+         * Registers a listener.
+         *
+         * @param listener The listener.
+         */
+        void addListener(AsyncListenerStub listener);
+    }
+
+    /**
+     * The Servlet 3.0 asynchronous listener methods used by the servlet.
+     */
+    public interface AsyncListenerStub {
+
+        /**
+         * Called when the asynchronous operation times out.
+         *
+         * @param event The event.
+         */
+        void onTimeout(Object event);
+    }
+}
@@ -21,10 +21,11 @@
 
 package org.apache.tiles.template;
 
+import java.util.ArrayDeque;
 import java.util.Deque;
-import java.util.LinkedList;
 import java.util.Map;
 
+import org.apache.tiles.access.RenderState;
 import org.apache.tiles.request.Request;
 
 /**
@@ -40,6 +41,15 @@ public final class ComposeStackUtil {
      */
     public static final String COMPOSE_STACK_ATTRIBUTE_NAME = "org.apache.tiles.template.COMPOSE_STACK";
 
+    /**
+     * Marks, on top of the compose stack, the body of a tag that inserts the
+     * attributes put in it while the page is still running, so that they can
+     * be evaluated when they are inserted.
+     *
+     * @since 3.0.8
+     */
+    static final Object DEFERRED_BODY_MARKER = new Object();
+
     /**
      * Private constructor to avoid instantiation.
      */
@@ -67,6 +77,9 @@ public final class ComposeStackUtil {
 
     /**
      * Returns the current compose stack, or creates a new one if not present.
+     * The stack is kept in the request {@link RenderState}. A stack that has
+     * been put under {@link #COMPOSE_STACK_ATTRIBUTE_NAME} before the render
+     * state was created is adopted.
      *
      * @param request The request.
      * @return The compose stack.
@@ -75,11 +88,15 @@ public final class ComposeStackUtil {
     @SuppressWarnings("unchecked")
     public static Deque<Object> getComposeStack(Request request) {
         Map<String, Object> requestScope = request.getContext("request");
-        Deque<Object> composeStack = (Deque<Object>) requestScope
-                .get(COMPOSE_STACK_ATTRIBUTE_NAME);
+        RenderState renderState = RenderState.getRenderState(requestScope);
+        Deque<Object> composeStack = renderState.getComposeStack();
         if (composeStack == null) {
-            composeStack = new LinkedList<Object>();
-            requestScope.put(ComposeStackUtil.COMPOSE_STACK_ATTRIBUTE_NAME, composeStack);
+            composeStack = (Deque<Object>) requestScope
+                    .get(COMPOSE_STACK_ATTRIBUTE_NAME);
+            if (composeStack == null) {
+                composeStack = new ArrayDeque<Object>();
+            }
+            renderState.setComposeStack(composeStack);
         }
         return composeStack;
     }
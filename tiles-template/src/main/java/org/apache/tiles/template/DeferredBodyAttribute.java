@@ -0,0 +1,128 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.template;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import org.apache.tiles.Attribute;
+import org.apache.tiles.Expression;
+import org.apache.tiles.TilesException;
+import org.apache.tiles.autotag.core.runtime.ModelBody;
+
+/**
+ * String attribute whose value is the body of a tag, evaluated only when it
+ * is needed. When it is inserted, the body is written directly to the
+ * writer, without being buffered; when its value is read, the body is
+ * evaluated as a string, once.
+ * <p>
+ * The body can be evaluated only while the page that contains the tag is
+ * running, so these attributes must be put only in the context of a template
+ * or definition that the same page is inserting. Clones share the body, so
+ * that copying the attribute context of a definition does not evaluate it.
+ * </p>
+ *
+ * @version $Rev$ $Date$
+ * @since 3.0.8
+ */
+final class DeferredBodyAttribute extends Attribute {
+
+    /**
+     * The serial version UID.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The body of the tag.
+     */
+    private transient ModelBody modelBody;
+
+    /**
+     * Constructor.
+     *
+     * @param modelBody The body of the tag.
+     */
+    DeferredBodyAttribute(ModelBody modelBody) {
+        this.modelBody = modelBody;
+    }
+
+    /**
+     * Copy constructor. The body is shared, and it is not evaluated.
+     *
+     * @param attribute The attribute to copy.
+     */
+    private DeferredBodyAttribute(DeferredBodyAttribute attribute) {
+        modelBody = attribute.modelBody;
+        value = attribute.value;
+        roles = attribute.roles;
+        if (attribute.expressionObject != null) {
+            expressionObject = new Expression(attribute.expressionObject);
+        }
+        setRenderer(attribute.getRenderer());
+    }
+
+    /**
+     * Returns the body, evaluating it the first time.
+     *
+     * @return The body as a string.
+     */
+    @Override
+    public Object getValue() {
+        if (modelBody != null) {
+            try {
+                value = modelBody.evaluateAsString();
+            } catch (IOException e) {
+                throw new TilesException("Cannot evaluate the body of the attribute", e);
+            }
+            modelBody = null;
+        }
+        return value;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void setValue(Object value) {
+        modelBody = null;
+        this.value = value;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public DeferredBodyAttribute clone() {
+        return new DeferredBodyAttribute(this);
+    }
+
+    /**
+     * Writes the body, evaluating it directly to the writer if it has not been
+     * evaluated yet.
+     *
+     * @param writer The writer.
+     * @throws IOException If something goes wrong when writing.
+     */
+    void render(Writer writer) throws IOException {
+        ModelBody body = modelBody;
+        if (body != null) {
+            body.evaluate(writer);
+        } else if (value != null) {
+            writer.write(value.toString());
+        }
+    }
+}
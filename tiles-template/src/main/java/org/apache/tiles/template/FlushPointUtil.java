@@ -0,0 +1,105 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.template;
+
+import java.util.List;
+
+import org.apache.tiles.Attribute;
+import org.apache.tiles.AttributeContext;
+import org.apache.tiles.ListAttribute;
+
+/**
+ * Utilities to work with flush points, i.e. the names of the attributes after
+ * which a layout wants the response to be flushed.<br>
+ * A layout declares its flush points by putting an attribute named
+ * {@link #FLUSH_POINTS_ATTRIBUTE_NAME}, whose value is either a comma-separated
+ * list of attribute names or a list attribute containing them. For example:
+ *
+ * <pre>
+ * &lt;definition name=&quot;layout&quot; template=&quot;/layout.jsp&quot;&gt;
+ *   &lt;put-attribute name=&quot;org.apache.tiles.template.FLUSH_POINTS&quot; value=&quot;head&quot; /&gt;
+ *   ...
+ * &lt;/definition&gt;
+ * </pre>
+ *
+ * In this way the head of the page reaches the browser as soon as it has been
+ * rendered, while the rest of the layout is still rendering.
+ *
+ * @version $Rev$ $Date$
+ * @since 3.0.8
+ */
+public final class FlushPointUtil {
+
+    /**
+     * The name of the attribute that holds the flush points of a layout.
+     */
+    public static final String FLUSH_POINTS_ATTRIBUTE_NAME = "org.apache.tiles.template.FLUSH_POINTS";
+
+    /**
+     * Private constructor to avoid instantiation.
+     */
+    private FlushPointUtil() {
+
+    }
+
+    /**
+     * Checks if the attribute with the given name is a flush point of the
+     * attribute context.
+     *
+     * @param attributeContext The attribute context declaring the flush points.
+     * @param name The name of the attribute that has just been rendered.
+     * @return <code>true</code> if the response must be flushed after the
+     * attribute.
+     * @since 3.0.8
+     */
+    public static boolean isFlushPoint(AttributeContext attributeContext, String name) {
+        if (attributeContext == null || name == null) {
+            return false;
+        }
+        Attribute flushPoints = attributeContext.getAttribute(FLUSH_POINTS_ATTRIBUTE_NAME);
+        if (flushPoints == null) {
+            return false;
+        }
+
+        if (flushPoints instanceof ListAttribute) {
+            List<Attribute> points = ((ListAttribute) flushPoints).getValue();
+            if (points != null) {
+                for (Attribute point : points) {
+                    if (point != null && name.equals(point.getValue())) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        Object value = flushPoints.getValue();
+        if (value == null) {
+            return false;
+        }
+        for (String point : value.toString().split(",")) {
+            if (name.equals(point.trim())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
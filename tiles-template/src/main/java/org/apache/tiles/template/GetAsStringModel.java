@@ -26,6 +26,7 @@ import java.io.Writer;
 import java.util.Deque;
 
 import org.apache.tiles.Attribute;
+import org.apache.tiles.BasicAttributeContext;
 import org.apache.tiles.TilesContainer;
 import org.apache.tiles.access.TilesAccess;
 import org.apache.tiles.autotag.core.runtime.ModelBody;
@@ -45,6 +46,10 @@ import org.slf4j.LoggerFactory;
  * it to the current Writer as a String. The usual toString() conversions is
  * applied on found value.
  * </p>
+ * <p>
+ * An attribute context is started for the attribute only if it is an
+ * expression, since a constant value does not depend on it.
+ * </p>
  *
  * @version $Rev$ $Date$
  * @since 2.2.0
@@ -110,20 +115,41 @@ public class GetAsStringModel {
         Attribute attribute = resolveAttribute(container, ignore, preparer,
                 role, defaultValue, defaultValueRole, defaultValueType, name,
                 value, request);
-        if (attribute != null) {
-            composeStack.push(attribute);
+        boolean constant = isConstant(attribute);
+        if (constant) {
+            // A constant does not need a context: what the body puts is discarded.
+            composeStack.push(new BasicAttributeContext());
+        } else {
+            container.startContext(request);
+            if (attribute != null) {
+                composeStack.push(attribute);
+            }
         }
         modelBody.evaluateWithoutWriting();
         container = TilesAccess.getCurrentContainer(request);
         Writer writer = request.getWriter();
-        if (attribute != null) {
+        if (constant) {
+            composeStack.pop();
+        } else if (attribute != null) {
             attribute = (Attribute) composeStack.pop();
         }
-        renderAttribute(attribute, container, writer, ignore, request);
+        renderAttribute(attribute, container, writer, ignore, !constant, request);
     }
 
     /**
-     * Resolves the attribute. and starts the context.
+     * Checks if an attribute does not need an attribute context to be
+     * evaluated, i.e. it is not an expression.
+     *
+     * @param attribute The attribute.
+     * @return <code>true</code> if the attribute is a constant.
+     */
+    private static boolean isConstant(Attribute attribute) {
+        return attribute != null && attribute.getExpressionObject() == null
+                && attribute.getValue() != null;
+    }
+
+    /**
+     * Resolves the attribute.
      *
      * @param container The Tiles container to use.
      * @param ignore If <code>true</code>, if an exception happens during
@@ -149,11 +175,9 @@ public class GetAsStringModel {
         if (preparer != null) {
             container.prepare(preparer, request);
         }
-        Attribute attribute = attributeResolver.computeAttribute(container,
-                value, name, role, ignore, defaultValue, defaultValueRole,
-                defaultValueType, request);
-        container.startContext(request);
-        return attribute;
+        return attributeResolver.computeAttribute(container, value, name,
+                role, ignore, defaultValue, defaultValueRole, defaultValueType,
+                request);
     }
 
     /**
@@ -164,11 +188,13 @@ public class GetAsStringModel {
      * @param writer The writer into which the attribute will be written.
      * @param ignore If <code>true</code>, if an exception happens during
      * rendering, of if the attribute is null, the problem will be ignored.
+     * @param endContext If <code>true</code>, the context started for the
+     * attribute is ended.
      * @param request The request.
      * @throws IOException If an I/O error happens during rendering.
      */
     private void renderAttribute(Attribute attribute, TilesContainer container,
-            Writer writer, boolean ignore, Request request)
+            Writer writer, boolean ignore, boolean endContext, Request request)
             throws IOException {
         try {
             if (attribute == null && ignore) {
@@ -191,7 +217,9 @@ public class GetAsStringModel {
                 log.debug("Ignoring exception", e);
             }
         } finally {
-            container.endContext(request);
+            if (endContext) {
+                container.endContext(request);
+            }
         }
     }
 }
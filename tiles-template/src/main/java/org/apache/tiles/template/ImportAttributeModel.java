@@ -23,10 +23,14 @@ package org.apache.tiles.template;
 
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.tiles.Attribute;
 import org.apache.tiles.AttributeContext;
+import org.apache.tiles.AttributeSymbolTable;
+import org.apache.tiles.SlottedAttributeContext;
 import org.apache.tiles.TilesContainer;
 import org.apache.tiles.access.TilesAccess;
 import org.apache.tiles.request.Request;
@@ -42,6 +46,14 @@ import org.slf4j.LoggerFactory;
  * optional. If not specified, all attributes are imported in page scope. Once
  * imported, an attribute can be used as any other beans from jsp contexts.
  * </p>
+ * <p>
+ * If the import is lazy, no attribute name is specified and a destination
+ * name is, all the attributes are imported as a single map stored with the
+ * destination name: every attribute is evaluated only when it is first read,
+ * e.g. with <code>${attrs.title}</code> in a JSP page. Since the map belongs to the
+ * request, it is evaluated immediately when it is imported in a scope that
+ * outlives the request.
+ * </p>
  *
  * @version $Rev$ $Date$
  * @since 2.2.0
@@ -61,13 +73,43 @@ public class ImportAttributeModel {
      * @param scope The scope into which the attribute(s) will be imported. If
      * <code>null</code>, the import will go in page scope.
      * @param toName The name of the attribute into which the attribute will be
-     * imported. To be used in conjunction to <code>name</code>. If
-     * <code>null</code>, the value of <code>name</code> will be used.
+     * imported. If <code>null</code>, the value of <code>name</code> will be
+     * used.
      * @param ignore If <code>true</code>, if the attribute is not present, the
      * problem will be ignored.
      * @param request The request.
+     * @since 2.2.0
      */
     public void execute(String name, String scope, String toName, boolean ignore, Request request) {
+        execute(name, scope, toName, ignore, false, request);
+    }
+
+    /**
+     * Executes the model.
+     *
+     * @param name The name of the attribute to import. If it is
+     * <code>null</code>, all the attributes will be imported.
+     * @param scope The scope into which the attribute(s) will be imported. If
+     * <code>null</code>, the import will go in page scope.
+     * @param toName The name of the attribute into which the attribute will be
+     * imported. If <code>null</code>, the value of <code>name</code> will be
+     * used. If the import is lazy and <code>name</code> is <code>null</code>,
+     * it is the name of the map into which all the attributes will be
+     * imported.
+     * @param ignore If <code>true</code>, if the attribute is not present, the
+     * problem will be ignored.
+     * @param lazy If <code>true</code>, <code>name</code> is <code>null</code>
+     * and <code>toName</code> is not, all the attributes are imported as a
+     * map, and evaluated when they are first read.
+     * @param request The request.
+     * @since 3.0.8
+     */
+    public void execute(String name, String scope, String toName, boolean ignore,
+            boolean lazy, Request request) {
+        if (lazy && name == null && toName != null) {
+            importLazily(scope, toName, ignore, request);
+            return;
+        }
         Map<String, Object> attributes = getImportedAttributes(
                 name, toName, ignore, request);
         if (scope == null) {
@@ -76,6 +118,78 @@ public class ImportAttributeModel {
         request.getContext(scope).putAll(attributes);
     }
 
+    /**
+     * Imports all the attributes as a map, whose values are evaluated when
+     * they are first read.
+     *
+     * @param scope The scope into which the map will be imported. If
+     * <code>null</code>, the import will go in page scope.
+     * @param toName The name of the map.
+     * @param ignore If <code>true</code>, null values and evaluation errors
+     * will be ignored.
+     * @param request The request.
+     */
+    private void importLazily(String scope, String toName, boolean ignore,
+            Request request) {
+        TilesContainer container = TilesAccess.getCurrentContainer(request);
+        AttributeContext attributeContext = container
+                .getAttributeContext(request);
+        Map<String, Attribute> attributes = new HashMap<String, Attribute>();
+        if (attributeContext instanceof SlottedAttributeContext) {
+            SlottedAttributeContext slottedContext = (SlottedAttributeContext) attributeContext;
+            AttributeSymbolTable symbolTable = slottedContext.getSymbolTable();
+            int slotLimit = slottedContext.getSlotLimit();
+            for (int slot = 0; slot < slotLimit; slot++) {
+                Attribute attr = slottedContext.getAttribute(slot);
+                if (attr != null) {
+                    attributes.put(symbolTable.getName(slot), attr);
+                }
+            }
+            collectAttributes(slottedContext.getUnslottedAttributeNames(),
+                    slottedContext, attributes);
+        } else {
+            collectAttributes(attributeContext.getCascadedAttributeNames(),
+                    attributeContext, attributes);
+            collectAttributes(attributeContext.getLocalAttributeNames(),
+                    attributeContext, attributes);
+        }
+
+        Map<String, Object> importedAttributes = new LazyAttributeMap(
+                container, request, attributes, ignore);
+        List<String> availableScopes = request.getAvailableScopes();
+        if (scope == null) {
+            scope = availableScopes.get(0);
+        } else if (!scope.equals(availableScopes.get(0))
+                && !Request.REQUEST_SCOPE.equals(scope)) {
+            // The lazy map would outlive the request.
+            importedAttributes = new HashMap<String, Object>(importedAttributes);
+        }
+        request.getContext(scope).put(toName, importedAttributes);
+    }
+
+    /**
+     * Collects the attributes with the given names, without evaluating them.
+     *
+     * @param names The names of the attributes.
+     * @param attributeContext The context from which the attributes will be
+     * got.
+     * @param attributes The map of the attributes to fill.
+     */
+    private void collectAttributes(Collection<String> names,
+            AttributeContext attributeContext, Map<String, Attribute> attributes) {
+        if (names == null) {
+            return;
+        }
+        for (String name : names) {
+            if (name != null) {
+                Attribute attr = attributeContext.getAttribute(name);
+                if (attr != null) {
+                    attributes.put(name, attr);
+                }
+            }
+        }
+    }
+
     /**
      * Retuns a Map that contains the attributes to be imported. The importing
      * code must be done by the caller.
@@ -102,6 +216,9 @@ public class ImportAttributeModel {
         if (name != null) {
             importSingleAttribute(container, attributeContext, name, toName,
                     ignore, retValue, request);
+        } else if (attributeContext instanceof SlottedAttributeContext) {
+            importSlottedAttributes((SlottedAttributeContext) attributeContext,
+                    container, retValue, ignore, request);
         } else {
             importAttributes(attributeContext.getCascadedAttributeNames(),
                     container, attributeContext, retValue, ignore, request);
@@ -131,29 +248,8 @@ public class ImportAttributeModel {
             Request request) {
         Attribute attr = attributeContext.getAttribute(name);
         if (attr != null) {
-            try {
-                Object attributeValue = container.evaluate(attr,
-                        request);
-                if (attributeValue == null) {
-                    if (!ignore) {
-                        throw new NoSuchAttributeException(
-                                "Error importing attributes. " + "Attribute '"
-                                        + name + "' has a null value ");
-                    }
-                } else {
-                    if (toName != null) {
-                        attributes.put(toName, attributeValue);
-                    } else {
-                        attributes.put(name, attributeValue);
-                    }
-                }
-            } catch (RuntimeException e) {
-                if (!ignore) {
-                    throw e;
-                } else if (log.isDebugEnabled()) {
-                    log.debug("Ignoring Tiles Exception", e);
-                }
-            }
+            importAttribute(container, attr, name, toName, ignore, attributes,
+                    request);
         } else if (!ignore) {
             throw new NoSuchAttributeException(
                     "Error importing attributes. " + "Attribute '" + name
@@ -161,6 +257,47 @@ public class ImportAttributeModel {
         }
     }
 
+    /**
+     * Evaluates and imports an attribute that has been found.
+     *
+     * @param container The Tiles container to use.
+     * @param attr The attribute.
+     * @param name The name of the attribute.
+     * @param toName The name of the destination attribute. If null,
+     * <code>name</code> will be used.
+     * @param ignore If <code>true</code> and an exception happens, the
+     * problem will be ignored.
+     * @param attributes The map of the attributes to fill.
+     * @param request The request.
+     */
+    private void importAttribute(TilesContainer container, Attribute attr,
+            String name, String toName, boolean ignore,
+            Map<String, Object> attributes, Request request) {
+        try {
+            Object attributeValue = container.evaluate(attr,
+                    request);
+            if (attributeValue == null) {
+                if (!ignore) {
+                    throw new NoSuchAttributeException(
+                            "Error importing attributes. " + "Attribute '"
+                                    + name + "' has a null value ");
+                }
+            } else {
+                if (toName != null) {
+                    attributes.put(toName, attributeValue);
+                } else {
+                    attributes.put(name, attributeValue);
+                }
+            }
+        } catch (RuntimeException e) {
+            if (!ignore) {
+                throw e;
+            } else if (log.isDebugEnabled()) {
+                log.debug("Ignoring Tiles Exception", e);
+            }
+        }
+    }
+
     /**
      * Imports all the attributes.
      *
@@ -194,4 +331,38 @@ public class ImportAttributeModel {
                     ignore, attributes, request);
         }
     }
+
+    /**
+     * Imports all the attributes of a slotted context, walking its slots
+     * instead of building the sets of names.
+     *
+     * @param attributeContext The context from which the attributes will be
+     * got.
+     * @param container The Tiles container to use.
+     * @param attributes The map of the attributes to fill.
+     * @param ignore If <code>true</code> and the attribute is not found, or an
+     * exception happens, the problem will be ignored.
+     * @param request The request.
+     */
+    private void importSlottedAttributes(
+            SlottedAttributeContext attributeContext, TilesContainer container,
+            Map<String, Object> attributes, boolean ignore, Request request) {
+        AttributeSymbolTable symbolTable = attributeContext.getSymbolTable();
+        int slotLimit = attributeContext.getSlotLimit();
+        for (int slot = 0; slot < slotLimit; slot++) {
+            Attribute attr = attributeContext.getAttribute(slot);
+            if (attr != null) {
+                String name = symbolTable.getName(slot);
+                importAttribute(container, attr, name, null, ignore,
+                        attributes, request);
+            }
+        }
+        Set<String> names = attributeContext.getUnslottedAttributeNames();
+        if (names != null) {
+            for (String name : names) {
+                importAttribute(container, attributeContext.getAttribute(name),
+                        name, null, ignore, attributes, request);
+            }
+        }
+    }
 }
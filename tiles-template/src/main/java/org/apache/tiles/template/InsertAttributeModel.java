@@ -25,6 +25,7 @@ import java.io.IOException;
 import java.util.Deque;
 
 import org.apache.tiles.Attribute;
+import org.apache.tiles.BasicAttributeContext;
 import org.apache.tiles.TilesContainer;
 import org.apache.tiles.access.TilesAccess;
 import org.apache.tiles.autotag.core.runtime.ModelBody;
@@ -56,12 +57,27 @@ import org.slf4j.LoggerFactory;
  *           &lt;tiles:insertAttribute name=&quot;body&quot; /&gt;
  *         &lt;/code&gt;
  * </pre>
+ * <p>
+ * If the current layout declares the attribute as one of its flush points
+ * (see {@link FlushPointUtil}), the response is flushed after the insert, as if
+ * <code>flush</code> was set.
+ * </p>
+ * <p>
+ * Attributes of the <code>string</code> type that are not expressions are
+ * rendered without starting an attribute context, since they do not depend on
+ * it.
+ * </p>
  *
  * @version $Rev$ $Date$
  * @since 2.2.0
  */
 public class InsertAttributeModel {
 
+    /**
+     * The name of the renderer of strings.
+     */
+    private static final String STRING_RENDERER_NAME = "string";
+
     /**
      * The logging object.
      */
@@ -106,7 +122,9 @@ public class InsertAttributeModel {
      * the attribute was not computed.
      * @param name The name of the attribute.
      * @param value The attribute to use immediately, if not null.
-     * @param flush If <code>true</code>, the response will be flushed after the insert.
+     * @param flush If <code>true</code>, the response will be flushed after
+     * the insert. It is also flushed if the attribute is a flush point of the
+     * current layout.
      * @param request The request.
      * @param modelBody The body.
      * @throws IOException If an I/O error happens during rendering.
@@ -118,25 +136,69 @@ public class InsertAttributeModel {
             boolean flush, Request request, ModelBody modelBody) throws IOException {
         TilesContainer container = TilesAccess.getCurrentContainer(request);
         Deque<Object> composeStack = ComposeStackUtil.getComposeStack(request);
+        if (!flush && name != null) {
+            flush = FlushPointUtil.isFlushPoint(
+                    container.getAttributeContext(request), name);
+        }
         Attribute attribute = resolveAttribute(container, ignore, preparer,
                 role, defaultValue, defaultValueRole, defaultValueType, name,
                 value, request);
-        if (attribute != null) {
-            composeStack.push(attribute);
+        boolean constant = isDeferredString(attribute) || isConstantString(attribute);
+        if (constant) {
+            // A string does not need a context: what the body puts is discarded.
+            composeStack.push(new BasicAttributeContext());
+        } else {
+            container.startContext(request);
+            if (attribute != null) {
+                composeStack.push(attribute);
+            }
         }
         modelBody.evaluateWithoutWriting();
         container = TilesAccess.getCurrentContainer(request);
-        if (attribute != null) {
+        if (constant) {
+            composeStack.pop();
+        } else if (attribute != null) {
             attribute = (Attribute) composeStack.pop();
         }
-        renderAttribute(container, ignore, attribute, request);
+        renderAttribute(container, ignore, attribute, !constant, request);
         if (flush) {
             request.getWriter().flush();
         }
     }
 
     /**
-     * Resolves the attribute. and starts the context.
+     * Checks if an attribute is rendered as a string without needing an
+     * attribute context, i.e. it has the <code>string</code> type and it is
+     * not an expression.
+     *
+     * @param attribute The attribute.
+     * @return <code>true</code> if the attribute is a constant string.
+     */
+    private static boolean isConstantString(Attribute attribute) {
+        return attribute != null
+                && STRING_RENDERER_NAME.equals(attribute.getRenderer())
+                && attribute.getExpressionObject() == null
+                && attribute.getValue() instanceof String;
+    }
+
+    /**
+     * Checks if an attribute is the deferred body of a tag, rendered as a
+     * string, that can be written directly to the output.
+     *
+     * @param attribute The attribute.
+     * @return <code>true</code> if the attribute is a deferred string.
+     */
+    private static boolean isDeferredString(Attribute attribute) {
+        if (!(attribute instanceof DeferredBodyAttribute)
+                || attribute.getExpressionObject() != null) {
+            return false;
+        }
+        String renderer = attribute.getRenderer();
+        return renderer == null || STRING_RENDERER_NAME.equals(renderer);
+    }
+
+    /**
+     * Resolves the attribute.
      *
      * @param container The Tiles container to use.
      * @param ignore If <code>true</code>, if an exception happens during
@@ -162,11 +224,9 @@ public class InsertAttributeModel {
         if (preparer != null) {
             container.prepare(preparer, request);
         }
-        Attribute attribute = attributeResolver.computeAttribute(container,
-                value, name, role, ignore, defaultValue, defaultValueRole,
-                defaultValueType, request);
-        container.startContext(request);
-        return attribute;
+        return attributeResolver.computeAttribute(container, value, name,
+                role, ignore, defaultValue, defaultValueRole, defaultValueType,
+                request);
     }
 
     /**
@@ -175,17 +235,25 @@ public class InsertAttributeModel {
      * @param ignore If <code>true</code>, if an exception happens during
      * rendering, of if the attribute is null, the problem will be ignored.
      * @param attribute The attribute to use, previously resolved.
+     * @param endContext If <code>true</code>, the context started for the
+     * attribute is ended.
      * @param request The request.
      *
      * @throws IOException If an I/O error happens during rendering.
      */
     private void renderAttribute(TilesContainer container, boolean ignore,
-            Attribute attribute, Request request) throws IOException {
+            Attribute attribute, boolean endContext, Request request) throws IOException {
         try {
             if (attribute == null && ignore) {
                 return;
             }
-            container.render(attribute, request);
+            if (isDeferredString(attribute)) {
+                if (attribute.isPermitted(request)) {
+                    ((DeferredBodyAttribute) attribute).render(request.getWriter());
+                }
+            } else {
+                container.render(attribute, request);
+            }
         } catch (IOException e) {
             if (!ignore) {
                 throw e;
@@ -199,7 +267,9 @@ public class InsertAttributeModel {
                 log.debug("Ignoring exception", e);
             }
         } finally {
-            container.endContext(request);
+            if (endContext) {
+                container.endContext(request);
+            }
         }
     }
 }
@@ -22,6 +22,7 @@
 package org.apache.tiles.template;
 
 import java.io.IOException;
+import java.util.Deque;
 
 import org.apache.tiles.Attribute;
 import org.apache.tiles.AttributeContext;
@@ -94,7 +95,13 @@ public class InsertDefinitionModel {
             throws IOException {
         TilesContainer container = TilesAccess.getCurrentContainer(request);
         container.startContext(request);
-        modelBody.evaluateWithoutWriting();
+        Deque<Object> composeStack = ComposeStackUtil.getComposeStack(request);
+        composeStack.push(ComposeStackUtil.DEFERRED_BODY_MARKER);
+        try {
+            modelBody.evaluateWithoutWriting();
+        } finally {
+            composeStack.pop();
+        }
         container = TilesAccess.getCurrentContainer(request);
         renderDefinition(container, definitionName, template, templateType,
                 templateExpression, role, preparer, flush, request);
@@ -0,0 +1,164 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.template;
+
+import java.util.AbstractMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.tiles.Attribute;
+import org.apache.tiles.TilesContainer;
+import org.apache.tiles.request.Request;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Read-only map of imported attributes, whose values are evaluated when they
+ * are first read and then kept. It belongs to the request it has been
+ * created for, and must not outlive it.
+ *
+ * @version $Rev$ $Date$
+ * @since 3.0.8
+ */
+final class LazyAttributeMap extends AbstractMap<String, Object> {
+
+    /**
+     * Marks the attributes whose value is <code>null</code> or cannot be
+     * evaluated.
+     */
+    private static final Object NO_VALUE = new Object();
+
+    /**
+     * The logging object.
+     */
+    private final Logger log = LoggerFactory.getLogger(LazyAttributeMap.class);
+
+    /**
+     * The container that evaluates the attributes.
+     */
+    private final TilesContainer container;
+
+    /**
+     * The request.
+     */
+    private final Request request;
+
+    /**
+     * The imported attributes, by name.
+     */
+    private final Map<String, Attribute> attributes;
+
+    /**
+     * If <code>true</code>, null values and evaluation errors are ignored.
+     */
+    private final boolean ignore;
+
+    /**
+     * The values evaluated so far, by name.
+     */
+    private final Map<String, Object> values = new HashMap<String, Object>();
+
+    /**
+     * Constructor.
+     *
+     * @param container The container that evaluates the attributes.
+     * @param request The request.
+     * @param attributes The imported attributes, by name.
+     * @param ignore If <code>true</code>, null values and evaluation errors
+     * are ignored.
+     */
+    LazyAttributeMap(TilesContainer container, Request request,
+            Map<String, Attribute> attributes, boolean ignore) {
+        this.container = container;
+        this.request = request;
+        this.attributes = attributes;
+        this.ignore = ignore;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Object get(Object key) {
+        Object value = values.get(key);
+        if (value == null) {
+            Attribute attribute = attributes.get(key);
+            if (attribute == null) {
+                return null;
+            }
+            value = evaluate((String) key, attribute);
+            values.put((String) key, value);
+        }
+        return value != NO_VALUE ? value : null;
+    }
+
+    /**
+     * Evaluates all the attributes that have not been read yet.
+     *
+     * @return The entries of the attributes that have a value.
+     */
+    @Override
+    public Set<Map.Entry<String, Object>> entrySet() {
+        Map<String, Object> retValue = new LinkedHashMap<String, Object>();
+        for (String name : attributes.keySet()) {
+            Object value = get(name);
+            if (value != null) {
+                retValue.put(name, value);
+            }
+        }
+        return retValue.entrySet();
+    }
+
+    /**
+     * Evaluates an attribute.
+     *
+     * @param name The name of the attribute.
+     * @param attribute The attribute.
+     * @return The value, or {@link #NO_VALUE}.
+     */
+    private Object evaluate(String name, Attribute attribute) {
+        try {
+            Object value = container.evaluate(attribute, request);
+            if (value == null) {
+                if (!ignore) {
+                    throw new NoSuchAttributeException(
+                            "Error importing attributes. " + "Attribute '"
+                                    + name + "' has a null value ");
+                }
+                return NO_VALUE;
+            }
+            return value;
+        } catch (RuntimeException e) {
+            if (!ignore) {
+                throw e;
+            } else if (log.isDebugEnabled()) {
+                log.debug("Ignoring Tiles Exception", e);
+            }
+            return NO_VALUE;
+        }
+    }
+}
@@ -65,6 +65,12 @@ import org.apache.tiles.request.Request;
  * value is not set by one of the tag attributes. In this case Attribute type is
  * "string", unless tag body define another type.
  * </p>
+ * <p>
+ * If the tag is directly inside an &lt;insertTemplate&gt; or
+ * &lt;insertDefinition&gt; tag, its body can be deferred: instead of being
+ * evaluated as a string when the attribute is put, it is written directly to
+ * the output when the attribute is inserted.
+ * </p>
  *
  * @version $Rev$ $Date$
  * @since 2.2.0
@@ -87,10 +93,47 @@ public class PutAttributeModel {
      * @throws IOException If the body cannot be evaluated.
      * @since 2.2.0
      */
+    public void execute(String name, Object value, String expression,
+            String role, String type, boolean cascade, Request request,
+            ModelBody modelBody) throws IOException {
+        execute(name, value, expression, role, type, cascade, false, request,
+                modelBody);
+    }
+
+    /**
+     * Executes the operation.
+     * @param name The name of the attribute to put.
+     * @param value The value of the attribute. Use this parameter, or
+     * expression, or body.
+     * @param expression The expression to calculate the value from. Use this
+     * parameter, or value, or body.
+     * @param role A comma-separated list of roles. If present, the attribute
+     * will be rendered only if the current user belongs to one of the roles.
+     * @param type The type (renderer) of the attribute.
+     * @param cascade If <code>true</code> the attribute will be cascaded to all nested attributes.
+     * @param deferred If <code>true</code>, and neither value nor expression
+     * are set, the body is evaluated only when the attribute is inserted. It
+     * is taken into account only inside an &lt;insertTemplate&gt; or
+     * &lt;insertDefinition&gt; tag, and the body is evaluated every time the
+     * attribute is inserted.
+     * @param request The request.
+     * @param modelBody The body.
+     * @throws IOException If the body cannot be evaluated.
+     * @since 3.0.8
+     */
     public void execute(@Parameter(required = true) String name, Object value,
             String expression, String role, String type, boolean cascade,
-            Request request, ModelBody modelBody) throws IOException {
+            boolean deferred, Request request, ModelBody modelBody)
+            throws IOException {
         Deque<Object> composeStack = ComposeStackUtil.getComposeStack(request);
+        if (deferred && value == null && expression == null && !composeStack.isEmpty()
+                && composeStack.peek() == ComposeStackUtil.DEFERRED_BODY_MARKER) {
+            TilesContainer container = TilesAccess.getCurrentContainer(request);
+            putAttributeInParent(new DeferredBodyAttribute(modelBody),
+                    container, composeStack, name, null, null, null, role,
+                    type, cascade, request);
+            return;
+        }
         Attribute attribute = new Attribute();
         composeStack.push(attribute);
         String currentBody = modelBody.evaluateAsString();
@@ -135,7 +178,7 @@ public class PutAttributeModel {
         }
         if (value != null) {
             attribute.setValue(value);
-        } else if (attribute.getValue() == null && body != null) {
+        } else if (body != null && attribute.getValue() == null) {
             attribute.setValue(body);
         }
         if (expression != null) {
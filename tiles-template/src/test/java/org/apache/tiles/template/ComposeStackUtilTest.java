@@ -30,6 +30,7 @@ import java.util.Deque;
 import java.util.HashMap;
 import java.util.Map;
 
+import org.apache.tiles.access.RenderState;
 import org.apache.tiles.request.Request;
 import org.apache.tiles.template.ComposeStackUtil;
 import org.junit.Test;
@@ -85,7 +86,7 @@ public class ComposeStackUtilTest {
 
         replay(request);
         assertSame(ComposeStackUtil.getComposeStack(request),
-                requestScope.get(ComposeStackUtil.COMPOSE_STACK_ATTRIBUTE_NAME));
+                RenderState.getRenderState(requestScope).getComposeStack());
         verify(request);
     }
 
@@ -119,7 +120,7 @@ public class ComposeStackUtilTest {
 
         replay(request);
         assertSame(ComposeStackUtil.getComposeStack(request),
-                requestScope.get(ComposeStackUtil.COMPOSE_STACK_ATTRIBUTE_NAME));
+                RenderState.getRenderState(requestScope).getComposeStack());
         verify(request);
     }
 }
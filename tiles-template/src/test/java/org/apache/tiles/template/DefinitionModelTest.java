@@ -80,7 +80,6 @@ public class DefinitionModelTest {
         ModelBody modelBody = createMock(ModelBody.class);
 
         modelBody.evaluateWithoutWriting();
-        expect(request.getApplicationContext()).andReturn(applicationContext);
         expect(request.getContext("request")).andReturn(requestScope).anyTimes();
         container.register((Definition) notNull(), eq(request));
 
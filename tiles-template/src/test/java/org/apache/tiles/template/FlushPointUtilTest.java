@@ -0,0 +1,90 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.template;
+
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.*;
+
+import org.apache.tiles.Attribute;
+import org.apache.tiles.AttributeContext;
+import org.apache.tiles.ListAttribute;
+import org.junit.Test;
+
+/**
+ * Tests {@link FlushPointUtil}.
+ *
+ * @version $Rev$ $Date$
+ */
+public class FlushPointUtilTest {
+
+    /**
+     * Test method for {@link FlushPointUtil#isFlushPoint(AttributeContext, String)}
+     * with a comma-separated list of names.
+     */
+    @Test
+    public void testIsFlushPointString() {
+        AttributeContext attributeContext = createMock(AttributeContext.class);
+
+        expect(attributeContext.getAttribute(FlushPointUtil.FLUSH_POINTS_ATTRIBUTE_NAME)).andReturn(
+                new Attribute("head , menu")).times(3);
+
+        replay(attributeContext);
+        assertTrue(FlushPointUtil.isFlushPoint(attributeContext, "head"));
+        assertTrue(FlushPointUtil.isFlushPoint(attributeContext, "menu"));
+        assertFalse(FlushPointUtil.isFlushPoint(attributeContext, "body"));
+        verify(attributeContext);
+    }
+
+    /**
+     * Test method for {@link FlushPointUtil#isFlushPoint(AttributeContext, String)}
+     * with a list attribute.
+     */
+    @Test
+    public void testIsFlushPointList() {
+        AttributeContext attributeContext = createMock(AttributeContext.class);
+        ListAttribute flushPoints = new ListAttribute();
+        flushPoints.add(new Attribute("head"));
+
+        expect(attributeContext.getAttribute(FlushPointUtil.FLUSH_POINTS_ATTRIBUTE_NAME)).andReturn(
+                flushPoints).times(2);
+
+        replay(attributeContext);
+        assertTrue(FlushPointUtil.isFlushPoint(attributeContext, "head"));
+        assertFalse(FlushPointUtil.isFlushPoint(attributeContext, "body"));
+        verify(attributeContext);
+    }
+
+    /**
+     * Test method for {@link FlushPointUtil#isFlushPoint(AttributeContext, String)}
+     * when no flush point has been declared.
+     */
+    @Test
+    public void testIsFlushPointNone() {
+        AttributeContext attributeContext = createMock(AttributeContext.class);
+
+        expect(attributeContext.getAttribute(FlushPointUtil.FLUSH_POINTS_ATTRIBUTE_NAME)).andReturn(null);
+
+        replay(attributeContext);
+        assertFalse(FlushPointUtil.isFlushPoint(attributeContext, "head"));
+        assertFalse(FlushPointUtil.isFlushPoint(null, "head"));
+        verify(attributeContext);
+    }
+}
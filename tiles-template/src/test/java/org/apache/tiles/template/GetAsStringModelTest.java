@@ -23,6 +23,7 @@ package org.apache.tiles.template;
 
 import static org.easymock.EasyMock.*;
 import static org.easymock.classextension.EasyMock.*;
+import static org.junit.Assert.*;
 
 import java.io.IOException;
 import java.io.Writer;
@@ -33,6 +34,7 @@ import java.util.Map;
 
 import org.apache.tiles.Attribute;
 import org.apache.tiles.AttributeContext;
+import org.apache.tiles.Expression;
 import org.apache.tiles.TilesContainer;
 import org.apache.tiles.access.TilesAccess;
 import org.apache.tiles.autotag.core.runtime.ModelBody;
@@ -89,7 +91,7 @@ public class GetAsStringModelTest {
         ModelBody modelBody = createMock(ModelBody.class);
 
         modelBody.evaluateWithoutWriting();
-        expect(request.getApplicationContext()).andReturn(applicationContext).times(2);
+        expect(attribute.getExpressionObject()).andReturn(new Expression("myExpression"));
         expect(request.getContext("request")).andReturn(requestScope).anyTimes();
         expect(request.getWriter()).andReturn(writer);
         container.prepare("myPreparer", request);
@@ -100,10 +102,10 @@ public class GetAsStringModelTest {
         writer.write("myValue");
         container.endContext(request);
 
-        replay(resolver, container, writer, request, applicationContext, modelBody);
+        replay(resolver, container, attribute, writer, request, applicationContext, modelBody);
         model.execute(false, "myPreparer", "myRole", "myDefaultValue", "myDefaultValueRole", "myDefaultValueType",
                 "myName", attribute, request, modelBody);
-        verify(resolver, container, writer, request, applicationContext, modelBody);
+        verify(resolver, container, attribute, writer, request, applicationContext, modelBody);
     }
 
     /**
@@ -127,7 +129,6 @@ public class GetAsStringModelTest {
         ModelBody modelBody = createMock(ModelBody.class);
 
         modelBody.evaluateWithoutWriting();
-        expect(request.getApplicationContext()).andReturn(applicationContext).times(2);
         expect(request.getContext("request")).andReturn(requestScope).anyTimes();
         expect(request.getWriter()).andReturn(writer);
         container.prepare("myPreparer", request);
@@ -142,4 +143,38 @@ public class GetAsStringModelTest {
         verify(resolver, container, writer, request, applicationContext, modelBody);
     }
 
+    /**
+     * Test method for {@link org.apache.tiles.template.GetAsStringModel
+     * #execute(boolean, java.lang.String, java.lang.String,
+     * java.lang.Object, java.lang.String, java.lang.String, java.lang.String,
+     * org.apache.tiles.Attribute, Request, ModelBody)} when the attribute is
+     * a constant, so that no context is started.
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    public void testExecuteConstant() throws IOException {
+        TilesContainer container = createMock(TilesContainer.class);
+        Attribute attribute = new Attribute("myValue");
+        Request request = createMock(Request.class);
+        Writer writer = createMock(Writer.class);
+        Map<String, Object> requestScope = new HashMap<String, Object>();
+        Deque<Object> composeStack = new ArrayDeque<Object>();
+        requestScope.put(ComposeStackUtil.COMPOSE_STACK_ATTRIBUTE_NAME, composeStack);
+        requestScope.put(TilesAccess.CURRENT_CONTAINER_ATTRIBUTE_NAME, container);
+        ModelBody modelBody = createMock(ModelBody.class);
+
+        modelBody.evaluateWithoutWriting();
+        expect(request.getContext("request")).andReturn(requestScope).anyTimes();
+        expect(request.getWriter()).andReturn(writer);
+        expect(resolver.computeAttribute(container, attribute, "myName", null, false, null,
+                null, null, request)).andReturn(attribute);
+        expect(container.evaluate(attribute, request)).andReturn("myValue");
+        writer.write("myValue");
+
+        replay(resolver, container, writer, request, modelBody);
+        model.execute(false, null, null, null, null, null, "myName", attribute, request, modelBody);
+        assertTrue(composeStack.isEmpty());
+        verify(resolver, container, writer, request, modelBody);
+    }
+
 }
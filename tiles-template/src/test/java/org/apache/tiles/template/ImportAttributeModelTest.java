@@ -24,6 +24,7 @@ package org.apache.tiles.template;
 import static org.junit.Assert.*;
 import static org.easymock.EasyMock.*;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -31,6 +32,8 @@ import java.util.Set;
 
 import org.apache.tiles.Attribute;
 import org.apache.tiles.AttributeContext;
+import org.apache.tiles.AttributeSymbolTable;
+import org.apache.tiles.SlottedAttributeContext;
 import org.apache.tiles.TilesContainer;
 import org.apache.tiles.access.TilesAccess;
 import org.apache.tiles.request.ApplicationContext;
@@ -77,7 +80,6 @@ public class ImportAttributeModelTest {
         Map<String, Object> requestScope = new HashMap<String, Object>();
         requestScope.put(TilesAccess.CURRENT_CONTAINER_ATTRIBUTE_NAME, container);
 
-        expect(request.getApplicationContext()).andReturn(applicationContext);
         expect(request.getContext("request")).andReturn(requestScope).anyTimes();
         expect(container.getAttributeContext(request)).andReturn(attributeContext);
         expect(attributeContext.getAttribute("myName")).andReturn(attribute);
@@ -105,7 +107,6 @@ public class ImportAttributeModelTest {
         Map<String, Object> requestScope = new HashMap<String, Object>();
         requestScope.put(TilesAccess.CURRENT_CONTAINER_ATTRIBUTE_NAME, container);
 
-        expect(request.getApplicationContext()).andReturn(applicationContext);
         expect(request.getContext("request")).andReturn(requestScope).anyTimes();
         expect(container.getAttributeContext(request)).andReturn(attributeContext);
         expect(attributeContext.getAttribute("myName")).andReturn(attribute);
@@ -141,7 +142,6 @@ public class ImportAttributeModelTest {
         Map<String, Object> requestScope = new HashMap<String, Object>();
         requestScope.put(TilesAccess.CURRENT_CONTAINER_ATTRIBUTE_NAME, container);
 
-        expect(request.getApplicationContext()).andReturn(applicationContext);
         expect(request.getContext("request")).andReturn(requestScope).anyTimes();
         expect(container.getAttributeContext(request)).andReturn(attributeContext);
         expect(attributeContext.getCascadedAttributeNames()).andReturn(cascadedNames);
@@ -163,6 +163,115 @@ public class ImportAttributeModelTest {
         verify(container, attributeContext, request, applicationContext);
     }
 
+    /**
+     * Test method for {@link org.apache.tiles.template.ImportAttributeModel
+     * #execute(String, String, String, boolean, Request), importing all the
+     * attributes of a {@link SlottedAttributeContext}. The destination name is
+     * ignored, since the import is not lazy.
+     */
+    @Test
+    public void testExecuteAllSlotted() {
+        TilesContainer container = createMock(TilesContainer.class);
+        Request request = createMock(Request.class);
+        Attribute attribute1 = new Attribute("myValue1");
+        Attribute attribute2 = new Attribute("myValue2");
+        Attribute attribute3 = new Attribute("myValue3");
+        AttributeSymbolTable symbolTable = new AttributeSymbolTable();
+        symbolTable.getSlot("unused");
+        SlottedAttributeContext attributeContext = new SlottedAttributeContext(symbolTable);
+        attributeContext.putAttribute("myName1", new Attribute("myCascaded1"), true);
+        attributeContext.putAttribute("myName2", attribute2, true);
+        attributeContext.putAttribute("myName1", attribute1);
+        attributeContext.putAttribute("myName3", attribute3);
+        Map<String, Object> requestScope = new HashMap<String, Object>();
+        requestScope.put(TilesAccess.CURRENT_CONTAINER_ATTRIBUTE_NAME, container);
+
+        expect(request.getContext("request")).andReturn(requestScope).anyTimes();
+        expect(container.getAttributeContext(request)).andReturn(attributeContext);
+        expect(container.evaluate(attribute1, request)).andReturn("myEvaluatedValue1");
+        expect(container.evaluate(attribute2, request)).andReturn("myEvaluatedValue2");
+        expect(container.evaluate(attribute3, request)).andReturn("myEvaluatedValue3");
+
+        replay(container, request);
+        model.execute(null, "request", "attrs", false, request);
+        Map<String, Object> attributes = requestScope;
+        assertEquals(ATTRIBUTES_SIZE, attributes.size());
+        assertEquals("myEvaluatedValue1", attributes.get("myName1"));
+        assertEquals("myEvaluatedValue2", attributes.get("myName2"));
+        assertEquals("myEvaluatedValue3", attributes.get("myName3"));
+        verify(container, request);
+    }
+
+    /**
+     * Test method for {@link org.apache.tiles.template.ImportAttributeModel
+     * #execute(String, String, String, boolean, boolean, Request), importing
+     * all the attributes lazily.
+     */
+    @Test
+    public void testExecuteAllLazy() {
+        TilesContainer container = createMock(TilesContainer.class);
+        Request request = createMock(Request.class);
+        Attribute attribute1 = new Attribute("myValue1");
+        Attribute attribute2 = new Attribute("myValue2");
+        AttributeSymbolTable symbolTable = new AttributeSymbolTable();
+        SlottedAttributeContext attributeContext = new SlottedAttributeContext(symbolTable);
+        attributeContext.putAttribute("myName1", attribute1, true);
+        attributeContext.putAttribute("myName2", attribute2);
+        Map<String, Object> requestScope = new HashMap<String, Object>();
+        requestScope.put(TilesAccess.CURRENT_CONTAINER_ATTRIBUTE_NAME, container);
+
+        expect(request.getContext("request")).andReturn(requestScope).anyTimes();
+        expect(request.getAvailableScopes()).andReturn(
+                Arrays.asList("request", "session", "application"));
+        expect(container.getAttributeContext(request)).andReturn(attributeContext);
+        expect(container.evaluate(attribute2, request)).andReturn("myEvaluatedValue2");
+
+        replay(container, request);
+        model.execute(null, "request", "attrs", false, true, request);
+        @SuppressWarnings("unchecked")
+        Map<String, Object> attributes = (Map<String, Object>) requestScope.get("attrs");
+        assertEquals("myEvaluatedValue2", attributes.get("myName2"));
+        assertEquals("myEvaluatedValue2", attributes.get("myName2"));
+        assertNull(attributes.get("myName3"));
+        verify(container, request);
+    }
+
+    /**
+     * Test method for {@link org.apache.tiles.template.ImportAttributeModel
+     * #execute(String, String, String, boolean, boolean, Request), importing
+     * all the attributes lazily in a scope that outlives the request.
+     */
+    @Test
+    public void testExecuteAllLazySession() {
+        TilesContainer container = createMock(TilesContainer.class);
+        Request request = createMock(Request.class);
+        AttributeContext attributeContext = createMock(AttributeContext.class);
+        Attribute attribute1 = new Attribute("myValue1");
+        Set<String> localNames = new HashSet<String>();
+        localNames.add("myName1");
+        Map<String, Object> requestScope = new HashMap<String, Object>();
+        requestScope.put(TilesAccess.CURRENT_CONTAINER_ATTRIBUTE_NAME, container);
+        Map<String, Object> sessionScope = new HashMap<String, Object>();
+
+        expect(request.getContext("request")).andReturn(requestScope).anyTimes();
+        expect(request.getContext("session")).andReturn(sessionScope);
+        expect(request.getAvailableScopes()).andReturn(
+                Arrays.asList("request", "session", "application"));
+        expect(container.getAttributeContext(request)).andReturn(attributeContext);
+        expect(attributeContext.getCascadedAttributeNames()).andReturn(null);
+        expect(attributeContext.getLocalAttributeNames()).andReturn(localNames);
+        expect(attributeContext.getAttribute("myName1")).andReturn(attribute1);
+        expect(container.evaluate(attribute1, request)).andReturn("myEvaluatedValue1");
+
+        replay(container, attributeContext, request);
+        model.execute(null, "session", "attrs", false, true, request);
+        verify(container, attributeContext, request);
+        Map<String, Object> expected = new HashMap<String, Object>();
+        expected.put("myName1", "myEvaluatedValue1");
+        assertEquals(expected, sessionScope.get("attrs"));
+        assertEquals(HashMap.class, sessionScope.get("attrs").getClass());
+    }
+
     /**
      * Test method for {@link org.apache.tiles.template.ImportAttributeModel
      * #execute(String, String, String, boolean, Request).
@@ -176,7 +285,6 @@ public class ImportAttributeModelTest {
         Map<String, Object> requestScope = new HashMap<String, Object>();
         requestScope.put(TilesAccess.CURRENT_CONTAINER_ATTRIBUTE_NAME, container);
 
-        expect(request.getApplicationContext()).andReturn(applicationContext);
         expect(request.getContext("request")).andReturn(requestScope).anyTimes();
         expect(container.getAttributeContext(request)).andReturn(attributeContext);
         expect(attributeContext.getAttribute("myName")).andReturn(null);
@@ -203,7 +311,6 @@ public class ImportAttributeModelTest {
         Map<String, Object> requestScope = new HashMap<String, Object>();
         requestScope.put(TilesAccess.CURRENT_CONTAINER_ATTRIBUTE_NAME, container);
 
-        expect(request.getApplicationContext()).andReturn(applicationContext);
         expect(request.getContext("request")).andReturn(requestScope).anyTimes();
         expect(container.getAttributeContext(request)).andReturn(attributeContext);
         expect(attributeContext.getAttribute("myName")).andReturn(attribute);
@@ -231,7 +338,6 @@ public class ImportAttributeModelTest {
         Map<String, Object> requestScope = new HashMap<String, Object>();
         requestScope.put(TilesAccess.CURRENT_CONTAINER_ATTRIBUTE_NAME, container);
 
-        expect(request.getApplicationContext()).andReturn(applicationContext);
         expect(request.getContext("request")).andReturn(requestScope).anyTimes();
         expect(container.getAttributeContext(request)).andReturn(attributeContext);
         expect(attributeContext.getAttribute("myName")).andReturn(attribute);
@@ -258,7 +364,6 @@ public class ImportAttributeModelTest {
         Map<String, Object> requestScope = new HashMap<String, Object>();
         requestScope.put(TilesAccess.CURRENT_CONTAINER_ATTRIBUTE_NAME, container);
 
-        expect(request.getApplicationContext()).andReturn(applicationContext);
         expect(request.getContext("request")).andReturn(requestScope).anyTimes();
         expect(container.getAttributeContext(request)).andReturn(attributeContext);
         expect(attributeContext.getAttribute("myName")).andReturn(null);
@@ -282,7 +387,6 @@ public class ImportAttributeModelTest {
         Map<String, Object> requestScope = new HashMap<String, Object>();
         requestScope.put(TilesAccess.CURRENT_CONTAINER_ATTRIBUTE_NAME, container);
 
-        expect(request.getApplicationContext()).andReturn(applicationContext);
         expect(request.getContext("request")).andReturn(requestScope).anyTimes();
         expect(container.getAttributeContext(request)).andReturn(attributeContext);
         expect(attributeContext.getAttribute("myName")).andReturn(attribute);
@@ -307,7 +411,6 @@ public class ImportAttributeModelTest {
         Map<String, Object> requestScope = new HashMap<String, Object>();
         requestScope.put(TilesAccess.CURRENT_CONTAINER_ATTRIBUTE_NAME, container);
 
-        expect(request.getApplicationContext()).andReturn(applicationContext);
         expect(request.getContext("request")).andReturn(requestScope).anyTimes();
         expect(container.getAttributeContext(request)).andReturn(attributeContext);
         expect(attributeContext.getAttribute("myName")).andReturn(attribute);
@@ -22,8 +22,11 @@
 package org.apache.tiles.template;
 
 import static org.easymock.EasyMock.*;
+import static org.junit.Assert.*;
 
 import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.util.ArrayDeque;
 import java.util.Deque;
 import java.util.HashMap;
@@ -36,6 +39,7 @@ import org.apache.tiles.access.TilesAccess;
 import org.apache.tiles.autotag.core.runtime.ModelBody;
 import org.apache.tiles.request.ApplicationContext;
 import org.apache.tiles.request.Request;
+import org.easymock.IAnswer;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -83,9 +87,10 @@ public class InsertAttributeModelTest {
         ModelBody modelBody = createMock(ModelBody.class);
 
         modelBody.evaluateWithoutWriting();
-        expect(request.getApplicationContext()).andReturn(applicationContext).times(2);
         expect(request.getContext("request")).andReturn(requestScope).anyTimes();
 
+        expect(container.getAttributeContext(request)).andReturn(attributeContext);
+        expect(attributeContext.getAttribute(FlushPointUtil.FLUSH_POINTS_ATTRIBUTE_NAME)).andReturn(null);
         container.prepare("myPreparer", request);
         expect(resolver.computeAttribute(container, attribute, "myName", "myRole", false, "myDefaultValue",
                 "myDefaultValueRole", "myDefaultValueType", request)).andReturn(attribute);
@@ -93,10 +98,48 @@ public class InsertAttributeModelTest {
         container.endContext(request);
         container.render(attribute, request);
 
-        replay(resolver, container, request, applicationContext, modelBody);
+        replay(resolver, container, request, applicationContext, modelBody, attributeContext);
         model.execute(false, "myPreparer", "myRole", "myDefaultValue", "myDefaultValueRole",
                 "myDefaultValueType", "myName", attribute, false, request, modelBody);
-        verify(resolver, container, request, applicationContext, modelBody);
+        verify(resolver, container, request, applicationContext, modelBody, attributeContext);
+    }
+
+    /**
+     * Test method for {@link org.apache.tiles.template.InsertAttributeModel
+     * #execute(boolean, String, String, Object, String, String, String,
+     * Attribute, boolean, Request, ModelBody)} when the attribute is a flush
+     * point of the layout.
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    public void testExecuteFlushPoint() throws IOException {
+        TilesContainer container = createMock(TilesContainer.class);
+        Request request = createMock(Request.class);
+        Attribute attribute = new Attribute("myValue");
+        AttributeContext attributeContext = createMock(AttributeContext.class);
+        Map<String, Object> requestScope = new HashMap<String, Object>();
+        requestScope.put(TilesAccess.CURRENT_CONTAINER_ATTRIBUTE_NAME, container);
+        ApplicationContext applicationContext = createMock(ApplicationContext.class);
+        ModelBody modelBody = createMock(ModelBody.class);
+        Writer writer = createMock(Writer.class);
+
+        modelBody.evaluateWithoutWriting();
+        expect(request.getContext("request")).andReturn(requestScope).anyTimes();
+        expect(request.getWriter()).andReturn(writer);
+        writer.flush();
+
+        expect(container.getAttributeContext(request)).andReturn(attributeContext);
+        expect(attributeContext.getAttribute(FlushPointUtil.FLUSH_POINTS_ATTRIBUTE_NAME)).andReturn(
+                new Attribute("head, myName"));
+        expect(resolver.computeAttribute(container, attribute, "myName", null, false, null,
+                null, null, request)).andReturn(attribute);
+        expect(container.startContext(request)).andReturn(attributeContext);
+        container.endContext(request);
+        container.render(attribute, request);
+
+        replay(resolver, container, request, applicationContext, modelBody, attributeContext, writer);
+        model.execute(false, null, null, null, null, null, "myName", attribute, false, request, modelBody);
+        verify(resolver, container, request, applicationContext, modelBody, attributeContext, writer);
     }
 
     /**
@@ -118,18 +161,96 @@ public class InsertAttributeModelTest {
         ModelBody modelBody = createMock(ModelBody.class);
 
         modelBody.evaluateWithoutWriting();
-        expect(request.getApplicationContext()).andReturn(applicationContext).times(2);
         expect(request.getContext("request")).andReturn(requestScope).anyTimes();
 
+        expect(container.getAttributeContext(request)).andReturn(attributeContext);
+        expect(attributeContext.getAttribute(FlushPointUtil.FLUSH_POINTS_ATTRIBUTE_NAME)).andReturn(null);
         container.prepare("myPreparer", request);
         expect(resolver.computeAttribute(container, null, "myName", "myRole", true, "myDefaultValue",
                 "myDefaultValueRole", "myDefaultValueType", request)).andReturn(null);
         expect(container.startContext(request)).andReturn(attributeContext);
         container.endContext(request);
 
-        replay(resolver, container, request, applicationContext, modelBody);
+        replay(resolver, container, request, applicationContext, modelBody, attributeContext);
         model.execute(true, "myPreparer", "myRole", "myDefaultValue", "myDefaultValueRole",
                 "myDefaultValueType", "myName", null, false, request, modelBody);
-        verify(resolver, container, request, applicationContext, modelBody);
+        verify(resolver, container, request, applicationContext, modelBody, attributeContext);
+    }
+    /**
+     * Test method for {@link org.apache.tiles.template.InsertAttributeModel
+     * #execute(boolean, String, String, Object, String, String, String,
+     * Attribute, boolean, Request, ModelBody)} when the attribute is a
+     * constant string, so that no context is started.
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    public void testExecuteConstantString() throws IOException {
+        TilesContainer container = createMock(TilesContainer.class);
+        Request request = createMock(Request.class);
+        Attribute attribute = new Attribute("myValue");
+        attribute.setRenderer("string");
+        AttributeContext attributeContext = createMock(AttributeContext.class);
+        Map<String, Object> requestScope = new HashMap<String, Object>();
+        final Deque<Object> composeStack = new ArrayDeque<Object>();
+        requestScope.put(ComposeStackUtil.COMPOSE_STACK_ATTRIBUTE_NAME, composeStack);
+        requestScope.put(TilesAccess.CURRENT_CONTAINER_ATTRIBUTE_NAME, container);
+        ModelBody modelBody = createMock(ModelBody.class);
+
+        modelBody.evaluateWithoutWriting();
+        expectLastCall().andAnswer(new IAnswer<Object>() {
+
+            @Override
+            public Object answer() {
+                assertTrue(composeStack.peek() instanceof AttributeContext);
+                return null;
+            }
+        });
+        expect(request.getContext("request")).andReturn(requestScope).anyTimes();
+        expect(container.getAttributeContext(request)).andReturn(attributeContext);
+        expect(attributeContext.getAttribute(FlushPointUtil.FLUSH_POINTS_ATTRIBUTE_NAME)).andReturn(null);
+        expect(resolver.computeAttribute(container, attribute, "myName", null, false, null,
+                null, null, request)).andReturn(attribute);
+        container.render(attribute, request);
+
+        replay(resolver, container, request, modelBody, attributeContext);
+        model.execute(false, null, null, null, null, null, "myName", attribute, false, request, modelBody);
+        assertTrue(composeStack.isEmpty());
+        verify(resolver, container, request, modelBody, attributeContext);
+    }
+
+    /**
+     * Tests {@link InsertAttributeModel#execute(boolean, String, String,
+     * String, String, String, String, Attribute, boolean, Request, ModelBody)}
+     * when the attribute is a deferred body.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    public void testExecuteDeferred() throws IOException {
+        TilesContainer container = createMock(TilesContainer.class);
+        Request request = createMock(Request.class);
+        ModelBody attributeBody = createMock(ModelBody.class);
+        Attribute attribute = new DeferredBodyAttribute(attributeBody);
+        AttributeContext attributeContext = createMock(AttributeContext.class);
+        Map<String, Object> requestScope = new HashMap<String, Object>();
+        Deque<Object> composeStack = new ArrayDeque<Object>();
+        requestScope.put(ComposeStackUtil.COMPOSE_STACK_ATTRIBUTE_NAME, composeStack);
+        requestScope.put(TilesAccess.CURRENT_CONTAINER_ATTRIBUTE_NAME, container);
+        ModelBody modelBody = createMock(ModelBody.class);
+        Writer writer = new StringWriter();
+
+        modelBody.evaluateWithoutWriting();
+        expect(request.getContext("request")).andReturn(requestScope).anyTimes();
+        expect(request.getWriter()).andReturn(writer);
+        expect(container.getAttributeContext(request)).andReturn(attributeContext);
+        expect(attributeContext.getAttribute(FlushPointUtil.FLUSH_POINTS_ATTRIBUTE_NAME)).andReturn(null);
+        expect(resolver.computeAttribute(container, attribute, "myName", null, false, null,
+                null, null, request)).andReturn(attribute);
+        attributeBody.evaluate(writer);
+
+        replay(resolver, container, request, modelBody, attributeBody, attributeContext);
+        model.execute(false, null, null, null, null, null, "myName", attribute, false, request, modelBody);
+        assertTrue(composeStack.isEmpty());
+        verify(resolver, container, request, modelBody, attributeBody, attributeContext);
     }
 }
@@ -75,7 +75,6 @@ public class InsertDefinitionModelTest {
         ModelBody modelBody = createMock(ModelBody.class);
 
         modelBody.evaluateWithoutWriting();
-        expect(request.getApplicationContext()).andReturn(applicationContext).times(2);
         expect(request.getContext("request")).andReturn(requestScope).anyTimes();
         expect(container.startContext(request)).andReturn(attributeContext);
         expect(container.getAttributeContext(request)).andReturn(attributeContext);
@@ -23,8 +23,10 @@ package org.apache.tiles.template;
 
 import static org.easymock.EasyMock.*;
 import static org.easymock.classextension.EasyMock.*;
+import static org.junit.Assert.*;
 
 import java.io.IOException;
+import java.io.StringWriter;
 import java.util.ArrayDeque;
 import java.util.Deque;
 import java.util.HashMap;
@@ -32,6 +34,7 @@ import java.util.Map;
 
 import org.apache.tiles.Attribute;
 import org.apache.tiles.AttributeContext;
+import org.apache.tiles.BasicAttributeContext;
 import org.apache.tiles.ListAttribute;
 import org.apache.tiles.TilesContainer;
 import org.apache.tiles.access.TilesAccess;
@@ -79,7 +82,6 @@ public class PutAttributeModelTest {
         requestScope.put(TilesAccess.CURRENT_CONTAINER_ATTRIBUTE_NAME, container);
         ApplicationContext applicationContext = createMock(ApplicationContext.class);
 
-        expect(request.getApplicationContext()).andReturn(applicationContext);
         expect(request.getContext("request")).andReturn(requestScope).anyTimes();
         expect(container.getAttributeContext(request)).andReturn(attributeContext);
         attributeContext.putAttribute(eq("myName"), (Attribute) notNull(), eq(false));
@@ -90,4 +92,41 @@ public class PutAttributeModelTest {
                 "myType", false, request, modelBody);
         verify(container, attributeContext, request, applicationContext, modelBody);
     }
+
+    /**
+     * Test method for {@link org.apache.tiles.template.PutAttributeModel
+     * #execute(String, Object, String, String, String,
+     * boolean, boolean, Request, ModelBody)} when the body is deferred.
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    public void testExecuteDeferred() throws IOException {
+        TilesContainer container = createMock(TilesContainer.class);
+        Request request = createMock(Request.class);
+        ModelBody modelBody = createMock(ModelBody.class);
+        AttributeContext attributeContext = new BasicAttributeContext();
+        Deque<Object> composeStack = new ArrayDeque<Object>();
+        composeStack.push(ComposeStackUtil.DEFERRED_BODY_MARKER);
+        Map<String, Object> requestScope = new HashMap<String, Object>();
+        requestScope.put(ComposeStackUtil.COMPOSE_STACK_ATTRIBUTE_NAME, composeStack);
+        requestScope.put(TilesAccess.CURRENT_CONTAINER_ATTRIBUTE_NAME, container);
+        StringWriter writer = new StringWriter();
+
+        expect(request.getContext("request")).andReturn(requestScope).anyTimes();
+        expect(container.getAttributeContext(request)).andReturn(attributeContext);
+        modelBody.evaluate(writer);
+
+        replay(container, request, modelBody);
+        model.execute("myName", null, null, "myRole", null, false, true,
+                request, modelBody);
+        Attribute attribute = attributeContext.getLocalAttribute("myName");
+        assertTrue(attribute instanceof DeferredBodyAttribute);
+        assertEquals("myRole", attribute.getRole());
+        Attribute copy = attribute.clone();
+        assertTrue(copy instanceof DeferredBodyAttribute);
+        assertEquals("myRole", copy.getRole());
+        ((DeferredBodyAttribute) copy).render(writer);
+        assertSame(ComposeStackUtil.DEFERRED_BODY_MARKER, composeStack.peek());
+        verify(container, request, modelBody);
+    }
 }
@@ -25,6 +25,8 @@ import java.io.IOException;
 import java.io.Writer;
 
 import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 
 import org.apache.tiles.Attribute;
 import org.apache.tiles.AttributeContext;
@@ -33,17 +35,34 @@ import org.apache.tiles.access.TilesAccess;
 import org.apache.tiles.request.Request;
 import org.apache.tiles.request.servlet.ServletUtil;
 import org.apache.tiles.request.velocity.VelocityRequest;
+import org.apache.velocity.context.Context;
 import org.apache.velocity.context.InternalContextAdapter;
 import org.apache.velocity.runtime.Renderable;
 
 /**
  * Tiles Tool to be used "the classic way".
+ * <p>
+ * The Tiles requests are created once and then reused, as long as the tool
+ * is used with the same objects of the current request: one for the calls that
+ * do not write anything, one for the last writer that has been rendered to.
+ * The renderables write directly to the writer Velocity renders them to.
+ * </p>
  *
  * @version $Rev$ $Date$
  * @since 2.2.0
  */
 public class VelocityStyleTilesTool extends ContextHolder {
 
+    /**
+     * The request used by calls that do not write.
+     */
+    private RequestHolder requestHolder;
+
+    /**
+     * The request used by the last renderable that has been rendered.
+     */
+    private RequestHolder writerRequestHolder;
+
     /**
      * Returns an attribute.
      *
@@ -52,8 +71,7 @@ public class VelocityStyleTilesTool extends ContextHolder {
      * @since 2.2.0
      */
     public Attribute get(String key) {
-        Request velocityRequest = createVelocityRequest(getServletContext(),
-                null);
+        Request velocityRequest = getVelocityRequest(null);
         TilesContainer container = TilesAccess.getCurrentContainer(velocityRequest);
         AttributeContext attributeContext = container
                 .getAttributeContext(velocityRequest);
@@ -106,8 +124,7 @@ public class VelocityStyleTilesTool extends ContextHolder {
 
             public boolean render(InternalContextAdapter context, Writer writer)
                     throws IOException {
-                Request velocityRequest = createVelocityRequest(
-                        getServletContext(), writer);
+                Request velocityRequest = getVelocityRequest(writer);
                 TilesContainer container = TilesAccess
                         .getCurrentContainer(velocityRequest);
                 container.render(attribute, velocityRequest);
@@ -131,8 +148,7 @@ public class VelocityStyleTilesTool extends ContextHolder {
                 null, getResponse(), getRequest()) {
 
             public boolean render(InternalContextAdapter context, Writer writer) {
-                Request velocityRequest = createVelocityRequest(
-                        getServletContext(), writer);
+                Request velocityRequest = getVelocityRequest(writer);
                 TilesContainer container = TilesAccess
                         .getCurrentContainer(velocityRequest);
                 container.render(definitionName, velocityRequest);
@@ -155,8 +171,7 @@ public class VelocityStyleTilesTool extends ContextHolder {
                 null, getResponse(), getRequest()) {
 
             public boolean render(InternalContextAdapter context, Writer writer) {
-                Request velocityRequest = createVelocityRequest(
-                        getServletContext(), writer);
+                Request velocityRequest = getVelocityRequest(writer);
                 TilesContainer container = TilesAccess
                         .getCurrentContainer(velocityRequest);
                 container.renderContext(velocityRequest);
@@ -174,8 +189,7 @@ public class VelocityStyleTilesTool extends ContextHolder {
      * @since 2.2.0
      */
     public AttributeContext startAttributeContext() {
-        Request velocityRequest = createVelocityRequest(
-                getServletContext(), null);
+        Request velocityRequest = getVelocityRequest(null);
         TilesContainer container = TilesAccess
                 .getCurrentContainer(velocityRequest);
         return container.startContext(velocityRequest);
@@ -189,8 +203,7 @@ public class VelocityStyleTilesTool extends ContextHolder {
      * @since 2.2.0
      */
     public VelocityStyleTilesTool endAttributeContext() {
-        Request velocityRequest = createVelocityRequest(getServletContext(),
-                null);
+        Request velocityRequest = getVelocityRequest(null);
         TilesContainer container = TilesAccess
                 .getCurrentContainer(velocityRequest);
         container.endContext(velocityRequest);
@@ -204,8 +217,7 @@ public class VelocityStyleTilesTool extends ContextHolder {
      * @since 2.2.0
      */
     public AttributeContext getAttributeContext() {
-        Request velocityRequest = createVelocityRequest(
-                getServletContext(), null);
+        Request velocityRequest = getVelocityRequest(null);
         TilesContainer container = TilesAccess
                 .getCurrentContainer(velocityRequest);
         return container.getAttributeContext(velocityRequest);
@@ -219,8 +231,7 @@ public class VelocityStyleTilesTool extends ContextHolder {
      * @since 2.2.0
      */
     public VelocityStyleTilesTool setCurrentContainer(String containerKey) {
-        Request velocityRequest = createVelocityRequest(
-                getServletContext(), null);
+        Request velocityRequest = getVelocityRequest(null);
         TilesAccess.setCurrentContainer(velocityRequest, containerKey);
         return this;
     }
@@ -231,6 +242,30 @@ public class VelocityStyleTilesTool extends ContextHolder {
         return "";
     }
 
+    /**
+     * Returns the Velocity request for the current state of the tool, creating
+     * it if the one kept for the writer does not belong to the same request.
+     *
+     * @param writer The writer, or <code>null</code> if nothing is written.
+     * @return The request.
+     * @since 3.0.8
+     */
+    protected Request getVelocityRequest(Writer writer) {
+        RequestHolder holder = writer != null ? writerRequestHolder : requestHolder;
+        if (holder == null || !holder.isFor(getRequest(), getResponse(),
+                getVelocityContext(), getServletContext(), writer)) {
+            holder = new RequestHolder(getRequest(), getResponse(),
+                    getVelocityContext(), getServletContext(), writer,
+                    createVelocityRequest(getServletContext(), writer));
+            if (writer != null) {
+                writerRequestHolder = holder;
+            } else {
+                requestHolder = holder;
+            }
+        }
+        return holder.velocityRequest;
+    }
+
     /**
      * Creates a Velocity request.
      *
@@ -244,4 +279,83 @@ public class VelocityStyleTilesTool extends ContextHolder {
                 .getApplicationContext(servletContext), getRequest(),
                 getResponse(), getVelocityContext(), writer);
     }
+
+    /**
+     * Keeps a Velocity request together with the objects it has been created
+     * for.
+     */
+    private static final class RequestHolder {
+
+        /**
+         * The HTTP request.
+         */
+        private final HttpServletRequest request;
+
+        /**
+         * The HTTP response.
+         */
+        private final HttpServletResponse response;
+
+        /**
+         * The Velocity context.
+         */
+        private final Context velocityContext;
+
+        /**
+         * The servlet context.
+         */
+        private final ServletContext servletContext;
+
+        /**
+         * The writer.
+         */
+        private final Writer writer;
+
+        /**
+         * The Velocity request.
+         */
+        private final Request velocityRequest;
+
+        /**
+         * Constructor.
+         *
+         * @param request The HTTP request.
+         * @param response The HTTP response.
+         * @param velocityContext The Velocity context.
+         * @param servletContext The servlet context.
+         * @param writer The writer.
+         * @param velocityRequest The Velocity request.
+         */
+        private RequestHolder(HttpServletRequest request,
+                HttpServletResponse response, Context velocityContext,
+                ServletContext servletContext, Writer writer,
+                Request velocityRequest) {
+            this.request = request;
+            this.response = response;
+            this.velocityContext = velocityContext;
+            this.servletContext = servletContext;
+            this.writer = writer;
+            this.velocityRequest = velocityRequest;
+        }
+
+        /**
+         * Checks if the Velocity request has been created for the given
+         * objects.
+         *
+         * @param request The HTTP request.
+         * @param response The HTTP response.
+         * @param velocityContext The Velocity context.
+         * @param servletContext The servlet context.
+         * @param writer The writer.
+         * @return <code>true</code> if the Velocity request can be reused.
+         */
+        private boolean isFor(HttpServletRequest request,
+                HttpServletResponse response, Context velocityContext,
+                ServletContext servletContext, Writer writer) {
+            return this.request == request && this.response == response
+                    && this.velocityContext == velocityContext
+                    && this.servletContext == servletContext
+                    && this.writer == writer;
+        }
+    }
 }
@@ -23,16 +23,22 @@ package org.apache.tiles.velocity.template;
 
 import static org.easymock.EasyMock.eq;
 import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.getCurrentArguments;
 import static org.easymock.EasyMock.isA;
 import static org.easymock.classextension.EasyMock.createMock;
 import static org.easymock.classextension.EasyMock.replay;
 import static org.easymock.classextension.EasyMock.verify;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 import java.io.IOException;
 import java.io.StringWriter;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import javax.servlet.ServletContext;
@@ -46,10 +52,12 @@ import org.apache.tiles.TilesContainer;
 import org.apache.tiles.access.TilesAccess;
 import org.apache.tiles.request.ApplicationAccess;
 import org.apache.tiles.request.ApplicationContext;
+import org.apache.tiles.request.Request;
 import org.apache.tiles.request.velocity.VelocityRequest;
 import org.apache.velocity.context.Context;
 import org.apache.velocity.context.InternalContextAdapter;
 import org.apache.velocity.runtime.Renderable;
+import org.easymock.IAnswer;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -207,6 +215,50 @@ public class VelocityStyleTilesToolTest {
                 internalContextAdapter, applicationContext);
     }
 
+    /**
+     * Tests that {@link org.apache.tiles.velocity.template.VelocityStyleTilesTool
+     * #render(org.apache.tiles.Attribute)} reuses the request for the same
+     * writer.
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    public void testRenderAttributeReusesRequest() throws IOException {
+        TilesContainer container = createMock(TilesContainer.class);
+        InternalContextAdapter internalContextAdapter = createMock(InternalContextAdapter.class);
+        ApplicationContext applicationContext = createMock(ApplicationContext.class);
+        StringWriter writer = new StringWriter();
+        Attribute attribute = new Attribute("myValue");
+        Map<String, Object> applicationScope = new HashMap<String, Object>();
+        final List<Request> requests = new ArrayList<Request>();
+
+        expect(request.getAttribute(TilesAccess.CURRENT_CONTAINER_ATTRIBUTE_NAME))
+                .andReturn(container).times(3);
+        expect(applicationContext.getApplicationScope()).andReturn(applicationScope).anyTimes();
+        expect(servletContext.getAttribute(ApplicationAccess
+                .APPLICATION_CONTEXT_ATTRIBUTE)).andReturn(applicationContext)
+                .times(2);
+        container.render(eq(attribute), isA(VelocityRequest.class));
+        expectLastCall().andAnswer(new IAnswer<Object>() {
+
+            @Override
+            public Object answer() {
+                requests.add((Request) getCurrentArguments()[1]);
+                return null;
+            }
+        }).times(3);
+
+        replay(velocityContext, request, response, servletContext, container,
+                internalContextAdapter, applicationContext);
+        initializeTool();
+        tool.render(attribute).render(internalContextAdapter, writer);
+        tool.render(attribute).render(internalContextAdapter, writer);
+        tool.render(attribute).render(internalContextAdapter, new StringWriter());
+        assertSame(requests.get(0), requests.get(1));
+        assertNotSame(requests.get(0), requests.get(2));
+        verify(velocityContext, request, response, servletContext, container,
+                internalContextAdapter, applicationContext);
+    }
+
     /**
      * Test method for {@link org.apache.tiles.velocity.template.VelocityStyleTilesTool
      * #renderDefinition(java.lang.String)}.